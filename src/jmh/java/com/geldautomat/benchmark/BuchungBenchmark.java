@@ -0,0 +1,82 @@
+package com.geldautomat.benchmark;
+
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den Durchsatz von Einzahlungen, Auszahlungen und Überweisungen, wenn mehrere Threads
+ * gleichzeitig buchen. Je weniger Konten, desto häufiger treffen sich die Threads auf demselben
+ * Konto bzw. derselben Sperre. Die Zahl der Threads wird mit -t eingestellt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(4)
+public class BuchungBenchmark {
+    @Param({"2", "64", "100000"})
+    private int anzahlKonten;
+
+    private BankManagementSystem system;
+    private Girokonto[] konten;
+
+    @Setup
+    public void setUp() {
+        // Der Überziehungsbetrag reicht für jede Laufzeit, sodass keine Auszahlung scheitert
+        system = Testdaten.system(anzahlKonten * 3 / 2 + 1, 1, Long.MAX_VALUE / 4);
+        konten = new Girokonto[anzahlKonten];
+        int anzahl = 0;
+        for (Konto konto : system.getBanks().get(0).getKonten()) {
+            if (konto instanceof Girokonto && anzahl < konten.length) {
+                konten[anzahl++] = (Girokonto) konto;
+            }
+        }
+    }
+
+    /**
+     * Der Zufallsgenerator jedes Threads.
+     */
+    @State(Scope.Thread)
+    public static class Auswahl {
+        private final SplittableRandom zufall = new SplittableRandom(Testdaten.STARTWERT);
+
+        int naechstes(int anzahl) {
+            return zufall.nextInt(anzahl);
+        }
+    }
+
+    @Benchmark
+    public void einzahlen(Auswahl auswahl) {
+        konten[auswahl.naechstes(konten.length)].einzahlen(0.01);
+    }
+
+    @Benchmark
+    public void auszahlen(Auswahl auswahl) {
+        konten[auswahl.naechstes(konten.length)].auszahlen(0.01);
+    }
+
+    @Benchmark
+    public void ueberweisen(Auswahl auswahl) {
+        int sender = auswahl.naechstes(konten.length);
+        int empfaenger = (sender + 1 + auswahl.naechstes(konten.length - 1)) % konten.length;
+        system.ueberweisen(konten[sender], konten[empfaenger], 1);
+    }
+}
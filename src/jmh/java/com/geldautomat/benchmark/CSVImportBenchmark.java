@@ -0,0 +1,61 @@
+package com.geldautomat.benchmark;
+
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.util.CSVImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Dauer eines kompletten CSV-Imports, sequenziell und parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CSVImportBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int anzahlKonten;
+
+    @Param({"50"})
+    private int anzahlBanken;
+
+    private Path datei;
+
+    @Setup
+    public void setUp() throws IOException {
+        datei = Files.createTempFile("geldautomat-benchmark", ".csv");
+        Testdaten.csvSchreiben(datei, anzahlKonten, anzahlBanken);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(datei);
+    }
+
+    @Benchmark
+    public BankManagementSystem loadFromCSV() throws IOException {
+        return CSVImporter.loadFromCSV(datei.toString());
+    }
+
+    @Benchmark
+    public BankManagementSystem loadFromCSVParallel() throws IOException {
+        return CSVImporter.loadFromCSVParallel(datei.toString());
+    }
+}
@@ -0,0 +1,79 @@
+package com.geldautomat.benchmark;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Konto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Dauer einer Suche nach Konto bzw. Bank. Die gesuchten Nummern werden vorab zufällig
+ * gewählt und reihum verwendet, damit nicht immer derselbe Eintrag im Cache liegt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SucheBenchmark {
+    private static final int SCHLUESSEL = 4096;
+
+    @Param({"1000", "100000", "1000000"})
+    private int anzahlKonten;
+
+    @Param({"1", "100"})
+    private int anzahlBanken;
+
+    private BankManagementSystem system;
+    private Bank bank;
+    private final int[] kontonummern = new int[SCHLUESSEL];
+    private final String[] blz = new String[SCHLUESSEL];
+    private int naechster;
+
+    @Setup
+    public void setUp() {
+        system = Testdaten.system(anzahlKonten, anzahlBanken, 100_000);
+        bank = system.getBankByBLZ(Testdaten.blz(0));
+        Random zufall = new Random(Testdaten.STARTWERT);
+        int kontenJeBank = anzahlKonten / anzahlBanken;
+        for (int i = 0; i < SCHLUESSEL; i++) {
+            kontonummern[i] = zufall.nextInt(kontenJeBank);
+            // Die BLZ-Strings sind neue Objekte, wie nach dem Einlesen aus der Login-Maske
+            blz[i] = new String(Testdaten.blz(zufall.nextInt(anzahlBanken)));
+        }
+    }
+
+    @Benchmark
+    public Konto getKontoByKontonummer() {
+        return bank.getKontoByKontonummer(kontonummern[naechster++ & (SCHLUESSEL - 1)]);
+    }
+
+    @Benchmark
+    public Konto getKontoByKontonummerNichtVorhanden() {
+        return bank.getKontoByKontonummer(-1 - kontonummern[naechster++ & (SCHLUESSEL - 1)]);
+    }
+
+    @Benchmark
+    public Bank getBankByBLZ() {
+        return system.getBankByBLZ(blz[naechster++ & (SCHLUESSEL - 1)]);
+    }
+
+    @Benchmark
+    public Konto getKonto() {
+        int i = naechster++ & (SCHLUESSEL - 1);
+        return system.getKonto(blz[i], kontonummern[i]);
+    }
+}
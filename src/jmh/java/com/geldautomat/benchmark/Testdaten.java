@@ -0,0 +1,80 @@
+package com.geldautomat.benchmark;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Erzeugt reproduzierbare Testdaten für die Benchmarks. Konto i gehört zur Bank i % anzahlBanken
+ * und hat dort die Kontonummer i / anzahlBanken. Jedes dritte Konto ist ein Sparkonto.
+ */
+final class Testdaten {
+    static final long STARTWERT = 42;
+
+    private Testdaten() {
+    }
+
+    static String blz(int bank) {
+        return "BLZ" + bank;
+    }
+
+    /**
+     * Schreibt eine CSV-Datei im Format des CSVImporters.
+     * Die Datei enthält nur ASCII-Zeichen und ist daher in jedem Standardzeichensatz lesbar.
+     */
+    static void csvSchreiben(Path datei, int anzahlKonten, int anzahlBanken) throws IOException {
+        Random zufall = new Random(STARTWERT);
+        try (Writer aus = Files.newBufferedWriter(datei, StandardCharsets.US_ASCII)) {
+            aus.write("Bank;BLZ;Kontonummer;PIN;Kontostand;Kontoart;Zins %;Ueberziehungsbetrag;Kundennummer;Name;Vorname;Kunde Strasse;Kunde PLZ;Kunde Ort\n");
+            for (int i = 0; i < anzahlKonten; i++) {
+                int bank = i % anzahlBanken;
+                int kontonummer = i / anzahlBanken;
+                int kunde = kontonummer / 2;
+                boolean sparkonto = i % 3 == 0;
+                aus.write("Bank " + bank + ";" + blz(bank) + ";" + kontonummer + ";" + (1000 + i % 9000) + ";"
+                        + (zufall.nextInt(100500) - 500) + "," + (10 + zufall.nextInt(90)) + ";"
+                        + (sparkonto ? "Sparkonto;1,5%;;" : "Girokonto;;1.000;")
+                        + kunde + ";Name" + kunde + ";Vorname" + kunde + ";Strasse " + kunde + ";"
+                        + String.format("%05d", kunde % 100000) + ";Ort\n");
+            }
+        }
+    }
+
+    /**
+     * Erzeugt ein Bankverwaltungssystem direkt im Speicher.
+     *
+     * @param ueberziehungsbetrag Der Überziehungsbetrag der Girokonten in Cent.
+     */
+    static BankManagementSystem system(int anzahlKonten, int anzahlBanken, long ueberziehungsbetrag) {
+        Random zufall = new Random(STARTWERT);
+        BankManagementSystem system = new BankManagementSystem();
+        Bank[] banken = new Bank[anzahlBanken];
+        for (int b = 0; b < anzahlBanken; b++) {
+            banken[b] = new Bank(blz(b), "Bank " + b, system);
+        }
+        for (int i = 0; i < anzahlKonten; i++) {
+            Bank bank = banken[i % anzahlBanken];
+            int kontonummer = i / anzahlBanken;
+            Kontoinhaber kontoinhaber = new Kontoinhaber(kontonummer, "Vorname" + i, "Name" + i, "Straße " + i, "00000", "Ort");
+            long kontostand = zufall.nextInt(10_000_000);
+            if (i % 3 == 0) {
+                bank.addKonto(new Sparkonto(kontonummer, 1000 + i % 9000, kontostand, kontoinhaber, bank, 1.5));
+            } else {
+                bank.addKonto(new Girokonto(kontonummer, 1000 + i % 9000, kontostand, kontoinhaber, bank, ueberziehungsbetrag));
+            }
+        }
+        for (Bank bank : banken) {
+            system.addBank(bank);
+        }
+        return system;
+    }
+}
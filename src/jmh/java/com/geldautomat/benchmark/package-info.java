@@ -0,0 +1,18 @@
+/**
+ * JMH-Benchmarks für Import, Suche und Buchungen.
+ * Die Benchmarks liegen getrennt von den Tests unter src/jmh/java und gehören nicht zum Eclipse-Projekt,
+ * da sie JMH benötigen (jmh-core und jmh-generator-annprocess, Version 1.37). Übersetzen und starten:
+ *
+ * <pre>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar:... -d bin-jmh \
+ *     $(find src/main/java src/jmh/java -name "*.java")
+ * java -cp bin-jmh:jmh-core.jar:... org.openjdk.jmh.Main -rf json -rff ergebnis.json
+ * </pre>
+ *
+ * Der Workflow .github/workflows/Benchmarks.yml lädt JMH, übersetzt die Benchmarks auf dieselbe Weise
+ * und startet einen kurzen Lauf mit je einer Iteration, der nur prüft, dass alle Benchmarks laufen.
+ *
+ * Alle Testdaten werden mit festem Startwert erzeugt (siehe Testdaten), sodass jeder Lauf dieselben
+ * Konten verwendet. Vor einem Release werden die Ergebnisse mit denen des vorherigen Releases verglichen.
+ */
+package com.geldautomat.benchmark;
@@ -2,13 +2,20 @@ package com.geldautomat.Geldautomat;
 
 import com.geldautomat.controller.LoginController;
 import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.persistenz.Journal;
+import com.geldautomat.persistenz.Snapshot;
+import com.geldautomat.service.TransaktionsService;
 import com.geldautomat.util.CSVImporter;
+import com.geldautomat.util.CSVNachlader;
 import com.geldautomat.view.LoginView;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Geldautomat {
     public static void main(String[] args) {
@@ -25,8 +32,7 @@ public class Geldautomat {
             String filepath = selectedFile.getAbsolutePath();
 
             try {
-                BankManagementSystem bankManagementSystem = CSVImporter.loadFromCSV(filepath);
-                new LoginController(new LoginView(), bankManagementSystem);
+                new LoginController(new LoginView(), laden(filepath));
 
             } catch (IOException e) {
                 JOptionPane.showMessageDialog(null, "Fehler:\n" + e.getMessage(),
@@ -40,4 +46,62 @@ public class Geldautomat {
                     "Information", JOptionPane.INFORMATION_MESSAGE);
         }
     }
+
+    /**
+     * Lädt das Bankverwaltungssystem zu einer CSV-Datei.
+     * Gibt es neben der CSV-Datei einen Snapshot, wird dieser geladen, sonst die CSV-Datei importiert.
+     * Danach werden die Buchungen aus dem Journal eingespielt, die noch nicht enthalten sind, und
+     * bei Bedarf ein neuer Snapshot geschrieben, damit der nächste Start nur neue Buchungen einspielt.
+     * Ist die CSV-Datei neuer als der Snapshot, werden ihre neuen Konten vor dem Einspielen ergänzt,
+     * da das Journal Buchungen auf Konten enthalten kann, die im laufenden Betrieb nachgeladen wurden.
+     * Entfernte Konten werden erst nach dem Einspielen entfernt. Danach wird die
+     * CSV-Datei beobachtet und bei jeder Änderung im laufenden Betrieb nachgeladen (siehe CSVNachlader).
+     * Beim Beenden werden die Messwerte des Service neben die CSV-Datei geschrieben.
+     *
+     * @param filepath Der Pfad der CSV-Datei.
+     * @return Der TransaktionsService, der Buchungen in das Journal schreibt.
+     * @throws IOException Wenn eine der Dateien nicht gelesen oder geschrieben werden kann.
+     */
+    private static TransaktionsService laden(String filepath) throws IOException {
+        Path snapshotDatei = Paths.get(filepath + ".snapshot");
+        Path journalDatei = Paths.get(filepath + ".journal");
+        BankManagementSystem bankManagementSystem;
+        long sequenz = 0;
+        long position = 0;
+        boolean snapshotVorhanden = Files.exists(snapshotDatei);
+        boolean csvGeaendert = snapshotVorhanden
+                && Files.getLastModifiedTime(Paths.get(filepath)).compareTo(Files.getLastModifiedTime(snapshotDatei)) > 0;
+        if (snapshotVorhanden) {
+            Snapshot snapshot = Snapshot.laden(snapshotDatei);
+            bankManagementSystem = snapshot.getBankManagementSystem();
+            sequenz = snapshot.getJournalSequenz();
+            position = snapshot.getJournalPosition();
+        } else {
+            bankManagementSystem = CSVImporter.loadFromCSV(filepath);
+        }
+        Journal journal = Journal.oeffnen(journalDatei);
+        CSVNachlader nachlader = new CSVNachlader(bankManagementSystem, filepath);
+        if (csvGeaendert) {
+            nachlader.ergaenzen();
+        }
+        long eingespielt = Journal.abspielen(journalDatei, bankManagementSystem, sequenz, position);
+        if (csvGeaendert) {
+            nachlader.nachladen();
+        }
+        if (!snapshotVorhanden || csvGeaendert || eingespielt > sequenz) {
+            // Es laufen noch keine Buchungen, daher passen Kontostände und Journalstand zusammen
+            Snapshot.schreiben(snapshotDatei, bankManagementSystem, journal.getSequenz(), journal.getPosition());
+        }
+        nachlader.starten();
+        TransaktionsService service = new TransaktionsService(bankManagementSystem, journal);
+        Path messwerteDatei = Paths.get(filepath + ".messwerte");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                service.getMesswerte().schreiben(messwerteDatei);
+            } catch (IOException e) {
+                System.err.println("Messwerte konnten nicht geschrieben werden: " + e.getMessage());
+            }
+        }));
+        return service;
+    }
 }
@@ -1,6 +1,8 @@
 package com.geldautomat.controller;
 
 import com.geldautomat.model.*;
+import com.geldautomat.service.Ergebnis;
+import com.geldautomat.service.TransaktionsService;
 import com.geldautomat.view.*;
 
 import java.awt.event.ActionEvent;
@@ -10,30 +12,35 @@ import javax.swing.JOptionPane;
 
 /**
  * Diese Klasse stellt den Controller für die Konto-Funktion dar.
- * Sie verarbeitet Benutzereingaben aus der Konto-Ansicht und führt entsprechende Aktionen im Modell aus.
+ * Sie verarbeitet Benutzereingaben aus der Konto-Ansicht und führt entsprechende Aktionen über den TransaktionsService aus.
+ * Die Aufrufe des Service laufen über den Vorgangsausfuehrer im Hintergrund, die Eingaben der Ansicht sind solange gesperrt.
  */
 public class KontoController {
+    private static final int ANZAHL_UMSAETZE = 10;
+
     private KontoView view;
     private Konto konto;
-    private BankManagementSystem managementSystem;
+    private TransaktionsService service;
+    private final Vorgangsausfuehrer ausfuehrer = Vorgangsausfuehrer.standard();
 
     /**
      * Konstruktor für die KontoController Klasse.
-     * Initialisiert den Controller mit der gegebenen Ansicht, dem Konto und dem Bankverwaltungssystem.
+     * Initialisiert den Controller mit der gegebenen Ansicht, dem Konto und dem TransaktionsService.
      *
      * @param kontoView Die Konto-Ansicht.
      * @param konto Das Konto.
-     * @param managementSystem Das Bankverwaltungssystem des Kontos.
+     * @param service Der TransaktionsService für das Bankverwaltungssystem des Kontos.
      */
-    public KontoController(KontoView kontoView, Konto konto, BankManagementSystem managementSystem) {
+    public KontoController(KontoView kontoView, Konto konto, TransaktionsService service) {
         this.view = kontoView;
         this.konto = konto;
-        this.managementSystem = managementSystem;
+        this.service = service;
         kontoView.setKonto(konto);
 
         this.view.getLogoutButton().addActionListener(new LogoutListener());
         this.view.getEinzahlenButton().addActionListener(new EinzahlenListener());
         this.view.getAuszahlenButton().addActionListener(new AuszahlenListener());
+        this.view.getUmsaetzeButton().addActionListener(new UmsaetzeListener());
         this.view.getUeberweisenButton().addActionListener(new UeberweisenListener());
         this.view.getKontoDropDown().addActionListener(new KontoDropDownListener());
     }
@@ -46,58 +53,105 @@ public class KontoController {
     class LogoutListener implements ActionListener {
         public void actionPerformed(ActionEvent e) {
         	view.dispose();
-        	new LoginController(new LoginView(), managementSystem);
+        	new LoginController(new LoginView(), service);
         }
     }
 
 	class EinzahlenListener implements ActionListener {
 		public void actionPerformed(ActionEvent e) {
 			EinzahlenView auszahlenView = new EinzahlenView(view);
-			double betrag = auszahlenView.getBetrag();
+			long betrag = auszahlenView.getBetrag();
 			if (betrag == -1) {
 				JOptionPane.showMessageDialog(view, "Einzahlung abgebrochen.", "Fehler", JOptionPane.INFORMATION_MESSAGE);
 				return;
 			}
-			konto.einzahlen(betrag);
-			JOptionPane.showMessageDialog(view, "Die Einzahlung wurde erfolgreich durchgeführt.", "Erfolg",
-					JOptionPane.INFORMATION_MESSAGE);
-			view.setKonto(konto); // Aktualisiert die Anzeige
+			Konto ziel = konto;
+			ausfuehrer.ausfuehren(view, () -> service.einzahlen(ziel, betrag), ergebnis -> {
+				if (!ergebnis.istErfolgreich()) {
+					JOptionPane.showMessageDialog(view, ergebnis.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+				JOptionPane.showMessageDialog(view, "Die Einzahlung wurde erfolgreich durchgeführt.", "Erfolg",
+						JOptionPane.INFORMATION_MESSAGE);
+				view.setKonto(konto); // Aktualisiert die Anzeige
+			}, view.getEingaben());
 		}
 	}
 
 	class AuszahlenListener implements ActionListener {
 		public void actionPerformed(ActionEvent e) {
 			AuszahlenView auszahlenView = new AuszahlenView(view);
-			double betrag = auszahlenView.getBetrag();
+			long betrag = auszahlenView.getBetrag();
 			if (betrag == -1) {
 				JOptionPane.showMessageDialog(view, "Auszahlung abgebrochen.", "Fehler",
 						JOptionPane.INFORMATION_MESSAGE);
 				return;
 			}
-			if (konto.getKontostand() < betrag) {
-			    if (konto instanceof Girokonto && ((Girokonto) konto).getUeberziehungsbetrag() >= betrag - konto.getKontostand()) {
-			        int confirmResult = JOptionPane.showConfirmDialog(view, "Möchten Sie das Konto überziehen?", "Bestätigung", JOptionPane.YES_NO_OPTION);
-			        if (confirmResult != JOptionPane.YES_OPTION) {
-			            return;
-			        }
-			    } else {
-			        JOptionPane.showMessageDialog(view, "Sie haben nicht genug Geld auf dem Konto.", "Fehler", JOptionPane.ERROR_MESSAGE);
-			        return;
-			    }
-			}
-			konto.auszahlen(betrag);
-			JOptionPane.showMessageDialog(view, "Die Auszahlung wurde erfolgreich durchgeführt.", "Erfolg",
-					JOptionPane.INFORMATION_MESSAGE);
-			view.setKonto(konto); // Aktualisiert die Anzeige
+			Konto quelle = konto;
+			ausfuehrer.ausfuehren(view, () -> service.deckungPruefen(quelle, betrag), deckung -> {
+				if (deckung.getStatus() == Ergebnis.Status.UEBERZIEHUNG) {
+				    int confirmResult = JOptionPane.showConfirmDialog(view, deckung.getMeldung(), "Bestätigung", JOptionPane.YES_NO_OPTION);
+				    if (confirmResult != JOptionPane.YES_OPTION) {
+				        return;
+				    }
+				} else if (!deckung.istErfolgreich()) {
+				    JOptionPane.showMessageDialog(view, deckung.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
+				    return;
+				}
+				auszahlen(quelle, betrag);
+			}, view.getEingaben());
+		}
+
+		private void auszahlen(Konto quelle, long betrag) {
+			// Ein anderer Automat kann das Konto seit der Prüfung belastet haben
+			ausfuehrer.ausfuehren(view, () -> service.auszahlen(quelle, betrag), ergebnis -> {
+				if (!ergebnis.istErfolgreich()) {
+					JOptionPane.showMessageDialog(view, ergebnis.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
+					view.setKonto(konto);
+					return;
+				}
+				JOptionPane.showMessageDialog(view, "Die Auszahlung wurde erfolgreich durchgeführt.", "Erfolg",
+						JOptionPane.INFORMATION_MESSAGE);
+				view.setKonto(konto); // Aktualisiert die Anzeige
+			}, view.getEingaben());
 		}
 	}
 
     
 
+    class UmsaetzeListener implements ActionListener {
+        public void actionPerformed(ActionEvent e) {
+            Kontoverlauf.Auszug auszug = new Kontoverlauf.Auszug(ANZAHL_UMSAETZE);
+            service.letzteUmsaetze(konto, ANZAHL_UMSAETZE, auszug);
+            UmsaetzeView umsaetzeView = new UmsaetzeView(view, auszug);
+            umsaetzeView.getAeltereButton().setEnabled(service.hatJournal());
+            Konto angezeigt = konto;
+            umsaetzeView.getAeltereButton().addActionListener(event -> {
+                long vorSequenz = auszug.size() == 0 ? 0 : auszug.getSequenz(auszug.size() - 1);
+                // Das Journal wird in einen eigenen Auszug gelesen, die Tabelle liest währenddessen weiter den angezeigten
+                Kontoverlauf.Auszug aeltere = new Kontoverlauf.Auszug(ANZAHL_UMSAETZE);
+                ausfuehrer.ausfuehren(umsaetzeView, () -> service.aeltereUmsaetze(angezeigt, vorSequenz, ANZAHL_UMSAETZE, aeltere),
+                        anzahl -> {
+                            for (int i = 0; i < anzahl; i++) {
+                                auszug.hinzufuegen(aeltere.getArt(i), aeltere.getBetragCent(i), aeltere.getKontostandCent(i),
+                                        aeltere.getGegenBlz(i), aeltere.getGegenKontonummer(i), aeltere.getSequenz(i),
+                                        aeltere.getZeitpunkt(i));
+                            }
+                            umsaetzeView.aktualisieren();
+                            if (anzahl < ANZAHL_UMSAETZE) {
+                                umsaetzeView.getAeltereButton().setEnabled(false);
+                            }
+                        }, umsaetzeView.getAeltereButton());
+            });
+            umsaetzeView.getSchliessenButton().addActionListener(event -> umsaetzeView.dispose());
+            umsaetzeView.setVisible(true);
+        }
+    }
+
     class UeberweisenListener implements ActionListener {
         public void actionPerformed(ActionEvent e) {
         	UeberweisenView ueberweisenView = new UeberweisenView();
-            new UeberweisenController(ueberweisenView, konto, view, managementSystem);
+            new UeberweisenController(ueberweisenView, konto, view, service);
         }
     }
 
@@ -1,6 +1,7 @@
 package com.geldautomat.controller;
 
 import com.geldautomat.model.*;
+import com.geldautomat.service.TransaktionsService;
 import com.geldautomat.view.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -13,10 +14,12 @@ import javax.swing.JOptionPane;
 /**
  * Diese Klasse stellt den Controller für die Login-Funktion dar.
  * Sie verarbeitet Benutzereingaben aus der Login-Ansicht und startet bei übereinstimmung eine KontoView.
+ * Die Anmeldung selbst übernimmt der TransaktionsService, sie läuft über den Vorgangsausfuehrer im Hintergrund.
  */
 public class LoginController {
     private LoginView view;
-    private BankManagementSystem managementSystem;
+    private TransaktionsService service;
+    private final Vorgangsausfuehrer ausfuehrer = Vorgangsausfuehrer.standard();
 
     /**
      * Konstruktor für die LoginController Klasse.
@@ -27,8 +30,18 @@ public class LoginController {
      * @param managementSystem Das Bankverwaltungssystem.
      */
     public LoginController(LoginView view, BankManagementSystem managementSystem) {
+        this(view, new TransaktionsService(managementSystem));
+    }
+
+    /**
+     * Konstruktor für die LoginController Klasse mit einem bestehenden TransaktionsService.
+     *
+     * @param view Die Login-Ansicht.
+     * @param service Der TransaktionsService.
+     */
+    public LoginController(LoginView view, TransaktionsService service) {
         this.view = view;
-        this.managementSystem = managementSystem;
+        this.service = service;
         
         view.getBlzField().addKeyListener(new KeyAdapter() {
             @Override
@@ -98,27 +111,16 @@ public class LoginController {
             return;
         }
 
-        // Existiert Bank?
-        Bank bank = managementSystem.getBankByBLZ(blz);
-        if (bank == null) {
-            JOptionPane.showMessageDialog(view, "Bank nicht gefunden.", "Fehler", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Existiert Account?
-        Konto konto = bank.getKontoByKontonummer(Integer.parseInt(kontonummer));
-        if (konto == null) {
-            JOptionPane.showMessageDialog(view, "Konto nicht gefunden.", "Fehler", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Passwort korrekt?
-        if (!konto.checkPassword(Integer.parseInt(passwort))) {
-            JOptionPane.showMessageDialog(view, "Falsches Passwort.", "Fehler", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        new KontoController(new KontoView(), konto, managementSystem);
-        view.dispose();
+        // Existieren Bank und Konto, ist das Passwort korrekt?
+        int nummer = Integer.parseInt(kontonummer);
+        int pin = Integer.parseInt(passwort);
+        ausfuehrer.ausfuehren(view, () -> service.anmelden(blz, nummer, pin), ergebnis -> {
+            if (!ergebnis.istErfolgreich()) {
+                JOptionPane.showMessageDialog(view, ergebnis.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            new KontoController(new KontoView(), ergebnis.getKonto(), service);
+            view.dispose();
+        }, view.getEingaben());
     }
 }
@@ -1,6 +1,8 @@
 package com.geldautomat.controller;
 
 import com.geldautomat.model.*;
+import com.geldautomat.service.Ergebnis;
+import com.geldautomat.service.TransaktionsService;
 import com.geldautomat.view.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -11,27 +13,29 @@ import javax.swing.JOptionPane;
 
 /**
  * Diese Klasse stellt den Controller für die Überweisungsfunktion dar.
- * Sie verarbeitet Benutzereingaben aus der Überweisungsansicht und führt entsprechende Aktionen im Modell aus.
+ * Sie verarbeitet Benutzereingaben aus der Überweisungsansicht und führt entsprechende Aktionen über den TransaktionsService aus.
+ * Prüfung und Überweisung laufen über den Vorgangsausfuehrer im Hintergrund.
  */
 public class UeberweisenController {
     private UeberweisenView view;
     private Konto senderKonto;
     KontoView kontoview; // Für View Update
-    private BankManagementSystem managementSystem;
+    private TransaktionsService service;
+    private final Vorgangsausfuehrer ausfuehrer = Vorgangsausfuehrer.standard();
 
     /**
      * Konstruktor für die UeberweisenController Klasse.
-     * Initialisiert den Controller mit der gegebenen Ansicht, dem Senderkonto und dem Bankverwaltungssystem.
+     * Initialisiert den Controller mit der gegebenen Ansicht, dem Senderkonto und dem TransaktionsService.
      * Erhöhter Komfort für Benutzereingaben durch automtisches Wechseln des Fokus bei Entertaste.
      *
      * @param view Die Überweisungsansicht.
      * @param senderKonto Das Konto, von dem die Überweisung ausgeht.
-     * @param bankManagementSystem Das Bankverwaltungssystem.
+     * @param service Der TransaktionsService.
      */
-    public UeberweisenController(UeberweisenView view, Konto senderKonto, KontoView kontoview, BankManagementSystem bankManagementSystem) {
+    public UeberweisenController(UeberweisenView view, Konto senderKonto, KontoView kontoview, TransaktionsService service) {
         this.view = view;
         this.senderKonto = senderKonto;
-        this.managementSystem = bankManagementSystem;
+        this.service = service;
         this.kontoview = kontoview;
         
         view.getBlzTextField().addKeyListener(new KeyAdapter() {
@@ -91,41 +95,46 @@ public class UeberweisenController {
     private void ueberweisen() {
         String blz = view.getBlzTextField().getText();
         String kontonummer = view.getKontonummerTextField().getText();
-        double betrag = Double.parseDouble(view.getBetragTextField().getText());
-        
-        Bank empfaengerBank = managementSystem.getBankByBLZ(blz);
-        Konto empfaengerKonto = null;
-        if (empfaengerBank != null) { empfaengerKonto = empfaengerBank.getKontoByKontonummer(Integer.parseInt(kontonummer));}
-
-        if (empfaengerBank == null || empfaengerKonto == null) {
-            // Das Empfängerkonto existiert nicht
-            JOptionPane.showMessageDialog(view, "Das Empfängerkonto existiert nicht.", "Fehler", JOptionPane.ERROR_MESSAGE);
+        long betrag;
+        try {
+            betrag = Geldbetrag.parsen(view.getBetragTextField().getText());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(view, Ergebnis.Status.UNGUELTIGER_BETRAG.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        
+        int empfaengerKontonummer = Integer.parseInt(kontonummer);
 
-        if (senderKonto.getKontostand() < betrag) {
-            // Der Sender hat nicht genug Geld auf dem Konto
-            if (senderKonto instanceof Girokonto && ((Girokonto) senderKonto).getUeberziehungsbetrag() >= betrag - senderKonto.getKontostand()) {
+        // Existiert das Empfängerkonto, hat der Sender genug Geld auf dem Konto?
+        ausfuehrer.ausfuehren(view, () -> service.ueberweisungPruefen(senderKonto, blz, empfaengerKontonummer, betrag), pruefung -> {
+            if (pruefung.getStatus() == Ergebnis.Status.UEBERZIEHUNG) {
                 // Der Sender kann das Konto überziehen
-                int confirmResult = JOptionPane.showConfirmDialog(view, "Möchten Sie das Konto überziehen?", "Bestätigung", JOptionPane.YES_NO_OPTION);
+                int confirmResult = JOptionPane.showConfirmDialog(view, pruefung.getMeldung(), "Bestätigung", JOptionPane.YES_NO_OPTION);
                 if (confirmResult != JOptionPane.YES_OPTION) {
                     return;
                 }
-            } else {
-                JOptionPane.showMessageDialog(view, "Sie haben nicht genug Geld auf dem Konto.", "Fehler", JOptionPane.ERROR_MESSAGE);
+            } else if (!pruefung.istErfolgreich()) {
+                JOptionPane.showMessageDialog(view, pruefung.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-        }
+            ueberweisen(blz, empfaengerKontonummer, betrag);
+        }, view.getEingaben());
+    }
 
-        // Führe die Überweisung durch
-        senderKonto.setKontostand(senderKonto.getKontostand() - betrag);
-        senderKonto.setKontostand(Math.round(senderKonto.getKontostand()*100000)/100000.0);
-        empfaengerKonto.setKontostand(empfaengerKonto.getKontostand() + betrag);
-        empfaengerKonto.setKontostand(Math.round(empfaengerKonto.getKontostand()*100000)/100000.0);
+    /**
+     * Führt die geprüfte Überweisung durch und schließt bei Erfolg die Ansicht.
+     */
+    private void ueberweisen(String blz, int empfaengerKontonummer, long betrag) {
+        // Führe die Überweisung durch, das Konto kann seit der Prüfung belastet worden sein
+        ausfuehrer.ausfuehren(view, () -> service.ueberweisen(senderKonto, blz, empfaengerKontonummer, betrag), ergebnis -> {
+            if (!ergebnis.istErfolgreich()) {
+                JOptionPane.showMessageDialog(view, ergebnis.getMeldung(), "Fehler", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-        JOptionPane.showMessageDialog(view, "Die Überweisung wurde erfolgreich durchgeführt.", "Erfolg", JOptionPane.INFORMATION_MESSAGE);
-        view.dispose();
-        kontoview.setKonto(senderKonto);
-        
+            JOptionPane.showMessageDialog(view, "Die Überweisung wurde erfolgreich durchgeführt.", "Erfolg", JOptionPane.INFORMATION_MESSAGE);
+            view.dispose();
+            kontoview.setKonto(senderKonto);
+        }, view.getEingaben());
     }
 }
@@ -0,0 +1,112 @@
+package com.geldautomat.controller;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+/**
+ * Diese Klasse führt Vorgänge der Controller wie Anmelden, Einzahlen, Auszahlen und Überweisen
+ * außerhalb des Event Dispatch Threads aus, damit die Oberfläche auch bei langsamem Journal bedienbar bleibt.
+ * Jeder Vorgang läuft als SwingWorker auf einem Executor. Solange er läuft, sind die angegebenen Eingaben
+ * gesperrt und das Fenster zeigt den Wartecursor. Das Ergebnis wird danach auf dem Event Dispatch
+ * Thread an die Oberfläche übergeben.
+ */
+public class Vorgangsausfuehrer {
+    private static final Vorgangsausfuehrer STANDARD = new Vorgangsausfuehrer(standardExecutor());
+
+    private final Executor executor;
+
+    /**
+     * Konstruktor für den Vorgangsausfuehrer.
+     *
+     * @param executor Der Executor, auf dem die Vorgänge laufen.
+     */
+    public Vorgangsausfuehrer(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Gibt den Vorgangsausfuehrer zurück, den alle Controller gemeinsam verwenden.
+     *
+     * @return Der Vorgangsausfuehrer.
+     */
+    public static Vorgangsausfuehrer standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Führt einen Vorgang im Hintergrund aus. Muss auf dem Event Dispatch Thread aufgerufen werden.
+     * Wirft der Vorgang eine Ausnahme, wird eine Fehlermeldung angezeigt und fertig nicht aufgerufen.
+     *
+     * @param fenster Das Fenster, das den Wartecursor zeigt und über dem Fehlermeldungen erscheinen.
+     * @param vorgang Der Vorgang, der im Hintergrund läuft und nicht auf die Oberfläche zugreifen darf.
+     * @param fertig Erhält das Ergebnis des Vorgangs auf dem Event Dispatch Thread.
+     * @param eingaben Die Eingaben, die während des Vorgangs gesperrt sind.
+     * @param <T> Der Typ des Ergebnisses.
+     */
+    public <T> void ausfuehren(Component fenster, Callable<T> vorgang, Consumer<T> fertig, Component... eingaben) {
+        boolean[] aktiv = new boolean[eingaben.length];
+        for (int i = 0; i < eingaben.length; i++) {
+            aktiv[i] = eingaben[i].isEnabled();
+            eingaben[i].setEnabled(false);
+        }
+        Cursor cursor = fenster.getCursor();
+        fenster.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return vorgang.call();
+            }
+
+            @Override
+            protected void done() {
+                // Erst freigeben, damit fertig die Eingaben selbst wieder sperren oder einen neuen Vorgang starten kann
+                for (int i = 0; i < eingaben.length; i++) {
+                    eingaben[i].setEnabled(aktiv[i]);
+                }
+                fenster.setCursor(cursor);
+                T ergebnis;
+                try {
+                    ergebnis = get();
+                } catch (ExecutionException ex) {
+                    fehlerAnzeigen(fenster, ex.getCause());
+                    return;
+                } catch (InterruptedException ex) {
+                    // done läuft erst nach dem Ende des Vorgangs, get wartet hier nicht
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                fertig.accept(ergebnis);
+            }
+        };
+        executor.execute(worker);
+    }
+
+    private static void fehlerAnzeigen(Component fenster, Throwable fehler) {
+        String meldung = fehler.getMessage() != null ? fehler.getMessage() : fehler.getClass().getSimpleName();
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("Vorgang fehlgeschlagen: " + meldung);
+        } else {
+            JOptionPane.showMessageDialog(fenster, "Fehler:\n" + meldung, "Fehler", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static ExecutorService standardExecutor() {
+        AtomicInteger nummer = new AtomicInteger();
+        return Executors.newCachedThreadPool(aufgabe -> {
+            Thread thread = new Thread(aufgabe, "Geldautomat-Vorgang-" + nummer.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package com.geldautomat.last;
+
+import com.geldautomat.service.Ergebnis;
+import com.geldautomat.util.Histogramm;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diese Klasse sammelt die Ergebnisse eines Laufs des Lastgenerators: Latenzen je Aktion,
+ * die Anzahl der Ergebnisse je Status sowie die Summe der ein- und ausgezahlten Beträge.
+ */
+public class Lastbericht {
+    /**
+     * Die Aktionen einer Sitzung.
+     */
+    public enum Aktion {
+        ANMELDEN, EINZAHLEN, AUSZAHLEN, UEBERWEISEN
+    }
+
+    private final int sitzungen;
+    private final boolean virtuelleThreads;
+    private final Histogramm[] latenzen = new Histogramm[Aktion.values().length];
+    private final AtomicLongArray status = new AtomicLongArray(Ergebnis.Status.values().length);
+    private final LongAdder eingezahlt = new LongAdder();
+    private final LongAdder ausgezahlt = new LongAdder();
+    private long dauerNanos;
+
+    Lastbericht(int sitzungen, boolean virtuelleThreads) {
+        this.sitzungen = sitzungen;
+        this.virtuelleThreads = virtuelleThreads;
+        for (int i = 0; i < latenzen.length; i++) {
+            latenzen[i] = new Histogramm();
+        }
+    }
+
+    void erfassen(Aktion aktion, Ergebnis ergebnis, long nanos) {
+        latenzen[aktion.ordinal()].erfassen(nanos);
+        status.incrementAndGet(ergebnis.getStatus().ordinal());
+    }
+
+    void eingezahlt(long betrag) {
+        eingezahlt.add(betrag);
+    }
+
+    void ausgezahlt(long betrag) {
+        ausgezahlt.add(betrag);
+    }
+
+    void setDauerNanos(long dauerNanos) {
+        this.dauerNanos = dauerNanos;
+    }
+
+    public int getSitzungen() {
+        return sitzungen;
+    }
+
+    public boolean isVirtuelleThreads() {
+        return virtuelleThreads;
+    }
+
+    public long getDauerNanos() {
+        return dauerNanos;
+    }
+
+    /**
+     * Gibt die Latenzen einer Aktion in Nanosekunden zurück.
+     *
+     * @param aktion Die Aktion.
+     * @return Das Histogramm der Latenzen.
+     */
+    public Histogramm getLatenzen(Aktion aktion) {
+        return latenzen[aktion.ordinal()];
+    }
+
+    /**
+     * Gibt zurück, wie oft eine Aktion mit einem Status endete.
+     *
+     * @param status Der Status.
+     * @return Die Anzahl.
+     */
+    public long getAnzahl(Ergebnis.Status status) {
+        return this.status.get(status.ordinal());
+    }
+
+    /**
+     * Gibt die Anzahl aller Aktionen einschließlich der Anmeldungen zurück.
+     *
+     * @return Die Anzahl.
+     */
+    public long getAnzahlAktionen() {
+        long summe = 0;
+        for (Histogramm histogramm : latenzen) {
+            summe += histogramm.getAnzahl();
+        }
+        return summe;
+    }
+
+    /**
+     * Gibt die Summe der erfolgreich eingezahlten Beträge zurück.
+     *
+     * @return Die Summe in Cent.
+     */
+    public long getEingezahltCent() {
+        return eingezahlt.sum();
+    }
+
+    /**
+     * Gibt die Summe der erfolgreich ausgezahlten Beträge zurück.
+     *
+     * @return Die Summe in Cent.
+     */
+    public long getAusgezahltCent() {
+        return ausgezahlt.sum();
+    }
+
+    /**
+     * Gibt den Bericht als Tabelle aus. Latenzen werden in Mikrosekunden angegeben.
+     *
+     * @param aus Der Ausgabestrom.
+     */
+    public void ausgeben(PrintStream aus) {
+        double sekunden = dauerNanos / 1e9;
+        aus.printf("%d Sitzungen auf %s, %d Aktionen in %.2f s, %.0f Aktionen/s%n", sitzungen,
+                virtuelleThreads ? "virtuellen Threads" : "Plattform-Threads", getAnzahlAktionen(), sekunden,
+                getAnzahlAktionen() / sekunden);
+        aus.printf("%-12s %10s %9s %9s %9s %9s %9s%n", "Aktion", "Anzahl", "p50", "p90", "p99", "p99,9", "max");
+        for (Aktion aktion : Aktion.values()) {
+            Histogramm histogramm = getLatenzen(aktion);
+            aus.printf("%-12s %10d %9.1f %9.1f %9.1f %9.1f %9.1f%n", aktion, histogramm.getAnzahl(),
+                    histogramm.perzentil(0.5) / 1e3, histogramm.perzentil(0.9) / 1e3, histogramm.perzentil(0.99) / 1e3,
+                    histogramm.perzentil(0.999) / 1e3, histogramm.getMaximum() / 1e3);
+        }
+        for (Ergebnis.Status s : Ergebnis.Status.values()) {
+            if (getAnzahl(s) > 0) {
+                aus.printf("%-26s %10d%n", s, getAnzahl(s));
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.geldautomat.last;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.persistenz.Journal;
+import com.geldautomat.service.Ergebnis;
+import com.geldautomat.service.TransaktionsService;
+import com.geldautomat.util.CSVImporter;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dieses Werkzeug simuliert viele gleichzeitige Sitzungen am Geldautomaten ohne Benutzeroberfläche.
+ * Jede Sitzung meldet sich mit BLZ, Kontonummer und PIN eines zufälligen Kontos an und führt dann
+ * eine Folge von Einzahlungen, Auszahlungen und Überweisungen über den TransaktionsService aus.
+ * Auszahlungen und Überweisungen laufen wie an der Oberfläche: erst die Prüfung, bei UEBERZIEHUNG gilt
+ * die Nachfrage als bestätigt. Ein Teil der Auszahlungen von Girokonten überzieht das Konto absichtlich.
+ *
+ * Jede Sitzung läuft in einem eigenen virtuellen Thread, sofern die Laufzeitumgebung sie anbietet
+ * (ab Java 21). Sonst teilen sich die Sitzungen einen Pool von Plattform-Threads.
+ */
+public class Lastgenerator {
+    private static final int MAX_PLATTFORM_THREADS = 256;
+
+    private final TransaktionsService service;
+    private final List<Konto> konten = new ArrayList<>();
+    private int sitzungen = 1000;
+    private int aktionenJeSitzung = 20;
+    private int anteilEinzahlen = 40;
+    private int anteilAuszahlen = 40;
+    private int anteilUeberziehen = 10;
+    private long denkzeitMillis;
+    private long startwert = 42;
+
+    /**
+     * Konstruktor für den Lastgenerator.
+     *
+     * @param service Der Service, über den die Sitzungen buchen.
+     */
+    public Lastgenerator(TransaktionsService service) {
+        this.service = service;
+        BankManagementSystem managementSystem = service.getBankManagementSystem();
+        managementSystem.lesen(() -> {
+            for (Bank bank : managementSystem.getBanks()) {
+                konten.addAll(bank.getKonten());
+            }
+        });
+    }
+
+    public void setSitzungen(int sitzungen) {
+        this.sitzungen = sitzungen;
+    }
+
+    public void setAktionenJeSitzung(int aktionenJeSitzung) {
+        this.aktionenJeSitzung = aktionenJeSitzung;
+    }
+
+    /**
+     * Setzt die Mischung der Aktionen in Prozent. Der Rest bis 100 sind Überweisungen.
+     *
+     * @param einzahlen Der Anteil der Einzahlungen.
+     * @param auszahlen Der Anteil der Auszahlungen.
+     * @throws IllegalArgumentException wenn die Anteile negativ sind oder zusammen mehr als 100 ergeben.
+     */
+    public void setMischung(int einzahlen, int auszahlen) {
+        if (einzahlen < 0 || auszahlen < 0 || einzahlen + auszahlen > 100) {
+            throw new IllegalArgumentException("Ungültige Mischung");
+        }
+        this.anteilEinzahlen = einzahlen;
+        this.anteilAuszahlen = auszahlen;
+    }
+
+    /**
+     * Setzt den Anteil der Auszahlungen von Girokonten in Prozent, die das Konto überziehen.
+     *
+     * @param anteilUeberziehen Der Anteil.
+     */
+    public void setAnteilUeberziehen(int anteilUeberziehen) {
+        this.anteilUeberziehen = anteilUeberziehen;
+    }
+
+    /**
+     * Setzt die Pause zwischen zwei Aktionen einer Sitzung, in der der Kunde am Automaten tippt.
+     *
+     * @param denkzeitMillis Die Pause in Millisekunden.
+     */
+    public void setDenkzeitMillis(long denkzeitMillis) {
+        this.denkzeitMillis = denkzeitMillis;
+    }
+
+    /**
+     * Setzt den Startwert der Zufallszahlen. Mit gleichem Startwert wählen die Sitzungen dieselben
+     * Konten und Aktionen, die Reihenfolge zwischen den Sitzungen hängt aber vom Scheduler ab.
+     *
+     * @param startwert Der Startwert.
+     */
+    public void setStartwert(long startwert) {
+        this.startwert = startwert;
+    }
+
+    /**
+     * Führt alle Sitzungen aus und wartet auf ihr Ende.
+     *
+     * @return Der Bericht mit Durchsatz, Latenzen und Ergebnissen.
+     * @throws InterruptedException Wenn der aufrufende Thread beim Warten unterbrochen wird.
+     */
+    public Lastbericht ausfuehren() throws InterruptedException {
+        if (konten.isEmpty()) {
+            throw new IllegalStateException("Keine Konten geladen");
+        }
+        ExecutorService executor = virtuelleThreads();
+        boolean virtuell = executor != null;
+        if (!virtuell) {
+            executor = Executors.newFixedThreadPool(Math.min(sitzungen, MAX_PLATTFORM_THREADS));
+        }
+        Lastbericht bericht = new Lastbericht(sitzungen, virtuell);
+        SplittableRandom zufall = new SplittableRandom(startwert);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < sitzungen; i++) {
+                SplittableRandom sitzungsZufall = zufall.split();
+                executor.execute(() -> sitzung(sitzungsZufall, bericht));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        bericht.setDauerNanos(System.nanoTime() - start);
+        return bericht;
+    }
+
+    private void sitzung(SplittableRandom zufall, Lastbericht bericht) {
+        Konto auswahl = konten.get(zufall.nextInt(konten.size()));
+        long start = System.nanoTime();
+        Ergebnis ergebnis = service.anmelden(auswahl.getBank().getBlz(), auswahl.getKontonummer(), auswahl.getPin());
+        bericht.erfassen(Lastbericht.Aktion.ANMELDEN, ergebnis, System.nanoTime() - start);
+        if (!ergebnis.istErfolgreich()) {
+            return;
+        }
+        Konto konto = ergebnis.getKonto();
+        for (int i = 0; i < aktionenJeSitzung; i++) {
+            if (denkzeitMillis > 0) {
+                try {
+                    Thread.sleep(denkzeitMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            int wurf = zufall.nextInt(100);
+            if (wurf < anteilEinzahlen) {
+                long betrag = 1 + zufall.nextInt(50_000);
+                start = System.nanoTime();
+                ergebnis = service.einzahlen(konto, betrag);
+                bericht.erfassen(Lastbericht.Aktion.EINZAHLEN, ergebnis, System.nanoTime() - start);
+                if (ergebnis.istErfolgreich()) {
+                    bericht.eingezahlt(betrag);
+                }
+            } else if (wurf < anteilEinzahlen + anteilAuszahlen) {
+                long betrag = auszahlungsbetrag(konto, zufall);
+                start = System.nanoTime();
+                ergebnis = service.deckungPruefen(konto, betrag);
+                if (ergebnis.istErfolgreich() || ergebnis.getStatus() == Ergebnis.Status.UEBERZIEHUNG) {
+                    ergebnis = service.auszahlen(konto, betrag);
+                }
+                bericht.erfassen(Lastbericht.Aktion.AUSZAHLEN, ergebnis, System.nanoTime() - start);
+                if (ergebnis.istErfolgreich()) {
+                    bericht.ausgezahlt(betrag);
+                }
+            } else {
+                Konto empfaenger = konten.get(zufall.nextInt(konten.size()));
+                String blz = empfaenger.getBank().getBlz();
+                long betrag = 1 + zufall.nextInt(20_000);
+                start = System.nanoTime();
+                ergebnis = service.ueberweisungPruefen(konto, blz, empfaenger.getKontonummer(), betrag);
+                if (ergebnis.istErfolgreich() || ergebnis.getStatus() == Ergebnis.Status.UEBERZIEHUNG) {
+                    ergebnis = service.ueberweisen(konto, blz, empfaenger.getKontonummer(), betrag);
+                }
+                bericht.erfassen(Lastbericht.Aktion.UEBERWEISEN, ergebnis, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Wählt den Betrag einer Auszahlung. Bei Girokonten liegt ein Teil der Beträge über dem Kontostand,
+     * aber innerhalb oder knapp außerhalb des Überziehungsbetrags.
+     */
+    private long auszahlungsbetrag(Konto konto, SplittableRandom zufall) {
+        if (konto instanceof Girokonto && zufall.nextInt(100) < anteilUeberziehen) {
+            long ueberziehung = ((Girokonto) konto).getUeberziehungsbetragCent();
+            return Math.max(0, konto.getKontostandCent()) + 1 + zufall.nextLong(ueberziehung / 10 * 11 + 1);
+        }
+        return 1 + zufall.nextInt(20_000);
+    }
+
+    /**
+     * Gibt einen Executor mit einem virtuellen Thread je Aufgabe zurück.
+     * Die Methode wird über Reflection aufgerufen, damit der Code auch mit älteren Java-Versionen übersetzt.
+     *
+     * @return Der Executor oder null, wenn es keine virtuellen Threads gibt.
+     */
+    private static ExecutorService virtuelleThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Startet den Lastgenerator.
+     * Aufruf: Lastgenerator &lt;CSV-Datei&gt; [Sitzungen] [Aktionen je Sitzung] [Journaldatei]
+     *
+     * @param args Die Argumente.
+     * @throws Exception Wenn die Daten nicht geladen werden können.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Aufruf: Lastgenerator <CSV-Datei> [Sitzungen] [Aktionen je Sitzung] [Journaldatei]");
+            System.exit(2);
+        }
+        BankManagementSystem managementSystem = CSVImporter.loadFromCSVParallel(args[0]);
+        Journal journal = args.length > 3 ? Journal.oeffnen(Paths.get(args[3])) : null;
+        try {
+            Lastgenerator generator = new Lastgenerator(new TransaktionsService(managementSystem, journal));
+            if (args.length > 1) {
+                generator.setSitzungen(Integer.parseInt(args[1]));
+            }
+            if (args.length > 2) {
+                generator.setAktionenJeSitzung(Integer.parseInt(args[2]));
+            }
+            generator.ausfuehren().ausgeben(System.out);
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.geldautomat.model;
 
+import com.geldautomat.util.IntHashMap;
+
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Diese Klasse repräsentiert eine Bank.
  * Sie enthält Informationen über die Bank und verwaltet eine Liste von Konten.
+ * Zusätzlich zur Liste werden Konten nach Kontonummer und Kunden nach Kundennummer indiziert,
+ * damit Suchen beim Login, bei Überweisungen und beim Import nicht die ganze Liste durchlaufen.
  */
 public class Bank {
     private String blz;
     private String name;
     private BankManagementSystem managementSystem;
     private List<Konto> konten;
+    private IntHashMap<Konto> kontenIndex;
+    private IntHashMap<Kontoinhaber> kundenIndex;
+    private KontenSpalten spalten;
 
     /**
      * Konstruktor für die Bank.
@@ -25,13 +36,19 @@ public class Bank {
         this.name = name;
         this.managementSystem = managementSystem;
         this.konten = new ArrayList<>();
+        this.kontenIndex = new IntHashMap<>();
+        this.kundenIndex = new IntHashMap<>();
     }
     public String getBlz() {
         return blz;
     }
 
     public void setBlz(String blz) {
+        String alteBlz = this.blz;
         this.blz = blz;
+        if (managementSystem != null) {
+            managementSystem.blzGeaendert(this, alteBlz);
+        }
     }
 
     public String getName() {
@@ -45,32 +62,166 @@ public class Bank {
     public BankManagementSystem getBankManagementSystem() {
         return managementSystem;
     }
+
+    /**
+     * Ordnet die Bank einem Bank Management System zu, das über Änderungen an Konten und BLZ
+     * benachrichtigt wird. Wird von BankManagementSystem.addBank aufgerufen.
+     *
+     * @param managementSystem Das Bank Management System.
+     */
+    void setBankManagementSystem(BankManagementSystem managementSystem) {
+        this.managementSystem = managementSystem;
+    }
     
     /**
-     * Fügt ein Konto zur Liste der Konten hinzu.
+     * Fügt ein Konto zur Liste der Konten hinzu und nimmt es in die Indizes auf.
+     * Gibt es bereits ein Konto mit derselben Kontonummer bzw. einen Kunden mit derselben Kundennummer,
+     * bleibt wie bei der Suche in der Liste der zuerst hinzugefügte Eintrag maßgeblich.
+     * Indiziert wird die Kontonummer bzw. Kundennummer zum Zeitpunkt des Hinzufügens.
      *
      * @param konto Das hinzuzufügende Konto.
      */
     public void addKonto(Konto konto) {
+        spaltenVerwerfen();
         konten.add(konto);
+        kontenIndex.putIfAbsent(konto.getKontonummer(), konto);
+        kundenIndex.putIfAbsent(konto.getKontoinhaber().getKundennummer(), konto.getKontoinhaber());
+        if (managementSystem != null) {
+            managementSystem.kontoHinzugefuegt(this, konto);
+        }
     }
     
     /**
-     * Entfernt ein Konto aus der Liste der Konten.
+     * Reserviert Platz für eine Anzahl weiterer Konten, etwa vor dem Laden vieler Konten.
+     *
+     * @param anzahlKonten Die Anzahl der Konten, die noch hinzugefügt werden.
+     */
+    public void kapazitaetSichern(int anzahlKonten) {
+        int gesamt = konten.size() + anzahlKonten;
+        ((ArrayList<Konto>) konten).ensureCapacity(gesamt);
+        kontenIndex.kapazitaetSichern(gesamt);
+    }
+
+    /**
+     * Entfernt ein Konto aus der Liste der Konten und aus den Indizes.
+     * Verweist ein Index auf das entfernte Konto bzw. dessen Inhaber, wird er auf das nächste
+     * verbleibende Konto mit derselben Nummer umgestellt.
      *
      * @param konto Das zu entfernende Konto.
      */
     public void removeKonto(Konto konto) {
-        konten.remove(konto);
+        if (!konten.remove(konto)) {
+            return;
+        }
+        spaltenVerwerfen();
+        int kontonummer = konto.getKontonummer();
+        if (kontenIndex.get(kontonummer) == konto) {
+            kontenIndex.remove(kontonummer);
+            for (Konto k : konten) {
+                if (k.getKontonummer() == kontonummer) {
+                    kontenIndex.put(kontonummer, k);
+                    break;
+                }
+            }
+        }
+        int kundennummer = konto.getKontoinhaber().getKundennummer();
+        if (kundenIndex.get(kundennummer) == konto.getKontoinhaber()) {
+            kundenIndex.remove(kundennummer);
+            for (Konto k : konten) {
+                if (k.getKontoinhaber().getKundennummer() == kundennummer) {
+                    kundenIndex.put(kundennummer, k.getKontoinhaber());
+                    break;
+                }
+            }
+        }
+        if (managementSystem != null) {
+            managementSystem.kontoEntfernt(this, konto);
+        }
+    }
+
+    /**
+     * Entfernt mehrere Konten mit demselben Ergebnis wie removeKonto für jedes einzelne Konto,
+     * durchläuft die Liste der Konten dafür aber nur einmal.
+     *
+     * @param entfernen Die zu entfernenden Konten.
+     */
+    public void removeKonten(Collection<Konto> entfernen) {
+        Set<Konto> menge = Collections.newSetFromMap(new IdentityHashMap<>());
+        menge.addAll(entfernen);
+        if (!konten.removeIf(menge::contains)) {
+            return;
+        }
+        spaltenVerwerfen();
+        IntHashMap<Boolean> offeneKontonummern = new IntHashMap<>();
+        IntHashMap<Boolean> offeneKundennummern = new IntHashMap<>();
+        for (Konto konto : menge) {
+            int kontonummer = konto.getKontonummer();
+            if (kontenIndex.get(kontonummer) == konto) {
+                kontenIndex.remove(kontonummer);
+                offeneKontonummern.put(kontonummer, Boolean.TRUE);
+            }
+            int kundennummer = konto.getKontoinhaber().getKundennummer();
+            if (kundenIndex.get(kundennummer) == konto.getKontoinhaber()) {
+                kundenIndex.remove(kundennummer);
+                offeneKundennummern.put(kundennummer, Boolean.TRUE);
+            }
+        }
+        if (!offeneKontonummern.isEmpty() || !offeneKundennummern.isEmpty()) {
+            // Wie bei removeKonto rückt jeweils das erste verbleibende Konto mit derselben Nummer nach
+            for (Konto k : konten) {
+                if (offeneKontonummern.remove(k.getKontonummer()) != null) {
+                    kontenIndex.put(k.getKontonummer(), k);
+                }
+                if (offeneKundennummern.remove(k.getKontoinhaber().getKundennummer()) != null) {
+                    kundenIndex.put(k.getKontoinhaber().getKundennummer(), k.getKontoinhaber());
+                }
+            }
+        }
+        if (managementSystem != null) {
+            for (Konto konto : menge) {
+                managementSystem.kontoEntfernt(this, konto);
+            }
+        }
+    }
+
+    /**
+     * Legt die Konten der Bank spaltenweise an (siehe KontenSpalten). Die Konten selbst bleiben
+     * unverändert, die Spalten übernehmen ihre Kontostände nach jeder Buchung.
+     * Die Spalten gelten, bis ein Konto hinzugefügt oder entfernt wird oder sie neu angelegt werden.
+     *
+     * @return Die Spalten.
+     */
+    public KontenSpalten spaltenAnlegen() {
+        spaltenVerwerfen();
+        spalten = new KontenSpalten(konten);
+        return spalten;
+    }
+
+    private void spaltenVerwerfen() {
+        if (spalten != null) {
+            spalten.abmelden();
+            spalten = null;
+        }
+    }
+
+    /**
+     * Gibt die Spalten der Konten zurück.
+     *
+     * @return Die Spalten oder null, wenn sie nicht angelegt sind oder sich die Konten seitdem geändert haben.
+     */
+    public KontenSpalten getKontenSpalten() {
+        return spalten;
     }
 
     /**
      * Gibt die Liste der Konten zurück.
+     * Die Liste ist nicht veränderbar, damit sie nicht an den Indizes vorbei geändert wird.
+     * Konten werden über addKonto und removeKonto hinzugefügt bzw. entfernt.
      *
      * @return Die Liste der Konten.
      */
     public List<Konto> getKonten() {
-        return konten;
+        return Collections.unmodifiableList(konten);
     }
 
     /**
@@ -80,12 +231,7 @@ public class Bank {
      * @return Der Kunde mit der angegebenen Kundennummer oder null, wenn kein solcher Kunde gefunden wurde.
      */
     public Kontoinhaber findKundenByKundennummer(int Kundennummer) {
-    	for (Konto k : this.konten) {
-    		if (k.getKontoinhaber().getKundennummer() == Kundennummer) {
-    			return k.getKontoinhaber();
-    			}
-        }
-        return null;
+        return kundenIndex.get(Kundennummer);
     }
     
     /**
@@ -95,12 +241,7 @@ public class Bank {
      * @return Das Konto mit der angegebenen Kontonummer oder null, wenn kein solches Konto gefunden wurde.
      */
     public Konto getKontoByKontonummer(int Kontonummer) {
-    	for (Konto k : this.konten) {
-    		if (k.getKontonummer() == Kontonummer) {
-    			return k;
-    			}
-        }
-        return null;
+        return kontenIndex.get(Kontonummer);
     }
 }
 
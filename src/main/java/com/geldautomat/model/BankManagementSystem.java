@@ -1,17 +1,35 @@
 package com.geldautomat.model;
 
+import com.geldautomat.util.LongHashMap;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Diese Klasse repräsentiert das Bank Management System.
  * Es verwaltet eine Liste von Banken.
+ * Zusätzlich führt es ein Kontenverzeichnis über alle Banken, das ein Konto direkt über
+ * BLZ und Kontonummer findet. Der Schlüssel besteht aus einer fortlaufenden Nummer für die BLZ
+ * und der Kontonummer, die zusammen in ein long gepackt werden.
+ * Die Suche nach Banken und Konten darf gleichzeitig mit Änderungen laufen, die über aendern
+ * ausgeführt werden. Sie liest optimistisch ohne Sperre und wiederholt die Suche nur dann unter
+ * einer Lesesperre, wenn währenddessen eine Änderung lief.
  */
 public class BankManagementSystem {
     /**
      * Liste der Banken im Management System.
      */
-    public List<Bank> banks;
+    private List<Bank> banks;
+    private Map<String, Bank> bankenIndex;
+    private Map<String, Integer> blzNummern;
+    private LongHashMap<Konto> kontenVerzeichnis;
+    private final Ueberweisungssystem ueberweisungssystem = new Ueberweisungssystem();
+    private final StampedLock sperre = new StampedLock();
 
     /**
      * Konstruktor für das Bank Management System.
@@ -19,33 +37,44 @@ public class BankManagementSystem {
      */
     public BankManagementSystem() {
         this.banks = new ArrayList<>();
+        this.bankenIndex = new HashMap<>();
+        this.blzNummern = new HashMap<>();
+        this.kontenVerzeichnis = new LongHashMap<>();
     }
 
     /**
-     * Fügt eine Bank zur Liste der Banken hinzu.
+     * Fügt eine Bank zur Liste der Banken hinzu und nimmt ihre Konten in das Kontenverzeichnis auf.
+     * Wurde die Bank für ein anderes oder ohne Bank Management System angelegt, wird sie diesem zugeordnet.
+     * Ein anderes Bank Management System erfährt danach nichts mehr von Änderungen an ihren Konten und
+     * ihrer BLZ, sein Kontenverzeichnis findet daher nur noch die Konten, die es bis dahin kannte.
      *
      * @param bank Die hinzuzufügende Bank.
      */
     public void addBank(Bank bank) {
+        bank.setBankManagementSystem(this);
         banks.add(bank);
+        bankAnmelden(bank);
     }
 
     /**
-     * Entfernt eine Bank aus der Liste der Banken.
+     * Entfernt eine Bank aus der Liste der Banken und ihre Konten aus dem Kontenverzeichnis.
      *
      * @param bank Die zu entfernende Bank.
      */
     public void removeBank(Bank bank) {
-        banks.remove(bank);
+        if (banks.remove(bank)) {
+            bankAbmelden(bank, bank.getBlz());
+        }
     }
 
     /**
      * Gibt die Liste der Banken zurück.
+     * Die Liste ist nicht veränderbar; Banken werden über addBank und removeBank verwaltet.
      *
      * @return Die Liste der Banken.
      */
     public List<Bank> getBanks() {
-        return banks;
+        return Collections.unmodifiableList(banks);
     }
 
     /**
@@ -55,11 +84,222 @@ public class BankManagementSystem {
      * @return Die Bank mit der angegebenen BLZ oder null, wenn keine solche Bank gefunden wurde.
      */
     public Bank getBankByBLZ(String blz) {
-        for (Bank bank : this.banks) {
-            if (bank.getBlz().equals(blz)) {
-                return bank;
+        long stempel = sperre.tryOptimisticRead();
+        Bank bank = null;
+        try {
+            bank = bankenIndex.get(blz);
+        } catch (RuntimeException ex) {
+            // Während einer Änderung kann die Tabelle inkonsistent gelesen werden
+            stempel = 0;
+        }
+        if (sperre.validate(stempel)) {
+            return bank;
+        }
+        stempel = sperre.readLock();
+        try {
+            return bankenIndex.get(blz);
+        } finally {
+            sperre.unlockRead(stempel);
+        }
+    }
+
+    /**
+     * Gibt ein Konto anhand von BLZ und Kontonummer zurück.
+     * Das Ergebnis entspricht getBankByBLZ(blz).getKontoByKontonummer(kontonummer),
+     * benötigt aber nur eine Suche im Kontenverzeichnis.
+     *
+     * @param blz Die Bankleitzahl der Bank des gesuchten Kontos.
+     * @param kontonummer Die Kontonummer des gesuchten Kontos.
+     * @return Das Konto oder null, wenn es keine solche Bank oder kein solches Konto gibt.
+     */
+    public Konto getKonto(String blz, int kontonummer) {
+        long stempel = sperre.tryOptimisticRead();
+        Konto konto = null;
+        try {
+            konto = kontoSuchen(blz, kontonummer);
+        } catch (RuntimeException ex) {
+            // Während einer Änderung können die Tabellen inkonsistent gelesen werden
+            stempel = 0;
+        }
+        if (sperre.validate(stempel)) {
+            return konto;
+        }
+        stempel = sperre.readLock();
+        try {
+            return kontoSuchen(blz, kontonummer);
+        } finally {
+            sperre.unlockRead(stempel);
+        }
+    }
+
+    private Konto kontoSuchen(String blz, int kontonummer) {
+        Integer blzNummer = blzNummern.get(blz);
+        if (blzNummer == null) {
+            return null;
+        }
+        return kontenVerzeichnis.get(schluessel(blzNummer, kontonummer));
+    }
+
+    /**
+     * Führt Änderungen an Banken und Konten aus, etwa addBank, removeBank, addKonto oder removeKonto,
+     * während gleichzeitig Konten gesucht werden. Die Suche wartet nur, solange die Änderungen laufen.
+     * Buchungen auf bereits gefundenen Konten laufen ungehindert weiter. Andere Threads dürfen die Listen
+     * der Banken und Konten nur innerhalb von lesen durchlaufen.
+     *
+     * @param aenderung Die Änderungen.
+     */
+    public void aendern(Runnable aenderung) {
+        long stempel = sperre.writeLock();
+        try {
+            aenderung.run();
+        } finally {
+            sperre.unlockWrite(stempel);
+        }
+    }
+
+    /**
+     * Durchläuft die Listen der Banken und Konten, während gleichzeitig Änderungen über aendern möglich sind.
+     * Die Änderungen warten, bis der Zugriff beendet ist, die Suche nach Konten nicht. Längere Auswertungen
+     * sollten hier nur die Listen kopieren und danach auf der Kopie arbeiten.
+     *
+     * @param zugriff Der lesende Zugriff.
+     */
+    public void lesen(Runnable zugriff) {
+        long stempel = sperre.readLock();
+        try {
+            zugriff.run();
+        } finally {
+            sperre.unlockRead(stempel);
+        }
+    }
+
+    /**
+     * Überweist einen Betrag in Cent von einem Konto auf ein anderes.
+     * Abbuchung und Gutschrift erfolgen gemeinsam, auch wenn gleichzeitig weitere Überweisungen laufen.
+     *
+     * @param sender Das Konto, von dem abgebucht wird.
+     * @param empfaenger Das Konto, dem der Betrag gutgeschrieben wird.
+     * @param betrag Der Betrag in Cent.
+     * @throws IllegalArgumentException wenn der Betrag negativ ist oder der Kontostand des Senders nicht ausreicht.
+     */
+    public void ueberweisen(Konto sender, Konto empfaenger, long betrag) {
+        ueberweisungssystem.ueberweisen(sender, empfaenger, betrag);
+    }
+
+    /**
+     * Überweist einen Betrag in Cent von einem Konto auf ein anderes und führt zwischen Abbuchung und
+     * Gutschrift einen Schritt aus, etwa das Schreiben ins Journal (siehe Ueberweisungssystem.ueberweisen).
+     *
+     * @param sender Das Konto, von dem abgebucht wird.
+     * @param empfaenger Das Konto, dem der Betrag gutgeschrieben wird.
+     * @param betrag Der Betrag in Cent.
+     * @param zwischenschritt Der Schritt zwischen Abbuchung und Gutschrift oder null.
+     * @return Die Kontostände beider Konten nach der Überweisung.
+     * @throws IllegalArgumentException wenn der Betrag negativ ist oder der Kontostand des Senders nicht ausreicht.
+     * @throws IOException Wenn der Zwischenschritt fehlschlägt. Beide Konten sind dann unverändert.
+     */
+    public Ueberweisungssystem.Ueberweisung ueberweisen(Konto sender, Konto empfaenger, long betrag,
+            Ueberweisungssystem.Zwischenschritt zwischenschritt) throws IOException {
+        return ueberweisungssystem.ueberweisen(sender, empfaenger, betrag, zwischenschritt);
+    }
+
+    /**
+     * Gibt das Überweisungssystem zurück, dessen Sperren alle Buchungen auf Konten dieses Systems halten.
+     *
+     * @return Das Überweisungssystem.
+     */
+    Ueberweisungssystem getUeberweisungssystem() {
+        return ueberweisungssystem;
+    }
+
+    /**
+     * Wird von der Bank aufgerufen, nachdem ein Konto hinzugefügt wurde.
+     *
+     * @param bank Die Bank des Kontos.
+     * @param konto Das hinzugefügte Konto.
+     */
+    void kontoHinzugefuegt(Bank bank, Konto konto) {
+        if (bankenIndex.get(bank.getBlz()) == bank) {
+            kontenVerzeichnis.putIfAbsent(schluessel(blzNummer(bank.getBlz()), konto.getKontonummer()), konto);
+        }
+    }
+
+    /**
+     * Wird von der Bank aufgerufen, nachdem ein Konto entfernt wurde.
+     * Das Verzeichnis übernimmt dabei den Eintrag, auf den der Index der Bank nun verweist.
+     *
+     * @param bank Die Bank des Kontos.
+     * @param konto Das entfernte Konto.
+     */
+    void kontoEntfernt(Bank bank, Konto konto) {
+        if (bankenIndex.get(bank.getBlz()) != bank) {
+            return;
+        }
+        long key = schluessel(blzNummer(bank.getBlz()), konto.getKontonummer());
+        if (kontenVerzeichnis.get(key) == konto) {
+            kontenVerzeichnis.remove(key);
+            Konto nachfolger = bank.getKontoByKontonummer(konto.getKontonummer());
+            if (nachfolger != null) {
+                kontenVerzeichnis.put(key, nachfolger);
+            }
+        }
+    }
+
+    /**
+     * Wird von der Bank aufgerufen, nachdem sich ihre BLZ geändert hat.
+     *
+     * @param bank Die Bank.
+     * @param alteBlz Die bisherige BLZ der Bank.
+     */
+    void blzGeaendert(Bank bank, String alteBlz) {
+        if (banks.contains(bank)) {
+            bankAbmelden(bank, alteBlz);
+            bankAnmelden(bank);
+        }
+    }
+
+    private void bankAnmelden(Bank bank) {
+        if (bankenIndex.putIfAbsent(bank.getBlz(), bank) != null) {
+            return;
+        }
+        int blzNummer = blzNummer(bank.getBlz());
+        kontenVerzeichnis.kapazitaetSichern(kontenVerzeichnis.size() + bank.getKonten().size());
+        for (Konto konto : bank.getKonten()) {
+            kontenVerzeichnis.putIfAbsent(schluessel(blzNummer, konto.getKontonummer()), konto);
+        }
+    }
+
+    private void bankAbmelden(Bank bank, String blz) {
+        if (bankenIndex.get(blz) != bank) {
+            return;
+        }
+        bankenIndex.remove(blz);
+        int blzNummer = blzNummer(blz);
+        for (Konto konto : bank.getKonten()) {
+            long key = schluessel(blzNummer, konto.getKontonummer());
+            if (kontenVerzeichnis.get(key) == konto) {
+                kontenVerzeichnis.remove(key);
             }
         }
-        return null;
+        // Eine weitere Bank mit derselben BLZ rückt nach, wie bei der Suche in der Liste
+        for (Bank nachfolger : banks) {
+            if (nachfolger.getBlz().equals(blz)) {
+                bankAnmelden(nachfolger);
+                break;
+            }
+        }
+    }
+
+    private int blzNummer(String blz) {
+        Integer nummer = blzNummern.get(blz);
+        if (nummer == null) {
+            nummer = blzNummern.size();
+            blzNummern.put(blz, nummer);
+        }
+        return nummer;
+    }
+
+    private static long schluessel(int blzNummer, int kontonummer) {
+        return ((long) blzNummer << 32) | (kontonummer & 0xFFFFFFFFL);
     }
 }
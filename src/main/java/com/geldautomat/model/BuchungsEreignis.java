@@ -0,0 +1,63 @@
+package com.geldautomat.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Dieses Ereignis meldet jede Änderung eines Kontostands an Java Flight Recorder, damit Aufzeichnungen
+ * aus dem Betrieb (Garbage Collection, Allokationen, Sperren) den Buchungen zugeordnet werden können.
+ * Ist das Ereignis nicht aktiviert, werden die Felder nicht gesetzt und nichts geschrieben; das
+ * Ereignisobjekt selbst entfällt nach der Escape-Analyse des JIT-Compilers.
+ */
+@Name("com.geldautomat.Buchung")
+@Label("Buchung")
+@Category({"Geldautomat", "Konto"})
+@Description("Änderung eines Kontostands")
+@StackTrace(false)
+final class BuchungsEreignis extends Event {
+    static final String EINZAHLUNG = "Einzahlung";
+    static final String AUSZAHLUNG = "Auszahlung";
+    static final String ZINSEN = "Zinsen";
+    static final String SETZEN = "Kontostand gesetzt";
+
+    @Label("Art")
+    String art;
+
+    @Label("BLZ")
+    String blz;
+
+    @Label("Kontonummer")
+    int kontonummer;
+
+    @Label("Betrag in Cent")
+    @Description("Der gebuchte Betrag, beim Setzen der neue Kontostand")
+    long betrag;
+
+    @Label("Kontostand in Cent")
+    @Description("Der Kontostand nach der Buchung")
+    long kontostand;
+
+    /**
+     * Beendet das Ereignis und schreibt es, sofern es aktiviert ist.
+     *
+     * @param konto Das geänderte Konto.
+     * @param art Die Art der Buchung.
+     * @param betrag Der Betrag in Cent.
+     */
+    void abschliessen(Konto konto, String art, long betrag) {
+        end();
+        if (shouldCommit()) {
+            this.art = art;
+            this.blz = konto.getBank() == null ? null : konto.getBank().getBlz();
+            this.kontonummer = konto.getKontonummer();
+            this.betrag = betrag;
+            // Ohne Verzinsung lesen, sonst entstünde beim Sparkonto ein weiteres Ereignis
+            this.kontostand = konto.kontostandLesen();
+            commit();
+        }
+    }
+}
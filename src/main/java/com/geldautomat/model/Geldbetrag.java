@@ -0,0 +1,115 @@
+package com.geldautomat.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Diese Klasse enthält Hilfsmethoden für Geldbeträge.
+ * Geldbeträge werden im Modell als long in Cent geführt. Dadurch sind Kontostände exakt,
+ * und Buchungen kommen ohne Rundung und ohne Objekte aus.
+ */
+public final class Geldbetrag {
+    /**
+     * Anzahl Cent pro Euro.
+     */
+    public static final long CENT_PRO_EURO = 100;
+
+    private Geldbetrag() {
+    }
+
+    /**
+     * Rechnet einen Betrag in Euro in Cent um.
+     * Gerundet wird kaufmännisch anhand der Dezimaldarstellung des Betrags, 1.005 ergibt also 101 Cent.
+     *
+     * @param euro Der Betrag in Euro.
+     * @return Der Betrag in Cent.
+     * @throws NumberFormatException wenn der Betrag keine endliche Zahl ist.
+     * @throws ArithmeticException wenn der Betrag nicht als long in Cent darstellbar ist.
+     */
+    public static long ausEuro(double euro) {
+        return BigDecimal.valueOf(euro).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Rechnet einen Betrag in Cent in Euro um.
+     *
+     * @param cent Der Betrag in Cent.
+     * @return Der Betrag in Euro.
+     */
+    public static double inEuro(long cent) {
+        return cent / (double) CENT_PRO_EURO;
+    }
+
+    /**
+     * Liest einen vom Benutzer eingegebenen Betrag in Euro.
+     * Als Dezimaltrennzeichen sind Punkt und Komma erlaubt, höchstens zwei Nachkommastellen.
+     *
+     * @param text Der eingegebene Text, z.B. "12,50" oder "12.5".
+     * @return Der Betrag in Cent.
+     * @throws NumberFormatException wenn der Text kein gültiger Betrag ist.
+     */
+    public static long parsen(String text) {
+        String betrag = text.trim();
+        long cent = 0;
+        int nachkommastellen = -1;
+        int ziffern = 0;
+        for (int i = 0; i < betrag.length(); i++) {
+            char c = betrag.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (nachkommastellen == 2 || cent > Long.MAX_VALUE / 100) {
+                    throw new NumberFormatException("Ungültiger Betrag: \"" + text + "\"");
+                }
+                cent = cent * 10 + (c - '0');
+                ziffern++;
+                if (nachkommastellen >= 0) {
+                    nachkommastellen++;
+                }
+            } else if ((c == ',' || c == '.') && nachkommastellen < 0) {
+                nachkommastellen = 0;
+            } else {
+                throw new NumberFormatException("Ungültiger Betrag: \"" + text + "\"");
+            }
+        }
+        if (ziffern == 0) {
+            throw new NumberFormatException("Ungültiger Betrag: \"" + text + "\"");
+        }
+        for (int i = Math.max(nachkommastellen, 0); i < 2; i++) {
+            cent *= 10;
+        }
+        return cent;
+    }
+
+    /**
+     * Formatiert einen Betrag im deutschen Format mit Tausenderpunkten und zwei Nachkommastellen, z.B. "-8.000,50".
+     *
+     * @param cent Der Betrag in Cent.
+     * @return Der formatierte Betrag ohne Währungszeichen.
+     */
+    public static String formatieren(long cent) {
+        StringBuilder text = new StringBuilder(24);
+        anhaengen(text, cent);
+        return text.toString();
+    }
+
+    /**
+     * Hängt einen Betrag im deutschen Format an, wie formatieren, ohne einen String anzulegen.
+     *
+     * @param ziel Der StringBuilder, an den angehängt wird.
+     * @param cent Der Betrag in Cent.
+     */
+    public static void anhaengen(StringBuilder ziel, long cent) {
+        if (cent < 0) {
+            ziel.append('-');
+        }
+        // Über den negativen Betrag rechnen, damit auch Long.MIN_VALUE funktioniert
+        long negativ = cent < 0 ? cent : -cent;
+        long euro = -(negativ / CENT_PRO_EURO);
+        int rest = (int) -(negativ % CENT_PRO_EURO);
+        int anfang = ziel.length();
+        ziel.append(euro);
+        for (int i = ziel.length() - 3; i > anfang; i -= 3) {
+            ziel.insert(i, '.');
+        }
+        ziel.append(',').append((char) ('0' + rest / 10)).append((char) ('0' + rest % 10));
+    }
+}
@@ -10,44 +10,81 @@ package com.geldautomat.model;
  *
  * @param kontonummer Die Kontonummer des Kontos.
  * @param pin Die PIN des Kontos.
- * @param kontostand Der aktuelle Kontostand.
+ * @param kontostand Der aktuelle Kontostand in Euro.
  * @param kontoinhaber Der Inhaber des Kontos.
  * @param bank Die Bank, bei der das Konto geführt wird.
- * @param ueberziehungsbetrag Der maximale Betrag, um den das Konto überzogen werden kann.
+ * @param ueberziehungsbetrag Der maximale Betrag in Euro, um den das Konto überzogen werden kann.
  */
 public class Girokonto extends Konto {
-    private double ueberziehungsbetrag;
+    private volatile long ueberziehungsbetrag;
 
     public Girokonto(int kontonummer, int pin, double kontostand, Kontoinhaber kontoinhaber, Bank bank, double ueberziehungsbetrag) {
-        super(kontonummer, pin, kontostand, kontoinhaber, bank);
-        this.ueberziehungsbetrag = ueberziehungsbetrag;
+        this(kontonummer, pin, Geldbetrag.ausEuro(kontostand), kontoinhaber, bank, Geldbetrag.ausEuro(ueberziehungsbetrag));
+    }
+
+    /**
+     * Konstruktor für ein Girokonto mit Beträgen in Cent.
+     *
+     * @param kontonummer Die Kontonummer des Kontos.
+     * @param pin Die PIN des Kontos.
+     * @param kontostandCent Der aktuelle Kontostand in Cent.
+     * @param kontoinhaber Der Inhaber des Kontos.
+     * @param bank Die Bank, bei der das Konto geführt wird.
+     * @param ueberziehungsbetragCent Der maximale Betrag in Cent, um den das Konto überzogen werden kann.
+     */
+    public Girokonto(int kontonummer, int pin, long kontostandCent, Kontoinhaber kontoinhaber, Bank bank, long ueberziehungsbetragCent) {
+        super(kontonummer, pin, kontostandCent, kontoinhaber, bank);
+        this.ueberziehungsbetrag = ueberziehungsbetragCent;
     }
 
     public double getUeberziehungsbetrag() {
-        return ueberziehungsbetrag;
+        return Geldbetrag.inEuro(getUeberziehungsbetragCent());
     }
 
     public void setUeberziehungsbetrag(double ueberziehungsbetrag) {
-        this.ueberziehungsbetrag = ueberziehungsbetrag;
+        setUeberziehungsbetragCent(Geldbetrag.ausEuro(ueberziehungsbetrag));
+    }
+
+    public long getUeberziehungsbetragCent() {
+        return ueberziehungsbetragLesen();
+    }
+
+    /**
+     * Setzt den Überziehungsbetrag und benachrichtigt die Beobachter, auch wenn sich der Kontostand
+     * nicht ändert.
+     *
+     * @param ueberziehungsbetragCent Der maximale Betrag in Cent, um den das Konto überzogen werden kann.
+     */
+    public void setUeberziehungsbetragCent(long ueberziehungsbetragCent) {
+        ueberziehungsbetragSchreiben(ueberziehungsbetragCent);
+        benachrichtigen();
+    }
+
+    /**
+     * Liest den gespeicherten Überziehungsbetrag. Unterklassen, die den Überziehungsbetrag an anderer Stelle
+     * speichern, überschreiben diese Methode und ueberziehungsbetragSchreiben.
+     *
+     * @return Der Überziehungsbetrag in Cent.
+     */
+    protected long ueberziehungsbetragLesen() {
+        return ueberziehungsbetrag;
+    }
+
+    protected void ueberziehungsbetragSchreiben(long ueberziehungsbetragCent) {
+        this.ueberziehungsbetrag = ueberziehungsbetragCent;
     }
 
     /**
      * Zahlt einen Betrag vom Konto aus.
      * Wenn der Betrag größer ist als der Kontostand plus der Überziehungsbetrag (mehr überzogen werden würde als erlaubt) wird eine Ausnahme ausgelöst.
      *
-     * @param betrag Der auszuzahlende Betrag.
+     * @param betrag Der auszuzahlende Betrag in Cent.
+     * @return Der Kontostand unmittelbar nach der Auszahlung in Cent.
      * @throws IllegalArgumentException wenn der Betrag größer ist als der Kontostand plus der Überziehungsbetrag.
      */
     @Override
-    public void auszahlen(double betrag) {
-        if (betrag <= getKontostand() + ueberziehungsbetrag) {
-            setKontostand(getKontostand() - betrag);
-            setKontostand(Math.round(getKontostand()*100000)/100000.0);
-        } else {
-        	throw new IllegalArgumentException("Kontostand zu niedrig");
-        }
-
-    }    
+    public long auszahlenCent(long betrag) {
+        return abbuchen(betrag, -getUeberziehungsbetragCent());
+    }
 
 }
-
@@ -0,0 +1,226 @@
+package com.geldautomat.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Diese Klasse hält die Konten einer Bank zusätzlich spaltenweise in parallelen primitiven Arrays:
+ * Kontonummer, Kontostand, Kontoart, Überziehungsbetrag und Zinssatz. Auswertungen über alle Konten wie die Summe der Kontostände
+ * oder die Suche nach überzogenen Konten laufen so linear durch den Speicher, statt jedem Konto-Objekt
+ * einzeln zu folgen, und können vom JIT-Compiler vektorisiert werden.
+ *
+ * Die Spalten sind eine Projektion der Konten, die Konten selbst bleiben unverändert und führen ihren
+ * Kontostand weiter. Jede Zeile ist als KontostandBeobachter bei ihrem Konto angemeldet und übernimmt
+ * Kontostand, Überziehungsbetrag und Zinssatz nach jeder Buchung und jeder Änderung von Überziehungsbetrag
+ * oder Zinssatz. Laufen gleichzeitig Buchungen, enthält eine Zeile kurzzeitig einen
+ * Kontostand, der vor der letzten Buchung gültig war. Nach dem Verwerfen der Spalten (siehe
+ * Bank.spaltenAnlegen) werden die Beobachter abgemeldet.
+ * Die Auswertungen lesen die gespeicherten Kontostände, noch nicht verbuchte Zinsen eines
+ * ZinsKalenders sind darin nicht enthalten.
+ */
+public final class KontenSpalten {
+    /** Für die Spalten der Kontostände und Überziehungsbeträge. */
+    private static final VarHandle LONG_SPALTE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle DOUBLE_SPALTE = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final byte GIROKONTO = 1;
+    private static final byte SPARKONTO = 2;
+
+    private final int[] kontonummern;
+    private final long[] kontostaende;
+    private final byte[] arten;
+    private final long[] ueberziehungsbetraege;
+    private final double[] zinsen;
+    private final Konto[] konten;
+    private final Zeile[] zeilen;
+
+    /**
+     * Konstruktor für die Spalten. Übernimmt die aktuellen Werte der Konten und meldet die Zeilen
+     * bei ihren Konten an. Buchungen dürfen dabei weiterlaufen.
+     *
+     * @param quelle Die Konten, deren Werte übernommen werden.
+     */
+    KontenSpalten(List<Konto> quelle) {
+        int anzahl = quelle.size();
+        kontonummern = new int[anzahl];
+        kontostaende = new long[anzahl];
+        arten = new byte[anzahl];
+        ueberziehungsbetraege = new long[anzahl];
+        zinsen = new double[anzahl];
+        konten = new Konto[anzahl];
+        zeilen = new Zeile[anzahl];
+        for (int i = 0; i < anzahl; i++) {
+            Konto konto = quelle.get(i);
+            konten[i] = konto;
+            kontonummern[i] = konto.getKontonummer();
+            arten[i] = konto instanceof Girokonto ? GIROKONTO : SPARKONTO;
+            zeilen[i] = new Zeile(i);
+            // Erst anmelden, dann übernehmen, damit keine Buchung dazwischen verloren geht
+            konto.addBeobachter(zeilen[i]);
+            zeilen[i].kontostandGeaendert(konto);
+        }
+    }
+
+    /**
+     * Meldet die Zeilen bei ihren Konten ab. Danach werden die Spalten nicht mehr fortgeschrieben.
+     */
+    void abmelden() {
+        for (int i = 0; i < konten.length; i++) {
+            konten[i].removeBeobachter(zeilen[i]);
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Konten zurück.
+     *
+     * @return Die Anzahl.
+     */
+    public int size() {
+        return konten.length;
+    }
+
+    /**
+     * Gibt das Konto einer Zeile zurück.
+     *
+     * @param index Die Zeile.
+     * @return Das Konto.
+     */
+    public Konto getKonto(int index) {
+        return konten[index];
+    }
+
+    public int getKontonummer(int index) {
+        return kontonummern[index];
+    }
+
+    public long getKontostandCent(int index) {
+        return (long) LONG_SPALTE.getVolatile(kontostaende, index);
+    }
+
+    public boolean istSparkonto(int index) {
+        return arten[index] == SPARKONTO;
+    }
+
+    /**
+     * Gibt den Überziehungsbetrag eines Girokontos zurück, wie er bei der letzten Buchung galt.
+     *
+     * @param index Die Zeile.
+     * @return Der Überziehungsbetrag in Cent, 0 bei Sparkonten.
+     */
+    public long getUeberziehungsbetragCent(int index) {
+        return (long) LONG_SPALTE.getVolatile(ueberziehungsbetraege, index);
+    }
+
+    /**
+     * Gibt den Zinssatz eines Sparkontos zurück, wie er bei der letzten Buchung galt.
+     *
+     * @param index Die Zeile.
+     * @return Der Zinssatz, 0 bei Girokonten.
+     */
+    public double getZins(int index) {
+        return (double) DOUBLE_SPALTE.getVolatile(zinsen, index);
+    }
+
+    /**
+     * Summiert die Kontostände aller Konten. Laufen gleichzeitig Buchungen, enthält die Summe für jedes
+     * Konto einen Kontostand, der vor oder nach der Buchung gültig war.
+     *
+     * @return Die Summe in Cent.
+     */
+    public long summeKontostaende() {
+        long[] werte = kontostaende;
+        long summe = 0;
+        for (int i = 0; i < werte.length; i++) {
+            summe += werte[i];
+        }
+        return summe;
+    }
+
+    /**
+     * Zählt die überzogenen Konten.
+     *
+     * @return Die Anzahl der Konten mit negativem Kontostand.
+     */
+    public int anzahlUeberzogen() {
+        long[] werte = kontostaende;
+        int anzahl = 0;
+        for (int i = 0; i < werte.length; i++) {
+            anzahl += (int) (werte[i] >>> 63);
+        }
+        return anzahl;
+    }
+
+    /**
+     * Sucht die überzogenen Konten.
+     *
+     * @return Die Zeilen der Konten mit negativem Kontostand in aufsteigender Reihenfolge.
+     */
+    public int[] ueberzogeneKonten() {
+        long[] werte = kontostaende;
+        int[] treffer = new int[16];
+        int anzahl = 0;
+        for (int i = 0; i < werte.length; i++) {
+            if (werte[i] < 0) {
+                if (anzahl == treffer.length) {
+                    treffer = Arrays.copyOf(treffer, anzahl * 2);
+                }
+                treffer[anzahl++] = i;
+            }
+        }
+        return Arrays.copyOf(treffer, anzahl);
+    }
+
+    /**
+     * Schreibt allen Sparkonten in einem Bereich der Zeilen die Zinsen zum Zinssatz aus der Spalte gut,
+     * mit demselben Ergebnis wie Sparkonto.berechneZins. Spaltenart und Zinssatz ersparen dabei die
+     * Typprüfung der übrigen Konten und das Lesen des Zinssatzes aus jedem Sparkonto. Konten mit einem
+     * Zinssatz von 0 werden gar nicht erst angefasst. Offene Zinsen eines ZinsKalenders werden nicht verbucht.
+     *
+     * @param von Die erste Zeile.
+     * @param bis Die Zeile hinter der letzten Zeile.
+     * @return Die Summe der gutgeschriebenen Zinsen in Cent.
+     */
+    public long zinsenGutschreiben(int von, int bis) {
+        long summe = 0;
+        for (int i = von; i < bis; i++) {
+            double zins = (double) DOUBLE_SPALTE.getVolatile(zinsen, i);
+            if (arten[i] == SPARKONTO && zins != 0) {
+                summe += ((Sparkonto) konten[i]).zinsGutschreiben(zins);
+            }
+        }
+        return summe;
+    }
+
+    /**
+     * Der Beobachter einer Zeile, der den Kontostand seines Kontos in die Spalte übernimmt.
+     */
+    private final class Zeile implements KontostandBeobachter {
+        private final int index;
+
+        private Zeile(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void kontostandGeaendert(Konto konto) {
+            if (konto instanceof Girokonto) {
+                LONG_SPALTE.setVolatile(ueberziehungsbetraege, index,
+                        ((Girokonto) konto).getUeberziehungsbetragCent());
+            } else {
+                DOUBLE_SPALTE.setVolatile(zinsen, index, ((Sparkonto) konto).zinsLesen());
+            }
+            // Laufen zwei Benachrichtigungen gleichzeitig, kann die frühere zuletzt schreiben. Daher wird
+            // nach dem Schreiben erneut gelesen, bis die Spalte den aktuellen Kontostand enthält.
+            long kontostand = konto.kontostandLesen();
+            while (true) {
+                LONG_SPALTE.setVolatile(kontostaende, index, kontostand);
+                long aktuell = konto.kontostandLesen();
+                if (aktuell == kontostand) {
+                    return;
+                }
+                kontostand = aktuell;
+            }
+        }
+    }
+}
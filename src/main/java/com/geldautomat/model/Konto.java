@@ -1,29 +1,76 @@
 package com.geldautomat.model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Diese abstrakte Klasse repräsentiert ein Konto.
  * Sie enthält Informationen über das Konto und Methoden zur Kontoverwaltung.
+ * Der Kontostand wird exakt in Cent geführt (siehe Geldbetrag). Die Methoden mit double-Beträgen
+ * rechnen in Euro und bleiben für bestehende Aufrufer erhalten.
+ * Buchungen ändern den Kontostand atomar per Compare-and-Set. Bei einer Auszahlung
+ * werden die Prüfung der Untergrenze und die Abbuchung in einem Schritt durchgeführt, sodass
+ * gleichzeitige Auszahlungen das Konto nie weiter überziehen als erlaubt.
+ * Gehört die Bank des Kontos zu einem Bank Management System, halten Buchungen und das Lesen des
+ * Kontostands außerdem die Sperre des Kontos in dessen Ueberweisungssystem. So wartet jeder Zugriff,
+ * bis eine laufende Überweisung Abbuchung und Gutschrift abgeschlossen hat.
+ * Jede Änderung des Kontostands wird als BuchungsEreignis an Java Flight Recorder gemeldet.
+ * Die letzten Umsätze stehen im Kontoverlauf, der erst beim ersten Zugriff angelegt wird.
+ * Nach jeder Änderung des Kontostands werden die angemeldeten KontostandBeobachter benachrichtigt.
+ * Ohne Beobachter kostet das nur das Lesen eines Feldes.
  */
 public abstract class Konto {
+    private static final VarHandle KONTOSTAND;
+    private static final VarHandle VERLAUF;
+    private static final VarHandle BEOBACHTER;
+    private static final KontostandBeobachter[] KEINE_BEOBACHTER = new KontostandBeobachter[0];
+
+    static {
+        try {
+            KONTOSTAND = MethodHandles.lookup().findVarHandle(Konto.class, "kontostand", long.class);
+            VERLAUF = MethodHandles.lookup().findVarHandle(Konto.class, "verlauf", Kontoverlauf.class);
+            BEOBACHTER = MethodHandles.lookup().findVarHandle(Konto.class, "beobachter", KontostandBeobachter[].class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
     private int kontonummer;
     private int pin;
-    private double kontostand;
+    private volatile long kontostand;
     private Kontoinhaber kontoinhaber;
     private Bank bank;
+    private volatile Kontoverlauf verlauf;
+    private volatile KontostandBeobachter[] beobachter = KEINE_BEOBACHTER;
 
     /**
      * Konstruktor für ein Konto.
      *
      * @param kontonummer Die Kontonummer des Kontos.
      * @param pin Die PIN des Kontos.
-     * @param kontostand Der aktuelle Kontostand.
+     * @param kontostand Der aktuelle Kontostand in Euro.
      * @param kontoinhaber Der Inhaber des Kontos.
      * @param bank Die Bank, bei der das Konto geführt wird.
      */
     public Konto(int kontonummer, int pin, double kontostand, Kontoinhaber kontoinhaber, Bank bank) {
+        this(kontonummer, pin, Geldbetrag.ausEuro(kontostand), kontoinhaber, bank);
+    }
+
+    /**
+     * Konstruktor für ein Konto mit einem Kontostand in Cent.
+     *
+     * @param kontonummer Die Kontonummer des Kontos.
+     * @param pin Die PIN des Kontos.
+     * @param kontostandCent Der aktuelle Kontostand in Cent.
+     * @param kontoinhaber Der Inhaber des Kontos.
+     * @param bank Die Bank, bei der das Konto geführt wird.
+     */
+    public Konto(int kontonummer, int pin, long kontostandCent, Kontoinhaber kontoinhaber, Bank bank) {
         this.kontonummer = kontonummer;
         this.pin = pin;
-        this.kontostand = kontostand;
+        this.kontostand = kontostandCent;
         this.kontoinhaber = kontoinhaber;
         this.bank = bank;
     }
@@ -45,11 +92,33 @@ public abstract class Konto {
     }
 
     public double getKontostand() {
-        return kontostand;
+        return Geldbetrag.inEuro(getKontostandCent());
     }
 
     public void setKontostand(double kontostand) {
-        this.kontostand = kontostand;
+        setKontostandCent(Geldbetrag.ausEuro(kontostand));
+    }
+
+    public long getKontostandCent() {
+        ReentrantLock sperre = sperren();
+        try {
+            return kontostandLesen();
+        } finally {
+            entsperren(sperre);
+        }
+    }
+
+    public void setKontostandCent(long kontostandCent) {
+        ReentrantLock sperre = sperren();
+        try {
+            BuchungsEreignis ereignis = new BuchungsEreignis();
+            ereignis.begin();
+            kontostandSchreiben(kontostandCent);
+            ereignis.abschliessen(this, BuchungsEreignis.SETZEN, kontostandCent);
+        } finally {
+            entsperren(sperre);
+        }
+        benachrichtigen(sperre);
     }
 
     public Kontoinhaber getKontoinhaber() {
@@ -67,33 +136,260 @@ public abstract class Konto {
     public void setBank(Bank bank) {
         this.bank = bank;
     }
+
+    /**
+     * Gibt den Verlauf der letzten Umsätze zurück und legt ihn beim ersten Aufruf an.
+     * Konten ohne Umsätze belegen so keinen Speicher für den Verlauf.
+     *
+     * @return Der Kontoverlauf.
+     */
+    public Kontoverlauf getVerlauf() {
+        Kontoverlauf vorhanden = verlauf;
+        if (vorhanden == null) {
+            Kontoverlauf neu = new Kontoverlauf(Kontoverlauf.STANDARD_KAPAZITAET);
+            // Legen zwei Threads gleichzeitig einen Verlauf an, gilt der zuerst gesetzte
+            vorhanden = (Kontoverlauf) VERLAUF.compareAndExchange(this, null, neu);
+            if (vorhanden == null) {
+                vorhanden = neu;
+            }
+        }
+        return vorhanden;
+    }
     
+    /**
+     * Meldet einen Beobachter an, der nach jeder Änderung des Kontostands benachrichtigt wird.
+     * Ist derselbe Beobachter schon angemeldet, passiert nichts.
+     *
+     * @param neu Der Beobachter.
+     */
+    public void addBeobachter(KontostandBeobachter neu) {
+        KontostandBeobachter[] alt;
+        KontostandBeobachter[] erweitert;
+        do {
+            alt = beobachter;
+            for (KontostandBeobachter vorhanden : alt) {
+                if (vorhanden == neu) {
+                    return;
+                }
+            }
+            erweitert = Arrays.copyOf(alt, alt.length + 1);
+            erweitert[alt.length] = neu;
+        } while (!BEOBACHTER.compareAndSet(this, alt, erweitert));
+    }
+
+    /**
+     * Meldet einen Beobachter ab.
+     *
+     * @param entfernen Der Beobachter.
+     */
+    public void removeBeobachter(KontostandBeobachter entfernen) {
+        KontostandBeobachter[] alt;
+        KontostandBeobachter[] rest;
+        do {
+            alt = beobachter;
+            int position = -1;
+            for (int i = 0; i < alt.length; i++) {
+                if (alt[i] == entfernen) {
+                    position = i;
+                }
+            }
+            if (position < 0) {
+                return;
+            }
+            rest = alt.length == 1 ? KEINE_BEOBACHTER : new KontostandBeobachter[alt.length - 1];
+            System.arraycopy(alt, 0, rest, 0, position);
+            System.arraycopy(alt, position + 1, rest, position, alt.length - position - 1);
+        } while (!BEOBACHTER.compareAndSet(this, alt, rest));
+    }
+
+    /**
+     * Gibt das Überweisungssystem zurück, dessen Sperren das Konto verwendet.
+     *
+     * @return Das Überweisungssystem des Bank Management Systems der Bank oder null.
+     */
+    final Ueberweisungssystem getUeberweisungssystem() {
+        Bank b = bank;
+        BankManagementSystem system = b == null ? null : b.getBankManagementSystem();
+        return system == null ? null : system.getUeberweisungssystem();
+    }
+
+    /**
+     * Fordert die Sperre des Kontos im Überweisungssystem an.
+     *
+     * @return Die gehaltene Sperre oder null, wenn das Konto zu keinem Bank Management System gehört.
+     */
+    final ReentrantLock sperren() {
+        Ueberweisungssystem ueberweisungssystem = getUeberweisungssystem();
+        if (ueberweisungssystem == null) {
+            return null;
+        }
+        ReentrantLock sperre = ueberweisungssystem.sperre(this);
+        sperre.lock();
+        return sperre;
+    }
+
+    static void entsperren(ReentrantLock sperre) {
+        if (sperre != null) {
+            sperre.unlock();
+        }
+    }
+
+    /**
+     * Benachrichtigt die Beobachter nach einer Buchung, deren Sperre bereits freigegeben ist.
+     * Hält der Thread die Sperre noch, weil eine Überweisung läuft, benachrichtigt stattdessen das
+     * Ueberweisungssystem nach deren Ende, damit kein Beobachter unter den Sperren läuft.
+     *
+     * @param sperre Die Sperre der Buchung oder null.
+     */
+    final void benachrichtigen(ReentrantLock sperre) {
+        if (sperre == null || !sperre.isHeldByCurrentThread()) {
+            benachrichtigen();
+        }
+    }
+
+    /**
+     * Benachrichtigt die Beobachter über eine Änderung des Kontostands.
+     * Ausnahmen eines Beobachters werden nicht an die Buchung weitergegeben, die bereits ausgeführt ist,
+     * sondern dem UncaughtExceptionHandler des aktuellen Threads gemeldet. Ohne eigenen Handler ist das
+     * der Handler der ThreadGroup, der an Thread.getDefaultUncaughtExceptionHandler weitergibt.
+     * Darf nicht aufgerufen werden, während der Monitor oder die Sperre des Kontos gehalten wird.
+     */
+    final void benachrichtigen() {
+        KontostandBeobachter[] aktuell = beobachter;
+        for (int i = 0; i < aktuell.length; i++) {
+            try {
+                aktuell[i].kontostandGeaendert(this);
+            } catch (RuntimeException ex) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+            }
+        }
+    }
+
     /**
      * Überprüft, ob das Konto überzogen ist.
      *
      * @return true, wenn das Konto überzogen ist, sonst false.
      */
     public boolean istKontoüberzogen() {
-        return getKontostand() < 0;
+        return getKontostandCent() < 0;
     }
 
     /**
      * Zahlt einen Betrag auf das Konto ein.
      *
-     * @param betrag Der einzuzahlende Betrag.
+     * @param betrag Der einzuzahlende Betrag in Euro.
      */
     public void einzahlen(double betrag) {
-        kontostand += betrag;
-        kontostand = Math.round(kontostand*100000)/100000.0;
+        einzahlenCent(Geldbetrag.ausEuro(betrag));
+    }
+
+    /**
+     * Zahlt einen Betrag in Cent auf das Konto ein.
+     *
+     * @param betrag Der einzuzahlende Betrag in Cent.
+     * @return Der Kontostand unmittelbar nach der Einzahlung in Cent.
+     */
+    public long einzahlenCent(long betrag) {
+        ReentrantLock sperre = sperren();
+        long kontostand;
+        try {
+            BuchungsEreignis ereignis = new BuchungsEreignis();
+            ereignis.begin();
+            kontostand = kontostandAddieren(betrag);
+            ereignis.abschliessen(this, BuchungsEreignis.EINZAHLUNG, betrag);
+        } finally {
+            entsperren(sperre);
+        }
+        benachrichtigen(sperre);
+        return kontostand;
     }
 
     /**
      * Zahlt einen Betrag vom Konto aus.
+     *
+     * @param betrag Der auszuzahlende Betrag in Euro.
+     * @throws IllegalArgumentException wenn der Kontostand für die Auszahlung nicht ausreicht.
+     */
+    public void auszahlen(double betrag) {
+        auszahlenCent(Geldbetrag.ausEuro(betrag));
+    }
+
+    /**
+     * Zahlt einen Betrag in Cent vom Konto aus.
      * Diese Methode muss von den Unterklassen implementiert werden.
      *
-     * @param betrag Der auszuzahlende Betrag.
+     * @param betrag Der auszuzahlende Betrag in Cent.
+     * @return Der Kontostand unmittelbar nach der Auszahlung in Cent.
+     * @throws IllegalArgumentException wenn der Kontostand für die Auszahlung nicht ausreicht.
+     */
+    public abstract long auszahlenCent(long betrag);
+
+    /**
+     * Bucht einen Betrag in Cent ab, sofern der Kontostand danach nicht unter der Untergrenze liegt.
+     * Prüfung und Abbuchung bilden einen atomaren Schritt.
+     *
+     * @param betrag Der abzubuchende Betrag in Cent.
+     * @param untergrenze Der niedrigste erlaubte Kontostand nach der Abbuchung in Cent.
+     * @return Der Kontostand, den das Compare-and-Set gesetzt hat, in Cent.
+     * @throws IllegalArgumentException wenn der Kontostand für die Abbuchung nicht ausreicht.
+     */
+    protected final long abbuchen(long betrag, long untergrenze) {
+        ReentrantLock sperre = sperren();
+        long alt;
+        try {
+            BuchungsEreignis ereignis = new BuchungsEreignis();
+            ereignis.begin();
+            do {
+                alt = kontostandLesen();
+                if (betrag > alt - untergrenze) {
+                    throw new IllegalArgumentException("Kontostand zu niedrig");
+                }
+            } while (!kontostandErsetzen(alt, alt - betrag));
+            ereignis.abschliessen(this, BuchungsEreignis.AUSZAHLUNG, betrag);
+        } finally {
+            entsperren(sperre);
+        }
+        benachrichtigen(sperre);
+        return alt - betrag;
+    }
+
+    /**
+     * Liest den gespeicherten Kontostand.
+     * Diese und die folgenden drei Methoden greifen direkt auf den Speicher des Kontostands zu.
+     * Unterklassen, die den Kontostand an anderer Stelle speichern, überschreiben alle vier.
+     *
+     * @return Der Kontostand in Cent.
+     */
+    protected long kontostandLesen() {
+        return kontostand;
+    }
+
+    protected void kontostandSchreiben(long kontostandCent) {
+        this.kontostand = kontostandCent;
+    }
+
+    /**
+     * Addiert einen Betrag atomar zum gespeicherten Kontostand.
+     *
+     * @param betrag Der Betrag in Cent.
+     * @return Der Kontostand nach der Addition in Cent.
      */
-    public abstract void auszahlen(double betrag);
+    protected long kontostandAddieren(long betrag) {
+        return (long) KONTOSTAND.getAndAdd(this, betrag) + betrag;
+    }
+
+    /**
+     * Setzt den Kontostand nur dann auf einen neuen Wert, wenn er noch dem erwarteten Wert entspricht.
+     * Damit können Unterklassen Buchungen, die vom aktuellen Kontostand abhängen, atomar durchführen.
+     *
+     * @param erwartet Der erwartete Kontostand in Cent.
+     * @param neu Der neue Kontostand in Cent.
+     * @return true, wenn der Kontostand gesetzt wurde, sonst false.
+     */
+    protected boolean kontostandErsetzen(long erwartet, long neu) {
+        return KONTOSTAND.compareAndSet(this, erwartet, neu);
+    }
 
     /**
      * Überprüft, ob eine gegebene PIN mit der PIN des Kontos übereinstimmt.
@@ -102,7 +398,7 @@ public abstract class Konto {
      * @return true, wenn die PIN übereinstimmt, sonst false.
      */
     public boolean checkPassword(int pin) {
-        return pin == this.pin;
+        return pin == getPin();
     }
 }
 
@@ -1,11 +1,19 @@
 package com.geldautomat.model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Diese Klasse repräsentiert einen Kontoinhaber.
  * Sie enthält Informationen über den Kontoinhaber und verwaltet eine Liste von Konten.
+ * Die Liste ist stets nach Kontonummer sortiert, Konten mit gleicher Nummer bei verschiedenen Banken
+ * stehen in der Reihenfolge des Hinzufügens. Sie wird beim Hinzufügen und Entfernen einzelner Konten
+ * fortgeschrieben, sodass die Anzeige sie nicht bei jedem Aufruf neu sortieren muss.
+ * Die Liste wird beim Ändern nicht verändert, sondern durch eine neue ersetzt (Copy-on-Write). Die Oberfläche
+ * kann sie daher ohne Sperre lesen, während etwa der CSVNachlader Konten hinzufügt oder entfernt.
+ * Angehängt wird ohne Kopie in freie Plätze des Arrays, die ältere Listen nicht sehen.
  */
 public class Kontoinhaber {
     private int kundennummer;
@@ -14,7 +22,11 @@ public class Kontoinhaber {
     private String plz;
     private String ort;
     private String strasse;
-    private List<Konto> konten;
+    /** Das Array der aktuellen Liste, hinter deren Ende noch freie Plätze liegen können. */
+    private Konto[] daten;
+    private volatile Kontenliste konten;
+    /** Zählt die Änderungen der Kontenliste, damit Anzeigen erkennen, ob sie neu laden müssen. */
+    private volatile int aenderungen;
 
     /**
      * Konstruktor für einen Kontoinhaber.
@@ -33,7 +45,8 @@ public class Kontoinhaber {
         this.plz = plz;
         this.ort = ort;
         this.strasse = strasse;
-        this.konten = new ArrayList<>();
+        this.daten = new Konto[2];
+        this.konten = new Kontenliste(daten, 0);
     }
     
     public int getKundennummer() {
@@ -84,17 +97,51 @@ public class Kontoinhaber {
         this.strasse = strasse;
     }
     
+    /**
+     * Gibt die Konten nach Kontonummer sortiert zurück.
+     * Die Liste kann nicht verändert werden, Konten werden über addKonto und removeKonto hinzugefügt bzw. entfernt.
+     * Sie gibt den Stand zum Zeitpunkt des Aufrufs wieder, spätere Änderungen erscheinen nur in neu abgefragten Listen.
+     *
+     * @return Die Konten des Kontoinhabers.
+     */
     public List<Konto> getKonten() {
         return konten;
     }
-    
+
     /**
-     * Fügt ein Konto zur Liste der Konten hinzu.
+     * Gibt die Anzahl der bisherigen Änderungen der Kontenliste zurück.
+     * Solange sich der Wert nicht ändert, ist die Liste unverändert.
+     *
+     * @return Die Anzahl der Änderungen.
+     */
+    public int getAenderungen() {
+        return aenderungen;
+    }
+
+    /**
+     * Fügt ein Konto an der passenden Stelle der sortierten Liste hinzu.
+     * Werden Konten in aufsteigender Reihenfolge hinzugefügt, etwa beim Import, wird nur angehängt.
+     * Ändert sich später die Kontonummer eines Kontos, muss es vorher entfernt und danach wieder hinzugefügt werden.
      *
      * @param konto Das hinzuzufügende Konto.
      */
-    public void addKonto(Konto konto) {
-        konten.add(konto);
+    public synchronized void addKonto(Konto konto) {
+        int kontonummer = konto.getKontonummer();
+        int anzahl = konten.size();
+        if (anzahl == 0 || daten[anzahl - 1].getKontonummer() <= kontonummer) {
+            if (anzahl == daten.length) {
+                daten = Arrays.copyOf(daten, anzahl * 2);
+            }
+            daten[anzahl] = konto;
+        } else {
+            int position = ende(kontonummer);
+            Konto[] neu = new Konto[Math.max(anzahl + 1, daten.length)];
+            System.arraycopy(daten, 0, neu, 0, position);
+            neu[position] = konto;
+            System.arraycopy(daten, position, neu, position + 1, anzahl - position);
+            daten = neu;
+        }
+        veroeffentlichen(anzahl + 1);
     }
     
     /**
@@ -102,8 +149,79 @@ public class Kontoinhaber {
      *
      * @param konto Das zu entfernende Konto.
      */
-    public void removeKonto(Konto konto) {
-        konten.remove(konto);
+    public synchronized void removeKonto(Konto konto) {
+        int position = position(konto);
+        if (position >= 0) {
+            int anzahl = konten.size();
+            Konto[] neu = new Konto[daten.length];
+            System.arraycopy(daten, 0, neu, 0, position);
+            System.arraycopy(daten, position + 1, neu, position, anzahl - position - 1);
+            daten = neu;
+            veroeffentlichen(anzahl - 1);
+        }
     }
-}
 
+    private void veroeffentlichen(int anzahl) {
+        konten = new Kontenliste(daten, anzahl);
+        aenderungen++;
+    }
+
+    /**
+     * Sucht ein Konto per binärer Suche über die Kontonummer und danach unter den Konten mit gleicher Nummer.
+     *
+     * @return Die Position oder -1, wenn das Konto nicht in der Liste steht.
+     */
+    private int position(Konto konto) {
+        int kontonummer = konto.getKontonummer();
+        for (int i = ende(kontonummer) - 1; i >= 0 && daten[i].getKontonummer() == kontonummer; i--) {
+            if (daten[i] == konto) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gibt die Position hinter dem letzten Konto zurück, dessen Kontonummer nicht größer ist als die angegebene.
+     */
+    private int ende(int kontonummer) {
+        int von = 0;
+        int bis = konten.size();
+        while (von < bis) {
+            int mitte = (von + bis) >>> 1;
+            if (daten[mitte].getKontonummer() <= kontonummer) {
+                von = mitte + 1;
+            } else {
+                bis = mitte;
+            }
+        }
+        return von;
+    }
+
+    /**
+     * Eine unveränderliche Liste über den ersten Einträgen eines Arrays. Plätze dahinter werden beim
+     * Anhängen beschrieben, ohne dass sich die Liste ändert.
+     */
+    private static final class Kontenliste extends AbstractList<Konto> implements RandomAccess {
+        private final Konto[] daten;
+        private final int anzahl;
+
+        private Kontenliste(Konto[] daten, int anzahl) {
+            this.daten = daten;
+            this.anzahl = anzahl;
+        }
+
+        @Override
+        public Konto get(int index) {
+            if (index < 0 || index >= anzahl) {
+                throw new IndexOutOfBoundsException("Index " + index + ", Größe " + anzahl);
+            }
+            return daten[index];
+        }
+
+        @Override
+        public int size() {
+            return anzahl;
+        }
+    }
+}
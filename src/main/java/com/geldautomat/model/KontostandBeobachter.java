@@ -0,0 +1,17 @@
+package com.geldautomat.model;
+
+/**
+ * Ein Beobachter wird nach jeder Änderung des Kontostands eines Kontos benachrichtigt (siehe Konto.addBeobachter).
+ * Die Benachrichtigung läuft im buchenden Thread, während weitere Buchungen auf das Konto warten können.
+ * Beobachter sollen daher sofort zurückkehren, etwa nur eine Aktualisierung vormerken, und selbst nicht buchen.
+ */
+@FunctionalInterface
+public interface KontostandBeobachter {
+
+    /**
+     * Wird aufgerufen, nachdem sich der Kontostand geändert hat.
+     *
+     * @param konto Das Konto, dessen Kontostand sich geändert hat.
+     */
+    void kontostandGeaendert(Konto konto);
+}
@@ -0,0 +1,272 @@
+package com.geldautomat.model;
+
+import java.util.Arrays;
+
+/**
+ * Diese Klasse speichert die letzten Umsätze eines Kontos in einem Ringpuffer fester Kapazität.
+ * Die Felder der Umsätze stehen in parallelen primitiven Arrays, ein neuer Umsatz überschreibt den
+ * ältesten, sobald der Puffer voll ist. Die Umsätze sind nach ihrer Sequenznummer im Journal geordnet,
+ * auch wenn gleichzeitige Buchungen sie in anderer Reihenfolge erfassen. Der Speicherbedarf hängt daher nur von der Kapazität ab,
+ * nicht von der Zahl der Umsätze, und das Erfassen legt keine Objekte an.
+ * Überschriebene Umsätze stehen weiter im Journal, sofern eines geführt wird (siehe Journal.umsaetzeLesen).
+ * Alle Methoden sind synchronisiert, die Sperre wird nur für das Kopieren einzelner Werte gehalten.
+ */
+public final class Kontoverlauf {
+    /**
+     * Kapazität der Verläufe, die Konten für sich anlegen.
+     */
+    public static final int STANDARD_KAPAZITAET = 16;
+    /**
+     * Wert für Kontostand und Zeitpunkt, wenn diese nicht bekannt sind, etwa bei Umsätzen aus dem Journal.
+     */
+    public static final long UNBEKANNT = Long.MIN_VALUE;
+
+    /**
+     * Die Art eines Umsatzes.
+     */
+    public enum Art {
+        EINZAHLUNG("Einzahlung"),
+        AUSZAHLUNG("Auszahlung"),
+        UEBERWEISUNG_EINGANG("Überweisung von"),
+        UEBERWEISUNG_AUSGANG("Überweisung an");
+
+        private final String bezeichnung;
+
+        Art(String bezeichnung) {
+            this.bezeichnung = bezeichnung;
+        }
+
+        public String getBezeichnung() {
+            return bezeichnung;
+        }
+    }
+
+    private static final Art[] ARTEN = Art.values();
+
+    private final byte[] arten;
+    private final long[] betraege;
+    private final long[] kontostaende;
+    private final long[] zeitpunkte;
+    private final long[] sequenzen;
+    private final String[] gegenBlz;
+    private final int[] gegenKontonummern;
+    /** Anzahl aller gespeicherten Umsätze, auch der überschriebenen. */
+    private long anzahl;
+
+    /**
+     * Konstruktor für den Kontoverlauf.
+     *
+     * @param kapazitaet Die Anzahl der Umsätze, die höchstens gespeichert werden.
+     * @throws IllegalArgumentException wenn die Kapazität nicht positiv ist.
+     */
+    public Kontoverlauf(int kapazitaet) {
+        if (kapazitaet <= 0) {
+            throw new IllegalArgumentException("Ungültige Kapazität: " + kapazitaet);
+        }
+        arten = new byte[kapazitaet];
+        betraege = new long[kapazitaet];
+        kontostaende = new long[kapazitaet];
+        zeitpunkte = new long[kapazitaet];
+        sequenzen = new long[kapazitaet];
+        gegenBlz = new String[kapazitaet];
+        gegenKontonummern = new int[kapazitaet];
+    }
+
+    public int getKapazitaet() {
+        return arten.length;
+    }
+
+    /**
+     * Gibt die Anzahl aller gespeicherten Umsätze zurück, einschließlich der bereits überschriebenen.
+     *
+     * @return Die Anzahl.
+     */
+    public synchronized long getAnzahl() {
+        return anzahl;
+    }
+
+    /**
+     * Erfasst einen Umsatz. Er wird hinter allen Umsätzen mit kleinerer oder gleicher Sequenznummer
+     * eingeordnet, neuere Umsätze rücken dafür auf. Das kostet nur bei verspätet erfassten Umsätzen
+     * mehr als einen Vergleich. Ist der Puffer voll, wird der älteste Umsatz überschrieben, ist der
+     * neue Umsatz selbst der älteste, wird er nicht gespeichert.
+     *
+     * @param art Die Art des Umsatzes.
+     * @param betrag Die Änderung des Kontostands in Cent, negativ bei Auszahlungen und ausgehenden Überweisungen.
+     * @param kontostand Der Kontostand nach dem Umsatz in Cent oder UNBEKANNT.
+     * @param gegenBlz Die BLZ des Gegenkontos einer Überweisung, sonst null.
+     * @param gegenKontonummer Die Kontonummer des Gegenkontos einer Überweisung, sonst 0.
+     * @param sequenz Die Sequenznummer des Umsatzes im Journal, 0 ohne Journal.
+     * @param zeitpunkt Der Zeitpunkt in Millisekunden seit 1970 oder UNBEKANNT.
+     */
+    public synchronized void erfassen(Art art, long betrag, long kontostand, String gegenBlz, int gegenKontonummer,
+            long sequenz, long zeitpunkt) {
+        int kapazitaet = arten.length;
+        int belegt = (int) Math.min(anzahl, kapazitaet);
+        // Anzahl der gespeicherten Umsätze mit größerer Sequenznummer, vom neuesten aus gezählt
+        int neuere = 0;
+        while (neuere < belegt && sequenzen[(int) ((anzahl - 1 - neuere) % kapazitaet)] > sequenz) {
+            neuere++;
+        }
+        if (neuere == kapazitaet) {
+            return;
+        }
+        // Die neueren Umsätze rücken um einen Platz auf, der neueste gegebenenfalls auf den des ältesten
+        for (int i = 0; i < neuere; i++) {
+            verschieben((int) ((anzahl - 1 - i) % kapazitaet), (int) ((anzahl - i) % kapazitaet));
+        }
+        int index = (int) ((anzahl - neuere) % kapazitaet);
+        arten[index] = (byte) art.ordinal();
+        betraege[index] = betrag;
+        kontostaende[index] = kontostand;
+        zeitpunkte[index] = zeitpunkt;
+        sequenzen[index] = sequenz;
+        this.gegenBlz[index] = gegenBlz;
+        gegenKontonummern[index] = gegenKontonummer;
+        anzahl++;
+    }
+
+    private void verschieben(int von, int nach) {
+        arten[nach] = arten[von];
+        betraege[nach] = betraege[von];
+        kontostaende[nach] = kontostaende[von];
+        zeitpunkte[nach] = zeitpunkte[von];
+        sequenzen[nach] = sequenzen[von];
+        gegenBlz[nach] = gegenBlz[von];
+        gegenKontonummern[nach] = gegenKontonummern[von];
+    }
+
+    /**
+     * Hängt die letzten Umsätze an einen Auszug an, den neuesten zuerst.
+     * Der Aufwand hängt nur von der Zahl der kopierten Umsätze ab.
+     *
+     * @param hoechstens Die Anzahl der Umsätze, die höchstens kopiert werden.
+     * @param ziel Der Auszug, an den die Umsätze angehängt werden.
+     * @return Die Anzahl der kopierten Umsätze.
+     */
+    public synchronized int letzte(int hoechstens, Auszug ziel) {
+        int kopieren = (int) Math.min(Math.min(hoechstens, arten.length), anzahl);
+        for (int i = 0; i < kopieren; i++) {
+            int index = (int) ((anzahl - 1 - i) % arten.length);
+            ziel.hinzufuegen(ARTEN[arten[index]], betraege[index], kontostaende[index], gegenBlz[index],
+                    gegenKontonummern[index], sequenzen[index], zeitpunkte[index]);
+        }
+        return Math.max(kopieren, 0);
+    }
+
+    /**
+     * Gibt die kleinste Sequenznummer der gespeicherten Umsätze zurück, die des ältesten Umsatzes.
+     * Alle übrigen Umsätze des Kontos im Journal stehen vor dieser Sequenznummer oder werden noch erfasst.
+     *
+     * @return Die Sequenznummer oder 0, wenn kein Umsatz gespeichert ist.
+     */
+    public synchronized long aeltesteSequenz() {
+        if (anzahl == 0) {
+            return 0;
+        }
+        return sequenzen[(int) (Math.max(0, anzahl - arten.length) % arten.length)];
+    }
+
+    /**
+     * Eine Liste von Umsätzen in parallelen primitiven Arrays, etwa für die Anzeige.
+     * Ein Auszug kann mit leeren wiederverwendet werden. Er ist nicht threadsicher.
+     */
+    public static final class Auszug {
+        private byte[] arten;
+        private long[] betraege;
+        private long[] kontostaende;
+        private long[] zeitpunkte;
+        private long[] sequenzen;
+        private String[] gegenBlz;
+        private int[] gegenKontonummern;
+        private int anzahl;
+
+        /**
+         * Konstruktor für den Auszug.
+         *
+         * @param kapazitaet Die anfängliche Kapazität, der Auszug wächst bei Bedarf.
+         */
+        public Auszug(int kapazitaet) {
+            int groesse = Math.max(1, kapazitaet);
+            arten = new byte[groesse];
+            betraege = new long[groesse];
+            kontostaende = new long[groesse];
+            zeitpunkte = new long[groesse];
+            sequenzen = new long[groesse];
+            gegenBlz = new String[groesse];
+            gegenKontonummern = new int[groesse];
+        }
+
+        /**
+         * Hängt einen Umsatz an. Die Parameter entsprechen Kontoverlauf.erfassen.
+         */
+        public void hinzufuegen(Art art, long betrag, long kontostand, String gegenBlz, int gegenKontonummer,
+                long sequenz, long zeitpunkt) {
+            if (anzahl == arten.length) {
+                int groesse = anzahl * 2;
+                arten = Arrays.copyOf(arten, groesse);
+                betraege = Arrays.copyOf(betraege, groesse);
+                kontostaende = Arrays.copyOf(kontostaende, groesse);
+                zeitpunkte = Arrays.copyOf(zeitpunkte, groesse);
+                sequenzen = Arrays.copyOf(sequenzen, groesse);
+                this.gegenBlz = Arrays.copyOf(this.gegenBlz, groesse);
+                gegenKontonummern = Arrays.copyOf(gegenKontonummern, groesse);
+            }
+            arten[anzahl] = (byte) art.ordinal();
+            betraege[anzahl] = betrag;
+            kontostaende[anzahl] = kontostand;
+            zeitpunkte[anzahl] = zeitpunkt;
+            sequenzen[anzahl] = sequenz;
+            this.gegenBlz[anzahl] = gegenBlz;
+            gegenKontonummern[anzahl] = gegenKontonummer;
+            anzahl++;
+        }
+
+        public int size() {
+            return anzahl;
+        }
+
+        /**
+         * Entfernt alle Umsätze, die Arrays bleiben erhalten.
+         */
+        public void leeren() {
+            Arrays.fill(gegenBlz, 0, anzahl, null);
+            anzahl = 0;
+        }
+
+        public Art getArt(int index) {
+            return ARTEN[arten[pruefen(index)]];
+        }
+
+        public long getBetragCent(int index) {
+            return betraege[pruefen(index)];
+        }
+
+        public long getKontostandCent(int index) {
+            return kontostaende[pruefen(index)];
+        }
+
+        public long getZeitpunkt(int index) {
+            return zeitpunkte[pruefen(index)];
+        }
+
+        public long getSequenz(int index) {
+            return sequenzen[pruefen(index)];
+        }
+
+        public String getGegenBlz(int index) {
+            return gegenBlz[pruefen(index)];
+        }
+
+        public int getGegenKontonummer(int index) {
+            return gegenKontonummern[pruefen(index)];
+        }
+
+        private int pruefen(int index) {
+            if (index < 0 || index >= anzahl) {
+                throw new IndexOutOfBoundsException("Index " + index + ", Größe " + anzahl);
+            }
+            return index;
+        }
+    }
+}
@@ -1,60 +1,314 @@
 package com.geldautomat.model;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Diese Klasse repräsentiert ein Sparkonto.
  * Sie erbt von der abstrakten Klasse Konto und fügt einen Zinssatz hinzu.
+ * Mit einem ZinsKalender werden die Zinsen erst verbucht, wenn der Kontostand gelesen oder geändert
+ * wird. Dabei werden alle seit der letzten Verzinsung vergangenen Zinstermine nacheinander wie mit
+ * berechneZins verbucht, sodass der Kontostand dem einer Verzinsung zu jedem Termin entspricht.
  */
 public class Sparkonto extends Konto {
     private double zins;
+    private volatile ZinsKalender zinsKalender;
+    /** Die Periode des Zinskalenders, bis zu der die Zinsen verbucht sind. */
+    private volatile long verzinstBis;
+    /** Die Nummer des letzten Zinslaufs, der dem Konto Zinsen gutgeschrieben hat. */
+    private volatile long zinslauf;
 
     /**
      * Konstruktor für ein Sparkonto.
      *
      * @param kontonummer Die Kontonummer des Kontos.
      * @param pin Die PIN des Kontos.
-     * @param kontostand Der aktuelle Kontostand.
+     * @param kontostand Der aktuelle Kontostand in Euro.
      * @param kontoinhaber Der Inhaber des Kontos.
      * @param bank Die Bank, bei der das Konto geführt wird.
      * @param zins Der Zinssatz des Kontos.
      */
     public Sparkonto(int kontonummer, int pin, double kontostand, Kontoinhaber kontoinhaber, Bank bank, double zins) {
-        super(kontonummer, pin, kontostand, kontoinhaber, bank);
+        this(kontonummer, pin, Geldbetrag.ausEuro(kontostand), kontoinhaber, bank, zins);
+    }
+
+    /**
+     * Konstruktor für ein Sparkonto mit einem Kontostand in Cent.
+     *
+     * @param kontonummer Die Kontonummer des Kontos.
+     * @param pin Die PIN des Kontos.
+     * @param kontostandCent Der aktuelle Kontostand in Cent.
+     * @param kontoinhaber Der Inhaber des Kontos.
+     * @param bank Die Bank, bei der das Konto geführt wird.
+     * @param zins Der Zinssatz des Kontos.
+     */
+    public Sparkonto(int kontonummer, int pin, long kontostandCent, Kontoinhaber kontoinhaber, Bank bank, double zins) {
+        super(kontonummer, pin, kontostandCent, kontoinhaber, bank);
         this.zins = zins;
     }
 
     public double getZins() {
-        return zins;
+        return zinsLesen();
     }
 
+    /**
+     * Setzt den Zinssatz. Offene Zinsen werden vorher mit dem bisherigen Zinssatz verbucht.
+     * Die Beobachter werden benachrichtigt, auch wenn sich der Kontostand nicht ändert.
+     *
+     * @param zins Der neue Zinssatz.
+     */
     public void setZins(double zins) {
+        verzinsen();
+        zinsSchreiben(zins);
+        benachrichtigen();
+    }
+
+    /**
+     * Liest den gespeicherten Zinssatz. Unterklassen, die den Zinssatz an anderer Stelle speichern,
+     * überschreiben diese Methode und zinsSchreiben.
+     *
+     * @return Der Zinssatz.
+     */
+    protected double zinsLesen() {
+        return zins;
+    }
+
+    protected void zinsSchreiben(double zins) {
         this.zins = zins;
     }
 
+    public ZinsKalender getZinsKalender() {
+        return zinsKalender;
+    }
+
+    /**
+     * Gibt die Periode des Zinskalenders zurück, bis zu der die Zinsen im Kontostand enthalten sind.
+     *
+     * @return Die Periode, 0 ohne Zinskalender.
+     */
+    public long getVerzinstBis() {
+        return verzinstBis;
+    }
+
+    /**
+     * Setzt den Zinskalender für die verzögerte Verzinsung. Offene Zinsen nach dem bisherigen Kalender
+     * werden vorher verbucht. Der Kontostand gilt zur aktuellen Periode des neuen Kalenders als verzinst.
+     *
+     * @param zinsKalender Der Zinskalender oder null, um nur noch mit berechneZins zu verzinsen.
+     */
+    public void setZinsKalender(ZinsKalender zinsKalender) {
+        setZinsKalender(zinsKalender, zinsKalender == null ? 0 : zinsKalender.getPeriode());
+    }
+
+    /**
+     * Setzt den Zinskalender mit der Periode, bis zu der der Kontostand bereits verzinst ist, etwa beim
+     * Laden eines Snapshots. Offene Zinsen nach dem bisherigen Kalender werden vorher verbucht.
+     *
+     * @param zinsKalender Der Zinskalender oder null, um nur noch mit berechneZins zu verzinsen.
+     * @param verzinstBis Die Periode des Kalenders, bis zu der die Zinsen im Kontostand enthalten sind.
+     */
+    public void setZinsKalender(ZinsKalender zinsKalender, long verzinstBis) {
+        boolean gebucht;
+        ReentrantLock sperre = sperren();
+        try {
+            synchronized (this) {
+                gebucht = offeneZinsenBuchen();
+                this.verzinstBis = zinsKalender == null ? 0 : verzinstBis;
+                this.zinsKalender = zinsKalender;
+            }
+        } finally {
+            entsperren(sperre);
+        }
+        if (gebucht) {
+            benachrichtigen(sperre);
+        }
+    }
+
+    @Override
+    public long getKontostandCent() {
+        verzinsen();
+        return super.getKontostandCent();
+    }
+
+    @Override
+    public void setKontostandCent(long kontostandCent) {
+        verzinsen();
+        super.setKontostandCent(kontostandCent);
+    }
+
+    @Override
+    public long einzahlenCent(long betrag) {
+        verzinsen();
+        return super.einzahlenCent(betrag);
+    }
+
     /**
      * Berechnet die Zinsen auf dem Konto und zahlt sie auf das Konto ein. 
+     * Der Zinsbetrag wird auf ganze Cent gerundet und atomar mit dem Kontostand verrechnet,
+     * aus dem er berechnet wurde. Offene Zinsen aus dem Zinskalender werden vorher verbucht.
+     *
+     * @return Der gutgeschriebene Zinsbetrag in Cent.
      */
-    public void berechneZins() {
-        double kontostand = getKontostand();
-        double zinsbetrag = kontostand * (zins / 100);
-        super.einzahlen(zinsbetrag);
+    public long berechneZins() {
+        verzinsen();
+        return zinsGutschreiben(getZins());
+    }
+
+    /**
+     * Schreibt die Zinsen zu einem vorgegebenen Zinssatz gut, wie berechneZins, aber ohne offene Zinsen
+     * aus dem Zinskalender. Für KontenSpalten, die den Zinssatz in einer eigenen Spalte halten.
+     *
+     * @param zins Der Zinssatz.
+     * @return Der gutgeschriebene Zinsbetrag in Cent.
+     */
+    long zinsGutschreiben(double zins) {
+        double satz = zins / 100;
+        ReentrantLock sperre = sperren();
+        long zinsbetrag;
+        try {
+            BuchungsEreignis ereignis = new BuchungsEreignis();
+            ereignis.begin();
+            long kontostand;
+            do {
+                kontostand = kontostandLesen();
+                zinsbetrag = Math.round(kontostand * satz);
+            } while (!kontostandErsetzen(kontostand, kontostand + zinsbetrag));
+            ereignis.abschliessen(this, BuchungsEreignis.ZINSEN, zinsbetrag);
+        } finally {
+            entsperren(sperre);
+        }
+        benachrichtigen(sperre);
+        return zinsbetrag;
     }
     
+    /**
+     * Berechnet die Zinsen auf den aktuellen Kontostand, ohne sie gutzuschreiben. Offene Zinsen aus dem
+     * Zinskalender werden vorher verbucht.
+     *
+     * @return Der auf ganze Cent gerundete Zinsbetrag, wie ihn berechneZins gutschreiben würde.
+     */
+    public long zinsbetragBerechnen() {
+        return Math.round(getKontostandCent() * (getZins() / 100));
+    }
+
+    /**
+     * Schreibt einen vorab berechneten Zinsbetrag für einen Zinslauf gut. Hat dieser oder ein späterer
+     * Zinslauf dem Konto bereits Zinsen gutgeschrieben, bleibt der Kontostand unverändert. So kann ein
+     * abgebrochener Zinslauf wiederholt und ein Journal mehrfach eingespielt werden.
+     *
+     * @param zinsbetrag Der Zinsbetrag in Cent.
+     * @param lauf Die Nummer des Zinslaufs.
+     * @return true, wenn der Betrag gutgeschrieben wurde.
+     */
+    public boolean zinsenGutschreiben(long zinsbetrag, long lauf) {
+        verzinsen();
+        ReentrantLock sperre = sperren();
+        try {
+            synchronized (this) {
+                if (zinslauf >= lauf) {
+                    return false;
+                }
+                BuchungsEreignis ereignis = new BuchungsEreignis();
+                ereignis.begin();
+                kontostandAddieren(zinsbetrag);
+                zinslauf = lauf;
+                ereignis.abschliessen(this, BuchungsEreignis.ZINSEN, zinsbetrag);
+            }
+        } finally {
+            entsperren(sperre);
+        }
+        benachrichtigen(sperre);
+        return true;
+    }
+
+    /**
+     * Gibt die Nummer des letzten Zinslaufs zurück, der dem Konto Zinsen gutgeschrieben hat.
+     *
+     * @return Die Nummer, 0 wenn noch kein Zinslauf Zinsen gutgeschrieben hat.
+     */
+    public long getZinslauf() {
+        return zinslauf;
+    }
+
+    /**
+     * Setzt die Nummer des letzten Zinslaufs, etwa beim Laden eines Snapshots.
+     *
+     * @param zinslauf Die Nummer des Zinslaufs.
+     */
+    public void setZinslauf(long zinslauf) {
+        this.zinslauf = zinslauf;
+    }
+
     /**
      * Zahlt einen Betrag vom Konto aus.
      * Wenn der Betrag größer ist als der Kontostand, wird eine Ausnahme ausgelöst.
      *
-     * @param betrag Der auszuzahlende Betrag.
+     * @param betrag Der auszuzahlende Betrag in Cent.
+     * @return Der Kontostand unmittelbar nach der Auszahlung in Cent.
      * @throws IllegalArgumentException wenn der Betrag größer ist als der Kontostand.
      */
     @Override
-    public void auszahlen(double betrag) {
-        if (betrag <= getKontostand()) {
-            setKontostand(getKontostand() - betrag);
-            setKontostand(Math.round(getKontostand()*100000)/100000.0);
-        } else {
-        	throw new IllegalArgumentException("Kontostand zu niedrig");
+    public long auszahlenCent(long betrag) {
+        verzinsen();
+        return abbuchen(betrag, 0);
+    }
+
+    /**
+     * Verbucht die Zinsen aller Zinstermine seit der letzten Verzinsung.
+     * Buchungen, die gleichzeitig laufen, werden erst nach der Verzinsung ausgeführt oder vom
+     * Compare-and-Set berücksichtigt.
+     */
+    private void verzinsen() {
+        ZinsKalender kalender = zinsKalender;
+        if (kalender == null || verzinstBis >= kalender.getPeriode()) {
+            return;
         }
+        boolean gebucht;
+        // Wie bei jeder Buchung erst die Sperre im Überweisungssystem, dann der Monitor
+        ReentrantLock sperre = sperren();
+        try {
+            synchronized (this) {
+                gebucht = offeneZinsenBuchen();
+            }
+        } finally {
+            entsperren(sperre);
+        }
+        // Erst nach Monitor und Sperre, damit Beobachter weder die Verzinsung aufhalten noch dabei Sperren anfordern
+        if (gebucht) {
+            benachrichtigen(sperre);
+        }
+    }
 
+    /**
+     * Bucht die offenen Zinsen, ohne die Beobachter zu benachrichtigen. Der Monitor des Kontos muss
+     * gehalten werden.
+     *
+     * @return true, wenn Zinsen gebucht wurden.
+     */
+    private boolean offeneZinsenBuchen() {
+        ZinsKalender kalender = zinsKalender;
+        if (kalender == null) {
+            return false;
+        }
+        long periode = kalender.getPeriode();
+        long offen = periode - verzinstBis;
+        if (offen <= 0) {
+            return false;
+        }
+        BuchungsEreignis ereignis = new BuchungsEreignis();
+        ereignis.begin();
+        double satz = zinsLesen() / 100;
+        long kontostand;
+        long neu;
+        do {
+            kontostand = kontostandLesen();
+            neu = kontostand;
+            for (long i = 0; i < offen; i++) {
+                neu += Math.round(neu * satz);
+            }
+        } while (!kontostandErsetzen(kontostand, neu));
+        verzinstBis = periode;
+        ereignis.abschliessen(this, BuchungsEreignis.ZINSEN, neu - kontostand);
+        return true;
     }
     
 }
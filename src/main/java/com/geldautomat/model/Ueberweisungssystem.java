@@ -0,0 +1,193 @@
+package com.geldautomat.model;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diese Klasse führt Überweisungen zwischen zwei Konten durch.
+ * Beide Konten werden über eine Tabelle von Sperren geschützt, in der jedes Konto anhand von BLZ und
+ * Kontonummer einer festen Sperre zugeordnet ist. Die Sperren werden immer in aufsteigender Reihenfolge
+ * ihres Index angefordert, daher können sich zwei Überweisungen nicht gegenseitig blockieren,
+ * auch wenn mehrere Konten auf dieselbe Sperre fallen.
+ * Das Bank Management System verwendet dieselbe Tabelle auch für alle anderen Buchungen und für das
+ * Lesen des Kontostands (siehe Konto). Wer den Kontostand eines der beiden Konten liest, sieht ihn daher
+ * entweder vor oder nach der ganzen Überweisung, nie zwischen Abbuchung und Gutschrift.
+ * Die Beobachter beider Konten werden erst nach der Freigabe der Sperren benachrichtigt.
+ */
+public class Ueberweisungssystem {
+    private static final int STANDARD_ANZAHL_SPERREN = 1024;
+
+    private final ReentrantLock[] sperren;
+    private final int maske;
+
+    /**
+     * Ein Schritt, der zwischen Abbuchung und Gutschrift unter den Sperren beider Konten ausgeführt wird,
+     * etwa das Schreiben der Überweisung in ein Journal.
+     */
+    @FunctionalInterface
+    public interface Zwischenschritt {
+        /**
+         * Führt den Schritt aus.
+         *
+         * @return Ein Wert, den die Überweisung zurückgibt, etwa die Sequenznummer im Journal.
+         * @throws IOException Wenn der Schritt fehlschlägt. Die Abbuchung wird dann zurückgenommen.
+         */
+        long ausfuehren() throws IOException;
+    }
+
+    /**
+     * Die Kontostände beider Konten unmittelbar nach einer Überweisung.
+     */
+    public static final class Ueberweisung {
+        private final long kontostandSender;
+        private final long kontostandEmpfaenger;
+        private final long sequenz;
+
+        Ueberweisung(long kontostandSender, long kontostandEmpfaenger, long sequenz) {
+            this.kontostandSender = kontostandSender;
+            this.kontostandEmpfaenger = kontostandEmpfaenger;
+            this.sequenz = sequenz;
+        }
+
+        public long getKontostandSenderCent() {
+            return kontostandSender;
+        }
+
+        public long getKontostandEmpfaengerCent() {
+            return kontostandEmpfaenger;
+        }
+
+        /**
+         * Gibt den Wert des Zwischenschritts zurück.
+         *
+         * @return Der Wert, 0 ohne Zwischenschritt.
+         */
+        public long getSequenz() {
+            return sequenz;
+        }
+    }
+
+    /**
+     * Konstruktor für das Überweisungssystem mit der Standardanzahl von Sperren.
+     */
+    public Ueberweisungssystem() {
+        this(STANDARD_ANZAHL_SPERREN);
+    }
+
+    /**
+     * Konstruktor für das Überweisungssystem.
+     *
+     * @param anzahlSperren Die gewünschte Anzahl der Sperren, wird auf eine Zweierpotenz aufgerundet.
+     */
+    Ueberweisungssystem(int anzahlSperren) {
+        int anzahl = 1;
+        while (anzahl < anzahlSperren) {
+            anzahl <<= 1;
+        }
+        sperren = new ReentrantLock[anzahl];
+        for (int i = 0; i < anzahl; i++) {
+            sperren[i] = new ReentrantLock();
+        }
+        maske = anzahl - 1;
+    }
+
+    /**
+     * Überweist einen Betrag in Cent vom Sender auf das Empfängerkonto.
+     * Abbuchung und Gutschrift erfolgen gemeinsam unter den Sperren beider Konten. Reicht der Kontostand
+     * des Senders nicht aus, wird keines der beiden Konten verändert.
+     *
+     * @param sender Das Konto, von dem abgebucht wird.
+     * @param empfaenger Das Konto, dem der Betrag gutgeschrieben wird.
+     * @param betrag Der Betrag in Cent.
+     * @throws IllegalArgumentException wenn der Betrag negativ ist oder der Kontostand des Senders nicht ausreicht.
+     */
+    public void ueberweisen(Konto sender, Konto empfaenger, long betrag) {
+        try {
+            ueberweisen(sender, empfaenger, betrag, null);
+        } catch (IOException ex) {
+            // Ohne Zwischenschritt nicht möglich
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Überweist einen Betrag in Cent vom Sender auf das Empfängerkonto und führt zwischen Abbuchung und
+     * Gutschrift einen Schritt aus. Andere Buchungen und Leser der beiden Konten warten auch auf diesen
+     * Schritt. Schlägt er fehl, wird die Abbuchung zurückgenommen, bevor die Sperren freigegeben werden.
+     *
+     * @param sender Das Konto, von dem abgebucht wird.
+     * @param empfaenger Das Konto, dem der Betrag gutgeschrieben wird.
+     * @param betrag Der Betrag in Cent.
+     * @param zwischenschritt Der Schritt zwischen Abbuchung und Gutschrift oder null.
+     * @return Die Kontostände beider Konten nach der Überweisung.
+     * @throws IllegalArgumentException wenn der Betrag negativ ist oder der Kontostand des Senders nicht ausreicht.
+     * @throws IOException Wenn der Zwischenschritt fehlschlägt. Beide Konten sind dann unverändert.
+     */
+    public Ueberweisung ueberweisen(Konto sender, Konto empfaenger, long betrag, Zwischenschritt zwischenschritt)
+            throws IOException {
+        if (betrag < 0) {
+            throw new IllegalArgumentException("Ungültiger Betrag");
+        }
+        int a = sperrenIndex(sender);
+        int b = sperrenIndex(empfaenger);
+        ReentrantLock erste = sperren[Math.min(a, b)];
+        // Fallen beide Konten auf dieselbe Sperre, wird sie zweimal angefordert, was ReentrantLock erlaubt
+        ReentrantLock zweite = sperren[Math.max(a, b)];
+        Ueberweisung ueberweisung;
+        erste.lock();
+        try {
+            zweite.lock();
+            try {
+                // Die Abbuchung prüft das Limit des Senders wie eine Auszahlung
+                long kontostandSender = sender.auszahlenCent(betrag);
+                long sequenz = 0;
+                if (zwischenschritt != null) {
+                    try {
+                        sequenz = zwischenschritt.ausfuehren();
+                    } catch (IOException | RuntimeException ex) {
+                        // Die Rücknahme erhöht den Kontostand und ist daher immer zulässig
+                        sender.einzahlenCent(betrag);
+                        throw ex;
+                    }
+                }
+                long kontostandEmpfaenger = empfaenger.einzahlenCent(betrag);
+                if (sender == empfaenger) {
+                    kontostandSender = kontostandEmpfaenger;
+                }
+                ueberweisung = new Ueberweisung(kontostandSender, kontostandEmpfaenger, sequenz);
+            } finally {
+                zweite.unlock();
+            }
+        } finally {
+            erste.unlock();
+        }
+        // Unter den Sperren dieser Tabelle haben die Konten ihre Beobachter nicht selbst benachrichtigt
+        if (sender.getUeberweisungssystem() == this) {
+            sender.benachrichtigen();
+        }
+        if (empfaenger != sender && empfaenger.getUeberweisungssystem() == this) {
+            empfaenger.benachrichtigen();
+        }
+        return ueberweisung;
+    }
+
+    /**
+     * Gibt die Sperre eines Kontos zurück.
+     *
+     * @param konto Das Konto.
+     * @return Die Sperre, auf die das Konto anhand von BLZ und Kontonummer fällt.
+     */
+    ReentrantLock sperre(Konto konto) {
+        return sperren[sperrenIndex(konto)];
+    }
+
+    /**
+     * Ermittelt den Index der Sperre eines Kontos aus BLZ und Kontonummer.
+     */
+    private int sperrenIndex(Konto konto) {
+        Bank bank = konto.getBank();
+        int h = (bank == null ? 0 : bank.getBlz().hashCode()) * 31 + konto.getKontonummer();
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & maske;
+    }
+}
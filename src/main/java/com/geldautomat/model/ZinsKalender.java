@@ -0,0 +1,72 @@
+package com.geldautomat.model;
+
+/**
+ * Diese Klasse zählt die Zinstermine für die verzögerte Verzinsung von Sparkonten.
+ * Statt zum Monatsende allen Sparkonten die Zinsen gutzuschreiben, wird nur zinsterminErreicht
+ * aufgerufen. Jedes Sparkonto mit diesem Kalender verbucht die Zinsen der vergangenen Termine,
+ * sobald sein Kontostand das nächste Mal gelesen oder geändert wird.
+ *
+ * Die verzögert verbuchten Zinsen entstehen ohne Buchung und stehen daher nicht im Journal. Stattdessen
+ * speichert der Snapshot die Periode jedes Kalenders und für jedes Sparkonto die Periode, bis zu der es
+ * verzinst ist. Der Snapshot liest dabei die Kontostände und verbucht so alle offenen Zinsen. Wird direkt
+ * nach zinsterminErreicht ein Snapshot geschrieben, stimmen die Kontostände nach einem Neustart mit dem
+ * Journal überein. Sonst werden Zinsen, die nach dem letzten Snapshot verbucht wurden, nach dem Neustart
+ * erneut verbucht, dann aber auf den Kontostand nach den eingespielten Buchungen berechnet.
+ *
+ * Für Konten mit Journal bleibt der Zinslauf maßgeblich. Ein Sparkonto sollte nur auf eine der
+ * beiden Arten verzinst werden, sonst werden die Zinsen eines Termins doppelt gutgeschrieben.
+ */
+public class ZinsKalender {
+    private volatile long periode;
+
+    /**
+     * Konstruktor für einen Zinskalender ohne erreichte Zinstermine.
+     */
+    public ZinsKalender() {
+        this(0);
+    }
+
+    /**
+     * Konstruktor für einen Zinskalender, etwa beim Laden eines Snapshots.
+     *
+     * @param periode Die Anzahl der bereits erreichten Zinstermine.
+     */
+    public ZinsKalender(long periode) {
+        this.periode = periode;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher erreichten Zinstermine zurück.
+     *
+     * @return Die aktuelle Periode.
+     */
+    public long getPeriode() {
+        return periode;
+    }
+
+    /**
+     * Beginnt eine neue Periode. Alle Sparkonten mit diesem Kalender gelten danach als nicht verzinst.
+     *
+     * @return Die neue Periode.
+     */
+    public synchronized long zinsterminErreicht() {
+        return ++periode;
+    }
+
+    /**
+     * Setzt für alle Sparkonten eines Bankverwaltungssystems diesen Kalender.
+     *
+     * @param managementSystem Das Bankverwaltungssystem.
+     */
+    public void anmelden(BankManagementSystem managementSystem) {
+        managementSystem.lesen(() -> {
+            for (Bank bank : managementSystem.getBanks()) {
+                for (Konto konto : bank.getKonten()) {
+                    if (konto instanceof Sparkonto) {
+                        ((Sparkonto) konto).setZinsKalender(this);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,522 @@
+package com.geldautomat.persistenz;
+
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoverlauf;
+import com.geldautomat.model.Sparkonto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Diese Klasse schreibt ein binäres Journal aller Buchungen, an das nur angehängt wird.
+ * Jede Buchung wird als Änderung des Kontostands in Cent gespeichert. Da Änderungen unabhängig von
+ * ihrer Reihenfolge dasselbe Ergebnis liefern, dürfen gleichzeitige Buchungen in beliebiger
+ * Reihenfolge im Journal stehen.
+ * Ein eigener Thread schreibt alle bis dahin angehängten Einträge gemeinsam und ruft danach einmal
+ * force auf (Group Commit). Die buchenden Threads warten, bis ihr Eintrag dauerhaft gespeichert ist.
+ *
+ * Schlägt das Schreiben oder force fehl, wird die Datei auf den letzten dauerhaft gespeicherten Eintrag
+ * gekürzt und alle wartenden und späteren Buchungen erhalten eine IOException. Der Schreib-Thread endet
+ * damit endgültig, das Journal muss neu geöffnet werden. Ein erneuter Versuch ist nicht sicher, da nach
+ * einem fehlgeschlagenen force nicht bekannt ist, welche Daten das Betriebssystem noch auf den Datenträger
+ * schreibt, und ein späteres force den Verlust nicht mehr meldet.
+ *
+ * Aufbau der Datei: eine Kennung, danach Einträge aus Länge, Inhalt und CRC32 des Inhalts.
+ * Der Inhalt beginnt mit einer fortlaufenden Sequenznummer und dem Typ des Eintrags.
+ * Da das Journal alle Buchungen enthält, dient es auch als Ablage für Umsätze, die aus dem
+ * Kontoverlauf verdrängt wurden. Damit diese nicht jedes Mal ab dem Anfang der Datei gesucht werden,
+ * merkt sich das Journal etwa alle STUETZSTELLEN_ABSTAND Bytes eine Eintragsgrenze mit ihrer Sequenznummer.
+ */
+public class Journal implements Closeable {
+    static final int KENNUNG = 0x47414A31; // "GAJ1"
+    static final byte BUCHUNG = 1;
+    static final byte UEBERWEISUNG = 2;
+    static final byte ZINSGUTSCHRIFT = 3;
+    static final int MAX_EINTRAG = 1 << 16;
+    /** Abstand in Bytes, ab dem eine neue Stützstelle für umsaetzeLesen angelegt wird. */
+    static final int STUETZSTELLEN_ABSTAND = 1 << 20;
+
+    private final Path datei;
+    private final FileChannel kanal;
+    private final Thread schreiber;
+
+    private ByteBuffer aktuell = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer reserve = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 pruefsumme = new CRC32();
+    /** Position des Eintrags im aktuellen Puffer, der gerade geschrieben wird. */
+    private int eintragAnfang;
+    /** Sequenznummer des zuletzt angehängten Eintrags. */
+    private long sequenz;
+    /** Sequenznummer, bis zu der alle Einträge dauerhaft gespeichert sind. */
+    private long dauerhaft;
+    /** Position in der Datei hinter dem letzten dauerhaft gespeicherten Eintrag. */
+    private long dauerhaftePosition;
+    private boolean geschlossen;
+    private IOException fehler;
+    private final Stuetzstellen stuetzstellen;
+
+    private Journal(Path datei, FileChannel kanal, long sequenz, long position, Stuetzstellen stuetzstellen) {
+        this.datei = datei;
+        this.kanal = kanal;
+        this.sequenz = sequenz;
+        this.dauerhaft = sequenz;
+        this.dauerhaftePosition = position;
+        this.stuetzstellen = stuetzstellen;
+        this.schreiber = new Thread(this::schreiben, "Journal-Schreiber");
+        this.schreiber.setDaemon(true);
+        this.schreiber.start();
+    }
+
+    /**
+     * Öffnet ein Journal zum Anhängen und legt es an, wenn es noch nicht existiert.
+     * Ein unvollständiger Eintrag am Ende, etwa nach einem Absturz während des Schreibens, wird abgeschnitten.
+     *
+     * @param datei Die Journaldatei.
+     * @return Das geöffnete Journal.
+     * @throws IOException Wenn die Datei nicht gelesen oder geschrieben werden kann oder kein Journal ist.
+     */
+    public static Journal oeffnen(Path datei) throws IOException {
+        return oeffnen(datei, STUETZSTELLEN_ABSTAND);
+    }
+
+    /**
+     * Öffnet ein Journal mit einem eigenen Abstand der Stützstellen.
+     *
+     * @param datei Die Journaldatei.
+     * @param stuetzstellenAbstand Der Abstand der Stützstellen in Bytes.
+     * @return Das geöffnete Journal.
+     * @throws IOException Wenn die Datei nicht gelesen oder geschrieben werden kann oder kein Journal ist.
+     */
+    static Journal oeffnen(Path datei, int stuetzstellenAbstand) throws IOException {
+        Stuetzstellen stuetzstellen = new Stuetzstellen(stuetzstellenAbstand);
+        FileChannel kanal = FileChannel.open(datei, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            JournalLeser leser = new JournalLeser(kanal, 0);
+            long ende;
+            long letzteSequenz;
+            if (kanal.size() == 0) {
+                ByteBuffer kopf = ByteBuffer.allocate(4).putInt(0, KENNUNG);
+                kanal.write(kopf, 0);
+                ende = 4;
+                letzteSequenz = 0;
+            } else {
+                while (leser.naechsterEintrag()) {
+                    stuetzstellen.anhaengen(leser.getSequenz(), leser.getGueltigesEnde());
+                }
+                ende = leser.getGueltigesEnde();
+                letzteSequenz = leser.getSequenz();
+            }
+            kanal.truncate(ende);
+            kanal.force(true);
+            kanal.position(ende);
+            return new Journal(datei, kanal, letzteSequenz, ende, stuetzstellen);
+        } catch (IOException | RuntimeException ex) {
+            kanal.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Spielt die Einträge eines Journals auf ein Bankverwaltungssystem ein.
+     *
+     * @param datei Die Journaldatei.
+     * @param managementSystem Das Bankverwaltungssystem, dessen Kontostände geändert werden.
+     * @param nachSequenz Nur Einträge mit einer größeren Sequenznummer werden eingespielt.
+     * @return Die Sequenznummer des letzten gültigen Eintrags.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann oder ein Eintrag auf ein unbekanntes Konto verweist.
+     */
+    public static long abspielen(Path datei, BankManagementSystem managementSystem, long nachSequenz) throws IOException {
+        return abspielen(datei, managementSystem, nachSequenz, 0);
+    }
+
+    /**
+     * Spielt die Einträge eines Journals ab einer Position in der Datei ein, etwa hinter dem
+     * Stand eines Snapshots. Davor liegende Einträge werden nicht gelesen.
+     *
+     * @param datei Die Journaldatei.
+     * @param managementSystem Das Bankverwaltungssystem, dessen Kontostände geändert werden.
+     * @param nachSequenz Nur Einträge mit einer größeren Sequenznummer werden eingespielt.
+     * @param position Die Position des ersten zu lesenden Eintrags, 0 für den Anfang der Datei.
+     * @return Die Sequenznummer des letzten gültigen Eintrags, mindestens nachSequenz.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann, kürzer als position ist oder
+     *         ein Eintrag auf ein unbekanntes Konto verweist.
+     */
+    public static long abspielen(Path datei, BankManagementSystem managementSystem, long nachSequenz, long position) throws IOException {
+        try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.READ)) {
+            JournalLeser leser = new JournalLeser(kanal, position);
+            while (leser.naechsterEintrag()) {
+                if (leser.getSequenz() > nachSequenz) {
+                    leser.anwenden(managementSystem);
+                }
+            }
+            return Math.max(leser.getSequenz(), nachSequenz);
+        }
+    }
+
+    /**
+     * Schreibt eine Ein- oder Auszahlung in das Journal und wartet, bis sie dauerhaft gespeichert ist.
+     *
+     * @param konto Das Konto.
+     * @param betrag Die Änderung des Kontostands in Cent, negativ bei Auszahlungen.
+     * @return Die Sequenznummer des Eintrags.
+     * @throws IOException Wenn das Journal nicht geschrieben werden kann.
+     */
+    public long buchung(Konto konto, long betrag) throws IOException {
+        long nummer = buchungAnhaengen(konto, betrag);
+        warten(nummer);
+        return nummer;
+    }
+
+    /**
+     * Hängt eine Ein- oder Auszahlung an das Journal an, ohne auf das Speichern zu warten.
+     * Für viele Buchungen hintereinander genügt es, auf die letzte zu warten.
+     *
+     * @param konto Das Konto.
+     * @param betrag Die Änderung des Kontostands in Cent.
+     * @return Die Sequenznummer des Eintrags.
+     * @throws IOException Wenn das Journal nicht geschrieben werden kann.
+     */
+    public long buchungAnhaengen(Konto konto, long betrag) throws IOException {
+        byte[] blz = blz(konto);
+        synchronized (this) {
+            ByteBuffer eintrag = eintragBeginnen(6 + blz.length + 8, BUCHUNG);
+            kontoSchreiben(eintrag, blz, konto);
+            eintrag.putLong(betrag);
+            return eintragAbschliessen(eintrag);
+        }
+    }
+
+    /**
+     * Hängt eine Zinsgutschrift eines Zinslaufs an das Journal an, ohne auf das Speichern zu warten.
+     * Beim Einspielen wird sie wie mit Sparkonto.zinsenGutschreiben gebucht, also nur einmal je Zinslauf.
+     *
+     * @param konto Das Sparkonto.
+     * @param betrag Der Zinsbetrag in Cent.
+     * @param lauf Die Nummer des Zinslaufs.
+     * @return Die Sequenznummer des Eintrags.
+     * @throws IOException Wenn das Journal nicht geschrieben werden kann.
+     */
+    public long zinsgutschriftAnhaengen(Sparkonto konto, long betrag, long lauf) throws IOException {
+        byte[] blz = blz(konto);
+        synchronized (this) {
+            ByteBuffer eintrag = eintragBeginnen(6 + blz.length + 16, ZINSGUTSCHRIFT);
+            kontoSchreiben(eintrag, blz, konto);
+            eintrag.putLong(betrag);
+            eintrag.putLong(lauf);
+            return eintragAbschliessen(eintrag);
+        }
+    }
+
+    /**
+     * Schreibt eine Überweisung in das Journal und wartet, bis sie dauerhaft gespeichert ist.
+     * Abbuchung und Gutschrift stehen in einem Eintrag und werden daher nur gemeinsam eingespielt.
+     *
+     * @param sender Das Konto, von dem abgebucht wurde.
+     * @param empfaenger Das Konto, dem der Betrag gutgeschrieben wurde.
+     * @param betrag Der Betrag in Cent.
+     * @return Die Sequenznummer des Eintrags.
+     * @throws IOException Wenn das Journal nicht geschrieben werden kann.
+     */
+    public long ueberweisung(Konto sender, Konto empfaenger, long betrag) throws IOException {
+        byte[] senderBlz = blz(sender);
+        byte[] empfaengerBlz = blz(empfaenger);
+        long nummer;
+        synchronized (this) {
+            ByteBuffer eintrag = eintragBeginnen(12 + senderBlz.length + empfaengerBlz.length + 8, UEBERWEISUNG);
+            kontoSchreiben(eintrag, senderBlz, sender);
+            kontoSchreiben(eintrag, empfaengerBlz, empfaenger);
+            eintrag.putLong(betrag);
+            nummer = eintragAbschliessen(eintrag);
+        }
+        warten(nummer);
+        return nummer;
+    }
+
+    /**
+     * Liest die Umsätze eines Kontos aus dem Journal, die vor einer Sequenznummer gebucht wurden,
+     * und hängt die letzten davon an einen Auszug an, den neuesten zuerst. Kontostand und Zeitpunkt
+     * stehen nicht im Journal und sind UNBEKANNT. Buchungen des Zinslaufs erscheinen als Einzahlung.
+     * Gelesen wird ab der letzten Stützstelle vor der Sequenznummer. Reichen die Umsätze dort nicht aus,
+     * wird ab der davor liegenden Stützstelle weitergelesen, im ungünstigsten Fall bis zum Anfang der Datei.
+     * Die Methode ist für seltene Abfragen gedacht, etwa wenn ein Kunde ältere Umsätze sehen will, als der
+     * Kontoverlauf speichert.
+     *
+     * @param konto Das Konto.
+     * @param vorSequenz Nur Einträge mit einer kleineren Sequenznummer werden gelesen.
+     * @param hoechstens Die Anzahl der Umsätze, die höchstens angehängt werden.
+     * @param ziel Der Auszug, an den die Umsätze angehängt werden.
+     * @return Die Anzahl der angehängten Umsätze.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann.
+     */
+    public int umsaetzeLesen(Konto konto, long vorSequenz, int hoechstens, Kontoverlauf.Auszug ziel) throws IOException {
+        if (hoechstens <= 0) {
+            return 0;
+        }
+        String blz = konto.getBank().getBlz();
+        int kontonummer = konto.getKontonummer();
+        long ende = getPosition();
+        // Ein Verlauf mit der gewünschten Kapazität behält beim Durchlaufen nur die letzten Treffer
+        Kontoverlauf treffer = new Kontoverlauf(hoechstens);
+        try (FileChannel leseKanal = FileChannel.open(datei, StandardOpenOption.READ)) {
+            int stelle;
+            synchronized (this) {
+                stelle = stuetzstellen.letzteVor(vorSequenz);
+            }
+            // Von der Stützstelle bis zum Anfang des zuletzt gelesenen Abschnitts, dann den Abschnitt davor.
+            // Ältere Umsätze verdrängen im Verlauf keine neueren, die Abschnitte dürfen daher rückwärts folgen.
+            long bis = ende;
+            while (true) {
+                long von;
+                synchronized (this) {
+                    von = stuetzstellen.getPosition(stelle);
+                }
+                JournalLeser leser = new JournalLeser(leseKanal, von);
+                while (leser.getGueltigesEnde() < bis && leser.naechsterEintrag() && leser.getSequenz() < vorSequenz) {
+                    if (leser.betrifft(blz, kontonummer)) {
+                        leser.umsatzErfassen(blz, kontonummer, treffer);
+                    }
+                }
+                if (treffer.getAnzahl() >= hoechstens || stelle == 0) {
+                    break;
+                }
+                bis = von;
+                stelle--;
+            }
+        }
+        return treffer.letzte(hoechstens, ziel);
+    }
+
+    /**
+     * Gibt die Sequenznummer des zuletzt dauerhaft gespeicherten Eintrags zurück.
+     *
+     * @return Die Sequenznummer, 0 bei einem leeren Journal.
+     */
+    public synchronized long getSequenz() {
+        return dauerhaft;
+    }
+
+    /**
+     * Gibt die Position in der Datei hinter dem zuletzt dauerhaft gespeicherten Eintrag zurück.
+     *
+     * @return Die Position.
+     */
+    public synchronized long getPosition() {
+        return dauerhaftePosition;
+    }
+
+    /**
+     * Schreibt alle angehängten Einträge und schließt das Journal.
+     *
+     * @throws IOException Wenn beim Schreiben ein Fehler auftritt.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            geschlossen = true;
+            notifyAll();
+        }
+        try {
+            schreiber.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        kanal.close();
+        synchronized (this) {
+            if (fehler != null) {
+                throw fehler;
+            }
+        }
+    }
+
+    /**
+     * Reserviert Platz für einen Eintrag im aktuellen Puffer und schreibt Sequenznummer und Typ.
+     * Muss mit der Sperre des Journals aufgerufen werden.
+     *
+     * @param daten Die Länge der Daten hinter Sequenznummer und Typ.
+     */
+    private ByteBuffer eintragBeginnen(int daten, byte typ) throws IOException {
+        int laenge = 9 + daten;
+        if (fehler != null) {
+            throw new IOException("Journal nicht beschreibbar", fehler);
+        }
+        if (geschlossen) {
+            throw new IOException("Journal geschlossen");
+        }
+        if (laenge > MAX_EINTRAG) {
+            throw new IOException("Journaleintrag zu groß");
+        }
+        // Länge und Prüfsumme kommen zum Inhalt hinzu
+        if (aktuell.remaining() < laenge + 8) {
+            ByteBuffer groesser = ByteBuffer.allocate(Math.max(aktuell.capacity() * 2, aktuell.position() + laenge + 8));
+            aktuell.flip();
+            groesser.put(aktuell);
+            aktuell = groesser;
+        }
+        eintragAnfang = aktuell.position();
+        aktuell.putInt(laenge);
+        aktuell.putLong(sequenz + 1);
+        aktuell.put(typ);
+        return aktuell;
+    }
+
+    /**
+     * Schreibt die Prüfsumme des Eintrags und gibt ihn für den Schreib-Thread frei.
+     */
+    private long eintragAbschliessen(ByteBuffer eintrag) {
+        int laenge = eintrag.getInt(eintragAnfang);
+        pruefsumme.reset();
+        pruefsumme.update(eintrag.array(), eintragAnfang + 4, laenge);
+        eintrag.putInt((int) pruefsumme.getValue());
+        sequenz++;
+        notifyAll();
+        return sequenz;
+    }
+
+    private static void kontoSchreiben(ByteBuffer eintrag, byte[] blz, Konto konto) {
+        eintrag.putShort((short) blz.length);
+        eintrag.put(blz);
+        eintrag.putInt(konto.getKontonummer());
+    }
+
+    private static byte[] blz(Konto konto) {
+        return konto.getBank().getBlz().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wartet, bis alle Einträge bis zu einer Sequenznummer dauerhaft gespeichert sind.
+     *
+     * @param nummer Die Sequenznummer.
+     * @throws IOException Wenn das Journal nicht geschrieben werden kann.
+     */
+    public synchronized void warten(long nummer) throws IOException {
+        boolean unterbrochen = false;
+        while (dauerhaft < nummer && fehler == null) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                unterbrochen = true;
+            }
+        }
+        if (unterbrochen) {
+            Thread.currentThread().interrupt();
+        }
+        if (dauerhaft < nummer) {
+            throw new IOException("Journal nicht beschreibbar", fehler);
+        }
+    }
+
+    /**
+     * Schleife des Schreib-Threads: tauscht den Puffer aus, schreibt ihn und ruft force auf.
+     */
+    private void schreiben() {
+        while (true) {
+            ByteBuffer stapel;
+            long bisSequenz;
+            synchronized (this) {
+                while (aktuell.position() == 0 && !geschlossen) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        // Der Schreib-Thread endet nur durch close
+                    }
+                }
+                if (aktuell.position() == 0) {
+                    return;
+                }
+                stapel = aktuell;
+                aktuell = reserve;
+                reserve = stapel;
+                bisSequenz = sequenz;
+            }
+            int geschrieben;
+            try {
+                stapel.flip();
+                geschrieben = stapel.limit();
+                while (stapel.hasRemaining()) {
+                    kanal.write(stapel);
+                }
+                kanal.force(false);
+                stapel.clear();
+            } catch (IOException ex) {
+                // Ein Teil des Stapels kann bereits mit gültiger Prüfsumme in der Datei stehen. Die Buchungen
+                // dazu werden zurückgenommen und dürfen beim nächsten Start nicht eingespielt werden.
+                try {
+                    kanal.truncate(dauerhaftePosition);
+                    kanal.force(true);
+                } catch (IOException abschneiden) {
+                    ex.addSuppressed(abschneiden);
+                }
+                synchronized (this) {
+                    fehler = ex;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                dauerhaft = bisSequenz;
+                dauerhaftePosition += geschrieben;
+                stuetzstellen.anhaengen(dauerhaft, dauerhaftePosition);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Eintragsgrenzen im Journal mit der Sequenznummer des Eintrags davor, aufsteigend. Alle Einträge ab
+     * einer Stützstelle haben eine größere Sequenznummer, alle davor eine kleinere oder gleiche. Die erste
+     * Stützstelle ist der Anfang der Datei. Wird mit der Sperre des Journals verwendet.
+     */
+    private static final class Stuetzstellen {
+        private final int abstand;
+        private long[] sequenzen = new long[64];
+        private long[] positionen = new long[64];
+        private int anzahl = 1;
+
+        Stuetzstellen(int abstand) {
+            this.abstand = abstand;
+        }
+
+        /**
+         * Legt eine Stützstelle an, wenn sie mindestens den Abstand hinter der letzten liegt.
+         *
+         * @param sequenz Die Sequenznummer des Eintrags vor der Position.
+         * @param position Die Position hinter diesem Eintrag.
+         */
+        void anhaengen(long sequenz, long position) {
+            if (position - positionen[anzahl - 1] < abstand) {
+                return;
+            }
+            if (anzahl == sequenzen.length) {
+                sequenzen = Arrays.copyOf(sequenzen, anzahl * 2);
+                positionen = Arrays.copyOf(positionen, anzahl * 2);
+            }
+            sequenzen[anzahl] = sequenz;
+            positionen[anzahl] = position;
+            anzahl++;
+        }
+
+        /**
+         * Sucht die letzte Stützstelle, hinter der Einträge mit einer kleineren Sequenznummer liegen können.
+         *
+         * @param vorSequenz Die Sequenznummer.
+         * @return Der Index der Stützstelle, 0 für den Anfang der Datei.
+         */
+        int letzteVor(long vorSequenz) {
+            int index = Arrays.binarySearch(sequenzen, 0, anzahl, vorSequenz - 1);
+            // Ohne Treffer liefert binarySearch die Einfügeposition, die Stützstelle liegt davor
+            return index >= 0 ? index : Math.max(-index - 2, 0);
+        }
+
+        long getPosition(int index) {
+            return positionen[index];
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.geldautomat.persistenz;
+
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoverlauf;
+import com.geldautomat.model.Sparkonto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Diese Klasse liest die Einträge eines Journals der Reihe nach.
+ * Das Lesen endet beim ersten unvollständigen oder beschädigten Eintrag, der Rest der Datei gilt als
+ * nicht geschrieben.
+ */
+class JournalLeser {
+    private static final int PUFFERGROESSE = 1 << 20;
+
+    private final FileChannel kanal;
+    private final ByteBuffer puffer = ByteBuffer.allocate(PUFFERGROESSE);
+    private final CRC32 pruefsumme = new CRC32();
+    /** Position in der Datei hinter dem Inhalt des Puffers. */
+    private long dateiPosition;
+    private long gueltigesEnde;
+
+    private long sequenz;
+    private byte typ;
+    private String blz;
+    private int kontonummer;
+    private String empfaengerBlz;
+    private int empfaengerKontonummer;
+    private long betrag;
+    private long lauf;
+
+    /**
+     * Konstruktor für den JournalLeser. Prüft die Kennung am Anfang der Datei.
+     *
+     * @param kanal Der Kanal der Journaldatei.
+     * @param position Die Position des ersten zu lesenden Eintrags, 0 für den Anfang der Datei.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann, kein Journal ist oder kürzer als position ist.
+     */
+    JournalLeser(FileChannel kanal, long position) throws IOException {
+        this.kanal = kanal;
+        puffer.limit(0);
+        if (kanal.size() == 0 && position == 0) {
+            return;
+        }
+        if (!verfuegbar(4) || puffer.getInt() != Journal.KENNUNG) {
+            throw new IOException("Keine Journaldatei");
+        }
+        gueltigesEnde = 4;
+        if (position > 4) {
+            if (position > kanal.size()) {
+                throw new IOException("Journal ist kürzer als erwartet");
+            }
+            puffer.limit(0);
+            dateiPosition = position;
+            gueltigesEnde = position;
+        }
+    }
+
+    /**
+     * Liest den nächsten Eintrag.
+     *
+     * @return false am Ende der gültigen Einträge, sonst true.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann.
+     */
+    boolean naechsterEintrag() throws IOException {
+        if (!verfuegbar(4)) {
+            return false;
+        }
+        int laenge = puffer.getInt(puffer.position());
+        if (laenge < 9 || laenge > Journal.MAX_EINTRAG || !verfuegbar(laenge + 8)) {
+            return false;
+        }
+        int anfang = puffer.position() + 4;
+        pruefsumme.reset();
+        pruefsumme.update(puffer.array(), anfang, laenge);
+        if ((int) pruefsumme.getValue() != puffer.getInt(anfang + laenge)) {
+            return false;
+        }
+        puffer.position(anfang);
+        sequenz = puffer.getLong();
+        typ = puffer.get();
+        if (typ == Journal.BUCHUNG || typ == Journal.ZINSGUTSCHRIFT) {
+            blz = blzLesen();
+            kontonummer = puffer.getInt();
+        } else if (typ == Journal.UEBERWEISUNG) {
+            blz = blzLesen();
+            kontonummer = puffer.getInt();
+            empfaengerBlz = blzLesen();
+            empfaengerKontonummer = puffer.getInt();
+        } else {
+            throw new IOException("Unbekannter Journaleintrag " + typ);
+        }
+        betrag = puffer.getLong();
+        if (typ == Journal.ZINSGUTSCHRIFT) {
+            lauf = puffer.getLong();
+        }
+        puffer.position(anfang + laenge + 4);
+        gueltigesEnde = dateiPosition - puffer.remaining();
+        return true;
+    }
+
+    /**
+     * Wendet den zuletzt gelesenen Eintrag auf die Kontostände an.
+     *
+     * @param managementSystem Das Bankverwaltungssystem.
+     * @throws IOException Wenn der Eintrag auf ein unbekanntes Konto verweist.
+     */
+    void anwenden(BankManagementSystem managementSystem) throws IOException {
+        Konto konto = konto(managementSystem, blz, kontonummer);
+        if (typ == Journal.BUCHUNG) {
+            konto.einzahlenCent(betrag);
+        } else if (typ == Journal.ZINSGUTSCHRIFT) {
+            if (!(konto instanceof Sparkonto)) {
+                throw new IOException("Zinsgutschrift für Konto " + kontonummer + " (BLZ " + blz + "), das kein Sparkonto ist");
+            }
+            ((Sparkonto) konto).zinsenGutschreiben(betrag, lauf);
+        } else {
+            Konto empfaenger = konto(managementSystem, empfaengerBlz, empfaengerKontonummer);
+            konto.einzahlenCent(-betrag);
+            empfaenger.einzahlenCent(betrag);
+        }
+    }
+
+    /**
+     * Prüft, ob der zuletzt gelesene Eintrag ein Konto als Auftraggeber oder Empfänger betrifft.
+     *
+     * @param kontoBlz Die BLZ des Kontos.
+     * @param nummer Die Kontonummer.
+     * @return true, wenn der Eintrag das Konto betrifft.
+     */
+    boolean betrifft(String kontoBlz, int nummer) {
+        return (kontonummer == nummer && blz.equals(kontoBlz))
+                || (typ == Journal.UEBERWEISUNG && empfaengerKontonummer == nummer && empfaengerBlz.equals(kontoBlz));
+    }
+
+    /**
+     * Erfasst den zuletzt gelesenen Eintrag als Umsatz eines Kontos, das er betrifft.
+     *
+     * @param kontoBlz Die BLZ des Kontos.
+     * @param nummer Die Kontonummer.
+     * @param verlauf Der Verlauf, in dem der Umsatz erfasst wird.
+     */
+    void umsatzErfassen(String kontoBlz, int nummer, Kontoverlauf verlauf) {
+        if (typ != Journal.UEBERWEISUNG) {
+            verlauf.erfassen(betrag < 0 ? Kontoverlauf.Art.AUSZAHLUNG : Kontoverlauf.Art.EINZAHLUNG, betrag,
+                    Kontoverlauf.UNBEKANNT, null, 0, sequenz, Kontoverlauf.UNBEKANNT);
+        } else if (kontonummer == nummer && blz.equals(kontoBlz)) {
+            verlauf.erfassen(Kontoverlauf.Art.UEBERWEISUNG_AUSGANG, -betrag, Kontoverlauf.UNBEKANNT,
+                    empfaengerBlz, empfaengerKontonummer, sequenz, Kontoverlauf.UNBEKANNT);
+        } else {
+            verlauf.erfassen(Kontoverlauf.Art.UEBERWEISUNG_EINGANG, betrag, Kontoverlauf.UNBEKANNT,
+                    blz, kontonummer, sequenz, Kontoverlauf.UNBEKANNT);
+        }
+    }
+
+    /**
+     * Gibt die Sequenznummer des zuletzt gelesenen Eintrags zurück.
+     *
+     * @return Die Sequenznummer, 0 wenn noch kein Eintrag gelesen wurde.
+     */
+    long getSequenz() {
+        return sequenz;
+    }
+
+    /**
+     * Gibt die Position in der Datei hinter dem letzten gültigen Eintrag zurück.
+     *
+     * @return Die Position.
+     */
+    long getGueltigesEnde() {
+        return gueltigesEnde;
+    }
+
+    private static Konto konto(BankManagementSystem managementSystem, String blz, int kontonummer) throws IOException {
+        Konto konto = managementSystem.getKonto(blz, kontonummer);
+        if (konto == null) {
+            throw new IOException("Journal verweist auf unbekanntes Konto " + kontonummer + " (BLZ " + blz + ")");
+        }
+        return konto;
+    }
+
+    private String blzLesen() {
+        int laenge = puffer.getShort();
+        String text = new String(puffer.array(), puffer.position(), laenge, StandardCharsets.UTF_8);
+        puffer.position(puffer.position() + laenge);
+        return text;
+    }
+
+    /**
+     * Stellt sicher, dass mindestens anzahl Bytes im Puffer stehen, und liest dazu gegebenenfalls nach.
+     */
+    private boolean verfuegbar(int anzahl) throws IOException {
+        if (puffer.remaining() >= anzahl) {
+            return true;
+        }
+        puffer.compact();
+        while (puffer.position() < anzahl) {
+            int gelesen = kanal.read(puffer, dateiPosition);
+            if (gelesen <= 0) {
+                break;
+            }
+            dateiPosition += gelesen;
+        }
+        puffer.flip();
+        return puffer.remaining() >= anzahl;
+    }
+}
@@ -0,0 +1,698 @@
+package com.geldautomat.persistenz;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.util.IntHashMap;
+import com.geldautomat.util.LongHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diese Klasse speichert Konten als Datensätze fester Länge in einer in den Speicher eingeblendeten Datei.
+ * Ein Datensatz enthält Kontostand, Überziehungsbetrag bzw. Zinssatz, Kontonummer, PIN, die Kundennummer
+ * des Inhabers, die Bank und die Position der Daten des Inhabers. Eine Hash-Tabelle über BLZ und Kontonummer
+ * liegt ebenfalls in der Datei, hinter den Datensätzen folgen die Namen der Banken und die Daten aller
+ * Kontoinhaber. Dadurch belegen auch Millionen von Konten kaum Platz im Heap, jede Buchung steht sofort im
+ * Seitencache des Betriebssystems, und die Datei lässt sich ohne geladenes BankManagementSystem öffnen.
+ *
+ * getKonto legt beim ersten Zugriff auf ein Konto eine Ansicht auf den Datensatz an und gibt dieselbe
+ * Ansicht zurück, solange sie noch jemand hält, sodass Beobachter, Kontoverlauf und die verzögerte
+ * Verzinsung eines Sparkontos erhalten bleiben. Die Ansichten werden nur schwach referenziert: Eine Ansicht,
+ * die niemand mehr hält, entfernt der Garbage Collector samt Beobachtern, Kontoverlauf und Zinskalender,
+ * beim nächsten Zugriff entsteht eine neue. Kontonummer, Kontostand, Überziehungsbetrag, Zinssatz und PIN
+ * werden direkt im Datensatz gelesen und geändert, der Kontostand wie bei Konto atomar per Compare-and-Set,
+ * und gehen daher nicht verloren. Im Heap liegen also nur die Konten, die gerade verwendet werden, dazu
+ * die Banken und die Kontoinhaber, die bereits gelesen wurden. Die Kontoinhaber werden nach Bank und
+ * Kundennummer zugeordnet.
+ * Der KontenSpeicher ersetzt die Konten des BankManagementSystem nicht, sondern ist eine Ablage für
+ * Aufrufer, die ihre Konten nicht im Heap halten wollen.
+ */
+public class KontenSpeicher implements Closeable {
+    static final int KENNUNG = 0x47414B32; // "GAK2"
+    private static final int KOPF = 64;
+    private static final int BANKEINTRAG = 32;
+    static final int SATZGROESSE = 40;
+    private static final byte GIROKONTO = 1;
+    private static final byte SPARKONTO = 2;
+
+    // Aufbau eines Datensatzes, die long-Felder liegen auf durch 8 teilbaren Positionen
+    private static final int KONTOSTAND = 0;
+    private static final int WERT = 8;
+    private static final int KONTONUMMER = 16;
+    private static final int PIN = 20;
+    private static final int KUNDENNUMMER = 24;
+    private static final int BANK = 28;
+    private static final int ART = 30;
+    private static final int INHABER = 32;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel kanal;
+    private final MappedByteBuffer puffer;
+    private final Bank[] banken;
+    private final Map<String, Integer> bankNummern = new HashMap<>();
+    /** Die bereits bekannten Kontoinhaber nach Bank und Kundennummer (siehe schluessel). */
+    private final LongHashMap<Kontoinhaber> kontoinhaber;
+    /** Die bereits angelegten Ansichten nach Nummer des Datensatzes, solange sie noch erreichbar sind. */
+    private final IntHashMap<Ansichtsreferenz> ansichten = new IntHashMap<>();
+    /** Die Referenzen der Ansichten, die der Garbage Collector bereits entfernt hat. */
+    private final ReferenceQueue<Konto> entfernteAnsichten = new ReferenceQueue<>();
+    private final int anzahl;
+    private final int indexAnfang;
+    private final int indexMaske;
+    private final int satzAnfang;
+
+    private KontenSpeicher(FileChannel kanal, MappedByteBuffer puffer, Bank[] banken, LongHashMap<Kontoinhaber> kontoinhaber) {
+        this.kanal = kanal;
+        this.puffer = puffer;
+        this.banken = banken;
+        this.kontoinhaber = kontoinhaber;
+        for (int i = 0; i < banken.length; i++) {
+            bankNummern.put(banken[i].getBlz(), i);
+        }
+        this.anzahl = puffer.getInt(8);
+        int indexKapazitaet = puffer.getInt(12);
+        this.indexAnfang = ausrichten(KOPF + banken.length * BANKEINTRAG);
+        this.indexMaske = indexKapazitaet - 1;
+        this.satzAnfang = ausrichten(indexAnfang + indexKapazitaet * 4);
+    }
+
+    /**
+     * Legt eine neue Datei mit allen Konten eines Bankverwaltungssystems an und öffnet sie.
+     * Eine vorhandene Datei wird überschrieben. Gibt es eine Kontonummer bei einer Bank mehrfach,
+     * wird wie im Kontenverzeichnis nur das erste Konto übernommen. Die Namen der Banken und die Daten der
+     * Kontoinhaber werden mitgespeichert, damit sich die Datei auch ohne Bankverwaltungssystem öffnen lässt.
+     *
+     * @param datei Die Datei des KontenSpeichers.
+     * @param quelle Das Bankverwaltungssystem mit den zu übernehmenden Konten.
+     * @return Der geöffnete KontenSpeicher.
+     * @throws IOException Wenn die Datei nicht geschrieben werden kann oder zu groß würde.
+     */
+    public static KontenSpeicher erstellen(Path datei, BankManagementSystem quelle) throws IOException {
+        List<Bank> bankListe = new ArrayList<>();
+        List<Konto[]> kontenJeBank = new ArrayList<>();
+        quelle.lesen(() -> {
+            for (Bank bank : quelle.getBanks()) {
+                bankListe.add(bank);
+                kontenJeBank.add(bank.getKonten().toArray(new Konto[0]));
+            }
+        });
+        Bank[] banken = bankListe.toArray(new Bank[0]);
+        if (banken.length > Short.MAX_VALUE) {
+            throw new IOException("Zu viele Banken für den KontenSpeicher");
+        }
+        long anzahlKonten = 0;
+        for (Konto[] konten : kontenJeBank) {
+            anzahlKonten += konten.length;
+        }
+        int indexKapazitaet = 16;
+        while (indexKapazitaet < anzahlKonten * 2) {
+            indexKapazitaet <<= 1;
+        }
+        long indexAnfang = ausrichten(KOPF + banken.length * BANKEINTRAG);
+        long stammdatenAnfang = ausrichten(indexAnfang + indexKapazitaet * 4L) + anzahlKonten * SATZGROESSE;
+        // Banknamen und Kontoinhaber werden vorab kodiert, jeder Kontoinhaber einmal je Bank
+        Stammdaten stammdaten = new Stammdaten();
+        for (Bank bank : banken) {
+            stammdaten.text(bank.getName());
+        }
+        // Die Position der Daten jedes Kontoinhabers relativ zum Anfang der Stammdaten
+        LongHashMap<Integer> inhaberPositionen = new LongHashMap<>();
+        for (int i = 0; i < banken.length; i++) {
+            for (Konto konto : kontenJeBank.get(i)) {
+                Kontoinhaber inhaber = konto.getKontoinhaber();
+                if (inhaberPositionen.putIfAbsent(schluessel((short) i, inhaber.getKundennummer()), stammdaten.size()) == null) {
+                    stammdaten.inhaber(inhaber);
+                }
+            }
+        }
+        long groesse = stammdatenAnfang + stammdaten.size();
+        if (groesse > Integer.MAX_VALUE) {
+            throw new IOException("Zu viele Konten für den KontenSpeicher");
+        }
+
+        FileChannel kanal = FileChannel.open(datei, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer puffer = kanal.map(FileChannel.MapMode.READ_WRITE, 0, groesse);
+            puffer.order(ByteOrder.LITTLE_ENDIAN);
+            puffer.putInt(12, indexKapazitaet);
+            puffer.putInt(16, banken.length);
+            puffer.putInt(20, (int) stammdatenAnfang);
+            LongHashMap<Kontoinhaber> kontoinhaber = new LongHashMap<>();
+            for (int i = 0; i < banken.length; i++) {
+                byte[] blz = banken[i].getBlz().getBytes(StandardCharsets.UTF_8);
+                if (blz.length > BANKEINTRAG - 2) {
+                    throw new IOException("BLZ zu lang für den KontenSpeicher: " + banken[i].getBlz());
+                }
+                int eintrag = KOPF + i * BANKEINTRAG;
+                puffer.putShort(eintrag, (short) blz.length);
+                puffer.position(eintrag + 2);
+                puffer.put(blz);
+            }
+            puffer.position((int) stammdatenAnfang);
+            puffer.put(stammdaten.toByteArray());
+            puffer.position(0);
+
+            KontenSpeicher speicher = new KontenSpeicher(kanal, puffer, banken, kontoinhaber);
+            int satzNummer = 0;
+            for (int i = 0; i < banken.length; i++) {
+                for (Konto konto : kontenJeBank.get(i)) {
+                    int satz = speicher.satzAnfang + satzNummer * SATZGROESSE;
+                    if (!speicher.eintragen((short) i, konto.getKontonummer(), satzNummer + 1)) {
+                        continue;
+                    }
+                    puffer.putLong(satz + KONTOSTAND, konto.getKontostandCent());
+                    if (konto instanceof Girokonto) {
+                        puffer.putLong(satz + WERT, ((Girokonto) konto).getUeberziehungsbetragCent());
+                        puffer.put(satz + ART, GIROKONTO);
+                    } else {
+                        puffer.putLong(satz + WERT, Double.doubleToRawLongBits(((Sparkonto) konto).getZins()));
+                        puffer.put(satz + ART, SPARKONTO);
+                    }
+                    puffer.putInt(satz + KONTONUMMER, konto.getKontonummer());
+                    puffer.putInt(satz + PIN, konto.getPin());
+                    puffer.putInt(satz + KUNDENNUMMER, konto.getKontoinhaber().getKundennummer());
+                    puffer.putShort(satz + BANK, (short) i);
+                    puffer.putInt(satz + INHABER, (int) stammdatenAnfang
+                            + inhaberPositionen.get(schluessel((short) i, konto.getKontoinhaber().getKundennummer())));
+                    kontoinhaber.putIfAbsent(schluessel((short) i, konto.getKontoinhaber().getKundennummer()),
+                            konto.getKontoinhaber());
+                    satzNummer++;
+                }
+            }
+            // Kennung und Anzahl zuletzt, damit eine abgebrochene Erstellung nicht als gültig gilt
+            puffer.putInt(8, satzNummer);
+            puffer.force();
+            puffer.putInt(0, KENNUNG);
+            puffer.force();
+            return new KontenSpeicher(kanal, puffer, banken, kontoinhaber);
+        } catch (IOException | RuntimeException ex) {
+            kanal.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Öffnet eine vorhandene Datei ohne Bankverwaltungssystem. Banken und Kontoinhaber werden aus den
+     * gespeicherten Daten angelegt, die Kontoinhaber erst beim ersten Zugriff auf eines ihrer Konten.
+     *
+     * @param datei Die Datei des KontenSpeichers.
+     * @return Der geöffnete KontenSpeicher.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann oder kein KontenSpeicher ist.
+     */
+    public static KontenSpeicher oeffnen(Path datei) throws IOException {
+        return oeffnen(datei, null);
+    }
+
+    /**
+     * Öffnet eine vorhandene Datei. Die Banken werden anhand ihrer BLZ im Bankverwaltungssystem gesucht,
+     * die Kontoinhaber anhand ihrer Kundennummer bei der Bank des Kontos (siehe Bank.findKundenByKundennummer).
+     * Banken und Kontoinhaber, die dort fehlen, werden wie bei oeffnen(Path) aus den gespeicherten Daten angelegt.
+     *
+     * @param datei Die Datei des KontenSpeichers.
+     * @param managementSystem Das Bankverwaltungssystem mit den Banken und Kunden der Konten oder null.
+     * @return Der geöffnete KontenSpeicher.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann oder kein KontenSpeicher ist.
+     */
+    public static KontenSpeicher oeffnen(Path datei, BankManagementSystem managementSystem) throws IOException {
+        FileChannel kanal = FileChannel.open(datei, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long groesse = kanal.size();
+            if (groesse < KOPF || groesse > Integer.MAX_VALUE) {
+                throw new IOException("Keine Datei eines KontenSpeichers");
+            }
+            MappedByteBuffer puffer = kanal.map(FileChannel.MapMode.READ_WRITE, 0, groesse);
+            puffer.order(ByteOrder.LITTLE_ENDIAN);
+            int indexKapazitaet = puffer.getInt(12);
+            int anzahlBanken = puffer.getInt(16);
+            if (puffer.getInt(0) != KENNUNG || anzahlBanken < 0 || anzahlBanken > Short.MAX_VALUE
+                    || indexKapazitaet < 16 || Integer.bitCount(indexKapazitaet) != 1) {
+                throw new IOException("Keine Datei eines KontenSpeichers");
+            }
+            long satzAnfang = ausrichten(ausrichten(KOPF + anzahlBanken * BANKEINTRAG) + indexKapazitaet * 4L);
+            int stammdatenAnfang = puffer.getInt(20);
+            if (satzAnfang + (long) puffer.getInt(8) * SATZGROESSE > stammdatenAnfang || stammdatenAnfang > groesse) {
+                throw new IOException("KontenSpeicher ist kürzer als erwartet");
+            }
+            Bank[] banken = new Bank[anzahlBanken];
+            int name = stammdatenAnfang;
+            for (int i = 0; i < anzahlBanken; i++) {
+                int eintrag = KOPF + i * BANKEINTRAG;
+                byte[] blz = new byte[puffer.getShort(eintrag)];
+                puffer.position(eintrag + 2);
+                puffer.get(blz);
+                String text = new String(blz, StandardCharsets.UTF_8);
+                banken[i] = managementSystem == null ? null : managementSystem.getBankByBLZ(text);
+                if (banken[i] == null) {
+                    banken[i] = new Bank(text, textLesen(puffer, name), null);
+                }
+                name = textEnde(puffer, name);
+            }
+            puffer.position(0);
+            LongHashMap<Kontoinhaber> kontoinhaber = new LongHashMap<>();
+            KontenSpeicher speicher = new KontenSpeicher(kanal, puffer, banken, kontoinhaber);
+            if (managementSystem != null) {
+                managementSystem.lesen(() -> {
+                    for (int n = 0; n < speicher.anzahl; n++) {
+                        int satz = speicher.satzAnfang + n * SATZGROESSE;
+                        short bankNummer = puffer.getShort(satz + BANK);
+                        int kundennummer = puffer.getInt(satz + KUNDENNUMMER);
+                        long schluessel = schluessel(bankNummer, kundennummer);
+                        if (!kontoinhaber.containsKey(schluessel)) {
+                            Kontoinhaber inhaber = banken[bankNummer].findKundenByKundennummer(kundennummer);
+                            if (inhaber != null) {
+                                kontoinhaber.put(schluessel, inhaber);
+                            }
+                        }
+                    }
+                });
+            }
+            return speicher;
+        } catch (IOException | RuntimeException ex) {
+            kanal.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gibt die Ansicht auf ein Konto anhand von BLZ und Kontonummer zurück.
+     * Solange ein Aufrufer die Ansicht eines Kontos hält, wird immer dieselbe Ansicht zurückgegeben.
+     *
+     * @param blz Die Bankleitzahl der Bank des gesuchten Kontos.
+     * @param kontonummer Die Kontonummer des gesuchten Kontos.
+     * @return Das Konto oder null, wenn es keine solche Bank oder kein solches Konto gibt.
+     */
+    public synchronized Konto getKonto(String blz, int kontonummer) {
+        Integer bankNummer = bankNummern.get(blz);
+        if (bankNummer == null) {
+            return null;
+        }
+        int satz = suchen(bankNummer.shortValue(), kontonummer);
+        if (satz < 0) {
+            return null;
+        }
+        entfernteAnsichtenAustragen();
+        int nummer = (satz - satzAnfang) / SATZGROESSE;
+        Ansichtsreferenz referenz = ansichten.get(nummer);
+        Konto konto = referenz == null ? null : referenz.get();
+        if (konto == null) {
+            short bank = puffer.getShort(satz + BANK);
+            long schluessel = schluessel(bank, puffer.getInt(satz + KUNDENNUMMER));
+            Kontoinhaber inhaber = kontoinhaber.get(schluessel);
+            if (inhaber == null) {
+                inhaber = inhaberLesen(puffer.getInt(satz + INHABER));
+                kontoinhaber.put(schluessel, inhaber);
+            }
+            int pin = puffer.getInt(satz + PIN);
+            if (puffer.get(satz + ART) == GIROKONTO) {
+                konto = new GirokontoAnsicht(this, satz, kontonummer, pin, inhaber, banken[bank]);
+            } else {
+                konto = new SparkontoAnsicht(this, satz, kontonummer, pin, inhaber, banken[bank]);
+            }
+            ansichten.put(nummer, new Ansichtsreferenz(konto, nummer, entfernteAnsichten));
+        }
+        return konto;
+    }
+
+    /**
+     * Entfernt die Einträge der Ansichten, die der Garbage Collector bereits entfernt hat.
+     */
+    private void entfernteAnsichtenAustragen() {
+        Reference<? extends Konto> referenz;
+        while ((referenz = entfernteAnsichten.poll()) != null) {
+            int nummer = ((Ansichtsreferenz) referenz).nummer;
+            // Eine inzwischen neu angelegte Ansicht desselben Datensatzes bleibt eingetragen
+            if (ansichten.get(nummer) == referenz) {
+                ansichten.remove(nummer);
+            }
+        }
+    }
+
+    /**
+     * Liest die gespeicherten Daten eines Kontoinhabers.
+     */
+    private Kontoinhaber inhaberLesen(int position) {
+        int kundennummer = puffer.getInt(position);
+        String[] felder = new String[5];
+        position += 4;
+        for (int i = 0; i < felder.length; i++) {
+            felder[i] = textLesen(puffer, position);
+            position = textEnde(puffer, position);
+        }
+        return new Kontoinhaber(kundennummer, felder[0], felder[1], felder[2], felder[3], felder[4]);
+    }
+
+    /**
+     * Gibt die Anzahl der gespeicherten Konten zurück.
+     *
+     * @return Die Anzahl.
+     */
+    public int getAnzahl() {
+        return anzahl;
+    }
+
+    /**
+     * Schreibt alle geänderten Seiten auf den Datenträger. Ohne Aufruf übernimmt das Betriebssystem
+     * das Zurückschreiben, bei einem Absturz des Rechners können dann aber Buchungen verloren gehen.
+     */
+    public void speichern() {
+        puffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        speichern();
+        kanal.close();
+    }
+
+    /**
+     * Sucht den Datensatz zu einem Konto in der Hash-Tabelle der Datei.
+     *
+     * @return Die Position des Datensatzes oder -1.
+     */
+    private int suchen(short bankNummer, int kontonummer) {
+        int i = hash(bankNummer, kontonummer) & indexMaske;
+        int eintrag;
+        while ((eintrag = puffer.getInt(indexAnfang + i * 4)) != 0) {
+            int satz = satzAnfang + (eintrag - 1) * SATZGROESSE;
+            if (puffer.getInt(satz + KONTONUMMER) == kontonummer && puffer.getShort(satz + BANK) == bankNummer) {
+                return satz;
+            }
+            i = (i + 1) & indexMaske;
+        }
+        return -1;
+    }
+
+    /**
+     * Ändert die Kontonummer eines Datensatzes und trägt ihn unter der neuen Nummer in die Hash-Tabelle ein.
+     *
+     * @throws IllegalArgumentException wenn es die neue Kontonummer bei der Bank bereits gibt.
+     */
+    private synchronized void kontonummerAendern(int satz, int kontonummer) {
+        short bankNummer = puffer.getShort(satz + BANK);
+        int alt = puffer.getInt(satz + KONTONUMMER);
+        if (alt == kontonummer) {
+            return;
+        }
+        if (suchen(bankNummer, kontonummer) >= 0) {
+            throw new IllegalArgumentException("Kontonummer " + kontonummer + " ist bei der Bank bereits vergeben");
+        }
+        austragen(bankNummer, alt);
+        INTS.setVolatile(puffer, satz + KONTONUMMER, kontonummer);
+        eintragen(bankNummer, kontonummer, (satz - satzAnfang) / SATZGROESSE + 1);
+    }
+
+    /**
+     * Entfernt ein Konto aus der Hash-Tabelle. Nachfolgende Einträge derselben Sondierungskette
+     * rücken auf, damit sie weiter gefunden werden.
+     */
+    private void austragen(short bankNummer, int kontonummer) {
+        int i = hash(bankNummer, kontonummer) & indexMaske;
+        int eintrag;
+        while ((eintrag = puffer.getInt(indexAnfang + i * 4)) != 0) {
+            int satz = satzAnfang + (eintrag - 1) * SATZGROESSE;
+            if (puffer.getInt(satz + KONTONUMMER) == kontonummer && puffer.getShort(satz + BANK) == bankNummer) {
+                break;
+            }
+            i = (i + 1) & indexMaske;
+        }
+        if (eintrag == 0) {
+            return;
+        }
+        int frei = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & indexMaske;
+            eintrag = puffer.getInt(indexAnfang + j * 4);
+            if (eintrag == 0) {
+                break;
+            }
+            int satz = satzAnfang + (eintrag - 1) * SATZGROESSE;
+            int ziel = hash(puffer.getShort(satz + BANK), puffer.getInt(satz + KONTONUMMER)) & indexMaske;
+            // Der Eintrag rückt auf, wenn sein Zielplatz nicht zwischen der Lücke und seinem Platz liegt
+            if (((j - ziel) & indexMaske) >= ((j - frei) & indexMaske)) {
+                puffer.putInt(indexAnfang + frei * 4, eintrag);
+                frei = j;
+            }
+        }
+        puffer.putInt(indexAnfang + frei * 4, 0);
+    }
+
+    /**
+     * Trägt einen Datensatz in die Hash-Tabelle ein.
+     *
+     * @return false, wenn es das Konto bereits gibt.
+     */
+    private boolean eintragen(short bankNummer, int kontonummer, int eintrag) {
+        if (suchen(bankNummer, kontonummer) >= 0) {
+            return false;
+        }
+        int i = hash(bankNummer, kontonummer) & indexMaske;
+        while (puffer.getInt(indexAnfang + i * 4) != 0) {
+            i = (i + 1) & indexMaske;
+        }
+        puffer.putInt(indexAnfang + i * 4, eintrag);
+        return true;
+    }
+
+    /**
+     * Liest einen Text der Stammdaten. Die Bytes werden einzeln gelesen, weil getKonto die Position
+     * des Puffers nicht verändern darf.
+     *
+     * @return Der Text oder null.
+     */
+    private static String textLesen(ByteBuffer puffer, int position) {
+        int laenge = puffer.getShort(position);
+        if (laenge < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[laenge];
+        for (int i = 0; i < laenge; i++) {
+            bytes[i] = puffer.get(position + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gibt die Position hinter einem Text der Stammdaten zurück.
+     */
+    private static int textEnde(ByteBuffer puffer, int position) {
+        return position + 2 + Math.max(puffer.getShort(position), 0);
+    }
+
+    private static long schluessel(short bankNummer, int kundennummer) {
+        return ((long) bankNummer << 32) | (kundennummer & 0xFFFFFFFFL);
+    }
+
+    private static int hash(short bankNummer, int kontonummer) {
+        long h = (((long) bankNummer << 32) | (kontonummer & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int ausrichten(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static long ausrichten(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Die Banknamen und Kontoinhaber hinter den Datensätzen. Ein Text steht als Länge in Bytes (short,
+     * -1 für null, Little Endian wie der übrige Speicher) und UTF-8, ein Kontoinhaber als Kundennummer gefolgt von Vorname, Name, Straße, PLZ und Ort.
+     */
+    private static final class Stammdaten extends ByteArrayOutputStream {
+        void text(String text) throws IOException {
+            byte[] bytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+            if (bytes != null && bytes.length > Short.MAX_VALUE) {
+                throw new IOException("Text zu lang für den KontenSpeicher: " + text);
+            }
+            int laenge = bytes == null ? -1 : bytes.length;
+            write(laenge);
+            write(laenge >> 8);
+            if (bytes != null) {
+                write(bytes);
+            }
+        }
+
+        void inhaber(Kontoinhaber inhaber) throws IOException {
+            int kundennummer = inhaber.getKundennummer();
+            for (int i = 0; i < 32; i += 8) {
+                write(kundennummer >> i);
+            }
+            text(inhaber.getVorname());
+            text(inhaber.getName());
+            text(inhaber.getStrasse());
+            text(inhaber.getPlz());
+            text(inhaber.getOrt());
+        }
+    }
+
+    /**
+     * Eine schwache Referenz auf eine Ansicht, die die Nummer ihres Datensatzes kennt.
+     */
+    private static final class Ansichtsreferenz extends WeakReference<Konto> {
+        private final int nummer;
+
+        Ansichtsreferenz(Konto konto, int nummer, ReferenceQueue<Konto> warteschlange) {
+            super(konto, warteschlange);
+            this.nummer = nummer;
+        }
+    }
+
+    /**
+     * Ein Girokonto, dessen Kontonummer, Kontostand, Überziehungsbetrag und PIN im Datensatz stehen.
+     */
+    private static final class GirokontoAnsicht extends Girokonto {
+        private final KontenSpeicher speicher;
+        private final ByteBuffer puffer;
+        private final int satz;
+
+        GirokontoAnsicht(KontenSpeicher speicher, int satz, int kontonummer, int pin, Kontoinhaber kontoinhaber, Bank bank) {
+            super(kontonummer, pin, 0L, kontoinhaber, bank, 0L);
+            this.speicher = speicher;
+            this.puffer = speicher.puffer;
+            this.satz = satz;
+        }
+
+        @Override
+        public int getKontonummer() {
+            return (int) INTS.getVolatile(puffer, satz + KONTONUMMER);
+        }
+
+        @Override
+        public void setKontonummer(int kontonummer) {
+            speicher.kontonummerAendern(satz, kontonummer);
+        }
+
+        @Override
+        protected long kontostandLesen() {
+            return (long) LONGS.getVolatile(puffer, satz + KONTOSTAND);
+        }
+
+        @Override
+        protected void kontostandSchreiben(long kontostandCent) {
+            LONGS.setVolatile(puffer, satz + KONTOSTAND, kontostandCent);
+        }
+
+        @Override
+        protected long kontostandAddieren(long betrag) {
+            return (long) LONGS.getAndAdd(puffer, satz + KONTOSTAND, betrag) + betrag;
+        }
+
+        @Override
+        protected boolean kontostandErsetzen(long erwartet, long neu) {
+            return LONGS.compareAndSet(puffer, satz + KONTOSTAND, erwartet, neu);
+        }
+
+        @Override
+        protected long ueberziehungsbetragLesen() {
+            return (long) LONGS.getVolatile(puffer, satz + WERT);
+        }
+
+        @Override
+        protected void ueberziehungsbetragSchreiben(long ueberziehungsbetragCent) {
+            LONGS.setVolatile(puffer, satz + WERT, ueberziehungsbetragCent);
+        }
+
+        @Override
+        public int getPin() {
+            return (int) INTS.getVolatile(puffer, satz + PIN);
+        }
+
+        @Override
+        public void setPin(int pin) {
+            INTS.setVolatile(puffer, satz + PIN, pin);
+        }
+    }
+
+    /**
+     * Ein Sparkonto, dessen Kontonummer, Kontostand, Zinssatz und PIN im Datensatz stehen.
+     */
+    private static final class SparkontoAnsicht extends Sparkonto {
+        private final KontenSpeicher speicher;
+        private final ByteBuffer puffer;
+        private final int satz;
+
+        SparkontoAnsicht(KontenSpeicher speicher, int satz, int kontonummer, int pin, Kontoinhaber kontoinhaber, Bank bank) {
+            super(kontonummer, pin, 0L, kontoinhaber, bank, 0.0);
+            this.speicher = speicher;
+            this.puffer = speicher.puffer;
+            this.satz = satz;
+        }
+
+        @Override
+        public int getKontonummer() {
+            return (int) INTS.getVolatile(puffer, satz + KONTONUMMER);
+        }
+
+        @Override
+        public void setKontonummer(int kontonummer) {
+            speicher.kontonummerAendern(satz, kontonummer);
+        }
+
+        @Override
+        protected long kontostandLesen() {
+            return (long) LONGS.getVolatile(puffer, satz + KONTOSTAND);
+        }
+
+        @Override
+        protected void kontostandSchreiben(long kontostandCent) {
+            LONGS.setVolatile(puffer, satz + KONTOSTAND, kontostandCent);
+        }
+
+        @Override
+        protected long kontostandAddieren(long betrag) {
+            return (long) LONGS.getAndAdd(puffer, satz + KONTOSTAND, betrag) + betrag;
+        }
+
+        @Override
+        protected boolean kontostandErsetzen(long erwartet, long neu) {
+            return LONGS.compareAndSet(puffer, satz + KONTOSTAND, erwartet, neu);
+        }
+
+        @Override
+        protected double zinsLesen() {
+            return Double.longBitsToDouble((long) LONGS.getVolatile(puffer, satz + WERT));
+        }
+
+        @Override
+        protected void zinsSchreiben(double zins) {
+            LONGS.setVolatile(puffer, satz + WERT, Double.doubleToRawLongBits(zins));
+        }
+
+        @Override
+        public int getPin() {
+            return (int) INTS.getVolatile(puffer, satz + PIN);
+        }
+
+        @Override
+        public void setPin(int pin) {
+            INTS.setVolatile(puffer, satz + PIN, pin);
+        }
+    }
+}
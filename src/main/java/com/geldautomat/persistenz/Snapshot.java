@@ -0,0 +1,304 @@
+package com.geldautomat.persistenz;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.model.ZinsKalender;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Diese Klasse speichert ein komplettes BankManagementSystem in einer kompakten Binärdatei und lädt es wieder.
+ * Gespeichert werden Banken, Kontoinhaber und Konten mit Überziehungsbetrag bzw. Zinssatz und letztem Zinslauf,
+ * die Zinskalender der Sparkonten mit ihrer Periode und der Periode, bis zu der jedes Sparkonto verzinst ist,
+ * sowie der Stand
+ * des Journals, bis zu dem alle Buchungen enthalten sind. Beim Start wird der Snapshot geladen und nur
+ * der Rest des Journals eingespielt, statt die CSV-Datei neu zu parsen.
+ *
+ * Ein Snapshot darf nur geschrieben werden, während keine Buchung läuft. Eine laufende Buchung kann
+ * bereits im Journal stehen, ohne den Kontostand geändert zu haben (Einzahlungen und Gutschriften), oder
+ * den Kontostand bereits geändert haben, ohne im Journal zu stehen (Abbuchungen, siehe TransaktionsService).
+ * In beiden Fällen passen Kontostände und Stand des Journals im Snapshot nicht zusammen.
+ */
+public class Snapshot {
+    static final int KENNUNG = 0x47415332; // "GAS2"
+    /** Snapshots ohne Zinslauf und Zinskalender werden weiterhin geladen. */
+    static final int KENNUNG_OHNE_ZINSDATEN = 0x47415331; // "GAS1"
+    private static final byte GIROKONTO = 1;
+    private static final byte SPARKONTO = 2;
+    private static final int PUFFERGROESSE = 1 << 16;
+
+    private final BankManagementSystem managementSystem;
+    private final List<ZinsKalender> zinsKalender;
+    private final long journalSequenz;
+    private final long journalPosition;
+
+    private Snapshot(BankManagementSystem managementSystem, List<ZinsKalender> zinsKalender, long journalSequenz, long journalPosition) {
+        this.managementSystem = managementSystem;
+        this.zinsKalender = zinsKalender;
+        this.journalSequenz = journalSequenz;
+        this.journalPosition = journalPosition;
+    }
+
+    public BankManagementSystem getBankManagementSystem() {
+        return managementSystem;
+    }
+
+    /**
+     * Gibt die Zinskalender zurück, die beim Laden für die Sparkonten angelegt wurden.
+     *
+     * @return Die Zinskalender, leer, wenn kein Sparkonto einen Zinskalender hatte.
+     */
+    public List<ZinsKalender> getZinsKalender() {
+        return zinsKalender;
+    }
+
+    /**
+     * Gibt die Sequenznummer des letzten Journaleintrags zurück, der im Snapshot enthalten ist.
+     *
+     * @return Die Sequenznummer.
+     */
+    public long getJournalSequenz() {
+        return journalSequenz;
+    }
+
+    /**
+     * Gibt die Position im Journal hinter dem letzten enthaltenen Eintrag zurück.
+     *
+     * @return Die Position.
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * Schreibt einen Snapshot. Die Datei wird zuerst unter einem temporären Namen geschrieben und dann
+     * ersetzt, sodass bei einem Absturz der vorherige Snapshot erhalten bleibt.
+     *
+     * @param datei Die Snapshotdatei.
+     * @param managementSystem Das zu speichernde Bankverwaltungssystem.
+     * @param journalSequenz Die Sequenznummer des letzten Journaleintrags, der in den Kontoständen enthalten ist.
+     * @param journalPosition Die Position im Journal hinter diesem Eintrag.
+     * @throws IOException Wenn beim Schreiben ein Fehler auftritt.
+     */
+    public static void schreiben(Path datei, BankManagementSystem managementSystem, long journalSequenz, long journalPosition) throws IOException {
+        Path temp = datei.resolveSibling(datei.getFileName() + ".tmp");
+        CRC32 pruefsumme = new CRC32();
+        try (FileChannel kanal = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream datenstrom = Channels.newOutputStream(kanal);
+            DataOutputStream aus = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(datenstrom, pruefsumme), PUFFERGROESSE));
+            aus.writeInt(KENNUNG);
+            aus.writeLong(journalSequenz);
+            aus.writeLong(journalPosition);
+
+            // Kontoinhaber können Konten bei mehreren Banken haben und werden daher vorab durchnummeriert
+            Map<Kontoinhaber, Integer> inhaberNummern = new IdentityHashMap<>();
+            List<Kontoinhaber> inhaber = new ArrayList<>();
+            for (Bank bank : managementSystem.getBanks()) {
+                for (Konto konto : bank.getKonten()) {
+                    if (inhaberNummern.putIfAbsent(konto.getKontoinhaber(), inhaber.size()) == null) {
+                        inhaber.add(konto.getKontoinhaber());
+                    }
+                }
+            }
+            aus.writeInt(inhaber.size());
+            for (Kontoinhaber kontoinhaber : inhaber) {
+                aus.writeInt(kontoinhaber.getKundennummer());
+                textSchreiben(aus, kontoinhaber.getVorname());
+                textSchreiben(aus, kontoinhaber.getName());
+                textSchreiben(aus, kontoinhaber.getStrasse());
+                textSchreiben(aus, kontoinhaber.getPlz());
+                textSchreiben(aus, kontoinhaber.getOrt());
+            }
+
+            Map<ZinsKalender, Integer> kalenderNummern = new IdentityHashMap<>();
+            List<ZinsKalender> kalender = new ArrayList<>();
+            aus.writeInt(managementSystem.getBanks().size());
+            for (Bank bank : managementSystem.getBanks()) {
+                textSchreiben(aus, bank.getBlz());
+                textSchreiben(aus, bank.getName());
+                aus.writeInt(bank.getKonten().size());
+                for (Konto konto : bank.getKonten()) {
+                    aus.writeByte(konto instanceof Girokonto ? GIROKONTO : SPARKONTO);
+                    aus.writeInt(konto.getKontonummer());
+                    aus.writeInt(konto.getPin());
+                    aus.writeLong(konto.getKontostandCent());
+                    aus.writeInt(inhaberNummern.get(konto.getKontoinhaber()));
+                    if (konto instanceof Girokonto) {
+                        aus.writeLong(((Girokonto) konto).getUeberziehungsbetragCent());
+                    } else {
+                        Sparkonto sparkonto = (Sparkonto) konto;
+                        aus.writeDouble(sparkonto.getZins());
+                        aus.writeLong(sparkonto.getZinslauf());
+                        ZinsKalender zinsKalender = sparkonto.getZinsKalender();
+                        if (zinsKalender == null) {
+                            aus.writeInt(-1);
+                        } else {
+                            Integer nummer = kalenderNummern.putIfAbsent(zinsKalender, kalender.size());
+                            if (nummer == null) {
+                                nummer = kalender.size();
+                                kalender.add(zinsKalender);
+                            }
+                            aus.writeInt(nummer);
+                            // Der Kontostand ist bereits gelesen und damit bis zur gespeicherten Periode verzinst
+                            aus.writeLong(sparkonto.getVerzinstBis());
+                        }
+                    }
+                }
+            }
+            // Die Perioden erst nach allen Konten, damit kein Konto weiter verzinst ist als sein Kalender
+            aus.writeInt(kalender.size());
+            for (ZinsKalender zinsKalender : kalender) {
+                aus.writeLong(zinsKalender.getPeriode());
+            }
+            aus.flush();
+            // Die Prüfsumme selbst gehört nicht zu den geprüften Daten
+            new DataOutputStream(datenstrom).writeInt((int) pruefsumme.getValue());
+            kanal.force(true);
+        }
+        Files.move(temp, datei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lädt einen Snapshot. Die Datei wird in den Speicher eingeblendet und in einem Durchgang geprüft.
+     *
+     * @param datei Die Snapshotdatei.
+     * @return Der geladene Snapshot.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann, kein Snapshot ist oder beschädigt ist.
+     */
+    public static Snapshot laden(Path datei) throws IOException {
+        try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.READ)) {
+            long groesse = kanal.size();
+            if (groesse < 24 || groesse > Integer.MAX_VALUE) {
+                throw new IOException("Keine Snapshotdatei");
+            }
+            ByteBuffer ein = kanal.map(FileChannel.MapMode.READ_ONLY, 0, groesse);
+            int kennung = ein.getInt();
+            if (kennung != KENNUNG && kennung != KENNUNG_OHNE_ZINSDATEN) {
+                throw new IOException("Keine Snapshotdatei");
+            }
+            CRC32 pruefsumme = new CRC32();
+            ByteBuffer daten = ein.duplicate();
+            daten.position(0).limit((int) groesse - 4);
+            pruefsumme.update(daten);
+            if ((int) pruefsumme.getValue() != ein.getInt((int) groesse - 4)) {
+                throw new IOException("Snapshot ist beschädigt");
+            }
+            ein.limit((int) groesse - 4);
+            return lesen(ein, kennung == KENNUNG);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            throw new IOException("Snapshot ist beschädigt", ex);
+        }
+    }
+
+    private static Snapshot lesen(ByteBuffer ein, boolean mitZinsdaten) throws IOException {
+        long journalSequenz = ein.getLong();
+        long journalPosition = ein.getLong();
+        byte[] puffer = new byte[256];
+
+        Kontoinhaber[] inhaber = new Kontoinhaber[ein.getInt()];
+        for (int i = 0; i < inhaber.length; i++) {
+            int kundennummer = ein.getInt();
+            String vorname = textLesen(ein, puffer);
+            String name = textLesen(ein, puffer);
+            String strasse = textLesen(ein, puffer);
+            String plz = textLesen(ein, puffer);
+            inhaber[i] = new Kontoinhaber(kundennummer, vorname, name, strasse, plz, textLesen(ein, puffer));
+        }
+
+        // Die Perioden der Kalender stehen hinter den Konten, die Kalender werden daher erst danach gesetzt
+        List<Sparkonto> verzinst = new ArrayList<>();
+        List<Integer> kalenderNummern = new ArrayList<>();
+        List<Long> verzinstBis = new ArrayList<>();
+
+        BankManagementSystem managementSystem = new BankManagementSystem();
+        int anzahlBanken = ein.getInt();
+        for (int i = 0; i < anzahlBanken; i++) {
+            String blz = textLesen(ein, puffer);
+            Bank bank = new Bank(blz, textLesen(ein, puffer), managementSystem);
+            int anzahlKonten = ein.getInt();
+            bank.kapazitaetSichern(anzahlKonten);
+            for (int j = 0; j < anzahlKonten; j++) {
+                byte art = ein.get();
+                int kontonummer = ein.getInt();
+                int pin = ein.getInt();
+                long kontostand = ein.getLong();
+                Kontoinhaber kontoinhaber = inhaber[ein.getInt()];
+                Konto konto;
+                if (art == GIROKONTO) {
+                    konto = new Girokonto(kontonummer, pin, kontostand, kontoinhaber, bank, ein.getLong());
+                } else if (art == SPARKONTO) {
+                    Sparkonto sparkonto = new Sparkonto(kontonummer, pin, kontostand, kontoinhaber, bank, ein.getDouble());
+                    int nummer = -1;
+                    if (mitZinsdaten) {
+                        sparkonto.setZinslauf(ein.getLong());
+                        nummer = ein.getInt();
+                    }
+                    if (nummer >= 0) {
+                        verzinst.add(sparkonto);
+                        kalenderNummern.add(nummer);
+                        verzinstBis.add(ein.getLong());
+                    }
+                    konto = sparkonto;
+                } else {
+                    throw new IOException("Unbekannte Kontoart im Snapshot");
+                }
+                kontoinhaber.addKonto(konto);
+                bank.addKonto(konto);
+            }
+            // Erst mit allen Konten anmelden, dann wird das Kontenverzeichnis in einem Durchgang gefüllt
+            managementSystem.addBank(bank);
+        }
+        List<ZinsKalender> kalender = new ArrayList<>();
+        if (mitZinsdaten) {
+            int anzahlKalender = ein.getInt();
+            for (int i = 0; i < anzahlKalender; i++) {
+                kalender.add(new ZinsKalender(ein.getLong()));
+            }
+        }
+        for (int i = 0; i < verzinst.size(); i++) {
+            verzinst.get(i).setZinsKalender(kalender.get(kalenderNummern.get(i)), verzinstBis.get(i));
+        }
+        if (ein.hasRemaining()) {
+            throw new IOException("Snapshot ist beschädigt");
+        }
+        return new Snapshot(managementSystem, kalender, journalSequenz, journalPosition);
+    }
+
+    private static void textSchreiben(DataOutputStream aus, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Text zu lang für den Snapshot");
+        }
+        aus.writeShort(bytes.length);
+        aus.write(bytes);
+    }
+
+    private static String textLesen(ByteBuffer ein, byte[] puffer) {
+        int laenge = ein.getShort() & 0xFFFF;
+        byte[] ziel = laenge <= puffer.length ? puffer : new byte[laenge];
+        ein.get(ziel, 0, laenge);
+        return new String(ziel, 0, laenge, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.geldautomat.service;
+
+import com.geldautomat.model.Konto;
+
+/**
+ * Diese Klasse repräsentiert das Ergebnis einer Aktion des TransaktionsService.
+ * Statt eines Dialogs liefert der Service einen Status und bei Erfolg das betroffene Konto
+ * und dessen Kontostand nach der Aktion.
+ */
+public final class Ergebnis {
+    /**
+     * Die möglichen Ergebnisse einer Aktion. Fehler tragen die Meldung, die dem Benutzer angezeigt wird.
+     */
+    public enum Status {
+        ERFOLG(null),
+        BANK_NICHT_GEFUNDEN("Bank nicht gefunden."),
+        KONTO_NICHT_GEFUNDEN("Konto nicht gefunden."),
+        FALSCHE_PIN("Falsches Passwort."),
+        EMPFAENGER_NICHT_GEFUNDEN("Das Empfängerkonto existiert nicht."),
+        UNGUELTIGER_BETRAG("Ungültiger Betrag"),
+        /** Der Betrag ist nur durch Überziehen des Kontos gedeckt, der Benutzer muss bestätigen. */
+        UEBERZIEHUNG("Möchten Sie das Konto überziehen?"),
+        NICHT_GEDECKT("Sie haben nicht genug Geld auf dem Konto."),
+        /** Die Buchung konnte nicht im Journal gespeichert werden und wurde zurückgenommen. */
+        SPEICHERFEHLER("Die Buchung konnte nicht gespeichert werden.");
+
+        private final String meldung;
+
+        Status(String meldung) {
+            this.meldung = meldung;
+        }
+
+        public String getMeldung() {
+            return meldung;
+        }
+    }
+
+    private static final Ergebnis[] FEHLER = new Ergebnis[Status.values().length];
+
+    static {
+        for (Status status : Status.values()) {
+            FEHLER[status.ordinal()] = new Ergebnis(status, null, 0);
+        }
+    }
+
+    private final Status status;
+    private final Konto konto;
+    private final long kontostand;
+
+    private Ergebnis(Status status, Konto konto, long kontostand) {
+        this.status = status;
+        this.konto = konto;
+        this.kontostand = kontostand;
+    }
+
+    /**
+     * Erzeugt ein erfolgreiches Ergebnis.
+     *
+     * @param konto Das betroffene Konto.
+     * @param kontostand Der Kontostand in Cent nach der Aktion.
+     * @return Das Ergebnis.
+     */
+    static Ergebnis erfolg(Konto konto, long kontostand) {
+        return new Ergebnis(Status.ERFOLG, konto, kontostand);
+    }
+
+    /**
+     * Gibt das Ergebnis für einen Status ohne Konto zurück. Diese Ergebnisse werden wiederverwendet.
+     *
+     * @param status Der Status.
+     * @return Das Ergebnis.
+     */
+    static Ergebnis status(Status status) {
+        return FEHLER[status.ordinal()];
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean istErfolgreich() {
+        return status == Status.ERFOLG;
+    }
+
+    /**
+     * Gibt die Meldung für den Benutzer zurück.
+     *
+     * @return Die Meldung oder null bei Erfolg.
+     */
+    public String getMeldung() {
+        return status.getMeldung();
+    }
+
+    /**
+     * Gibt das betroffene Konto zurück.
+     *
+     * @return Das Konto oder null, wenn die Aktion nicht erfolgreich war.
+     */
+    public Konto getKonto() {
+        return konto;
+    }
+
+    /**
+     * Gibt den Kontostand nach der Aktion zurück.
+     *
+     * @return Der Kontostand in Cent, 0 wenn die Aktion nicht erfolgreich war.
+     */
+    public long getKontostandCent() {
+        return kontostand;
+    }
+}
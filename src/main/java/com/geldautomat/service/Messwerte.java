@@ -0,0 +1,135 @@
+package com.geldautomat.service;
+
+import com.geldautomat.util.Histogramm;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diese Klasse sammelt Messwerte zu den Vorgängen des TransaktionsService: für jeden Vorgang ein
+ * Histogramm der Latenzen in Nanosekunden und für jeden Vorgang und Status einen Zähler, bei der
+ * Anmeldung also auch die Gründe für Fehlschläge. Das Erfassen kommt ohne Sperren aus und kostet
+ * nur einige atomare Additionen, daher misst der Service immer mit.
+ * Mit schnappschuss erhält man den aktuellen Stand als Text.
+ */
+public class Messwerte {
+    /**
+     * Die gemessenen Vorgänge.
+     */
+    public enum Vorgang {
+        ANMELDEN,
+        EINZAHLEN,
+        AUSZAHLEN,
+        /** Eine Auszahlung, nach der das Konto überzogen ist. Der Benutzer hat die Überziehung bestätigt. */
+        AUSZAHLEN_UEBERZIEHUNG,
+        UEBERWEISEN
+    }
+
+    private static final int ANZAHL_STATUS = Ergebnis.Status.values().length;
+
+    private final Histogramm[] latenzen = new Histogramm[Vorgang.values().length];
+    private final LongAdder[] zaehler = new LongAdder[Vorgang.values().length * ANZAHL_STATUS];
+
+    /**
+     * Konstruktor für leere Messwerte.
+     */
+    public Messwerte() {
+        for (int i = 0; i < latenzen.length; i++) {
+            latenzen[i] = new Histogramm();
+        }
+        for (int i = 0; i < zaehler.length; i++) {
+            zaehler[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Erfasst einen Vorgang.
+     *
+     * @param vorgang Der Vorgang.
+     * @param ergebnis Das Ergebnis des Vorgangs.
+     * @param nanos Die Dauer in Nanosekunden.
+     */
+    public void erfassen(Vorgang vorgang, Ergebnis ergebnis, long nanos) {
+        latenzen[vorgang.ordinal()].erfassen(nanos);
+        zaehler[vorgang.ordinal() * ANZAHL_STATUS + ergebnis.getStatus().ordinal()].increment();
+    }
+
+    /**
+     * Gibt die Latenzen eines Vorgangs in Nanosekunden zurück.
+     *
+     * @param vorgang Der Vorgang.
+     * @return Das Histogramm der Latenzen.
+     */
+    public Histogramm getLatenzen(Vorgang vorgang) {
+        return latenzen[vorgang.ordinal()];
+    }
+
+    /**
+     * Gibt zurück, wie oft ein Vorgang mit einem Status endete.
+     *
+     * @param vorgang Der Vorgang.
+     * @param status Der Status.
+     * @return Die Anzahl.
+     */
+    public long getAnzahl(Vorgang vorgang, Ergebnis.Status status) {
+        return zaehler[vorgang.ordinal() * ANZAHL_STATUS + status.ordinal()].sum();
+    }
+
+    /**
+     * Setzt alle Messwerte zurück, etwa nach dem Schreiben eines Schnappschusses.
+     */
+    public void zuruecksetzen() {
+        for (Histogramm histogramm : latenzen) {
+            histogramm.zuruecksetzen();
+        }
+        for (LongAdder adder : zaehler) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * Gibt den aktuellen Stand als Text zurück: je Vorgang Anzahl, Mittelwert und Perzentile der Latenzen
+     * in Mikrosekunden, darunter die Anzahl je Status. Laufen gleichzeitig Vorgänge, sind sie
+     * möglicherweise nur teilweise enthalten.
+     *
+     * @return Der Schnappschuss.
+     */
+    public String schnappschuss() {
+        StringWriter text = new StringWriter();
+        PrintWriter aus = new PrintWriter(text);
+        aus.printf("%-22s %10s %9s %9s %9s %9s %9s %9s%n", "Vorgang", "Anzahl", "Mittel", "p50", "p90", "p99",
+                "p99,9", "max");
+        for (Vorgang vorgang : Vorgang.values()) {
+            Histogramm histogramm = getLatenzen(vorgang);
+            aus.printf("%-22s %10d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", vorgang, histogramm.getAnzahl(),
+                    histogramm.getMittelwert() / 1e3, histogramm.perzentil(0.5) / 1e3,
+                    histogramm.perzentil(0.9) / 1e3, histogramm.perzentil(0.99) / 1e3,
+                    histogramm.perzentil(0.999) / 1e3, histogramm.getMaximum() / 1e3);
+        }
+        for (Vorgang vorgang : Vorgang.values()) {
+            for (Ergebnis.Status status : Ergebnis.Status.values()) {
+                long anzahl = getAnzahl(vorgang, status);
+                if (anzahl > 0) {
+                    aus.printf("%-22s %-26s %10d%n", vorgang, status, anzahl);
+                }
+            }
+        }
+        aus.flush();
+        return text.toString();
+    }
+
+    /**
+     * Schreibt einen Schnappschuss in eine Datei. Eine vorhandene Datei wird überschrieben.
+     *
+     * @param datei Die Datei.
+     * @throws IOException Wenn die Datei nicht geschrieben werden kann.
+     */
+    public void schreiben(Path datei) throws IOException {
+        Files.write(datei, schnappschuss().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,307 @@
+package com.geldautomat.service;
+
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoverlauf;
+import com.geldautomat.model.Ueberweisungssystem;
+import com.geldautomat.persistenz.Journal;
+
+import java.io.IOException;
+
+/**
+ * Diese Klasse stellt die Geschäftslogik des Geldautomaten ohne Benutzeroberfläche bereit.
+ * Anmelden, Einzahlen, Auszahlen, Überweisen und Kontostandsabfragen liefern ein Ergebnis statt
+ * Dialoge anzuzeigen. Die Controller zeigen diese Ergebnisse nur noch an, andere Aufrufer wie
+ * Lasttests können den Service direkt verwenden. Der Service hat außer seinen Messwerten keinen
+ * eigenen Zustand und kann von mehreren Threads gleichzeitig verwendet werden.
+ * Mit einem Journal wird jede Buchung gespeichert, bevor sie sichtbar wird (Write-Ahead). Gutschriften
+ * werden erst ausgeführt, wenn der Eintrag dauerhaft im Journal steht. Abbuchungen werden vorher mit
+ * Prüfung der Deckung ausgeführt und reservieren so den Betrag. Schlägt das Speichern fehl, wird nur diese
+ * Reservierung durch eine Gutschrift zurückgenommen, die keine Grenze des Kontos verletzen kann.
+ * Überweisungen laufen über das Ueberweisungssystem des Bank Management Systems, das Journal wird
+ * dabei zwischen Abbuchung und Gutschrift unter den Sperren beider Konten geschrieben.
+ * Erfolgreiche Buchungen werden im Kontoverlauf der beteiligten Konten erfasst.
+ */
+public class TransaktionsService {
+    private final BankManagementSystem managementSystem;
+    private final Journal journal;
+    private final Messwerte messwerte = new Messwerte();
+
+    /**
+     * Konstruktor für den TransaktionsService ohne Journal.
+     *
+     * @param managementSystem Das Bankverwaltungssystem, auf dem der Service arbeitet.
+     */
+    public TransaktionsService(BankManagementSystem managementSystem) {
+        this(managementSystem, null);
+    }
+
+    /**
+     * Konstruktor für den TransaktionsService.
+     *
+     * @param managementSystem Das Bankverwaltungssystem, auf dem der Service arbeitet.
+     * @param journal Das Journal, in das Buchungen geschrieben werden, oder null.
+     */
+    public TransaktionsService(BankManagementSystem managementSystem, Journal journal) {
+        this.managementSystem = managementSystem;
+        this.journal = journal;
+    }
+
+    public BankManagementSystem getBankManagementSystem() {
+        return managementSystem;
+    }
+
+    /**
+     * Gibt die Messwerte des Service zurück. Anmelden, Einzahlen, Auszahlen und Überweisen werden
+     * mit Dauer und Ergebnis erfasst, die Prüfungen ohne Buchung nicht.
+     *
+     * @return Die Messwerte.
+     */
+    public Messwerte getMesswerte() {
+        return messwerte;
+    }
+
+    /**
+     * Meldet einen Benutzer an einem Konto an.
+     *
+     * @param blz Die Bankleitzahl der Bank.
+     * @param kontonummer Die Kontonummer.
+     * @param pin Die eingegebene PIN.
+     * @return ERFOLG mit dem Konto, sonst BANK_NICHT_GEFUNDEN, KONTO_NICHT_GEFUNDEN oder FALSCHE_PIN.
+     */
+    public Ergebnis anmelden(String blz, int kontonummer, int pin) {
+        long start = System.nanoTime();
+        Ergebnis ergebnis = anmeldenAusfuehren(blz, kontonummer, pin);
+        messwerte.erfassen(Messwerte.Vorgang.ANMELDEN, ergebnis, System.nanoTime() - start);
+        return ergebnis;
+    }
+
+    private Ergebnis anmeldenAusfuehren(String blz, int kontonummer, int pin) {
+        Konto konto = managementSystem.getKonto(blz, kontonummer);
+        if (konto == null) {
+            // Bei Misserfolg wird unterschieden, ob schon die Bank fehlt
+            return Ergebnis.status(managementSystem.getBankByBLZ(blz) == null
+                    ? Ergebnis.Status.BANK_NICHT_GEFUNDEN
+                    : Ergebnis.Status.KONTO_NICHT_GEFUNDEN);
+        }
+        if (!konto.checkPassword(pin)) {
+            return Ergebnis.status(Ergebnis.Status.FALSCHE_PIN);
+        }
+        return Ergebnis.erfolg(konto, konto.getKontostandCent());
+    }
+
+    /**
+     * Fragt den Kontostand eines Kontos ab.
+     *
+     * @param konto Das Konto.
+     * @return ERFOLG mit dem aktuellen Kontostand.
+     */
+    public Ergebnis kontostandAbfragen(Konto konto) {
+        return Ergebnis.erfolg(konto, konto.getKontostandCent());
+    }
+
+    /**
+     * Zahlt einen Betrag auf ein Konto ein.
+     *
+     * @param konto Das Konto.
+     * @param betrag Der Betrag in Cent, muss größer als 0 sein.
+     * @return ERFOLG mit dem neuen Kontostand, sonst UNGUELTIGER_BETRAG oder SPEICHERFEHLER.
+     */
+    public Ergebnis einzahlen(Konto konto, long betrag) {
+        long start = System.nanoTime();
+        Ergebnis ergebnis = einzahlenAusfuehren(konto, betrag);
+        messwerte.erfassen(Messwerte.Vorgang.EINZAHLEN, ergebnis, System.nanoTime() - start);
+        return ergebnis;
+    }
+
+    private Ergebnis einzahlenAusfuehren(Konto konto, long betrag) {
+        if (betrag <= 0) {
+            return Ergebnis.status(Ergebnis.Status.UNGUELTIGER_BETRAG);
+        }
+        long sequenz = 0;
+        if (journal != null) {
+            try {
+                sequenz = journal.buchung(konto, betrag);
+            } catch (IOException ex) {
+                return Ergebnis.status(Ergebnis.Status.SPEICHERFEHLER);
+            }
+        }
+        long kontostand = konto.einzahlenCent(betrag);
+        umsatzErfassen(konto, Kontoverlauf.Art.EINZAHLUNG, betrag, kontostand, null, sequenz);
+        return Ergebnis.erfolg(konto, kontostand);
+    }
+
+    /**
+     * Prüft, ob ein Betrag vom Konto abgebucht werden kann, ohne etwas zu buchen.
+     * Die Oberfläche fragt bei UEBERZIEHUNG nach, bevor sie auszahlen oder ueberweisen aufruft.
+     *
+     * @param konto Das Konto.
+     * @param betrag Der Betrag in Cent.
+     * @return ERFOLG, wenn der Kontostand reicht, UEBERZIEHUNG, wenn der Betrag durch den
+     *         Überziehungsbetrag gedeckt ist, sonst NICHT_GEDECKT oder UNGUELTIGER_BETRAG.
+     */
+    public Ergebnis deckungPruefen(Konto konto, long betrag) {
+        if (betrag < 0) {
+            return Ergebnis.status(Ergebnis.Status.UNGUELTIGER_BETRAG);
+        }
+        long kontostand = konto.getKontostandCent();
+        if (kontostand >= betrag) {
+            return Ergebnis.erfolg(konto, kontostand);
+        }
+        if (konto instanceof Girokonto && ((Girokonto) konto).getUeberziehungsbetragCent() >= betrag - kontostand) {
+            return Ergebnis.status(Ergebnis.Status.UEBERZIEHUNG);
+        }
+        return Ergebnis.status(Ergebnis.Status.NICHT_GEDECKT);
+    }
+
+    /**
+     * Zahlt einen Betrag vom Konto aus, gegebenenfalls unter Überziehung des Kontos.
+     *
+     * @param konto Das Konto.
+     * @param betrag Der Betrag in Cent.
+     * @return ERFOLG mit dem neuen Kontostand, sonst NICHT_GEDECKT, UNGUELTIGER_BETRAG oder SPEICHERFEHLER.
+     */
+    public Ergebnis auszahlen(Konto konto, long betrag) {
+        long start = System.nanoTime();
+        Ergebnis ergebnis = auszahlenAusfuehren(konto, betrag);
+        // Steht das Konto danach im Minus, hat der Benutzer die Überziehung bestätigt
+        messwerte.erfassen(ergebnis.istErfolgreich() && ergebnis.getKontostandCent() < 0
+                ? Messwerte.Vorgang.AUSZAHLEN_UEBERZIEHUNG : Messwerte.Vorgang.AUSZAHLEN,
+                ergebnis, System.nanoTime() - start);
+        return ergebnis;
+    }
+
+    private Ergebnis auszahlenAusfuehren(Konto konto, long betrag) {
+        if (betrag < 0) {
+            return Ergebnis.status(Ergebnis.Status.UNGUELTIGER_BETRAG);
+        }
+        long kontostand;
+        try {
+            kontostand = konto.auszahlenCent(betrag);
+        } catch (IllegalArgumentException ex) {
+            return Ergebnis.status(Ergebnis.Status.NICHT_GEDECKT);
+        }
+        long sequenz = 0;
+        if (journal != null) {
+            try {
+                sequenz = journal.buchung(konto, -betrag);
+            } catch (IOException ex) {
+                // Die Rücknahme der Reservierung erhöht den Kontostand und ist daher immer zulässig
+                konto.einzahlenCent(betrag);
+                return Ergebnis.status(Ergebnis.Status.SPEICHERFEHLER);
+            }
+        }
+        umsatzErfassen(konto, Kontoverlauf.Art.AUSZAHLUNG, -betrag, kontostand, null, sequenz);
+        return Ergebnis.erfolg(konto, kontostand);
+    }
+
+    /**
+     * Prüft eine Überweisung, ohne etwas zu buchen: zuerst das Empfängerkonto, dann die Deckung wie deckungPruefen.
+     *
+     * @param sender Das Konto, von dem abgebucht werden soll.
+     * @param blz Die Bankleitzahl des Empfängerkontos.
+     * @param kontonummer Die Kontonummer des Empfängerkontos.
+     * @param betrag Der Betrag in Cent.
+     * @return EMPFAENGER_NICHT_GEFUNDEN oder das Ergebnis von deckungPruefen.
+     */
+    public Ergebnis ueberweisungPruefen(Konto sender, String blz, int kontonummer, long betrag) {
+        if (managementSystem.getKonto(blz, kontonummer) == null) {
+            return Ergebnis.status(Ergebnis.Status.EMPFAENGER_NICHT_GEFUNDEN);
+        }
+        return deckungPruefen(sender, betrag);
+    }
+
+    /**
+     * Überweist einen Betrag auf ein anderes Konto, gegebenenfalls unter Überziehung des Senderkontos.
+     *
+     * @param sender Das Konto, von dem abgebucht wird.
+     * @param blz Die Bankleitzahl des Empfängerkontos.
+     * @param kontonummer Die Kontonummer des Empfängerkontos.
+     * @param betrag Der Betrag in Cent.
+     * @return ERFOLG mit dem neuen Kontostand des Senders, sonst EMPFAENGER_NICHT_GEFUNDEN,
+     *         NICHT_GEDECKT, UNGUELTIGER_BETRAG oder SPEICHERFEHLER.
+     */
+    public Ergebnis ueberweisen(Konto sender, String blz, int kontonummer, long betrag) {
+        long start = System.nanoTime();
+        Ergebnis ergebnis = ueberweisenAusfuehren(sender, blz, kontonummer, betrag);
+        messwerte.erfassen(Messwerte.Vorgang.UEBERWEISEN, ergebnis, System.nanoTime() - start);
+        return ergebnis;
+    }
+
+    private Ergebnis ueberweisenAusfuehren(Konto sender, String blz, int kontonummer, long betrag) {
+        Konto empfaenger = managementSystem.getKonto(blz, kontonummer);
+        if (empfaenger == null) {
+            return Ergebnis.status(Ergebnis.Status.EMPFAENGER_NICHT_GEFUNDEN);
+        }
+        if (betrag < 0) {
+            return Ergebnis.status(Ergebnis.Status.UNGUELTIGER_BETRAG);
+        }
+        Ueberweisungssystem.Ueberweisung ueberweisung;
+        try {
+            // Das Journal wird zwischen Abbuchung und Gutschrift unter den Sperren beider Konten geschrieben
+            ueberweisung = managementSystem.ueberweisen(sender, empfaenger, betrag,
+                    journal == null ? null : () -> journal.ueberweisung(sender, empfaenger, betrag));
+        } catch (IllegalArgumentException ex) {
+            return Ergebnis.status(Ergebnis.Status.NICHT_GEDECKT);
+        } catch (IOException ex) {
+            // Der Empfänger hat noch nichts erhalten, das Überweisungssystem hat die Abbuchung zurückgenommen
+            return Ergebnis.status(Ergebnis.Status.SPEICHERFEHLER);
+        }
+        long kontostand = ueberweisung.getKontostandSenderCent();
+        umsatzErfassen(sender, Kontoverlauf.Art.UEBERWEISUNG_AUSGANG, -betrag, kontostand, empfaenger,
+                ueberweisung.getSequenz());
+        umsatzErfassen(empfaenger, Kontoverlauf.Art.UEBERWEISUNG_EINGANG, betrag,
+                ueberweisung.getKontostandEmpfaengerCent(), sender, ueberweisung.getSequenz());
+        return Ergebnis.erfolg(sender, kontostand);
+    }
+
+    /**
+     * Hängt die letzten Umsätze eines Kontos an einen Auszug an, den neuesten zuerst.
+     * Gelesen wird nur der Kontoverlauf im Speicher, der Aufwand hängt nur von der Anzahl ab.
+     *
+     * @param konto Das Konto.
+     * @param hoechstens Die Anzahl der Umsätze, die höchstens angehängt werden.
+     * @param ziel Der Auszug, an den die Umsätze angehängt werden.
+     * @return Die Anzahl der angehängten Umsätze.
+     */
+    public int letzteUmsaetze(Konto konto, int hoechstens, Kontoverlauf.Auszug ziel) {
+        return konto.getVerlauf().letzte(hoechstens, ziel);
+    }
+
+    /**
+     * Hängt Umsätze eines Kontos aus dem Journal an einen Auszug an, die älter sind als ein Umsatz im Auszug.
+     * Das Journal wird dazu ab der letzten Stützstelle vor dem Umsatz gelesen (siehe Journal.umsaetzeLesen).
+     *
+     * @param konto Das Konto.
+     * @param vorSequenz Die Sequenznummer des ältesten bereits angezeigten Umsatzes, 0 wenn noch keiner
+     *        angezeigt wird.
+     * @param hoechstens Die Anzahl der Umsätze, die höchstens angehängt werden.
+     * @param ziel Der Auszug, an den die Umsätze angehängt werden.
+     * @return Die Anzahl der angehängten Umsätze, 0 ohne Journal.
+     * @throws IOException Wenn das Journal nicht gelesen werden kann.
+     */
+    public int aeltereUmsaetze(Konto konto, long vorSequenz, int hoechstens, Kontoverlauf.Auszug ziel) throws IOException {
+        if (journal == null) {
+            return 0;
+        }
+        return journal.umsaetzeLesen(konto, vorSequenz == 0 ? Long.MAX_VALUE : vorSequenz, hoechstens, ziel);
+    }
+
+    /**
+     * Gibt an, ob ältere Umsätze aus einem Journal gelesen werden können.
+     *
+     * @return true, wenn der Service ein Journal führt.
+     */
+    public boolean hatJournal() {
+        return journal != null;
+    }
+
+    private static void umsatzErfassen(Konto konto, Kontoverlauf.Art art, long betrag, long kontostand,
+            Konto gegenkonto, long sequenz) {
+        // Der Kontostand stammt aus der Buchung selbst, spätere Buchungen sind darin nicht enthalten
+        konto.getVerlauf().erfassen(art, betrag, kontostand,
+                gegenkonto == null ? null : gegenkonto.getBank().getBlz(),
+                gegenkonto == null ? 0 : gegenkonto.getKontonummer(), sequenz, System.currentTimeMillis());
+    }
+}
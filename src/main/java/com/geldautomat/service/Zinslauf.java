@@ -0,0 +1,269 @@
+package com.geldautomat.service;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.persistenz.Journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Diese Klasse schreibt allen Sparkonten aller Banken die Zinsen gut (siehe Sparkonto.zinsenGutschreiben).
+ * Die Konten jeder Bank werden in Abschnitte geteilt, die parallel in einem ForkJoinPool bearbeitet werden.
+ * Da jede Gutschrift atomar zum aktuellen Kontostand addiert wird, kann der Zinslauf laufen, während
+ * der Geldautomat weiter Buchungen ausführt.
+ *
+ * Mit einem Journal wird jede Gutschrift vor der Buchung gespeichert, wie die Einzahlungen im
+ * TransaktionsService. Jeder Abschnitt berechnet zuerst die Zinsen aller seiner Sparkonten und hängt sie an
+ * das Journal an, wartet einmal auf das Speichern und schreibt sie erst danach gut. So werden viele
+ * Gutschriften gemeinsam geschrieben, und keine Gutschrift steht auf einem Konto, aber nicht im Journal.
+ *
+ * Jeder Zinslauf hat eine Nummer, die jedes Sparkonto mit seiner Gutschrift übernimmt. Ein Zinslauf
+ * überspringt Konten, denen er oder ein späterer Zinslauf bereits Zinsen gutgeschrieben hat.
+ */
+public class Zinslauf {
+    /** Anzahl der Konten, ab der ein Abschnitt weiter geteilt wird. */
+    static final int ABSCHNITT = 4096;
+
+    private final BankManagementSystem managementSystem;
+    private final Journal journal;
+    private final long lauf;
+    private final ForkJoinPool pool;
+
+    /**
+     * Konstruktor für den Zinslauf im gemeinsamen ForkJoinPool.
+     *
+     * @param managementSystem Das Bankverwaltungssystem.
+     * @param journal Das Journal, in das die Gutschriften geschrieben werden, oder null.
+     * @param lauf Die Nummer des Zinslaufs, etwa die Nummer des Zinstermins. Sie muss größer sein als die
+     *             Nummern aller früheren Zinsläufe, mindestens 1.
+     */
+    public Zinslauf(BankManagementSystem managementSystem, Journal journal, long lauf) {
+        this(managementSystem, journal, lauf, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Konstruktor für den Zinslauf.
+     *
+     * @param managementSystem Das Bankverwaltungssystem.
+     * @param journal Das Journal, in das die Gutschriften geschrieben werden, oder null.
+     * @param lauf Die Nummer des Zinslaufs, etwa die Nummer des Zinstermins. Sie muss größer sein als die
+     *             Nummern aller früheren Zinsläufe, mindestens 1.
+     * @param pool Der Pool, in dem die Abschnitte bearbeitet werden.
+     */
+    public Zinslauf(BankManagementSystem managementSystem, Journal journal, long lauf, ForkJoinPool pool) {
+        if (lauf < 1) {
+            throw new IllegalArgumentException("Ungültige Nummer des Zinslaufs");
+        }
+        this.managementSystem = managementSystem;
+        this.journal = journal;
+        this.lauf = lauf;
+        this.pool = pool;
+    }
+
+    /**
+     * Schreibt allen Sparkonten die Zinsen gut und wartet, bis alle Gutschriften gespeichert sind.
+     * Sparkonten, denen dieser Zinslauf bereits Zinsen gutgeschrieben hat, werden übersprungen. Nach einer
+     * IOException wird das Journal neu geöffnet und ein Zinslauf mit derselben Nummer erneut ausgeführt,
+     * der nur die noch fehlenden Gutschriften nachholt.
+     *
+     * @return Der Bericht mit Anzahl der Konten und Summe der Zinsen je Bank, ohne übersprungene Konten.
+     * @throws IOException Wenn das Journal nicht geschrieben werden kann. Der Zinslauf bricht dann ab. Zinsen
+     *                     stehen danach nur auf den Konten, deren Gutschrift bereits gespeichert wurde.
+     */
+    public Bericht ausfuehren() throws IOException {
+        List<Bank> banken = new ArrayList<>();
+        List<List<Konto>> kontenJeBank = new ArrayList<>();
+        // Die Listen werden kopiert, damit ein Nachladen nicht auf den ganzen Zinslauf warten muss
+        managementSystem.lesen(() -> {
+            for (Bank bank : managementSystem.getBanks()) {
+                banken.add(bank);
+                kontenJeBank.add(Arrays.asList(bank.getKonten().toArray(new Konto[0])));
+            }
+        });
+        AtomicLongArray anzahl = new AtomicLongArray(banken.size());
+        AtomicLongArray zinsen = new AtomicLongArray(banken.size());
+        List<Abschnitt> abschnitte = new ArrayList<>();
+        for (int i = 0; i < banken.size(); i++) {
+            List<Konto> konten = kontenJeBank.get(i);
+            abschnitte.add(new Abschnitt(konten, 0, konten.size(), i, anzahl, zinsen));
+        }
+        try {
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(abschnitte);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        String[] blz = new String[banken.size()];
+        long[] anzahlJeBank = new long[banken.size()];
+        long[] zinsenJeBank = new long[banken.size()];
+        for (int i = 0; i < blz.length; i++) {
+            blz[i] = banken.get(i).getBlz();
+            anzahlJeBank[i] = anzahl.get(i);
+            zinsenJeBank[i] = zinsen.get(i);
+        }
+        return new Bericht(blz, anzahlJeBank, zinsenJeBank);
+    }
+
+    /**
+     * Ein Abschnitt der Konten einer Bank. Große Abschnitte werden halbiert.
+     */
+    private final class Abschnitt extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Konto> konten;
+        private final int von;
+        private final int bis;
+        private final int bank;
+        private final AtomicLongArray anzahl;
+        private final AtomicLongArray zinsen;
+
+        Abschnitt(List<Konto> konten, int von, int bis, int bank, AtomicLongArray anzahl, AtomicLongArray zinsen) {
+            this.konten = konten;
+            this.von = von;
+            this.bis = bis;
+            this.bank = bank;
+            this.anzahl = anzahl;
+            this.zinsen = zinsen;
+        }
+
+        @Override
+        protected void compute() {
+            if (bis - von > ABSCHNITT) {
+                int mitte = (von + bis) >>> 1;
+                invokeAll(new Abschnitt(konten, von, mitte, bank, anzahl, zinsen),
+                        new Abschnitt(konten, mitte, bis, bank, anzahl, zinsen));
+                return;
+            }
+            long gutschriften = 0;
+            long summe = 0;
+            Sparkonto[] faellig = new Sparkonto[bis - von];
+            long[] betraege = new long[bis - von];
+            long letzteNummer = 0;
+            try {
+                for (int i = von; i < bis; i++) {
+                    Konto konto = konten.get(i);
+                    if (!(konto instanceof Sparkonto) || ((Sparkonto) konto).getZinslauf() >= lauf) {
+                        continue;
+                    }
+                    Sparkonto sparkonto = (Sparkonto) konto;
+                    long zinsbetrag = sparkonto.zinsbetragBerechnen();
+                    faellig[i - von] = sparkonto;
+                    betraege[i - von] = zinsbetrag;
+                    if (journal != null && zinsbetrag != 0) {
+                        letzteNummer = journal.zinsgutschriftAnhaengen(sparkonto, zinsbetrag, lauf);
+                    }
+                }
+                if (letzteNummer != 0) {
+                    journal.warten(letzteNummer);
+                }
+                // Erst gutschreiben, wenn alle Gutschriften des Abschnitts gespeichert sind
+                for (int i = 0; i < faellig.length; i++) {
+                    if (faellig[i] != null && faellig[i].zinsenGutschreiben(betraege[i], lauf)) {
+                        gutschriften++;
+                        summe += betraege[i];
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                anzahl.addAndGet(bank, gutschriften);
+                zinsen.addAndGet(bank, summe);
+            }
+        }
+    }
+
+    /**
+     * Der Bericht eines Zinslaufs mit Anzahl der Sparkonten und Summe der Zinsen je Bank.
+     */
+    public static final class Bericht {
+        private final String[] blz;
+        private final long[] anzahl;
+        private final long[] zinsen;
+
+        Bericht(String[] blz, long[] anzahl, long[] zinsen) {
+            this.blz = blz;
+            this.anzahl = anzahl;
+            this.zinsen = zinsen;
+        }
+
+        /**
+         * Gibt die Anzahl der Banken im Bericht zurück.
+         *
+         * @return Die Anzahl der Banken.
+         */
+        public int getAnzahlBanken() {
+            return blz.length;
+        }
+
+        /**
+         * Gibt die BLZ einer Bank im Bericht zurück.
+         *
+         * @param bank Die Nummer der Bank im Bericht, in der Reihenfolge von BankManagementSystem.getBanks.
+         * @return Die BLZ.
+         */
+        public String getBlz(int bank) {
+            return blz[bank];
+        }
+
+        /**
+         * Gibt die Anzahl der Sparkonten einer Bank zurück, denen Zinsen gutgeschrieben wurden.
+         *
+         * @param bank Die Nummer der Bank im Bericht, in der Reihenfolge von BankManagementSystem.getBanks.
+         * @return Die Anzahl der Sparkonten.
+         */
+        public long getAnzahlKonten(int bank) {
+            return anzahl[bank];
+        }
+
+        /**
+         * Gibt die Summe der Zinsen einer Bank zurück.
+         *
+         * @param bank Die Nummer der Bank im Bericht, in der Reihenfolge von BankManagementSystem.getBanks.
+         * @return Die Summe in Cent.
+         */
+        public long getZinsenCent(int bank) {
+            return zinsen[bank];
+        }
+
+        /**
+         * Gibt die Anzahl aller Sparkonten zurück, denen Zinsen gutgeschrieben wurden.
+         *
+         * @return Die Anzahl der Sparkonten.
+         */
+        public long getAnzahlKonten() {
+            long summe = 0;
+            for (long wert : anzahl) {
+                summe += wert;
+            }
+            return summe;
+        }
+
+        /**
+         * Gibt die Summe aller Zinsen zurück.
+         *
+         * @return Die Summe in Cent.
+         */
+        public long getZinsenCent() {
+            long summe = 0;
+            for (long wert : zinsen) {
+                summe += wert;
+            }
+            return summe;
+        }
+    }
+}
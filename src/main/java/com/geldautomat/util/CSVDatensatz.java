@@ -0,0 +1,76 @@
+package com.geldautomat.util;
+
+/**
+ * Diese Klasse enthält die geparsten Werte einer Zeile der CSV-Datei.
+ * Der sequentielle Import verwendet ein einziges Objekt für alle Zeilen, der parallele Import
+ * ein Objekt je Zeile, damit die Zeilen nach dem Parsen in Dateireihenfolge übernommen werden können.
+ */
+class CSVDatensatz {
+    static final int GIROKONTO = 1;
+    static final int SPARKONTO = 2;
+    static final int UNBEKANNT = 0;
+
+    String bankName;
+    String blz;
+    int kontonummer;
+    int pin;
+    long kontostand;
+    int kundennummer;
+    String name;
+    String vorname;
+    String strasse;
+    String plz;
+    String ort;
+    int kontoart;
+    /** Überziehungsbetrag in Cent, nur bei Girokonten. */
+    long ueberziehungsbetrag;
+    /** Zinssatz, nur bei Sparkonten. */
+    double zins;
+    /**
+     * Fehler beim Parsen von Überziehungsbetrag oder Zinssatz.
+     * Der Import meldet ihn erst nach den Konsistenzprüfungen, damit die Reihenfolge der Fehlermeldungen erhalten bleibt.
+     */
+    NumberFormatException zusatzFehler;
+
+    /**
+     * Übernimmt die Werte der aktuellen Zeile eines CSVTokenizers.
+     *
+     * @param zeile Der CSVTokenizer, der auf der zu lesenden Zeile steht.
+     * @return false, wenn die Zeile weniger als 14 Felder hat, sonst true.
+     * @throws NumberFormatException Wenn Kontonummer, PIN, Kontostand oder Kundennummer nicht gelesen werden können.
+     */
+    boolean lesen(CSVTokenizer zeile) {
+        if (zeile.getAnzahlFelder() < 14) {
+            return false;
+        }
+        bankName = zeile.text(0);
+        blz = zeile.text(1);
+        kontonummer = zeile.ganzzahl(2);
+        pin = zeile.ganzzahl(3);
+        kontostand = zeile.betrag(4);
+        kundennummer = zeile.ganzzahl(8);
+        name = zeile.text(9);
+        vorname = zeile.text(10);
+        strasse = zeile.text(11).replace("\uFFFD", "ß").trim();
+        plz = zeile.text(12);
+        ort = zeile.text(13);
+
+        zusatzFehler = null;
+        ueberziehungsbetrag = 0;
+        zins = 0;
+        try {
+            if (zeile.gleichIgnoreCase(5, "Girokonto")) {
+                kontoart = GIROKONTO;
+                ueberziehungsbetrag = zeile.betrag(7);
+            } else if (zeile.gleichIgnoreCase(5, "Sparkonto")) {
+                kontoart = SPARKONTO;
+                zins = zeile.prozent(6) / 100.0;
+            } else {
+                kontoart = UNBEKANNT;
+            }
+        } catch (NumberFormatException ex) {
+            zusatzFehler = ex;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,465 @@
+package com.geldautomat.util;
+
+import com.geldautomat.model.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Diese Klasse schreibt ein BankManagementSystem in eine CSV-Datei im Format, das der CSVImporter liest:
+ * 14 Spalten, Beträge und Zinssätze im deutschen Zahlenformat. Die Zeilen werden einzeln kodiert und
+ * über einen festen Puffer geschrieben, die Datei entsteht also nie vollständig im Speicher.
+ * Die Datei wird zuerst unter einem temporären Namen geschrieben und dann umbenannt.
+ *
+ * Mit exportieren schreibt ein CSVExporter beim ersten Aufruf die ganze Datei und merkt sich Konto,
+ * Kontostand und Dateiposition jeder Zeile. Spätere Aufrufe überschreiben nur die Kontostände der
+ * Konten, die sich seitdem geändert haben. Dazu wird der Kontostand in einer festen Breite geschrieben,
+ * mit führenden Leerzeichen, die der Import ignoriert. Die Beträge werden direkt in der Datei überschrieben,
+ * der Aufwand hängt also nur von der Anzahl der geänderten Konten ab, nicht von der Größe der Datei.
+ * Vorher werden alle neuen Beträge mit ihrer Position in eine Patchdatei (Name der Datei mit ".patch")
+ * geschrieben und gespeichert, erst danach wird die Datei geändert und die Patchdatei gelöscht. Bleibt nach
+ * einem Absturz eine vollständige Patchdatei zurück, wird sie mit wiederherstellen erneut angewendet, bevor
+ * die Datei wieder exportiert oder importiert wird. So hinterlässt ein Absturz nie einen halb geschriebenen
+ * Betrag. Kommen Banken oder Konten hinzu oder fallen weg,
+ * oder wurde die Datei seit dem letzten Export verändert (Größe oder Änderungszeit), wird sie wieder
+ * vollständig geschrieben. Änderungen an anderen Feldern als dem Kontostand,
+ * etwa einer PIN, werden nicht erkannt und erfordern vollstaendigExportieren.
+ * Laufen gleichzeitig Buchungen, enthält die Datei für jedes Konto einen Kontostand, der vor oder
+ * nach der Buchung gültig war.
+ */
+public class CSVExporter {
+    private static final String KOPFZEILE = "Bank;BLZ;Kontonummer;PIN;Kontostand;Kontoart;Zins %;Ueberziehungsbetrag;"
+            + "Kundennummer;Name;Vorname;Kunde Straße;Kunde PLZ;Kunde Ort";
+    /** Länge von "-92.233.720.368.547.758,08", dem längsten möglichen Betrag. */
+    private static final int BETRAGSBREITE = 26;
+    private static final int PUFFERGROESSE = 1 << 16;
+    static final int PATCH_KENNUNG = 0x47415031; // "GAP1"
+
+    private final BankManagementSystem managementSystem;
+    private final Path datei;
+    private final Charset zeichensatz;
+    private final StringBuilder zeile = new StringBuilder(256);
+
+    // Stand des letzten Exports je Zeile, null vor dem ersten Export mit exportieren
+    private Konto[] konten;
+    private long[] kontostaende;
+    private long[] positionen;
+    private long dateigroesse;
+    private FileTime dateizeit;
+
+    /**
+     * Konstruktor für einen CSVExporter.
+     *
+     * @param managementSystem Das Bankverwaltungssystem, das exportiert wird.
+     * @param filepath Der Dateipfad der CSV-Datei.
+     */
+    public CSVExporter(BankManagementSystem managementSystem, String filepath) {
+        this.managementSystem = managementSystem;
+        this.datei = Paths.get(filepath);
+        // Wie FileReader beim Import wird der Standardzeichensatz verwendet
+        this.zeichensatz = Charset.defaultCharset();
+    }
+
+    /**
+     * Schreibt ein BankManagementSystem vollständig in eine CSV-Datei.
+     *
+     * @param managementSystem Das Bankverwaltungssystem.
+     * @param filepath Der Dateipfad der CSV-Datei.
+     * @throws IOException Wenn die Datei nicht geschrieben werden kann oder ein Feld ein Semikolon enthält.
+     */
+    public static void saveToCSV(BankManagementSystem managementSystem, String filepath) throws IOException {
+        CSVExporter exporter = new CSVExporter(managementSystem, filepath);
+        exporter.schreiben(false, exporter.bestandKopieren());
+    }
+
+    /**
+     * Exportiert das Bankverwaltungssystem. Beim ersten Aufruf und nach Änderungen an Banken oder Konten
+     * wird die Datei vollständig geschrieben, sonst werden nur geänderte Kontostände überschrieben.
+     *
+     * @return Die Anzahl der geschriebenen Zeilen ohne Kopfzeile.
+     * @throws IOException Wenn die Datei nicht geschrieben werden kann oder ein Feld ein Semikolon enthält.
+     */
+    public int exportieren() throws IOException {
+        // Ein unterbrochenes Überschreiben ändert die Datei, sie wird dann unten vollständig geschrieben
+        wiederherstellen(datei);
+        Bestand bestand = bestandKopieren();
+        if (konten == null || !unveraendert()) {
+            return schreiben(true, bestand);
+        }
+        int[] geaendert = new int[16];
+        int anzahlGeaendert = 0;
+        int index = 0;
+        for (Konto[] kontenDerBank : bestand.konten) {
+            for (Konto konto : kontenDerBank) {
+                if (index == konten.length || konten[index] != konto) {
+                    return schreiben(true, bestand);
+                }
+                long kontostand = konto.getKontostandCent();
+                if (kontostand != kontostaende[index]) {
+                    if (anzahlGeaendert == geaendert.length) {
+                        geaendert = Arrays.copyOf(geaendert, anzahlGeaendert * 2);
+                    }
+                    geaendert[anzahlGeaendert++] = index;
+                    kontostaende[index] = kontostand;
+                }
+                index++;
+            }
+        }
+        if (index != konten.length) {
+            return schreiben(true, bestand);
+        }
+        if (anzahlGeaendert > 0) {
+            try {
+                ueberschreiben(geaendert, anzahlGeaendert);
+            } catch (IOException ex) {
+                // Die gemerkten Kontostände passen nicht mehr zur Datei, der nächste Export schreibt sie neu
+                konten = null;
+                throw ex;
+            }
+        }
+        return anzahlGeaendert;
+    }
+
+    /**
+     * Schließt ein durch einen Absturz unterbrochenes Überschreiben von Kontoständen ab. Liegt neben der
+     * Datei eine vollständige Patchdatei, werden ihre Beträge in die Datei geschrieben, sofern diese noch
+     * die Größe hat, für die der Patch angelegt wurde. Danach wird die Patchdatei gelöscht. Der CSVImporter
+     * ruft diese Methode vor jedem Import auf.
+     *
+     * @param filepath Der Dateipfad der CSV-Datei.
+     * @return true, wenn ein Patch angewendet wurde.
+     * @throws IOException Wenn die Dateien nicht gelesen oder geschrieben werden können.
+     */
+    public static boolean wiederherstellen(String filepath) throws IOException {
+        return wiederherstellen(Paths.get(filepath));
+    }
+
+    private static boolean wiederherstellen(Path datei) throws IOException {
+        Path patchDatei = patchDatei(datei);
+        if (!Files.exists(patchDatei)) {
+            return false;
+        }
+        ByteBuffer patch = ByteBuffer.wrap(Files.readAllBytes(patchDatei));
+        boolean angewendet = false;
+        if (patchGueltig(patch) && Files.isRegularFile(datei) && Files.size(datei) == patch.getLong(4)) {
+            patchAnwenden(datei, patch);
+            angewendet = true;
+        }
+        // Eine unvollständige Patchdatei wurde geschrieben, bevor die Datei geändert wurde
+        Files.delete(patchDatei);
+        return angewendet;
+    }
+
+    private static Path patchDatei(Path datei) {
+        return datei.resolveSibling(datei.getFileName() + ".patch");
+    }
+
+    /**
+     * Prüft Kennung, Länge und Prüfsumme eines Patches: Kennung, Dateigröße, Anzahl, je Betrag
+     * Position und Betrag in fester Breite, CRC32 über alles davor.
+     */
+    private static boolean patchGueltig(ByteBuffer patch) {
+        if (patch.limit() < 20 || patch.getInt(0) != PATCH_KENNUNG) {
+            return false;
+        }
+        int anzahl = patch.getInt(12);
+        if (anzahl < 0 || (long) anzahl * (8 + BETRAGSBREITE) + 20 != patch.limit()) {
+            return false;
+        }
+        CRC32 pruefsumme = new CRC32();
+        pruefsumme.update(patch.array(), 0, patch.limit() - 4);
+        return (int) pruefsumme.getValue() == patch.getInt(patch.limit() - 4);
+    }
+
+    /**
+     * Schreibt die Beträge eines gültigen Patches an ihre Positionen in der Datei und speichert sie.
+     */
+    private static void patchAnwenden(Path datei, ByteBuffer patch) throws IOException {
+        int anzahl = patch.getInt(12);
+        try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < anzahl; i++) {
+                int anfang = 16 + i * (8 + BETRAGSBREITE);
+                long position = patch.getLong(anfang);
+                ByteBuffer betrag = ByteBuffer.wrap(patch.array(), anfang + 8, BETRAGSBREITE);
+                while (betrag.hasRemaining()) {
+                    position += kanal.write(betrag, position);
+                }
+            }
+            kanal.force(true);
+        }
+    }
+
+    /**
+     * Prüft, ob die Datei noch so ist, wie sie der letzte Export hinterlassen hat.
+     */
+    private boolean unveraendert() throws IOException {
+        if (!Files.isRegularFile(datei)) {
+            return false;
+        }
+        BasicFileAttributes attribute = Files.readAttributes(datei, BasicFileAttributes.class);
+        return attribute.size() == dateigroesse && attribute.lastModifiedTime().equals(dateizeit);
+    }
+
+    private void dateiMerken() throws IOException {
+        BasicFileAttributes attribute = Files.readAttributes(datei, BasicFileAttributes.class);
+        dateigroesse = attribute.size();
+        dateizeit = attribute.lastModifiedTime();
+    }
+
+    /**
+     * Schreibt das Bankverwaltungssystem vollständig und merkt sich den Stand für spätere Aufrufe von exportieren.
+     *
+     * @return Die Anzahl der geschriebenen Zeilen ohne Kopfzeile.
+     * @throws IOException Wenn die Datei nicht geschrieben werden kann oder ein Feld ein Semikolon enthält.
+     */
+    public int vollstaendigExportieren() throws IOException {
+        return schreiben(true, bestandKopieren());
+    }
+
+    /**
+     * Die Banken und ihre Konten zu Beginn eines Exports.
+     */
+    private static final class Bestand {
+        private final List<Bank> banken = new ArrayList<>();
+        private final List<Konto[]> konten = new ArrayList<>();
+        private int anzahl;
+    }
+
+    /**
+     * Kopiert die Listen der Banken und Konten, damit ein gleichzeitiges Nachladen sie während des Exports
+     * nicht verändert und nicht auf das Schreiben der Datei warten muss.
+     */
+    private Bestand bestandKopieren() {
+        Bestand bestand = new Bestand();
+        managementSystem.lesen(() -> {
+            for (Bank bank : managementSystem.getBanks()) {
+                Konto[] kontenDerBank = bank.getKonten().toArray(new Konto[0]);
+                bestand.banken.add(bank);
+                bestand.konten.add(kontenDerBank);
+                bestand.anzahl += kontenDerBank.length;
+            }
+        });
+        return bestand;
+    }
+
+    /**
+     * Schreibt die ganze Datei.
+     *
+     * @param merken Ob Konto, Kontostand und Position jeder Zeile für exportieren gemerkt werden.
+     * @param bestand Die zu schreibenden Banken und Konten.
+     * @return Die Anzahl der Zeilen ohne Kopfzeile.
+     */
+    private int schreiben(boolean merken, Bestand bestand) throws IOException {
+        // Bis zum Umbenennen bleibt die bisherige Datei gültig, ein offener Patch muss daher vorher angewendet werden
+        wiederherstellen(datei);
+        // Nur wenn Ziffern, Punkt, Komma und Leerzeichen je ein Byte belegen, kann ein Betrag später überschrieben werden
+        merken = merken && (StandardCharsets.UTF_8.equals(zeichensatz) || zeichensatz.newEncoder().maxBytesPerChar() == 1);
+        int anzahl = bestand.anzahl;
+        Konto[] neueKonten = merken ? new Konto[anzahl] : null;
+        long[] neueKontostaende = merken ? new long[anzahl] : null;
+        long[] neuePositionen = merken ? new long[anzahl] : null;
+
+        Path temp = datei.resolveSibling(datei.getFileName() + ".tmp");
+        int index = 0;
+        try (FileChannel kanal = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Kodierer aus = new Kodierer(kanal);
+            zeile.setLength(0);
+            zeile.append(KOPFZEILE).append('\n');
+            aus.schreiben(zeile);
+            for (int b = 0; b < bestand.banken.size(); b++) {
+                Bank bank = bestand.banken.get(b);
+                for (Konto konto : bestand.konten.get(b)) {
+                    Kontoinhaber kontoinhaber = konto.getKontoinhaber();
+                    long kontostand = konto.getKontostandCent();
+
+                    zeile.setLength(0);
+                    text(bank.getName()).append(';');
+                    text(bank.getBlz()).append(';');
+                    zeile.append(konto.getKontonummer()).append(';');
+                    zeile.append(konto.getPin()).append(';');
+                    aus.schreiben(zeile);
+                    if (merken) {
+                        neueKonten[index] = konto;
+                        neueKontostaende[index] = kontostand;
+                        neuePositionen[index] = aus.getPosition();
+                    }
+
+                    zeile.setLength(0);
+                    betrag(kontostand, merken ? BETRAGSBREITE : 0).append(';');
+                    if (konto instanceof Girokonto) {
+                        zeile.append("Girokonto;;");
+                        betrag(((Girokonto) konto).getUeberziehungsbetragCent(), 0).append(';');
+                    } else {
+                        zeile.append("Sparkonto;");
+                        zins(((Sparkonto) konto).getZins()).append(";;");
+                    }
+                    zeile.append(kontoinhaber.getKundennummer()).append(';');
+                    text(kontoinhaber.getName()).append(';');
+                    text(kontoinhaber.getVorname()).append(';');
+                    text(kontoinhaber.getStrasse()).append(';');
+                    text(kontoinhaber.getPlz()).append(';');
+                    text(kontoinhaber.getOrt()).append('\n');
+                    aus.schreiben(zeile);
+                    index++;
+                }
+            }
+            aus.abschliessen();
+            kanal.force(true);
+        }
+        Files.move(temp, datei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        konten = neueKonten;
+        kontostaende = neueKontostaende;
+        positionen = neuePositionen;
+        if (merken) {
+            dateiMerken();
+        }
+        return anzahl;
+    }
+
+    /**
+     * Überschreibt die Kontostände der angegebenen Zeilen an ihrer gemerkten Position in der Datei.
+     * Die neuen Beträge werden zuerst in der Patchdatei gespeichert (siehe wiederherstellen).
+     */
+    private void ueberschreiben(int[] geaendert, int anzahl) throws IOException {
+        ByteBuffer patch = ByteBuffer.allocate(20 + anzahl * (8 + BETRAGSBREITE));
+        patch.putInt(PATCH_KENNUNG).putLong(dateigroesse).putInt(anzahl);
+        for (int i = 0; i < anzahl; i++) {
+            int index = geaendert[i];
+            zeile.setLength(0);
+            betrag(kontostaende[index], BETRAGSBREITE);
+            patch.putLong(positionen[index]);
+            for (int j = 0; j < BETRAGSBREITE; j++) {
+                patch.put((byte) zeile.charAt(j));
+            }
+        }
+        CRC32 pruefsumme = new CRC32();
+        pruefsumme.update(patch.array(), 0, patch.position());
+        patch.putInt((int) pruefsumme.getValue());
+        patch.flip();
+
+        Path patchDatei = patchDatei(datei);
+        try (FileChannel kanal = FileChannel.open(patchDatei, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (patch.hasRemaining()) {
+                kanal.write(patch);
+            }
+            kanal.force(true);
+        }
+        patchAnwenden(datei, patch);
+        Files.delete(patchDatei);
+        dateiMerken();
+    }
+
+    /**
+     * Hängt einen Text an die Zeile an. Da der Import keine Anführungszeichen kennt, darf der Text weder
+     * ein Semikolon noch einen Zeilenumbruch enthalten.
+     */
+    private StringBuilder text(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ';' || c == '\n' || c == '\r') {
+                throw new IOException("Ungültiges Zeichen im Feld '" + text + "'");
+            }
+        }
+        return zeile.append(text);
+    }
+
+    /**
+     * Hängt einen Betrag in Cent im deutschen Format an die Zeile an, z.B. "-1.234,56".
+     *
+     * @param breite Die Mindestbreite, auf die mit führenden Leerzeichen aufgefüllt wird.
+     */
+    private StringBuilder betrag(long cent, int breite) {
+        String ziffern = Long.toString(Math.abs(cent / 100));
+        int rest = (int) Math.abs(cent % 100);
+        int laenge = (cent < 0 ? 1 : 0) + ziffern.length() + (ziffern.length() - 1) / 3 + 3;
+        for (int i = laenge; i < breite; i++) {
+            zeile.append(' ');
+        }
+        if (cent < 0) {
+            zeile.append('-');
+        }
+        for (int i = 0; i < ziffern.length(); i++) {
+            if (i > 0 && (ziffern.length() - i) % 3 == 0) {
+                zeile.append('.');
+            }
+            zeile.append(ziffern.charAt(i));
+        }
+        return zeile.append(',').append((char) ('0' + rest / 10)).append((char) ('0' + rest % 10));
+    }
+
+    /**
+     * Hängt einen Zinssatz als Prozentangabe an die Zeile an. Der Import teilt die Prozentangabe durch 100,
+     * daher wird hier die kürzeste Dezimaldarstellung des Zinssatzes um zwei Stellen verschoben.
+     */
+    private StringBuilder zins(double zins) {
+        String prozent = new BigDecimal(Double.toString(zins)).movePointRight(2).stripTrailingZeros().toPlainString();
+        return zeile.append(prozent.replace('.', ',')).append('%');
+    }
+
+    /**
+     * Kodiert Zeichen in einen festen Puffer und schreibt ihn in den Kanal, sobald er voll ist.
+     */
+    private final class Kodierer {
+        private final FileChannel kanal;
+        private final CharsetEncoder encoder = zeichensatz.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer puffer = ByteBuffer.allocate(PUFFERGROESSE);
+        private long geschrieben;
+
+        private Kodierer(FileChannel kanal) {
+            this.kanal = kanal;
+        }
+
+        /**
+         * Gibt die Dateiposition hinter dem zuletzt kodierten Zeichen zurück.
+         */
+        long getPosition() {
+            return geschrieben + puffer.position();
+        }
+
+        void schreiben(CharSequence text) throws IOException {
+            CharBuffer zeichen = CharBuffer.wrap(text);
+            while (encoder.encode(zeichen, puffer, false).isOverflow()) {
+                leeren();
+            }
+        }
+
+        void abschliessen() throws IOException {
+            CharBuffer leer = CharBuffer.allocate(0);
+            while (encoder.encode(leer, puffer, true).isOverflow()) {
+                leeren();
+            }
+            while (encoder.flush(puffer).isOverflow()) {
+                leeren();
+            }
+            leeren();
+        }
+
+        private void leeren() throws IOException {
+            puffer.flip();
+            while (puffer.hasRemaining()) {
+                geschrieben += kanal.write(puffer);
+            }
+            puffer.clear();
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package com.geldautomat.util;
 
 import com.geldautomat.model.*;
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Diese Klasse ermöglicht das Laden von Daten aus einer CSV-Datei in ein BankManagementSystem.
+ * Die Konsistenzprüfungen laufen gegen eigene Hash-Strukturen je BLZ, sodass jede Zeile
+ * in konstanter Zeit geprüft wird und der Import linear in der Anzahl der Zeilen bleibt.
+ * Die Zeilen werden mit einem CSVTokenizer zerlegt, der Zahlen ohne Zwischen-Strings umwandelt.
+ * Große Dateien können mit loadFromCSVParallel auf mehreren Kernen geparst werden.
+ * Vor dem Lesen wird ein unterbrochener Export abgeschlossen (siehe CSVExporter.wiederherstellen).
+ * Die Dauer der Phasen Lesen, Parsen, Prüfen und Verknüpfen wird an Java Flight Recorder gemeldet
+ * (siehe ImportEreignis), sofern das Ereignis beim Start des Imports aufgezeichnet wird.
  */
 public class CSVImporter {
 
+    /**
+     * Zwischenstand des Imports für eine BLZ: die Bank sowie ihre bisher importierten Kunden und Konten.
+     */
+    private static class BankImport {
+        private final Bank bank;
+        private final IntHashMap<Kontoinhaber> kunden = new IntHashMap<>();
+        private final IntHashMap<Konto> konten = new IntHashMap<>();
+
+        private BankImport(Bank bank) {
+            this.bank = bank;
+        }
+    }
+
     /**
      * Lädt ein BankManagementSystem aus einer CSV-Datei.
      *
@@ -18,13 +39,17 @@ public class CSVImporter {
      * @throws IOException Wenn beim Lesen der Datei ein Fehler auftritt.
      */
     public static BankManagementSystem loadFromCSV(String filepath) throws IOException {
-        BankManagementSystem importiertesSystem = new BankManagementSystem();
+        CSVExporter.wiederherstellen(filepath);
+        ImportMessung messung = ImportMessung.starten(filepath);
+        ImportKontext kontext = new ImportKontext(messung);
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filepath))) {
-            String line;
+        try (FileReader reader = new FileReader(filepath)) {
+            CSVTokenizer zeile = new CSVTokenizer(reader);
+            CSVDatensatz datensatz = new CSVDatensatz();
             boolean isFirstLine = true;
             int lineNumber = 0;
-            while ((line = br.readLine()) != null) {
+            long start = messung == null ? 0 : System.nanoTime();
+            while (zeile.naechsteZeile()) {
                 lineNumber++;
                 // Überspringe die Kopfzeile
                 if (isFirstLine) {
@@ -32,96 +57,160 @@ public class CSVImporter {
                     continue;
                 }
                 try {
-                    String[] values = line.split(";");
-                    if (values.length < 14) {
-                        throw new IOException("Ungültiges Format in Zeile " + lineNumber);
+                    long gelesen = messung == null ? 0 : System.nanoTime();
+                    boolean gueltig = datensatz.lesen(zeile);
+                    if (messung != null) {
+                        long geparst = System.nanoTime();
+                        messung.erfassen(ImportMessung.LESEN, gelesen - start);
+                        messung.erfassen(ImportMessung.PARSEN, geparst - gelesen);
                     }
-                    // Parsen und Validierung der Werte
-                    String bankName = values[0];
-                    
-                    String blz = values[1];
-                    
-                    int kontonummer = Integer.parseInt(values[2]);
-
-                    int pin = Integer.parseInt(values[3]);
-
-                    double kontostand = Double.parseDouble(values[4].replaceAll("[€.�]", "").replace(",", ".").trim());
-                    
-                    String kontoart = values[5];
-                    
-                    String zinsString = values[6];
-                    
-                    String ueberziehungsbetragString = values[7];
-                    
-                    int kundennummer = Integer.parseInt(values[8]);
-                    
-                    String name = values[9];
-                    
-                    String vorname = values[10];
-                    
-                    String strasse = values[11].replace("�", "ß").trim();
-                    
-                    String plz = values[12];
-                    
-                    String ort = values[13];
-
-                    Bank bank = importiertesSystem.getBankByBLZ(blz);
-                    if (bank == null) {
-                        bank = new Bank(blz, bankName, importiertesSystem);
-                        importiertesSystem.banks.add(bank);
-                    }
-                    else {
-                    	if (!bank.getName().equals(bankName)) {
-                    		    throw new IOException("Inkonsistente Banknamen für BLZ '" + blz + "'\nIst: " + bankName +  ", soll: " + bank.getName() + " \n(Zeile:" + lineNumber + ")");
-                    		}
-					}
-
-                    Kontoinhaber kontoinhaber = bank.findKundenByKundennummer(kundennummer);
-                    if (kontoinhaber == null) {
-                        kontoinhaber = new Kontoinhaber(kundennummer, vorname, name, strasse, plz, ort);
-                    } else {
-                        if (!kontoinhaber.getName().equals(name) ||
-                            !kontoinhaber.getVorname().equals(vorname) ||
-                            !kontoinhaber.getStrasse().equals(strasse) ||
-                            !kontoinhaber.getPlz().equals(plz) ||
-                            !kontoinhaber.getOrt().equals(ort)) {
-
-                            throw new IOException("Inkonsistente Kundendaten für Kundennummer: " + kundennummer +
-                                "\nBank BLZ: " + bank.getBlz() +
-                                "\nName: Ist: '" + kontoinhaber.getName() + "', Soll: '" + name +
-                                "'\nVorname: Ist: '" + kontoinhaber.getVorname() + "', Soll: '" + vorname +
-                                "'\nStraße: Ist: '" + kontoinhaber.getStrasse() + "', Soll: '" + strasse +
-                                "'\nPLZ: Ist: '" + kontoinhaber.getPlz() + "', Soll: '" + plz +
-                                "'\nOrt: Ist: '" + kontoinhaber.getOrt() + "', Soll: '" + ort +
-                                "'\n(Zeile: " + lineNumber + ")");
-                        }
+                    if (!gueltig) {
+                        throw formatFehler(lineNumber);
                     }
+                    kontext.uebernehmen(datensatz, lineNumber);
+                } catch (NumberFormatException ex) {
+                    throw parseFehler(ex, lineNumber);
+                }
+                if (messung != null) {
+                    start = System.nanoTime();
+                }
+            }
+        } finally {
+            if (messung != null) {
+                messung.abschliessen();
+            }
+        }
+        return kontext.getImportiertesSystem();
+    }
 
-                    
-                    Konto konto = bank.getKontoByKontonummer(kontonummer);
-                    if (konto == null) {
-                        if ("Girokonto".equalsIgnoreCase(kontoart)) {
-                            double ueberziehungsbetrag = Double.parseDouble(ueberziehungsbetragString.replaceAll("[€.�]", "").replace(",", ".").trim());
-                            konto = new Girokonto(kontonummer, pin, kontostand, kontoinhaber, bank, ueberziehungsbetrag);
-                        } else if ("Sparkonto".equalsIgnoreCase(kontoart)) {
-                            double zins = Double.parseDouble(zinsString.replaceAll("[%.�]", "").replace(",", ".").trim()) / 100.0;
-                            konto = new Sparkonto(kontonummer, pin, kontostand, kontoinhaber, bank, zins);
-                        } else {
-                            throw new IOException("Unbekannte Kontoart in Zeile " + lineNumber);
-                        }
-                        kontoinhaber.addKonto(konto);
-                        bank.addKonto(konto);
-                    }
-                    else {
-                    	throw new IOException("Gedoppelte Kontonummer in Zeile " + lineNumber + " \n(BLZ, Kontonummer: " + bank.getBlz() +", " + kontonummer + ")");
-                    }
+    /**
+     * Lädt ein BankManagementSystem parallel aus einer CSV-Datei.
+     * Die Datei wird in den Speicher eingeblendet, in Abschnitte an Zeilengrenzen aufgeteilt und
+     * auf dem gemeinsamen Fork-Join-Pool geparst. Die Prüfung und Verknüpfung der Zeilen erfolgt
+     * anschließend in Dateireihenfolge, sodass Ergebnis und erste Fehlermeldung mit loadFromCSV übereinstimmen.
+     *
+     * @param filepath Der Dateipfad zur CSV-Datei.
+     * @return Das geladene BankManagementSystem.
+     * @throws IOException Wenn beim Lesen der Datei ein Fehler auftritt.
+     */
+    public static BankManagementSystem loadFromCSVParallel(String filepath) throws IOException {
+        CSVExporter.wiederherstellen(filepath);
+        return new ParallelerCSVImport(filepath).laden();
+    }
 
+    static IOException formatFehler(int lineNumber) {
+        return new IOException("Ungültiges Format in Zeile " + lineNumber);
+    }
 
-                } catch (NumberFormatException ex) {
-                    throw new IOException("Fehler beim Parsen der Daten in Zeile " + lineNumber + " \n(Err: " + ex.getMessage()+")");
+    static IOException parseFehler(NumberFormatException ex, int lineNumber) {
+        return new IOException("Fehler beim Parsen der Daten in Zeile " + lineNumber + " \n(Err: " + ex.getMessage()+")");
+    }
+
+    /**
+     * Prüft geparste Zeilen gegen den bisherigen Stand des Imports und verknüpft sie zu Banken, Kunden und Konten.
+     * Die Zeilen müssen in Dateireihenfolge übergeben werden.
+     */
+    static class ImportKontext {
+        private final BankManagementSystem importiertesSystem = new BankManagementSystem();
+        private final Map<String, BankImport> bankImporte = new HashMap<>();
+        private final ImportMessung messung;
+        private BankImport letzterBankImport;
+
+        /**
+         * Konstruktor für den ImportKontext.
+         *
+         * @param messung Die Messung, in der Prüfen und Verknüpfen je Zeile erfasst werden, oder null.
+         */
+        ImportKontext(ImportMessung messung) {
+            this.messung = messung;
+        }
+
+        BankManagementSystem getImportiertesSystem() {
+            return importiertesSystem;
+        }
+
+        /**
+         * Übernimmt eine Zeile in das importierte System.
+         *
+         * @param d Die geparste Zeile.
+         * @param lineNumber Die Zeilennummer für Fehlermeldungen.
+         * @throws IOException Wenn die Zeile dem bisherigen Stand widerspricht.
+         * @throws NumberFormatException Wenn Überziehungsbetrag oder Zinssatz nicht gelesen werden konnten.
+         */
+        void uebernehmen(CSVDatensatz d, int lineNumber) throws IOException {
+            String blz = d.blz;
+            String bankName = d.bankName;
+            int kundennummer = d.kundennummer;
+            int kontonummer = d.kontonummer;
+            long start = messung == null ? 0 : System.nanoTime();
+
+            // Aufeinanderfolgende Zeilen gehören meist zur selben Bank
+            BankImport bankImport = letzterBankImport;
+            if (bankImport == null || !bankImport.bank.getBlz().equals(blz)) {
+                bankImport = bankImporte.get(blz);
+            }
+            if (bankImport == null) {
+                bankImport = new BankImport(new Bank(blz, bankName, importiertesSystem));
+                bankImporte.put(blz, bankImport);
+                importiertesSystem.addBank(bankImport.bank);
+            }
+            else {
+            	if (!bankImport.bank.getName().equals(bankName)) {
+            		    throw new IOException("Inkonsistente Banknamen für BLZ '" + blz + "'\nIst: " + bankName +  ", soll: " + bankImport.bank.getName() + " \n(Zeile:" + lineNumber + ")");
+            		}
+			}
+            letzterBankImport = bankImport;
+            Bank bank = bankImport.bank;
+
+            Kontoinhaber kontoinhaber = bankImport.kunden.get(kundennummer);
+            if (kontoinhaber == null) {
+                kontoinhaber = new Kontoinhaber(kundennummer, d.vorname, d.name, d.strasse, d.plz, d.ort);
+            } else {
+                if (!kontoinhaber.getName().equals(d.name) ||
+                    !kontoinhaber.getVorname().equals(d.vorname) ||
+                    !kontoinhaber.getStrasse().equals(d.strasse) ||
+                    !kontoinhaber.getPlz().equals(d.plz) ||
+                    !kontoinhaber.getOrt().equals(d.ort)) {
+
+                    throw new IOException("Inkonsistente Kundendaten für Kundennummer: " + kundennummer +
+                        "\nBank BLZ: " + bank.getBlz() +
+                        "\nName: Ist: '" + kontoinhaber.getName() + "', Soll: '" + d.name +
+                        "'\nVorname: Ist: '" + kontoinhaber.getVorname() + "', Soll: '" + d.vorname +
+                        "'\nStraße: Ist: '" + kontoinhaber.getStrasse() + "', Soll: '" + d.strasse +
+                        "'\nPLZ: Ist: '" + kontoinhaber.getPlz() + "', Soll: '" + d.plz +
+                        "'\nOrt: Ist: '" + kontoinhaber.getOrt() + "', Soll: '" + d.ort +
+                        "'\n(Zeile: " + lineNumber + ")");
                 }
             }
+
+            
+            Konto konto = bankImport.konten.get(kontonummer);
+            if (konto == null) {
+                if (d.kontoart == CSVDatensatz.UNBEKANNT) {
+                    throw new IOException("Unbekannte Kontoart in Zeile " + lineNumber);
+                }
+                if (d.zusatzFehler != null) {
+                    throw d.zusatzFehler;
+                }
+                long geprueft = messung == null ? 0 : System.nanoTime();
+                if (d.kontoart == CSVDatensatz.GIROKONTO) {
+                    konto = new Girokonto(kontonummer, d.pin, d.kontostand, kontoinhaber, bank, d.ueberziehungsbetrag);
+                } else {
+                    konto = new Sparkonto(kontonummer, d.pin, d.kontostand, kontoinhaber, bank, d.zins);
+                }
+                kontoinhaber.addKonto(konto);
+                bank.addKonto(konto);
+                bankImport.kunden.putIfAbsent(kundennummer, kontoinhaber);
+                bankImport.konten.put(kontonummer, konto);
+                if (messung != null) {
+                    messung.erfassen(ImportMessung.PRUEFEN, geprueft - start);
+                    messung.erfassen(ImportMessung.VERKNUEPFEN, System.nanoTime() - geprueft);
+                    messung.zeile();
+                }
+            }
+            else {
+            	throw new IOException("Gedoppelte Kontonummer in Zeile " + lineNumber + " \n(BLZ, Kontonummer: " + bank.getBlz() +", " + kontonummer + ")");
+            }
         }
-        return importiertesSystem;
     }
 }
@@ -0,0 +1,387 @@
+package com.geldautomat.util;
+
+import com.geldautomat.model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diese Klasse lädt eine geänderte CSV-Datei in ein laufendes BankManagementSystem nach.
+ * Die Datei wird vollständig mit dem CSVImporter gelesen und geprüft, in das laufende System werden aber
+ * nur die Unterschiede übernommen: neue und entfernte Banken und Konten, geänderte PINs,
+ * Überziehungsbeträge, Zinssätze, Banknamen und Kundendaten. Enthält die Datei einen Fehler, wird nichts übernommen.
+ *
+ * Kontostände bestehender Konten werden nicht übernommen, da sie im laufenden System durch Buchungen
+ * fortgeschrieben werden. Neue Konten erhalten den Kontostand aus der Datei. Ändert sich die Kontoart
+ * eines Kontos, wird die Zeile übersprungen, da das Konto dafür durch ein neues Objekt ersetzt werden müsste.
+ *
+ * Werte bestehender Konten und Kunden werden ohne Sperre geändert. Neue und entfernte Konten werden
+ * gesammelt und in einem Schritt über BankManagementSystem.aendern übernommen, sodass die Suche nach
+ * Konten nur kurz wartet und laufende Buchungen nicht aufgehalten werden. Die Kontenlisten der Kunden werden
+ * dabei durch neue ersetzt (siehe Kontoinhaber), sodass die Oberfläche sie ohne Sperre lesen kann. Andere
+ * Threads durchlaufen die Konten der Banken über BankManagementSystem.lesen. Sitzungen, die ein entferntes
+ * Konto bereits geöffnet haben, buchen bis zur Abmeldung weiter auf dieses Konto.
+ */
+public class CSVNachlader implements Closeable {
+    private static final long RUHEZEIT_MILLIS = 500;
+
+    private final BankManagementSystem managementSystem;
+    private final Path datei;
+    private volatile WatchService dienst;
+
+    /**
+     * Die Anzahl der übernommenen Unterschiede eines Nachladens.
+     */
+    public static final class Aenderungen {
+        private int neu;
+        private int entfernt;
+        private int geaendert;
+        private int uebersprungen;
+
+        /**
+         * Gibt die Anzahl der neuen Konten zurück, einschließlich der Konten neuer Banken.
+         *
+         * @return Die Anzahl.
+         */
+        public int getNeu() {
+            return neu;
+        }
+
+        /**
+         * Gibt die Anzahl der entfernten Konten zurück, einschließlich der Konten entfernter Banken.
+         *
+         * @return Die Anzahl.
+         */
+        public int getEntfernt() {
+            return entfernt;
+        }
+
+        /**
+         * Gibt die Anzahl der Konten zurück, bei denen sich PIN, Überziehungsbetrag, Zinssatz oder Kunde geändert hat.
+         *
+         * @return Die Anzahl.
+         */
+        public int getGeaendert() {
+            return geaendert;
+        }
+
+        /**
+         * Gibt die Anzahl der Konten zurück, deren Kontoart sich geändert hat und die nicht übernommen wurden.
+         *
+         * @return Die Anzahl.
+         */
+        public int getUebersprungen() {
+            return uebersprungen;
+        }
+
+        @Override
+        public String toString() {
+            return neu + " neu, " + entfernt + " entfernt, " + geaendert + " geändert, " + uebersprungen + " übersprungen";
+        }
+    }
+
+    /**
+     * Konstruktor für einen CSVNachlader.
+     *
+     * @param managementSystem Das laufende Bankverwaltungssystem.
+     * @param filepath Der Dateipfad der CSV-Datei.
+     */
+    public CSVNachlader(BankManagementSystem managementSystem, String filepath) {
+        this.managementSystem = managementSystem;
+        this.datei = Paths.get(filepath).toAbsolutePath();
+    }
+
+    /**
+     * Beobachtet die Datei in einem eigenen Thread und lädt sie nach jeder Änderung nach.
+     * Nach einer Änderung wird gewartet, bis die Datei eine halbe Sekunde lang nicht mehr geändert wurde.
+     *
+     * @throws IOException Wenn das Verzeichnis der Datei nicht beobachtet werden kann.
+     */
+    public void starten() throws IOException {
+        WatchService neuerDienst = datei.getFileSystem().newWatchService();
+        datei.getParent().register(neuerDienst, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        dienst = neuerDienst;
+        Thread thread = new Thread(() -> beobachten(neuerDienst), "CSV-Nachlader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Beendet die Beobachtung der Datei.
+     *
+     * @throws IOException Wenn die Beobachtung nicht beendet werden kann.
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService alterDienst = dienst;
+        dienst = null;
+        if (alterDienst != null) {
+            alterDienst.close();
+        }
+    }
+
+    private void beobachten(WatchService beobachtung) {
+        try {
+            while (true) {
+                WatchKey key = beobachtung.take();
+                boolean betroffen = false;
+                for (WatchEvent<?> ereignis : key.pollEvents()) {
+                    betroffen |= datei.getFileName().equals(ereignis.context());
+                }
+                key.reset();
+                if (!betroffen) {
+                    continue;
+                }
+                // Eine Datei wird meist in mehreren Schritten geschrieben
+                while ((key = beobachtung.poll(RUHEZEIT_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                try {
+                    nachladen();
+                } catch (IOException ex) {
+                    System.err.println("CSV-Datei konnte nicht nachgeladen werden: " + ex.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Die Beobachtung wurde beendet
+        }
+    }
+
+    /**
+     * Die gesammelten strukturellen Änderungen an einer Bank des laufenden Systems.
+     */
+    private static final class BankAenderung {
+        private final Bank bank;
+        private final List<Konto> hinzu = new ArrayList<>();
+        private final List<Konto> weg = new ArrayList<>();
+        /** Konten, die zu einem anderen Kunden wechseln, und die jeweiligen neuen Kunden. */
+        private final List<Konto> umzuege = new ArrayList<>();
+        private final List<Kontoinhaber> neueInhaber = new ArrayList<>();
+        /** Kunden, die erst mit diesem Nachladen angelegt werden, nach Kundennummer. */
+        private final IntHashMap<Kontoinhaber> neueKunden = new IntHashMap<>();
+
+        private BankAenderung(Bank bank) {
+            this.bank = bank;
+        }
+
+        private boolean istLeer() {
+            return hinzu.isEmpty() && weg.isEmpty() && umzuege.isEmpty();
+        }
+    }
+
+    /**
+     * Liest die Datei und übernimmt die Unterschiede in das laufende System.
+     *
+     * @return Die übernommenen Unterschiede.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann oder fehlerhaft ist.
+     */
+    public synchronized Aenderungen nachladen() throws IOException {
+        return abgleichen(true);
+    }
+
+    /**
+     * Liest die Datei und übernimmt die Unterschiede wie nachladen, entfernt aber keine Banken und Konten.
+     * Beim Start wird so vor dem Einspielen des Journals nachgeladen: Das Journal kann Buchungen auf Konten
+     * enthalten, die im laufenden Betrieb nachgeladen wurden und im Snapshot fehlen, aber auch auf Konten,
+     * die erst danach aus der Datei entfernt wurden. Entfernt werden diese mit nachladen nach dem Einspielen.
+     *
+     * @return Die übernommenen Unterschiede, ohne entfernte Konten.
+     * @throws IOException Wenn die Datei nicht gelesen werden kann oder fehlerhaft ist.
+     */
+    public synchronized Aenderungen ergaenzen() throws IOException {
+        return abgleichen(false);
+    }
+
+    private Aenderungen abgleichen(boolean entfernen) throws IOException {
+        BankManagementSystem neu = CSVImporter.loadFromCSVParallel(datei.toString());
+        Aenderungen aenderungen = new Aenderungen();
+        List<Bank> neueBanken = new ArrayList<>();
+        List<Bank> entfernteBanken = new ArrayList<>();
+        List<BankAenderung> bankAenderungen = new ArrayList<>();
+
+        for (Bank neueBank : neu.getBanks()) {
+            Bank bank = managementSystem.getBankByBLZ(neueBank.getBlz());
+            if (bank == null) {
+                // Die neue Bank ist bis zum Hinzufügen nicht sichtbar und kann direkt gefüllt werden
+                Bank kopie = new Bank(neueBank.getBlz(), neueBank.getName(), managementSystem);
+                BankAenderung aenderung = new BankAenderung(kopie);
+                for (Konto quelle : neueBank.getKonten()) {
+                    Konto konto = kopieren(quelle, aenderung);
+                    konto.getKontoinhaber().addKonto(konto);
+                    kopie.addKonto(konto);
+                }
+                neueBanken.add(kopie);
+                aenderungen.neu += kopie.getKonten().size();
+                continue;
+            }
+            if (!bank.getName().equals(neueBank.getName())) {
+                bank.setName(neueBank.getName());
+            }
+            BankAenderung aenderung = new BankAenderung(bank);
+            for (Konto quelle : neueBank.getKonten()) {
+                Konto konto = bank.getKontoByKontonummer(quelle.getKontonummer());
+                if (konto == null) {
+                    aenderung.hinzu.add(kopieren(quelle, aenderung));
+                    aenderungen.neu++;
+                } else if ((konto instanceof Girokonto) != (quelle instanceof Girokonto)) {
+                    aenderungen.uebersprungen++;
+                } else if (uebernehmen(konto, quelle, aenderung)) {
+                    aenderungen.geaendert++;
+                }
+            }
+            if (entfernen) {
+                for (Konto konto : bank.getKonten()) {
+                    if (neueBank.getKontoByKontonummer(konto.getKontonummer()) == null) {
+                        aenderung.weg.add(konto);
+                        aenderungen.entfernt++;
+                    }
+                }
+            }
+            if (!aenderung.istLeer()) {
+                bankAenderungen.add(aenderung);
+            }
+        }
+        for (Bank bank : managementSystem.getBanks()) {
+            if (entfernen && neu.getBankByBLZ(bank.getBlz()) == null) {
+                entfernteBanken.add(bank);
+                aenderungen.entfernt += bank.getKonten().size();
+            }
+        }
+
+        if (!neueBanken.isEmpty() || !entfernteBanken.isEmpty() || !bankAenderungen.isEmpty()) {
+            managementSystem.aendern(() -> {
+                for (Bank bank : entfernteBanken) {
+                    managementSystem.removeBank(bank);
+                }
+                for (Bank bank : neueBanken) {
+                    managementSystem.addBank(bank);
+                }
+                for (BankAenderung aenderung : bankAenderungen) {
+                    strukturAendern(aenderung);
+                }
+            });
+        }
+        return aenderungen;
+    }
+
+    /**
+     * Entfernt und ergänzt die Konten einer Bank. Konten, die den Kunden wechseln, werden entfernt und
+     * mit dem neuen Kunden wieder hinzugefügt, damit die Indizes der Bank stimmen. Es bleibt dasselbe Objekt.
+     */
+    private static void strukturAendern(BankAenderung aenderung) {
+        List<Konto> entfernen = new ArrayList<>(aenderung.weg);
+        entfernen.addAll(aenderung.umzuege);
+        aenderung.bank.removeKonten(entfernen);
+        for (Konto konto : entfernen) {
+            konto.getKontoinhaber().removeKonto(konto);
+        }
+        for (int i = 0; i < aenderung.umzuege.size(); i++) {
+            aenderung.umzuege.get(i).setKontoinhaber(aenderung.neueInhaber.get(i));
+        }
+        List<Konto> hinzufuegen = new ArrayList<>(aenderung.umzuege);
+        hinzufuegen.addAll(aenderung.hinzu);
+        for (Konto konto : hinzufuegen) {
+            konto.getKontoinhaber().addKonto(konto);
+            aenderung.bank.addKonto(konto);
+        }
+    }
+
+    /**
+     * Übernimmt PIN, Überziehungsbetrag, Zinssatz und Kundendaten eines Kontos aus der Datei.
+     * Gehört das Konto nun einem anderen Kunden, wird der Wechsel für strukturAendern vorgemerkt.
+     *
+     * @return true, wenn sich etwas geändert hat.
+     */
+    private static boolean uebernehmen(Konto konto, Konto quelle, BankAenderung aenderung) {
+        boolean geaendert = false;
+        if (konto.getPin() != quelle.getPin()) {
+            konto.setPin(quelle.getPin());
+            geaendert = true;
+        }
+        if (konto instanceof Girokonto) {
+            long ueberziehungsbetrag = ((Girokonto) quelle).getUeberziehungsbetragCent();
+            if (((Girokonto) konto).getUeberziehungsbetragCent() != ueberziehungsbetrag) {
+                ((Girokonto) konto).setUeberziehungsbetragCent(ueberziehungsbetrag);
+                geaendert = true;
+            }
+        } else {
+            double zins = ((Sparkonto) quelle).getZins();
+            if (((Sparkonto) konto).getZins() != zins) {
+                ((Sparkonto) konto).setZins(zins);
+                geaendert = true;
+            }
+        }
+        if (konto.getKontoinhaber().getKundennummer() != quelle.getKontoinhaber().getKundennummer()) {
+            aenderung.umzuege.add(konto);
+            aenderung.neueInhaber.add(inhaberFinden(quelle.getKontoinhaber(), aenderung));
+            return true;
+        }
+        return kundendatenUebernehmen(konto.getKontoinhaber(), quelle.getKontoinhaber()) || geaendert;
+    }
+
+    /**
+     * Übernimmt Name und Adresse eines Kunden.
+     *
+     * @return true, wenn sich etwas geändert hat.
+     */
+    private static boolean kundendatenUebernehmen(Kontoinhaber inhaber, Kontoinhaber quelle) {
+        if (Objects.equals(inhaber.getName(), quelle.getName())
+                && Objects.equals(inhaber.getVorname(), quelle.getVorname())
+                && Objects.equals(inhaber.getStrasse(), quelle.getStrasse())
+                && Objects.equals(inhaber.getPlz(), quelle.getPlz())
+                && Objects.equals(inhaber.getOrt(), quelle.getOrt())) {
+            return false;
+        }
+        inhaber.setName(quelle.getName());
+        inhaber.setVorname(quelle.getVorname());
+        inhaber.setStrasse(quelle.getStrasse());
+        inhaber.setPlz(quelle.getPlz());
+        inhaber.setOrt(quelle.getOrt());
+        return true;
+    }
+
+    /**
+     * Gibt den Kunden der Bank mit der Kundennummer aus der Datei zurück und übernimmt seine Daten.
+     * Gibt es ihn noch nicht, wird er angelegt.
+     */
+    private static Kontoinhaber inhaberFinden(Kontoinhaber quelle, BankAenderung aenderung) {
+        int kundennummer = quelle.getKundennummer();
+        Kontoinhaber inhaber = aenderung.bank.findKundenByKundennummer(kundennummer);
+        if (inhaber == null) {
+            inhaber = aenderung.neueKunden.get(kundennummer);
+        }
+        if (inhaber == null) {
+            inhaber = new Kontoinhaber(kundennummer, quelle.getVorname(), quelle.getName(),
+                    quelle.getStrasse(), quelle.getPlz(), quelle.getOrt());
+            aenderung.neueKunden.put(kundennummer, inhaber);
+            return inhaber;
+        }
+        kundendatenUebernehmen(inhaber, quelle);
+        return inhaber;
+    }
+
+    /**
+     * Legt ein Konto aus der Datei für eine Bank des laufenden Systems an.
+     */
+    private static Konto kopieren(Konto quelle, BankAenderung aenderung) {
+        Kontoinhaber inhaber = inhaberFinden(quelle.getKontoinhaber(), aenderung);
+        if (quelle instanceof Girokonto) {
+            return new Girokonto(quelle.getKontonummer(), quelle.getPin(), quelle.getKontostandCent(), inhaber,
+                    aenderung.bank, ((Girokonto) quelle).getUeberziehungsbetragCent());
+        }
+        return new Sparkonto(quelle.getKontonummer(), quelle.getPin(), quelle.getKontostandCent(), inhaber,
+                aenderung.bank, ((Sparkonto) quelle).getZins());
+    }
+}
@@ -0,0 +1,379 @@
+package com.geldautomat.util;
+
+import com.geldautomat.model.Geldbetrag;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Diese Klasse zerlegt CSV-Zeilen mit Semikolon als Trennzeichen.
+ * Die Zeichen werden in einen einzigen wiederverwendeten Puffer gelesen, und die Felder einer Zeile
+ * werden nur als Anfangs- und Endposition in diesem Puffer festgehalten.
+ * Zahlen im deutschen Format ("1.234,56 €", "2,5 %") werden direkt aus dem Puffer in primitive Werte
+ * umgewandelt, Geldbeträge in Cent, ohne Zwischen-Strings anzulegen.
+ *
+ * Zeilenenden und Feldanzahl verhalten sich wie BufferedReader.readLine() und String.split(";"):
+ * leere Felder am Zeilenende werden nicht mitgezählt.
+ */
+public class CSVTokenizer {
+    private static final char ERSATZZEICHEN = '\uFFFD';
+    private static final long MAX_EXAKTE_MANTISSE = 1L << 53;
+    private static final double[] ZEHNERPOTENZEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long[] ZEHNERPOTENZEN_LONG = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+        10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+        1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+
+    private final Reader reader;
+    private char[] puffer;
+    private int pufferEnde;
+    private int position;
+    private boolean dateiende;
+    private boolean zeilenvorschubUeberspringen;
+
+    private int[] feldAnfang = new int[16];
+    private int[] feldEnde = new int[16];
+    private int anzahlFelder;
+    private String[] letzteTexte = new String[16];
+
+    private long scanMantisse;
+    private int scanNachkommastellen;
+    private boolean scanNegativ;
+
+    /**
+     * Konstruktor für einen CSVTokenizer, der Zeilen aus einem Reader liest.
+     *
+     * @param reader Der Reader, aus dem gelesen wird. Er wird nicht zusätzlich gepuffert.
+     */
+    public CSVTokenizer(Reader reader) {
+        this.reader = reader;
+        this.puffer = new char[64 * 1024];
+    }
+
+    /**
+     * Konstruktor für einen CSVTokenizer, der Zeilen aus bereits eingelesenen Zeichen zerlegt.
+     * Der Puffer wird nicht kopiert.
+     *
+     * @param zeichen Die Zeichen.
+     * @param laenge Die Anzahl der gültigen Zeichen am Anfang des Arrays.
+     */
+    public CSVTokenizer(char[] zeichen, int laenge) {
+        this.reader = null;
+        this.puffer = zeichen;
+        this.pufferEnde = laenge;
+        this.dateiende = true;
+    }
+
+    /**
+     * Liest die nächste Zeile und zerlegt sie in Felder.
+     *
+     * @return true, wenn eine Zeile gelesen wurde, false am Ende der Eingabe.
+     * @throws IOException Wenn beim Lesen ein Fehler auftritt.
+     */
+    public boolean naechsteZeile() throws IOException {
+        if (zeilenvorschubUeberspringen) {
+            // Die letzte Zeile endete mit \r, ein direkt folgendes \n gehört noch dazu
+            zeilenvorschubUeberspringen = false;
+            if (position == pufferEnde && !dateiende) {
+                nachlesen(position);
+            }
+            if (position < pufferEnde && puffer[position] == '\n') {
+                position++;
+            }
+        }
+        int zeilenAnfang = position;
+        int i = position;
+        while (true) {
+            while (i < pufferEnde) {
+                char c = puffer[i];
+                if (c == '\n' || c == '\r') {
+                    zerlegen(zeilenAnfang, i);
+                    position = i + 1;
+                    zeilenvorschubUeberspringen = c == '\r';
+                    return true;
+                }
+                i++;
+            }
+            if (dateiende) {
+                if (zeilenAnfang == pufferEnde) {
+                    return false;
+                }
+                zerlegen(zeilenAnfang, pufferEnde);
+                position = pufferEnde;
+                return true;
+            }
+            int verschoben = nachlesen(zeilenAnfang);
+            zeilenAnfang -= verschoben;
+            i -= verschoben;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Felder der aktuellen Zeile zurück.
+     *
+     * @return Die Anzahl der Felder ohne leere Felder am Zeilenende, mindestens aber 1 für eine leere Zeile.
+     */
+    public int getAnzahlFelder() {
+        return anzahlFelder;
+    }
+
+    /**
+     * Gibt ein Feld als Text zurück.
+     * Hat das Feld denselben Inhalt wie beim letzten Aufruf für diese Spalte, wird derselbe String
+     * zurückgegeben, sodass sich wiederholende Werte wie Bankname oder BLZ nicht neu angelegt werden.
+     *
+     * @param feld Der Index des Feldes.
+     * @return Der Inhalt des Feldes.
+     */
+    public String text(int feld) {
+        int anfang = feldAnfang[feld];
+        int laenge = feldEnde[feld] - anfang;
+        if (feld >= letzteTexte.length) {
+            letzteTexte = Arrays.copyOf(letzteTexte, feldAnfang.length);
+        }
+        String letzter = letzteTexte[feld];
+        if (letzter != null && letzter.length() == laenge) {
+            int j = 0;
+            while (j < laenge && letzter.charAt(j) == puffer[anfang + j]) {
+                j++;
+            }
+            if (j == laenge) {
+                return letzter;
+            }
+        }
+        String text = new String(puffer, anfang, laenge);
+        letzteTexte[feld] = text;
+        return text;
+    }
+
+    /**
+     * Überprüft, ob ein Feld ohne Beachtung der Groß- und Kleinschreibung mit einem Text übereinstimmt.
+     *
+     * @param feld Der Index des Feldes.
+     * @param vergleich Der Vergleichstext.
+     * @return true, wenn das Feld mit dem Text übereinstimmt, sonst false.
+     */
+    public boolean gleichIgnoreCase(int feld, String vergleich) {
+        int anfang = feldAnfang[feld];
+        int laenge = feldEnde[feld] - anfang;
+        if (laenge != vergleich.length()) {
+            return false;
+        }
+        for (int j = 0; j < laenge; j++) {
+            char a = puffer[anfang + j];
+            char b = vergleich.charAt(j);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wandelt ein Feld in eine ganze Zahl um, wie Integer.parseInt.
+     *
+     * @param feld Der Index des Feldes.
+     * @return Die Zahl.
+     * @throws NumberFormatException Wenn das Feld keine gültige ganze Zahl enthält.
+     */
+    public int ganzzahl(int feld) {
+        int i = feldAnfang[feld];
+        int ende = feldEnde[feld];
+        boolean negativ = false;
+        if (i < ende && (puffer[i] == '-' || puffer[i] == '+')) {
+            negativ = puffer[i] == '-';
+            i++;
+        }
+        if (i == ende || ende - i > 9) {
+            // Leere und lange Felder prüft Integer.parseInt, auch wegen des Überlaufs
+            return Integer.parseInt(text(feld));
+        }
+        int wert = 0;
+        for (; i < ende; i++) {
+            int ziffer = puffer[i] - '0';
+            if (ziffer < 0 || ziffer > 9) {
+                return Integer.parseInt(text(feld));
+            }
+            wert = wert * 10 + ziffer;
+        }
+        return negativ ? -wert : wert;
+    }
+
+    /**
+     * Wandelt ein Feld mit einem Geldbetrag im deutschen Format in Cent um, z.B. "1.234,56 €".
+     * Tausenderpunkte, das Eurozeichen und das Ersatzzeichen für nicht lesbare Zeichen werden ignoriert.
+     * Mehr als zwei Nachkommastellen werden kaufmännisch auf ganze Cent gerundet.
+     *
+     * @param feld Der Index des Feldes.
+     * @return Der Betrag in Cent.
+     * @throws NumberFormatException Wenn das Feld keinen gültigen Betrag enthält.
+     */
+    public long betrag(int feld) {
+        if (scannen(feld, '€')) {
+            long cent;
+            if (scanNachkommastellen <= 2) {
+                cent = scanMantisse * ZEHNERPOTENZEN_LONG[2 - scanNachkommastellen];
+            } else if (scanNachkommastellen - 2 < ZEHNERPOTENZEN_LONG.length) {
+                long teiler = ZEHNERPOTENZEN_LONG[scanNachkommastellen - 2];
+                cent = scanMantisse / teiler;
+                if ((scanMantisse % teiler) * 2 >= teiler) {
+                    cent++;
+                }
+            } else {
+                return betragLangsam(feld);
+            }
+            return scanNegativ ? -cent : cent;
+        }
+        return betragLangsam(feld);
+    }
+
+    /**
+     * Wandelt ein Feld mit einer Prozentangabe im deutschen Format in eine Zahl um, z.B. "2,5 %".
+     * Das Prozentzeichen wird ignoriert, es wird also 2.5 und nicht 0.025 zurückgegeben.
+     *
+     * @param feld Der Index des Feldes.
+     * @return Der Prozentwert.
+     * @throws NumberFormatException Wenn das Feld keine gültige Prozentangabe enthält.
+     */
+    public double prozent(int feld) {
+        if (scannen(feld, '%') && scanNachkommastellen < ZEHNERPOTENZEN.length) {
+            // Mantisse und Zehnerpotenz sind exakt darstellbar, daher ist der Quotient korrekt gerundet
+            double wert = scanMantisse / ZEHNERPOTENZEN[scanNachkommastellen];
+            return scanNegativ ? -wert : wert;
+        }
+        return dezimalzahlLangsam(feld, '%');
+    }
+
+    /**
+     * Liest eine Dezimalzahl mit Komma als Dezimaltrennzeichen nach scanMantisse, scanNachkommastellen und scanNegativ.
+     *
+     * @return false, wenn das Feld nicht dem einfachen Format entspricht und langsam umgewandelt werden muss.
+     */
+    private boolean scannen(int feld, char einheit) {
+        int anfang = feldAnfang[feld];
+        int ende = feldEnde[feld];
+        long mantisse = 0;
+        int nachkommastellen = 0;
+        int ziffern = 0;
+        boolean negativ = false;
+        boolean komma = false;
+        boolean vorzeichenErlaubt = true;
+        boolean zahlBeendet = false;
+        for (int i = anfang; i < ende; i++) {
+            char c = puffer[i];
+            if (c == '.' || c == einheit || c == ERSATZZEICHEN) {
+                continue;
+            }
+            if (c <= ' ') {
+                // Leerraum ist nur vor oder nach der Zahl erlaubt
+                if (ziffern > 0 || komma || !vorzeichenErlaubt) {
+                    zahlBeendet = true;
+                }
+                continue;
+            }
+            if (zahlBeendet) {
+                return false;
+            }
+            if (c >= '0' && c <= '9') {
+                if (mantisse >= MAX_EXAKTE_MANTISSE / 10) {
+                    return false;
+                }
+                mantisse = mantisse * 10 + (c - '0');
+                ziffern++;
+                if (komma) {
+                    nachkommastellen++;
+                }
+                vorzeichenErlaubt = false;
+            } else if (c == ',' && !komma) {
+                komma = true;
+                vorzeichenErlaubt = false;
+            } else if ((c == '-' || c == '+') && vorzeichenErlaubt) {
+                negativ = c == '-';
+                vorzeichenErlaubt = false;
+            } else {
+                return false;
+            }
+        }
+        scanMantisse = mantisse;
+        scanNachkommastellen = nachkommastellen;
+        scanNegativ = negativ;
+        return ziffern > 0;
+    }
+
+    private long betragLangsam(int feld) {
+        double euro = dezimalzahlLangsam(feld, '€');
+        try {
+            return Geldbetrag.ausEuro(euro);
+        } catch (ArithmeticException ex) {
+            throw new NumberFormatException("Betrag zu groß: \"" + text(feld) + "\"");
+        }
+    }
+
+    /**
+     * Wandelt ein Feld über Double.parseDouble um.
+     * Wird nur für Felder verwendet, die der schnelle Weg nicht abdeckt, und liefert dieselben
+     * Ergebnisse und Fehlermeldungen wie die bisherige Umwandlung über Strings.
+     */
+    private double dezimalzahlLangsam(int feld, char einheit) {
+        String text = new String(puffer, feldAnfang[feld], feldEnde[feld] - feldAnfang[feld]);
+        StringBuilder bereinigt = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '.' && c != einheit && c != ERSATZZEICHEN) {
+                bereinigt.append(c == ',' ? '.' : c);
+            }
+        }
+        return Double.parseDouble(bereinigt.toString().trim());
+    }
+
+    private void zerlegen(int anfang, int ende) {
+        int feld = 0;
+        int feldStart = anfang;
+        int letztesNichtLeeres = -1;
+        for (int i = anfang; i <= ende; i++) {
+            if (i == ende || puffer[i] == ';') {
+                if (feld == feldAnfang.length) {
+                    feldAnfang = Arrays.copyOf(feldAnfang, feld * 2);
+                    feldEnde = Arrays.copyOf(feldEnde, feld * 2);
+                }
+                feldAnfang[feld] = feldStart;
+                feldEnde[feld] = i;
+                if (i > feldStart) {
+                    letztesNichtLeeres = feld;
+                }
+                feld++;
+                feldStart = i + 1;
+            }
+        }
+        anzahlFelder = anfang == ende ? 1 : letztesNichtLeeres + 1;
+    }
+
+    /**
+     * Verschiebt den ungelesenen Rest ab einer Position an den Pufferanfang und liest weitere Zeichen nach.
+     *
+     * @return Die Anzahl der Stellen, um die der Pufferinhalt nach vorne verschoben wurde.
+     */
+    private int nachlesen(int behalten) throws IOException {
+        int rest = pufferEnde - behalten;
+        if (behalten > 0) {
+            System.arraycopy(puffer, behalten, puffer, 0, rest);
+        } else if (rest == puffer.length) {
+            puffer = Arrays.copyOf(puffer, puffer.length * 2);
+        }
+        pufferEnde = rest;
+        position -= behalten;
+        int gelesen = reader.read(puffer, pufferEnde, puffer.length - pufferEnde);
+        if (gelesen < 0) {
+            dateiende = true;
+        } else {
+            pufferEnde += gelesen;
+        }
+        return behalten;
+    }
+}
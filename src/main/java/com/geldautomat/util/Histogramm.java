@@ -0,0 +1,113 @@
+package com.geldautomat.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diese Klasse zählt nicht negative Messwerte, etwa Latenzen in Nanosekunden, in Klassen fester Anzahl.
+ * Werte unter 64 haben je eine eigene Klasse, darüber wird jede Zweierpotenz in 32 Klassen geteilt.
+ * Perzentile sind damit auf etwa 3 % genau, unabhängig von der Größe der Werte, und das Erfassen
+ * kostet nur eine atomare Addition. Mehrere Threads können gleichzeitig erfassen.
+ */
+public class Histogramm {
+    private static final int UNTERTEILUNG = 5;
+    private static final int DIREKT = 2 << UNTERTEILUNG;
+    private static final int KLASSEN = (64 - UNTERTEILUNG) << UNTERTEILUNG;
+
+    private final AtomicLongArray anzahlen = new AtomicLongArray(KLASSEN);
+    private final LongAdder anzahl = new LongAdder();
+    private final LongAdder summe = new LongAdder();
+    private final LongAccumulator maximum = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Erfasst einen Messwert. Negative Werte werden als 0 gezählt.
+     *
+     * @param wert Der Messwert.
+     */
+    public void erfassen(long wert) {
+        if (wert < 0) {
+            wert = 0;
+        }
+        anzahlen.incrementAndGet(klasse(wert));
+        anzahl.increment();
+        summe.add(wert);
+        maximum.accumulate(wert);
+    }
+
+    public long getAnzahl() {
+        return anzahl.sum();
+    }
+
+    public long getMaximum() {
+        return maximum.get();
+    }
+
+    /**
+     * Gibt den Mittelwert der erfassten Werte zurück.
+     *
+     * @return Der Mittelwert oder 0, wenn noch nichts erfasst wurde.
+     */
+    public double getMittelwert() {
+        long n = anzahl.sum();
+        return n == 0 ? 0 : (double) summe.sum() / n;
+    }
+
+    /**
+     * Gibt einen Wert zurück, den der angegebene Anteil der erfassten Werte nicht überschreitet.
+     * Geliefert wird die Obergrenze der Klasse, höchstens aber das Maximum.
+     *
+     * @param anteil Der Anteil zwischen 0 und 1, etwa 0.99 für das 99. Perzentil.
+     * @return Der Wert oder 0, wenn noch nichts erfasst wurde.
+     */
+    public long perzentil(double anteil) {
+        long gesamt = 0;
+        long[] kopie = new long[KLASSEN];
+        for (int i = 0; i < KLASSEN; i++) {
+            kopie[i] = anzahlen.get(i);
+            gesamt += kopie[i];
+        }
+        if (gesamt == 0) {
+            return 0;
+        }
+        long rang = Math.max(1, (long) Math.ceil(anteil * gesamt));
+        long gezaehlt = 0;
+        for (int i = 0; i < KLASSEN; i++) {
+            gezaehlt += kopie[i];
+            if (gezaehlt >= rang) {
+                return Math.min(obergrenze(i), getMaximum());
+            }
+        }
+        return getMaximum();
+    }
+
+    /**
+     * Setzt das Histogramm zurück. Werte, die gleichzeitig erfasst werden, können dabei teilweise erhalten bleiben.
+     */
+    public void zuruecksetzen() {
+        for (int i = 0; i < KLASSEN; i++) {
+            anzahlen.set(i, 0);
+        }
+        anzahl.reset();
+        summe.reset();
+        maximum.reset();
+    }
+
+    static int klasse(long wert) {
+        if (wert < DIREKT) {
+            return (int) wert;
+        }
+        int verschiebung = 63 - Long.numberOfLeadingZeros(wert) - UNTERTEILUNG;
+        return (verschiebung << UNTERTEILUNG) + (int) (wert >>> verschiebung);
+    }
+
+    static long obergrenze(int klasse) {
+        if (klasse < DIREKT) {
+            return klasse;
+        }
+        int verschiebung = (klasse >>> UNTERTEILUNG) - 1;
+        long mantisse = klasse - ((long) verschiebung << UNTERTEILUNG);
+        long grenze = ((mantisse + 1) << verschiebung) - 1;
+        return grenze < 0 ? Long.MAX_VALUE : grenze;
+    }
+}
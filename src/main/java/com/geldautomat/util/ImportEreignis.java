@@ -0,0 +1,73 @@
+package com.geldautomat.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Dieses Ereignis meldet eine Phase des CSV-Imports für einen Abschnitt der Datei an Java Flight Recorder.
+ * Die Phasen sind Lesen, Parsen, Prüfen und Verknüpfen. Laufen mehrere Phasen zeilenweise abwechselnd,
+ * umfasst das Ereignis den ganzen Abschnitt und das Feld dauer die Zeit, die auf die Phase entfiel.
+ */
+@Name("com.geldautomat.Import")
+@Label("CSV-Import")
+@Category({"Geldautomat", "Import"})
+@Description("Eine Phase des CSV-Imports für einen Abschnitt der Datei")
+@StackTrace(false)
+final class ImportEreignis extends Event {
+    private static final EventType TYP = EventType.getEventType(ImportEreignis.class);
+
+    @Label("Datei")
+    String datei;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Zeilen")
+    int zeilen;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Dauer der Phase")
+    @Timespan(Timespan.NANOSECONDS)
+    long dauer;
+
+    /**
+     * Gibt zurück, ob das Ereignis in einer laufenden Aufzeichnung aktiviert ist.
+     * Der Import prüft dies einmal zu Beginn und misst sonst gar nicht.
+     *
+     * @return true, wenn das Ereignis aktiviert ist.
+     */
+    static boolean aktiv() {
+        return TYP.isEnabled();
+    }
+
+    /**
+     * Beendet das Ereignis und schreibt es, sofern es aktiviert ist.
+     *
+     * @param datei Die importierte Datei.
+     * @param phase Die Phase.
+     * @param zeilen Die Anzahl der Zeilen im Abschnitt.
+     * @param bytes Die Größe des Abschnitts in Bytes oder 0, wenn sie nicht bekannt ist.
+     * @param dauer Die Dauer der Phase in Nanosekunden.
+     */
+    void abschliessen(String datei, String phase, int zeilen, long bytes, long dauer) {
+        end();
+        if (shouldCommit()) {
+            this.datei = datei;
+            this.phase = phase;
+            this.zeilen = zeilen;
+            this.bytes = bytes;
+            this.dauer = dauer;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.geldautomat.util;
+
+/**
+ * Diese Klasse summiert beim Import die Zeit je Phase über einen Block von höchstens 65536 Zeilen
+ * und meldet jeden Block als ImportEreignis. Phasen ohne gemessene Zeit werden nicht gemeldet.
+ * Eine Messung wird nur angelegt, wenn das Ereignis beim Start des Imports aktiviert ist
+ * (siehe starten); sonst arbeitet der Import ohne Zeitmessung.
+ */
+final class ImportMessung {
+    static final int LESEN = 0;
+    static final int PARSEN = 1;
+    static final int PRUEFEN = 2;
+    static final int VERKNUEPFEN = 3;
+    static final String[] PHASEN = {"Lesen", "Parsen", "Prüfen", "Verknüpfen"};
+    private static final int BLOCK = 1 << 16;
+
+    private final String datei;
+    private final ImportEreignis[] ereignisse = new ImportEreignis[PHASEN.length];
+    private final long[] nanos = new long[PHASEN.length];
+    private int zeilen;
+
+    private ImportMessung(String datei) {
+        this.datei = datei;
+        beginnen();
+    }
+
+    /**
+     * Beginnt eine Messung.
+     *
+     * @param datei Die importierte Datei.
+     * @return Die Messung oder null, wenn das Ereignis nicht aktiviert ist.
+     */
+    static ImportMessung starten(String datei) {
+        return ImportEreignis.aktiv() ? new ImportMessung(datei) : null;
+    }
+
+    void erfassen(int phase, long dauer) {
+        nanos[phase] += dauer;
+    }
+
+    /**
+     * Zählt eine übernommene Zeile. Ist der Block voll, wird er gemeldet.
+     */
+    void zeile() {
+        if (++zeilen == BLOCK) {
+            abschliessen();
+        }
+    }
+
+    /**
+     * Meldet den aktuellen Block und beginnt den nächsten.
+     */
+    void abschliessen() {
+        for (int i = 0; i < PHASEN.length; i++) {
+            if (nanos[i] > 0) {
+                ereignisse[i].abschliessen(datei, PHASEN[i], zeilen, 0, nanos[i]);
+            }
+        }
+        beginnen();
+    }
+
+    private void beginnen() {
+        for (int i = 0; i < PHASEN.length; i++) {
+            ereignisse[i] = new ImportEreignis();
+            ereignisse[i].begin();
+            nanos[i] = 0;
+        }
+        zeilen = 0;
+    }
+}
@@ -0,0 +1,229 @@
+package com.geldautomat.util;
+
+import java.util.Arrays;
+
+/**
+ * Diese Klasse ist eine Hash-Tabelle mit primitiven long-Schlüsseln.
+ * Sie verwendet offene Adressierung mit linearem Sondieren und speichert Schlüssel und Werte
+ * in zwei parallelen Arrays, sodass beim Suchen weder Schlüssel geboxt noch Einträge angelegt werden.
+ *
+ * @param <V> Der Typ der gespeicherten Werte. null ist als Wert nicht erlaubt.
+ */
+public class LongHashMap<V> {
+    private static final int MIN_KAPAZITAET = 16;
+
+    private long[] schluessel;
+    private Object[] werte;
+    private int anzahl;
+    private int maske;
+
+    /**
+     * Konstruktor für eine leere LongHashMap.
+     */
+    public LongHashMap() {
+        this(MIN_KAPAZITAET);
+    }
+
+    /**
+     * Konstruktor für eine leere LongHashMap mit einer erwarteten Anzahl von Einträgen.
+     *
+     * @param erwarteteAnzahl Die Anzahl der Einträge, für die ohne Vergrößerung Platz sein soll.
+     */
+    public LongHashMap(int erwarteteAnzahl) {
+        int kapazitaet = MIN_KAPAZITAET;
+        while (kapazitaet < erwarteteAnzahl * 2) {
+            kapazitaet <<= 1;
+        }
+        schluessel = new long[kapazitaet];
+        werte = new Object[kapazitaet];
+        maske = kapazitaet - 1;
+    }
+
+    /**
+     * Gibt den Wert zu einem Schlüssel zurück.
+     *
+     * @param key Der gesuchte Schlüssel.
+     * @return Der Wert oder null, wenn der Schlüssel nicht enthalten ist.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long[] keys = schluessel;
+        Object[] values = werte;
+        int m = keys.length - 1;
+        int i = hash(key) & m;
+        Object wert;
+        while ((wert = values[i]) != null) {
+            if (keys[i] == key) {
+                return (V) wert;
+            }
+            i = (i + 1) & m;
+        }
+        return null;
+    }
+
+    /**
+     * Überprüft, ob ein Schlüssel enthalten ist.
+     *
+     * @param key Der zu prüfende Schlüssel.
+     * @return true, wenn der Schlüssel enthalten ist, sonst false.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Legt einen Wert zu einem Schlüssel ab und ersetzt einen eventuell vorhandenen Wert.
+     *
+     * @param key Der Schlüssel.
+     * @param value Der Wert.
+     * @return Der bisherige Wert oder null, wenn der Schlüssel neu ist.
+     */
+    public V put(long key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Legt einen Wert zu einem Schlüssel nur dann ab, wenn der Schlüssel noch nicht enthalten ist.
+     *
+     * @param key Der Schlüssel.
+     * @param value Der Wert.
+     * @return Der bereits vorhandene Wert oder null, wenn der Wert abgelegt wurde.
+     */
+    public V putIfAbsent(long key, V value) {
+        return put(key, value, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(long key, V value, boolean ersetzen) {
+        if (value == null) {
+            throw new IllegalArgumentException("null-Werte sind nicht erlaubt");
+        }
+        int i = hash(key) & maske;
+        Object wert;
+        while ((wert = werte[i]) != null) {
+            if (schluessel[i] == key) {
+                if (ersetzen) {
+                    werte[i] = value;
+                }
+                return (V) wert;
+            }
+            i = (i + 1) & maske;
+        }
+        schluessel[i] = key;
+        werte[i] = value;
+        if (++anzahl * 2 > werte.length) {
+            vergroessern();
+        }
+        return null;
+    }
+
+    /**
+     * Entfernt einen Schlüssel.
+     * Nachfolgende Einträge derselben Sondierungskette werden zurückgeschoben, sodass keine Grabsteine entstehen.
+     *
+     * @param key Der zu entfernende Schlüssel.
+     * @return Der entfernte Wert oder null, wenn der Schlüssel nicht enthalten war.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = hash(key) & maske;
+        Object wert;
+        while ((wert = werte[i]) != null) {
+            if (schluessel[i] == key) {
+                lueckeSchliessen(i);
+                anzahl--;
+                return (V) wert;
+            }
+            i = (i + 1) & maske;
+        }
+        return null;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     *
+     * @return Die Anzahl der Einträge.
+     */
+    public int size() {
+        return anzahl;
+    }
+
+    /**
+     * Überprüft, ob die Tabelle leer ist.
+     *
+     * @return true, wenn keine Einträge enthalten sind, sonst false.
+     */
+    public boolean isEmpty() {
+        return anzahl == 0;
+    }
+
+    /**
+     * Entfernt alle Einträge.
+     */
+    public void clear() {
+        Arrays.fill(werte, null);
+        anzahl = 0;
+    }
+
+    private void lueckeSchliessen(int luecke) {
+        int i = luecke;
+        while (true) {
+            i = (i + 1) & maske;
+            Object wert = werte[i];
+            if (wert == null) {
+                break;
+            }
+            int ziel = hash(schluessel[i]) & maske;
+            // Eintrag darf nur nach vorne rücken, wenn die Lücke zwischen seinem Zielplatz und ihm liegt
+            if (((i - ziel) & maske) >= ((i - luecke) & maske)) {
+                schluessel[luecke] = schluessel[i];
+                werte[luecke] = wert;
+                luecke = i;
+            }
+        }
+        werte[luecke] = null;
+    }
+
+    /**
+     * Vergrößert die Tabelle bei Bedarf so, dass eine Anzahl von Einträgen ohne weitere Vergrößerung Platz hat.
+     * Das erspart beim Einfügen vieler Einträge das wiederholte Umkopieren.
+     *
+     * @param erwarteteAnzahl Die Anzahl der Einträge, für die Platz sein soll.
+     */
+    public void kapazitaetSichern(int erwarteteAnzahl) {
+        int kapazitaet = werte.length;
+        while (kapazitaet < erwarteteAnzahl * 2) {
+            kapazitaet <<= 1;
+        }
+        if (kapazitaet > werte.length) {
+            neuVerteilen(kapazitaet);
+        }
+    }
+
+    private void vergroessern() {
+        neuVerteilen(werte.length * 2);
+    }
+
+    private void neuVerteilen(int kapazitaet) {
+        long[] alteSchluessel = schluessel;
+        Object[] alteWerte = werte;
+        schluessel = new long[kapazitaet];
+        werte = new Object[kapazitaet];
+        maske = kapazitaet - 1;
+        for (int j = 0; j < alteWerte.length; j++) {
+            if (alteWerte[j] != null) {
+                int i = hash(alteSchluessel[j]) & maske;
+                while (werte[i] != null) {
+                    i = (i + 1) & maske;
+                }
+                schluessel[i] = alteSchluessel[j];
+                werte[i] = alteWerte[j];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,247 @@
+package com.geldautomat.util;
+
+import com.geldautomat.model.BankManagementSystem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Diese Klasse führt den parallelen Import einer CSV-Datei durch.
+ * Die Datei wird an Zeilenumbrüchen in Abschnitte geteilt. Jeder Abschnitt wird als eigene Aufgabe
+ * auf dem Fork-Join-Pool in den Speicher eingeblendet, dekodiert und geparst.
+ * Währenddessen übernimmt der aufrufende Thread die fertigen Abschnitte der Reihe nach in einen
+ * ImportKontext, sodass Prüfungen und Fehlermeldungen dieselbe Reihenfolge haben wie beim sequentiellen Import.
+ * Lesen und Parsen werden je Abschnitt als ImportEreignis gemeldet, Prüfen und Verknüpfen wie beim sequentiellen
+ * Import je Block von Zeilen (siehe ImportMessung).
+ */
+class ParallelerCSVImport {
+    /** Die Mindestgröße eines Abschnitts in Bytes, wenn nichts anderes angegeben ist. */
+    static final long MIN_ABSCHNITT = 1 << 20;
+    private static final int SUCHFENSTER = 64 * 1024;
+
+    private final String filepath;
+    private final Charset zeichensatz;
+    private final long minAbschnitt;
+
+    ParallelerCSVImport(String filepath) {
+        this(filepath, MIN_ABSCHNITT);
+    }
+
+    /**
+     * Konstruktor für den parallelen Import mit einer eigenen Mindestgröße der Abschnitte,
+     * etwa um auch kleine Dateien in mehrere Abschnitte zu teilen.
+     *
+     * @param filepath Der Pfad der CSV-Datei.
+     * @param minAbschnitt Die Mindestgröße eines Abschnitts in Bytes.
+     */
+    ParallelerCSVImport(String filepath, long minAbschnitt) {
+        if (minAbschnitt <= 0) {
+            throw new IllegalArgumentException("Ungültige Abschnittsgröße: " + minAbschnitt);
+        }
+        this.filepath = filepath;
+        // Wie FileReader wird der Standardzeichensatz verwendet
+        this.zeichensatz = Charset.defaultCharset();
+        this.minAbschnitt = minAbschnitt;
+    }
+
+    /**
+     * Ein Abschnitt der Datei und die darin geparsten Zeilen.
+     */
+    private class Abschnitt extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel kanal;
+        private final long anfang;
+        private final long ende;
+        private final boolean mitKopfzeile;
+        private final List<CSVDatensatz> datensaetze = new ArrayList<>();
+        /** Anzahl der Zeilen im Abschnitt, einschließlich einer eventuellen Kopfzeile. */
+        private int zeilen;
+        /** Index der ersten fehlerhaften Zeile in datensaetze oder -1. */
+        private int fehlerIndex = -1;
+        /** Der Parse-Fehler dieser Zeile oder null bei zu wenigen Feldern. */
+        private NumberFormatException fehler;
+
+        private Abschnitt(FileChannel kanal, long anfang, long ende, boolean mitKopfzeile) {
+            this.kanal = kanal;
+            this.anfang = anfang;
+            this.ende = ende;
+            this.mitKopfzeile = mitKopfzeile;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                ImportEreignis lesen = new ImportEreignis();
+                lesen.begin();
+                long start = System.nanoTime();
+                MappedByteBuffer bytes = kanal.map(FileChannel.MapMode.READ_ONLY, anfang, ende - anfang);
+                CharBuffer zeichen = dekodierer().decode(bytes);
+                long gelesen = System.nanoTime();
+                lesen.abschliessen(filepath, ImportMessung.PHASEN[ImportMessung.LESEN], 0, ende - anfang,
+                        gelesen - start);
+
+                ImportEreignis parsen = new ImportEreignis();
+                parsen.begin();
+                parsen(new CSVTokenizer(zeichen.array(), zeichen.limit()));
+                parsen.abschliessen(filepath, ImportMessung.PHASEN[ImportMessung.PARSEN], zeilen, ende - anfang,
+                        System.nanoTime() - gelesen);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Parst die Zeilen des Abschnitts bis zum Ende oder zur ersten fehlerhaften Zeile.
+         */
+        private void parsen(CSVTokenizer zeile) throws IOException {
+            if (mitKopfzeile && zeile.naechsteZeile()) {
+                zeilen++;
+            }
+            while (zeile.naechsteZeile()) {
+                zeilen++;
+                CSVDatensatz datensatz = new CSVDatensatz();
+                datensaetze.add(datensatz);
+                try {
+                    if (!datensatz.lesen(zeile)) {
+                        fehlerIndex = datensaetze.size() - 1;
+                        return;
+                    }
+                } catch (NumberFormatException ex) {
+                    fehlerIndex = datensaetze.size() - 1;
+                    fehler = ex;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Führt den Import durch.
+     *
+     * @return Das geladene BankManagementSystem.
+     * @throws IOException Wenn beim Lesen ein Fehler auftritt oder die Datei fehlerhaft ist.
+     */
+    BankManagementSystem laden() throws IOException {
+        if (!StandardCharsets.UTF_8.equals(zeichensatz) && zeichensatz.newEncoder().maxBytesPerChar() != 1) {
+            // Nur bei ASCII-kompatiblen Zeichensätzen ist jedes Byte 0x0A ein Zeilenumbruch
+            return CSVImporter.loadFromCSV(filepath);
+        }
+        try (FileChannel kanal = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            List<Abschnitt> abschnitte = aufteilen(kanal);
+            for (Abschnitt abschnitt : abschnitte) {
+                ForkJoinPool.commonPool().execute(abschnitt);
+            }
+            try {
+                return uebernehmen(abschnitte);
+            } finally {
+                // Nach einem Fehler müssen noch nicht begonnene Abschnitte nicht mehr geparst werden
+                for (Abschnitt abschnitt : abschnitte) {
+                    abschnitt.cancel(false);
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Übernimmt die Abschnitte in Dateireihenfolge, sobald sie geparst sind.
+     */
+    private BankManagementSystem uebernehmen(List<Abschnitt> abschnitte) throws IOException {
+        ImportMessung messung = ImportMessung.starten(filepath);
+        CSVImporter.ImportKontext kontext = new CSVImporter.ImportKontext(messung);
+        int ersteZeile = 1;
+        try {
+            for (Abschnitt abschnitt : abschnitte) {
+                abschnitt.join();
+                int lineNumber = ersteZeile + (abschnitt.mitKopfzeile ? 1 : 0);
+                for (int i = 0; i < abschnitt.datensaetze.size(); i++, lineNumber++) {
+                    if (i == abschnitt.fehlerIndex) {
+                        throw abschnitt.fehler == null
+                                ? CSVImporter.formatFehler(lineNumber)
+                                : CSVImporter.parseFehler(abschnitt.fehler, lineNumber);
+                    }
+                    try {
+                        kontext.uebernehmen(abschnitt.datensaetze.get(i), lineNumber);
+                    } catch (NumberFormatException ex) {
+                        throw CSVImporter.parseFehler(ex, lineNumber);
+                    }
+                }
+                ersteZeile += abschnitt.zeilen;
+                // Übernommene Zeilen werden nicht mehr gebraucht
+                abschnitt.datensaetze.clear();
+            }
+        } finally {
+            // Die Blöcke laufen über die Grenzen der Abschnitte hinweg, nur der letzte wird hier gemeldet
+            if (messung != null) {
+                messung.abschliessen();
+            }
+        }
+        return kontext.getImportiertesSystem();
+    }
+
+    /**
+     * Teilt die Datei in Abschnitte, die jeweils direkt hinter einem Zeilenumbruch beginnen.
+     */
+    private List<Abschnitt> aufteilen(FileChannel kanal) throws IOException {
+        long groesse = kanal.size();
+        int anzahl = (int) Math.max(1, Math.min(groesse / minAbschnitt, ForkJoinPool.getCommonPoolParallelism() * 4L));
+        // Ein Abschnitt muss als ein MappedByteBuffer eingeblendet werden können
+        anzahl = (int) Math.max(anzahl, groesse / (Integer.MAX_VALUE / 2) + 1);
+        List<Abschnitt> abschnitte = new ArrayList<>(anzahl);
+        long anfang = 0;
+        for (int i = 1; i <= anzahl && anfang < groesse; i++) {
+            long ende = i == anzahl ? groesse : naechsteZeile(kanal, Math.max(anfang, groesse * i / anzahl), groesse);
+            if (ende > anfang) {
+                abschnitte.add(new Abschnitt(kanal, anfang, ende, anfang == 0));
+                anfang = ende;
+            }
+        }
+        if (abschnitte.isEmpty()) {
+            abschnitte.add(new Abschnitt(kanal, 0, 0, true));
+        }
+        return abschnitte;
+    }
+
+    /**
+     * Sucht ab einer Position das erste Byte hinter dem nächsten Zeilenumbruch.
+     */
+    private static long naechsteZeile(FileChannel kanal, long position, long groesse) throws IOException {
+        ByteBuffer fenster = ByteBuffer.allocate(SUCHFENSTER);
+        while (position < groesse) {
+            fenster.clear();
+            int gelesen = kanal.read(fenster, position);
+            if (gelesen <= 0) {
+                break;
+            }
+            for (int i = 0; i < gelesen; i++) {
+                if (fenster.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += gelesen;
+        }
+        return groesse;
+    }
+
+    private CharsetDecoder dekodierer() {
+        // Wie beim FileReader werden ungültige Bytes durch das Ersatzzeichen ersetzt
+        return zeichensatz.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
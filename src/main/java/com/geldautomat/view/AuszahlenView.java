@@ -1,5 +1,7 @@
 package com.geldautomat.view;
 
+import com.geldautomat.model.Geldbetrag;
+
 import javax.swing.*;
 import java.awt.Font;
 import java.awt.Color;
@@ -11,7 +13,7 @@ import java.awt.event.WindowEvent;
  * Sie enthält ein Dialogfenster, in dem der Benutzer einen Betrag eingeben kann, der ausgezahlt werden soll.
  */
 public class AuszahlenView {
-    private double betrag;
+    private long betrag;
     /**
      * Konstruktor für die AuszahlenView.
      * Erstellt ein Dialogfenster, in dem der Benutzer einen Betrag eingeben kann, der ausgezahlt werden soll.
@@ -50,11 +52,11 @@ public class AuszahlenView {
 
             if (optionPane.getValue() == options[1]) {
                 try {
-                    betrag = Double.parseDouble(betragField.getText());
+                    betrag = Geldbetrag.parsen(betragField.getText());
                     if (betrag < 0) {
                         throw new NumberFormatException();
                     }
-                    int confirmResult = JOptionPane.showConfirmDialog(parent, "Sicher " + betrag + "€ auszahlen?",
+                    int confirmResult = JOptionPane.showConfirmDialog(parent, "Sicher " + Geldbetrag.formatieren(betrag) + "€ auszahlen?",
                             "Bestätigung", JOptionPane.YES_NO_OPTION);
                     if (confirmResult == JOptionPane.YES_OPTION) {
                         break;
@@ -73,9 +75,9 @@ public class AuszahlenView {
     /**
      * Gibt den vom Benutzer eingegebenen Betrag zurück.
      *
-     * @return Der vom Benutzer eingegebene Betrag.
+     * @return Der vom Benutzer eingegebene Betrag in Cent oder -1, wenn abgebrochen wurde.
      */
-    public double getBetrag() {
+    public long getBetrag() {
         return betrag;
     }
 }
@@ -1,5 +1,7 @@
 package com.geldautomat.view;
 
+import com.geldautomat.model.Geldbetrag;
+
 import javax.swing.*;
 import java.awt.Font;
 import java.awt.event.WindowAdapter;
@@ -12,7 +14,7 @@ import java.awt.Color;
  * Sie enthält ein Dialogfenster, in dem der Benutzer einen Betrag eingeben kann, der eingezahlt werden soll.
  */
 public class EinzahlenView {
-    private double betrag;
+    private long betrag;
 
     /**
      * Konstruktor für die EinzahlenView.
@@ -52,11 +54,11 @@ public class EinzahlenView {
 
             if (optionPane.getValue() == options[1]) {
                 try {
-                    betrag = Double.parseDouble(betragField.getText());
+                    betrag = Geldbetrag.parsen(betragField.getText());
                     if (betrag <= 0) {
                         throw new NumberFormatException();
                     }
-                    int confirmResult = JOptionPane.showConfirmDialog(parent, "Sicher " + betrag + "€ einzahlen?",
+                    int confirmResult = JOptionPane.showConfirmDialog(parent, "Sicher " + Geldbetrag.formatieren(betrag) + "€ einzahlen?",
                             "Bestätigung", JOptionPane.YES_NO_OPTION);
                     if (confirmResult == JOptionPane.YES_OPTION) {
                         break;
@@ -76,9 +78,9 @@ public class EinzahlenView {
     /**
      * Gibt den vom Benutzer eingegebenen Betrag zurück.
      *
-     * @return Der vom Benutzer eingegebene Betrag.
+     * @return Der vom Benutzer eingegebene Betrag in Cent oder -1, wenn abgebrochen wurde.
      */
-    public double getBetrag() {
+    public long getBetrag() {
         return betrag;
     }
 }
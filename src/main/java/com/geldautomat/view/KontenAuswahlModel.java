@@ -0,0 +1,88 @@
+package com.geldautomat.view;
+
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+
+/**
+ * Dieses Modell stellt die Konten eines Kontoinhabers für die Dropdown-Liste bereit.
+ * Es kopiert die Konten nicht, sondern liest sie bei Bedarf aus der sortierten Liste des Kontoinhabers.
+ * Die Dropdown-Liste fragt nur die Einträge ab, die sie gerade anzeigt. Da der Kontoinhaber geänderte
+ * Listen durch neue ersetzt, bleibt die Liste des Modells bis zum nächsten aktualisieren unverändert.
+ */
+public class KontenAuswahlModel extends AbstractListModel<Konto> implements ComboBoxModel<Konto> {
+    private static final long serialVersionUID = 1L;
+
+    private final Kontoinhaber kontoinhaber;
+    private List<Konto> konten;
+    private Object ausgewaehlt;
+    private int groesse;
+    private int stand;
+
+    /**
+     * Konstruktor für das KontenAuswahlModel.
+     *
+     * @param kontoinhaber Der Kontoinhaber, dessen Konten angezeigt werden.
+     */
+    public KontenAuswahlModel(Kontoinhaber kontoinhaber) {
+        this.kontoinhaber = kontoinhaber;
+        // Erst der Zähler, dann die Liste: Eine Änderung dazwischen erkennt das nächste aktualisieren
+        this.stand = kontoinhaber.getAenderungen();
+        this.konten = kontoinhaber.getKonten();
+        this.groesse = konten.size();
+    }
+
+    public Kontoinhaber getKontoinhaber() {
+        return kontoinhaber;
+    }
+
+    /**
+     * Benachrichtigt die Dropdown-Liste, falls sich die Konten des Kontoinhabers seit dem letzten Aufruf
+     * geändert haben. Sonst passiert nichts.
+     */
+    public void aktualisieren() {
+        int aktuell = kontoinhaber.getAenderungen();
+        if (aktuell == stand) {
+            return;
+        }
+        stand = aktuell;
+        konten = kontoinhaber.getKonten();
+        int alt = groesse;
+        groesse = konten.size();
+        if (groesse < alt) {
+            fireIntervalRemoved(this, groesse, alt - 1);
+        } else if (groesse > alt) {
+            fireIntervalAdded(this, alt, groesse - 1);
+        }
+        if (groesse > 0) {
+            fireContentsChanged(this, 0, groesse - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return groesse;
+    }
+
+    @Override
+    public Konto getElementAt(int index) {
+        return index < groesse ? konten.get(index) : null;
+    }
+
+    @Override
+    public void setSelectedItem(Object konto) {
+        if (konto != ausgewaehlt) {
+            ausgewaehlt = konto;
+            fireContentsChanged(this, -1, -1);
+        }
+    }
+
+    @Override
+    public Object getSelectedItem() {
+        return ausgewaehlt;
+    }
+}
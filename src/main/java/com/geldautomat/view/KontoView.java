@@ -3,22 +3,39 @@ package com.geldautomat.view;
 import com.geldautomat.model.*;
 
 import java.awt.*;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.accessibility.Accessible;
 import javax.swing.*;
+import javax.swing.plaf.basic.ComboPopup;
 
 /**
  * Diese Klasse repräsentiert die Ansicht für die Kontoverwaltung.
  * Sie enthält ein Fenster, in dem der Benutzer Informationen zu seinem Konto anzeigen und verschiedene Aktionen ausführen kann.
+ * Die Ansicht beobachtet den Kontostand des angezeigten Kontos, sodass auch Buchungen anderer Sitzungen,
+ * etwa eingehende Überweisungen, sofort erscheinen. Viele Änderungen kurz hintereinander werden
+ * zusammengefasst und höchstens einmal je Bild angezeigt, dabei wird nur der Kontostand neu gesetzt.
  */
 public class KontoView extends JFrame {
 	private static final long serialVersionUID = 1L;
+	/** Mindestabstand zweier Aktualisierungen des Kontostands in Millisekunden, etwa ein Bild bei 60 Hz. */
+	private static final int BILDDAUER_MS = 16;
 	private JPanel panel;
 	private JLabel kontonummerLabel, kontonummer, nameLabel, name, adresseLabel, adresse, bankLabel, bank, blzLabel,
 			blz, kontotypLabel, kontotyp, kontostandLabel, kontostand, zinsOderUeberziehungLabel, zinsOderUeberziehung;
 	private JComboBox<Konto> kontoDropDown;
-	private JButton logoutButton, ueberweisenButton, einzahlenButton, auszahlenButton;
+	private KontenAuswahlModel kontenModel;
+	private Konto beobachtet;
+	private final AtomicBoolean ausstehend = new AtomicBoolean();
+	private final Timer aktualisierung = new Timer(BILDDAUER_MS, e -> kontostandAktualisieren());
+	private final KontostandBeobachter beobachter = k -> {
+		// Nur die erste Änderung seit der letzten Anzeige plant eine Aktualisierung ein
+		if (ausstehend.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(aktualisierung::start);
+		}
+	};
+	private JButton logoutButton, umsaetzeButton, ueberweisenButton, einzahlenButton, auszahlenButton;
 	
     /**
      * Konstruktor für die KontoView.
@@ -32,6 +49,7 @@ public class KontoView extends JFrame {
      * Initialisiert die UI-Komponenten.
      */
 	private void initializeUI() {
+		aktualisierung.setRepeats(false);
 		setTitle("Konto");
 		setSize(600, 350);
 		setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
@@ -110,6 +128,10 @@ public class KontoView extends JFrame {
 		logoutButton.setBounds(10, getHeight() - 70, 80, 20);
 		panel.add(logoutButton);
 
+		umsaetzeButton = new JButton("Umsätze");
+		umsaetzeButton.setBounds(logoutButton.getX() + 115, logoutButton.getY(), 105, 20);
+		panel.add(umsaetzeButton);
+
 		ueberweisenButton = new JButton("Überweisen");
 		ueberweisenButton.setBounds(logoutButton.getX() + 230, logoutButton.getY(), 105, 20);
 		panel.add(ueberweisenButton);
@@ -137,6 +159,7 @@ public class KontoView extends JFrame {
 		kontoDropDown.setFont(buttonFont);
 		kontoDropDown.setBackground(buttonColor);
 		kontoDropDown.setEnabled(true);
+		kontoDropDown.setRenderer(new DropdownKontenView());
 		panel.add(kontoDropDown);
 	    
 		
@@ -147,38 +170,103 @@ public class KontoView extends JFrame {
 	
     /**
      * Aktualisiert die Anzeige mit den Informationen des angegebenen Kontos.
+     * Nur Beschriftungen, deren Text sich geändert hat, werden neu gesetzt. Die Dropdown-Liste
+     * liest die Konten über ein KontenAuswahlModel aus dem Kontoinhaber und lädt sie nur neu,
+     * wenn sich seine Konten geändert haben.
      *
      * @param konto Das Konto, dessen Informationen angezeigt werden sollen.
      */
 	public void setKonto(Konto konto) {
-		kontonummer.setText(String.valueOf(konto.getKontonummer()));
+		if (beobachtet != konto) {
+			if (beobachtet != null) {
+				beobachtet.removeBeobachter(beobachter);
+			}
+			beobachtet = konto;
+			konto.addBeobachter(beobachter);
+		}
+		setzen(kontonummer, String.valueOf(konto.getKontonummer()));
 		Kontoinhaber kontoinhaber = konto.getKontoinhaber();
-		name.setText(kontoinhaber.getVorname() + " " + kontoinhaber.getName());
-		adresse.setText(kontoinhaber.getStrasse() + ", " + kontoinhaber.getPlz() + " " + kontoinhaber.getOrt());
-		bank.setText(konto.getBank().getName());
-		blz.setText(konto.getBank().getBlz());
-		kontotyp.setText(konto instanceof Girokonto ? "Girokonto" : "Sparkonto");
-		kontostand.setText(String.valueOf(konto.getKontostand()) + " €");
+		setzen(name, kontoinhaber.getVorname() + " " + kontoinhaber.getName());
+		setzen(adresse, kontoinhaber.getStrasse() + ", " + kontoinhaber.getPlz() + " " + kontoinhaber.getOrt());
+		setzen(bank, konto.getBank().getName());
+		setzen(blz, konto.getBank().getBlz());
+		setzen(kontotyp, konto instanceof Girokonto ? "Girokonto" : "Sparkonto");
+		setzen(kontostand, Geldbetrag.formatieren(konto.getKontostandCent()) + " €");
 
 		if (konto instanceof Girokonto) {
-			zinsOderUeberziehungLabel.setText("Überziehung:");
-			zinsOderUeberziehung.setText(String.valueOf(((Girokonto) konto).getUeberziehungsbetrag())+ " €");
+			setzen(zinsOderUeberziehungLabel, "Überziehung:");
+			setzen(zinsOderUeberziehung, Geldbetrag.formatieren(((Girokonto) konto).getUeberziehungsbetragCent()) + " €");
 		} else if (konto instanceof Sparkonto) {
-			zinsOderUeberziehungLabel.setText("Zins:");
-			zinsOderUeberziehung.setText(String.valueOf(Math.round(((Sparkonto) konto).getZins()*100000)/1000.0)+"%");
+			setzen(zinsOderUeberziehungLabel, "Zins:");
+			setzen(zinsOderUeberziehung, String.valueOf(Math.round(((Sparkonto) konto).getZins()*100000)/1000.0)+"%");
+		}
+
+		if (kontenModel == null || kontenModel.getKontoinhaber() != kontoinhaber) {
+			kontenModel = new KontenAuswahlModel(kontoinhaber);
+			kontoDropDown.setModel(kontenModel);
+		} else {
+			kontenModel.aktualisieren();
 		}
-		kontoDropDown.removeAllItems();
-		kontoDropDown.setRenderer(new DropdownKontenView());
 		List<Konto> konten = kontoinhaber.getKonten();
-		if (konten.size() == 1) {
-		    kontoDropDown.setVisible(false);
+		if (!konten.isEmpty()) {
+			// Die Breite der Einträge hängt von der Länge der Kontonummer ab, die größte steht am Ende
+			Konto prototyp = konten.get(konten.size() - 1);
+			if (kontoDropDown.getPrototypeDisplayValue() != prototyp) {
+				kontoDropDown.setPrototypeDisplayValue(prototyp);
+				// Die Liste des Aufklappmenüs übernimmt den Prototyp nicht und würde sonst zur
+				// Berechnung ihrer Größe jeden Eintrag zeichnen
+				Accessible popup = kontoDropDown.getUI().getAccessibleChild(kontoDropDown, 0);
+				if (popup instanceof ComboPopup) {
+					((ComboPopup) popup).getList().setPrototypeCellValue(prototyp);
+				}
+			}
 		}
-		konten.sort(Comparator.comparing(Konto::getKontonummer));
-		for (Konto k : konten) {
-			kontoDropDown.addItem(k);
+		kontoDropDown.setVisible(konten.size() > 1);
+		kontoDropDown.setSelectedItem(konto);
+	}
 
+    /**
+     * Zeigt den aktuellen Kontostand des beobachteten Kontos an. Wird vom Timer auf dem Event Dispatch Thread
+     * aufgerufen, frühestens ein Bild nach der ersten Änderung.
+     */
+	private void kontostandAktualisieren() {
+		// Vor dem Lesen zurücksetzen, damit keine Änderung während der Anzeige verloren geht
+		ausstehend.set(false);
+		if (beobachtet != null) {
+			setzen(kontostand, Geldbetrag.formatieren(beobachtet.getKontostandCent()) + " €");
 		}
-		kontoDropDown.setSelectedItem(konto);
+	}
+
+    /**
+     * Schließt das Fenster und beendet die Beobachtung des Kontos.
+     */
+	@Override
+	public void dispose() {
+		if (beobachtet != null) {
+			beobachtet.removeBeobachter(beobachter);
+			beobachtet = null;
+		}
+		aktualisierung.stop();
+		super.dispose();
+	}
+
+    /**
+     * Setzt den Text einer Beschriftung nur, wenn er sich ändert.
+     */
+	private static void setzen(JLabel label, String text) {
+		if (!text.equals(label.getText())) {
+			label.setText(text);
+		}
+	}
+
+    /**
+     * Gibt alle Eingaben der Ansicht zurück, etwa um sie während eines Vorgangs zu sperren.
+     *
+     * @return Die Buttons und die Dropdown-Liste.
+     */
+	public JComponent[] getEingaben() {
+		return new JComponent[] { logoutButton, umsaetzeButton, ueberweisenButton, einzahlenButton, auszahlenButton,
+				kontoDropDown };
 	}
 
 	public JComboBox<Konto> getKontoDropDown() {
@@ -189,6 +277,10 @@ public class KontoView extends JFrame {
 	    return logoutButton;
 	}
 
+	public JButton getUmsaetzeButton() {
+	    return umsaetzeButton;
+	}
+
 	public JButton getUeberweisenButton() {
 	    return ueberweisenButton;
 	}
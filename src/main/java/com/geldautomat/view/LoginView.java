@@ -78,6 +78,15 @@ public class LoginView extends JFrame {
         setVisible(true);
     }
 
+    /**
+     * Gibt alle Eingaben der Ansicht zurück, etwa um sie während der Anmeldung zu sperren.
+     *
+     * @return Die Eingabefelder und der Login-Button.
+     */
+    public JComponent[] getEingaben() {
+        return new JComponent[] { blzField, kontonummerField, passwortField, loginButton };
+    }
+
     // Getter für die Eingabefelder und den Login-Button
     public JTextField getBlzField() {
         return blzField;
@@ -95,6 +95,15 @@ public class UeberweisenView extends JFrame {
         setVisible(true);
     }
     
+    /**
+     * Gibt alle Eingaben der Ansicht zurück, etwa um sie während der Überweisung zu sperren.
+     *
+     * @return Die Eingabefelder und die Buttons.
+     */
+    public JComponent[] getEingaben() {
+        return new JComponent[] { blzTextField, kontonummerTextField, betragTextField, ueberweisenButton, abbrechenButton };
+    }
+
     public JTextField getBlzTextField() {
         return blzTextField;
     }
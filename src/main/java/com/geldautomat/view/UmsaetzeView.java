@@ -0,0 +1,121 @@
+package com.geldautomat.view;
+
+import com.geldautomat.model.Geldbetrag;
+import com.geldautomat.model.Kontoverlauf;
+
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Diese Klasse repräsentiert die Ansicht der letzten Umsätze eines Kontos.
+ * Die Tabelle liest direkt aus einem Auszug, Texte werden erst beim Zeichnen der sichtbaren Zellen erzeugt.
+ */
+public class UmsaetzeView extends JDialog {
+	private static final long serialVersionUID = 1L;
+	private static final String[] SPALTEN = { "Zeitpunkt", "Umsatz", "Gegenkonto", "Betrag", "Kontostand" };
+
+	private final Kontoverlauf.Auszug auszug;
+	private final UmsatzTabelle tabelle = new UmsatzTabelle();
+	private JButton aeltereButton, schliessenButton;
+
+    /**
+     * Konstruktor für die UmsaetzeView.
+     * Erstellt das Fenster, angezeigt wird es erst mit setVisible.
+     *
+     * @param parent Das übergeordnete Fenster.
+     * @param auszug Der Auszug mit den anzuzeigenden Umsätzen, den neuesten zuerst.
+     */
+	public UmsaetzeView(JFrame parent, Kontoverlauf.Auszug auszug) {
+		super(parent, "Umsätze", true);
+		this.auszug = auszug;
+		initializeUI();
+	}
+
+    /**
+     * Initialisiert die UI-Komponenten.
+     */
+	private void initializeUI() {
+		setSize(600, 350);
+		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		setLocationRelativeTo(getParent());
+
+		JTable table = new JTable(tabelle);
+		table.setFillsViewportHeight(true);
+		table.getColumnModel().getColumn(0).setPreferredWidth(120);
+		table.getColumnModel().getColumn(2).setPreferredWidth(140);
+
+		aeltereButton = new JButton("Ältere Umsätze");
+		schliessenButton = new JButton("Schließen");
+		JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		Font buttonFont = new Font("Arial", Font.BOLD, 12);
+		for (JButton button : new JButton[] { aeltereButton, schliessenButton }) {
+			button.setFont(buttonFont);
+			button.setBackground(Color.WHITE);
+			buttons.add(button);
+		}
+
+		add(new JScrollPane(table), BorderLayout.CENTER);
+		add(buttons, BorderLayout.SOUTH);
+	}
+
+    /**
+     * Aktualisiert die Tabelle, nachdem dem Auszug Umsätze angehängt wurden.
+     */
+	public void aktualisieren() {
+		tabelle.fireTableDataChanged();
+	}
+
+	public JButton getAeltereButton() {
+		return aeltereButton;
+	}
+
+	public JButton getSchliessenButton() {
+		return schliessenButton;
+	}
+
+	/**
+	 * Das Tabellenmodell über dem Auszug.
+	 */
+	private class UmsatzTabelle extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+		private final SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy HH:mm");
+
+		@Override
+		public int getRowCount() {
+			return auszug.size();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return SPALTEN.length;
+		}
+
+		@Override
+		public String getColumnName(int spalte) {
+			return SPALTEN[spalte];
+		}
+
+		@Override
+		public Object getValueAt(int zeile, int spalte) {
+			switch (spalte) {
+			case 0:
+				long zeitpunkt = auszug.getZeitpunkt(zeile);
+				return zeitpunkt == Kontoverlauf.UNBEKANNT ? "" : format.format(new Date(zeitpunkt));
+			case 1:
+				return auszug.getArt(zeile).getBezeichnung();
+			case 2:
+				String blz = auszug.getGegenBlz(zeile);
+				return blz == null ? "" : auszug.getGegenKontonummer(zeile) + " (BLZ " + blz + ")";
+			case 3:
+				return Geldbetrag.formatieren(auszug.getBetragCent(zeile)) + " €";
+			default:
+				long kontostand = auszug.getKontostandCent(zeile);
+				return kontostand == Kontoverlauf.UNBEKANNT ? "" : Geldbetrag.formatieren(kontostand) + " €";
+			}
+		}
+	}
+}
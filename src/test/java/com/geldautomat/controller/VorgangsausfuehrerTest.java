@@ -0,0 +1,66 @@
+package com.geldautomat.controller;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+public class VorgangsausfuehrerTest {
+
+    @Test
+    public void testAusfuehren() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Vorgangsausfuehrer ausfuehrer = new Vorgangsausfuehrer(executor);
+            JPanel fenster = new JPanel();
+            JButton button = new JButton();
+            JTextField feld = new JTextField();
+            feld.setEnabled(false);
+            CountDownLatch weiter = new CountDownLatch(1);
+            CountDownLatch fertig = new CountDownLatch(1);
+            AtomicReference<String> ergebnis = new AtomicReference<>();
+            AtomicBoolean aufEdt = new AtomicBoolean();
+            AtomicBoolean imHintergrund = new AtomicBoolean();
+
+            SwingUtilities.invokeAndWait(() -> ausfuehrer.ausfuehren(fenster, () -> {
+                imHintergrund.set(!SwingUtilities.isEventDispatchThread());
+                weiter.await();
+                return "ok";
+            }, wert -> {
+                aufEdt.set(SwingUtilities.isEventDispatchThread());
+                ergebnis.set(wert);
+                fertig.countDown();
+            }, button, feld));
+
+            // Solange der Vorgang läuft, sind die Eingaben gesperrt
+            SwingUtilities.invokeAndWait(() -> {
+                assertFalse(button.isEnabled());
+                assertFalse(feld.isEnabled());
+            });
+            weiter.countDown();
+            assertTrue(fertig.await(10, TimeUnit.SECONDS));
+
+            assertEquals("ok", ergebnis.get());
+            assertTrue(imHintergrund.get());
+            assertTrue(aufEdt.get());
+            // Danach haben die Eingaben wieder ihren vorherigen Zustand
+            SwingUtilities.invokeAndWait(() -> {
+                assertTrue(button.isEnabled());
+                assertFalse(feld.isEnabled());
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
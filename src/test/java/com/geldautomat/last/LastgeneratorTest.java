@@ -0,0 +1,59 @@
+package com.geldautomat.last;
+
+import static org.junit.Assert.*;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.service.Ergebnis;
+import com.geldautomat.service.TransaktionsService;
+import org.junit.Test;
+
+public class LastgeneratorTest {
+
+    private static long summeKontostaende(BankManagementSystem system) {
+        long summe = 0;
+        for (Bank bank : system.getBanks()) {
+            for (Konto konto : bank.getKonten()) {
+                summe += konto.getKontostandCent();
+            }
+        }
+        return summe;
+    }
+
+    @Test
+    public void testAusfuehren() throws Exception {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        for (int i = 0; i < 8; i++) {
+            if (i % 2 == 0) {
+                bank.addKonto(new Girokonto(i, 1000 + i, 10000L, kontoinhaber, bank, 50000L));
+            } else {
+                bank.addKonto(new Sparkonto(i, 1000 + i, 10000L, kontoinhaber, bank, 3.0));
+            }
+        }
+        system.addBank(bank);
+        long vorher = summeKontostaende(system);
+
+        Lastgenerator generator = new Lastgenerator(new TransaktionsService(system));
+        generator.setSitzungen(50);
+        generator.setAktionenJeSitzung(40);
+        generator.setAnteilUeberziehen(50);
+        Lastbericht bericht = generator.ausfuehren();
+
+        assertEquals(50, bericht.getLatenzen(Lastbericht.Aktion.ANMELDEN).getAnzahl());
+        assertEquals(50 + 50 * 40, bericht.getAnzahlAktionen());
+        assertEquals(0, bericht.getAnzahl(Ergebnis.Status.FALSCHE_PIN));
+        assertTrue(bericht.getAnzahl(Ergebnis.Status.NICHT_GEDECKT) > 0);
+        // Überweisungen verschieben nur Geld, Ein- und Auszahlungen stehen im Bericht
+        assertEquals(vorher + bericht.getEingezahltCent() - bericht.getAusgezahltCent(), summeKontostaende(system));
+        for (Konto konto : bank.getKonten()) {
+            long untergrenze = konto instanceof Girokonto ? -((Girokonto) konto).getUeberziehungsbetragCent() : 0;
+            assertTrue(konto.getKontostandCent() >= untergrenze);
+        }
+    }
+}
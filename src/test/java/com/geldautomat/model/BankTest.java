@@ -0,0 +1,187 @@
+package com.geldautomat.model;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class BankTest {
+
+    @Test
+    public void testKontoByKontonummer() {
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto girokonto = new Girokonto(8321, 1234, 100.0, kontoinhaber, bank, 1000.0);
+        Sparkonto sparkonto = new Sparkonto(4711, 1234, 100.0, kontoinhaber, bank, 3.0);
+        bank.addKonto(girokonto);
+        bank.addKonto(sparkonto);
+
+        assertSame(girokonto, bank.getKontoByKontonummer(8321));
+        assertSame(sparkonto, bank.getKontoByKontonummer(4711));
+        assertNull(bank.getKontoByKontonummer(1717));
+        assertSame(kontoinhaber, bank.findKundenByKundennummer(123456));
+        assertNull(bank.findKundenByKundennummer(717171));
+    }
+
+    @Test
+    public void testRemoveKonto() {
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto girokonto = new Girokonto(8321, 1234, 100.0, kontoinhaber, bank, 1000.0);
+        Sparkonto sparkonto = new Sparkonto(4711, 1234, 100.0, kontoinhaber, bank, 3.0);
+        bank.addKonto(girokonto);
+        bank.addKonto(sparkonto);
+
+        bank.removeKonto(girokonto);
+        assertNull(bank.getKontoByKontonummer(8321));
+        assertSame(kontoinhaber, bank.findKundenByKundennummer(123456));
+
+        bank.removeKonto(sparkonto);
+        assertNull(bank.getKontoByKontonummer(4711));
+        assertNull(bank.findKundenByKundennummer(123456));
+        assertEquals(0, bank.getKonten().size());
+    }
+
+    @Test
+    public void testDoppelteKontonummerWieListe() {
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto erstes = new Girokonto(8321, 1234, 100.0, kontoinhaber, bank, 1000.0);
+        Girokonto zweites = new Girokonto(8321, 4321, 200.0, kontoinhaber, bank, 1000.0);
+        bank.addKonto(erstes);
+        bank.addKonto(zweites);
+
+        assertSame(erstes, bank.getKontoByKontonummer(8321));
+        bank.removeKonto(erstes);
+        assertSame(zweites, bank.getKontoByKontonummer(8321));
+    }
+
+    @Test
+    public void testVieleKonten() {
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Konto[] konten = new Konto[5000];
+        for (int i = 0; i < konten.length; i++) {
+            Kontoinhaber kontoinhaber = new Kontoinhaber(i / 2, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+            konten[i] = new Sparkonto(i * 31, 1234, 0.0, kontoinhaber, bank, 1.0);
+            bank.addKonto(konten[i]);
+        }
+        for (int i = 0; i < konten.length; i += 3) {
+            bank.removeKonto(konten[i]);
+        }
+        for (int i = 0; i < konten.length; i++) {
+            if (i % 3 == 0) {
+                assertNull(bank.getKontoByKontonummer(i * 31));
+            } else {
+                assertSame(konten[i], bank.getKontoByKontonummer(i * 31));
+            }
+        }
+    }
+
+    @Test
+    public void testKontenverzeichnis() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank vrBank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Bank berlinerBank = new Bank("19087", "Berliner Bank", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto girokonto = new Girokonto(8321, 1234, 100.0, kontoinhaber, vrBank, 1000.0);
+        Sparkonto sparkonto = new Sparkonto(8321, 1234, 100.0, kontoinhaber, berlinerBank, 3.0);
+        vrBank.addKonto(girokonto);
+        system.addBank(vrBank);
+        system.addBank(berlinerBank);
+        berlinerBank.addKonto(sparkonto);
+
+        assertSame(girokonto, system.getKonto("MA2424", 8321));
+        assertSame(sparkonto, system.getKonto("19087", 8321));
+        assertNull(system.getKonto("19087", 4711));
+        assertNull(system.getKonto("Zock7777", 8321));
+
+        berlinerBank.removeKonto(sparkonto);
+        assertNull(system.getKonto("19087", 8321));
+
+        vrBank.setBlz("MA2525");
+        assertNull(system.getKonto("MA2424", 8321));
+        assertSame(girokonto, system.getKonto("MA2525", 8321));
+        assertSame(vrBank, system.getBankByBLZ("MA2525"));
+
+        system.removeBank(vrBank);
+        assertNull(system.getKonto("MA2525", 8321));
+        assertNull(system.getBankByBLZ("MA2525"));
+    }
+
+    @Test
+    public void testAddBankOhneZuordnung() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank ohneSystem = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Bank anderesSystem = new Bank("19087", "Berliner Bank", new BankManagementSystem());
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto girokonto = new Girokonto(8321, 1234, 100.0, kontoinhaber, ohneSystem, 1000.0);
+        ohneSystem.addKonto(girokonto);
+
+        // Wie bisher wird jede Bank angenommen und danach dem System zugeordnet
+        system.addBank(ohneSystem);
+        system.addBank(anderesSystem);
+        assertSame(system, ohneSystem.getBankManagementSystem());
+        assertSame(system, anderesSystem.getBankManagementSystem());
+        assertSame(girokonto, system.getKonto("MA2424", 8321));
+
+        Sparkonto sparkonto = new Sparkonto(4711, 1234, 100.0, kontoinhaber, anderesSystem, 3.0);
+        anderesSystem.addKonto(sparkonto);
+        assertSame(sparkonto, system.getKonto("19087", 4711));
+        anderesSystem.setBlz("19088");
+        assertSame(anderesSystem, system.getBankByBLZ("19088"));
+    }
+
+    @Test
+    public void testSpaltenAnlegen() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto girokonto = new Girokonto(8321, 1234, -5000L, kontoinhaber, bank, 10000L);
+        Sparkonto sparkonto = new Sparkonto(4711, 1234, 10050L, kontoinhaber, bank, 3.0);
+        kontoinhaber.addKonto(girokonto);
+        kontoinhaber.addKonto(sparkonto);
+        bank.addKonto(girokonto);
+        bank.addKonto(sparkonto);
+        system.addBank(bank);
+
+        KontenSpalten spalten = bank.spaltenAnlegen();
+        assertSame(spalten, bank.getKontenSpalten());
+        assertEquals(2, spalten.size());
+        assertEquals(5050, spalten.summeKontostaende());
+        assertEquals(1, spalten.anzahlUeberzogen());
+        assertArrayEquals(new int[] {0}, spalten.ueberzogeneKonten());
+
+        // Die Konten bleiben dieselben, die Spalten folgen ihren Buchungen
+        assertSame(girokonto, spalten.getKonto(0));
+        assertSame(girokonto, system.getKonto("MA2424", 8321));
+        assertSame(girokonto, bank.getKonten().get(0));
+        assertEquals(10000, spalten.getUeberziehungsbetragCent(0));
+        assertEquals(3.0, spalten.getZins(1), 0.0);
+        girokonto.setUeberziehungsbetragCent(5000);
+        assertEquals(5000, spalten.getUeberziehungsbetragCent(0));
+        girokonto.setUeberziehungsbetragCent(10000);
+        girokonto.auszahlenCent(5000);
+        assertEquals(-10000, spalten.getKontostandCent(0));
+        try {
+            girokonto.auszahlenCent(1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // erwartet
+        }
+
+        // Gleiches Ergebnis wie Sparkonto.berechneZins
+        assertEquals(302, spalten.zinsenGutschreiben(0, spalten.size()));
+        assertEquals(10352, sparkonto.getKontostandCent());
+        assertEquals(10352, spalten.getKontostandCent(1));
+        sparkonto.berechneZins();
+        assertEquals(10663, spalten.getKontostandCent(1));
+        sparkonto.setZins(0);
+        assertEquals(0.0, spalten.getZins(1), 0.0);
+        assertEquals(0, spalten.zinsenGutschreiben(0, spalten.size()));
+        assertEquals(10663, sparkonto.getKontostandCent());
+
+        bank.addKonto(new Girokonto(1717, 1234, 0L, kontoinhaber, bank, 0L));
+        assertNull(bank.getKontenSpalten());
+        // Verworfene Spalten werden nicht mehr fortgeschrieben
+        girokonto.einzahlenCent(10000);
+        assertEquals(-10000, spalten.getKontostandCent(0));
+    }
+}
@@ -0,0 +1,47 @@
+package com.geldautomat.model;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class GeldbetragTest {
+
+    @Test
+    public void testParsen() {
+        assertEquals(1250, Geldbetrag.parsen("12,50"));
+        assertEquals(1250, Geldbetrag.parsen("12.5"));
+        assertEquals(1200, Geldbetrag.parsen(" 12 "));
+        assertEquals(5, Geldbetrag.parsen(",05"));
+        for (String ungueltig : new String[] {"", "-5", "1,234", "1.2.3", "abc", "1e3"}) {
+            try {
+                Geldbetrag.parsen(ungueltig);
+                fail("Expected NumberFormatException für " + ungueltig);
+            } catch (NumberFormatException e) {
+                // erwartet
+            }
+        }
+    }
+
+    @Test
+    public void testFormatieren() {
+        assertEquals("0,00", Geldbetrag.formatieren(0));
+        assertEquals("-0,05", Geldbetrag.formatieren(-5));
+        assertEquals("1.234,56", Geldbetrag.formatieren(123456));
+        assertEquals("-8.000,50", Geldbetrag.formatieren(-800050));
+        assertEquals("-92.233.720.368.547.758,08", Geldbetrag.formatieren(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testKeineRundungsfehler() {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("VR Bank Rhein-Neckar", "MA2424", null);
+        Girokonto girokonto = new Girokonto(4711, 1234, 0.0, kontoinhaber, bank, 0.0);
+
+        for (int i = 0; i < 10; i++) {
+            girokonto.einzahlen(0.1);
+        }
+
+        assertEquals(100, girokonto.getKontostandCent());
+        assertEquals(1.0, girokonto.getKontostand(), 0.0);
+        assertEquals(101, Geldbetrag.ausEuro(1.005));
+    }
+}
@@ -3,6 +3,14 @@ package com.geldautomat.model;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 public class GirokontoTest {
     
     @Test
@@ -48,4 +56,116 @@ public class GirokontoTest {
         assertEquals(100.0, girokonto.getKontostand(), 0.001);
         assertFalse(girokonto.istKontoüberzogen());
     }
+
+    @Test
+    public void testLimitBeiGleichzeitigenAuszahlungen() throws InterruptedException {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("VR Bank Rhein-Neckar", "MA2424", null);
+        Girokonto girokonto = new Girokonto(4711, 1234, 1000L, kontoinhaber, bank, 500L);
+        AtomicInteger erfolgreich = new AtomicInteger();
+
+        Thread[] automaten = new Thread[8];
+        for (int i = 0; i < automaten.length; i++) {
+            automaten[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    try {
+                        girokonto.auszahlenCent(1);
+                        erfolgreich.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // Limit erreicht
+                    }
+                }
+            });
+            automaten[i].start();
+        }
+        for (Thread automat : automaten) {
+            automat.join();
+        }
+
+        assertEquals(1500, erfolgreich.get());
+        assertEquals(-500, girokonto.getKontostandCent());
+    }
+
+    @Test
+    public void testBuchungsEreignis() throws Exception {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Girokonto girokonto = new Girokonto(4711, 1234, 10000L, kontoinhaber, bank, 100000L);
+        girokonto.einzahlenCent(1);
+
+        Path datei = Files.createTempFile("buchung", ".jfr");
+        try (Recording aufzeichnung = new Recording()) {
+            aufzeichnung.enable("com.geldautomat.Buchung");
+            aufzeichnung.start();
+            girokonto.einzahlenCent(5000);
+            girokonto.auszahlenCent(20000);
+            try {
+                girokonto.auszahlenCent(1000000);
+                fail("Erwartete IllegalArgumentException wurde nicht geworfen");
+            } catch (IllegalArgumentException ex) {
+                // Eine abgelehnte Auszahlung ändert den Kontostand nicht und erzeugt kein Ereignis
+            }
+            aufzeichnung.stop();
+            aufzeichnung.dump(datei);
+            List<RecordedEvent> ereignisse = RecordingFile.readAllEvents(datei);
+
+            assertEquals(2, ereignisse.size());
+            assertEquals("Einzahlung", ereignisse.get(0).getString("art"));
+            assertEquals("MA2424", ereignisse.get(0).getString("blz"));
+            assertEquals(4711, ereignisse.get(0).getInt("kontonummer"));
+            assertEquals(5000, ereignisse.get(0).getLong("betrag"));
+            assertEquals("Auszahlung", ereignisse.get(1).getString("art"));
+            assertEquals(-4999, ereignisse.get(1).getLong("kontostand"));
+        } finally {
+            Files.delete(datei);
+        }
+    }
+
+    @Test
+    public void testBeobachter() {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("VR Bank Rhein-Neckar", "MA2424", null);
+        Girokonto girokonto = new Girokonto(4711, 1234, 10000L, kontoinhaber, bank, 0L);
+        AtomicInteger meldungen = new AtomicInteger();
+        KontostandBeobachter beobachter = konto -> {
+            assertSame(girokonto, konto);
+            meldungen.incrementAndGet();
+        };
+        girokonto.addBeobachter(beobachter);
+        girokonto.addBeobachter(beobachter);
+        // Ein fehlerhafter Beobachter verhindert weder die Buchung noch die übrigen Meldungen
+        KontostandBeobachter fehlerhaft = konto -> {
+            throw new IllegalStateException("Testfehler");
+        };
+        girokonto.addBeobachter(fehlerhaft);
+        AtomicInteger fehler = new AtomicInteger();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler vorher = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> {
+            assertEquals("Testfehler", e.getMessage());
+            fehler.incrementAndGet();
+        });
+        try {
+            girokonto.einzahlenCent(500);
+            girokonto.auszahlenCent(300);
+            girokonto.setKontostandCent(100);
+        } finally {
+            thread.setUncaughtExceptionHandler(vorher == thread.getThreadGroup() ? null : vorher);
+        }
+        assertEquals(3, meldungen.get());
+        assertEquals(3, fehler.get());
+        try {
+            girokonto.auszahlenCent(200);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Nicht gebucht, also keine Meldung
+        }
+        assertEquals(3, meldungen.get());
+
+        girokonto.removeBeobachter(fehlerhaft);
+        girokonto.removeBeobachter(beobachter);
+        girokonto.einzahlenCent(1);
+        assertEquals(3, meldungen.get());
+        assertEquals(101, girokonto.getKontostandCent());
+    }
 }
@@ -0,0 +1,51 @@
+package com.geldautomat.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class KontoinhaberTest {
+
+    @Test
+    public void testKontenSortiert() {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", null);
+        Bank andereBank = new Bank("19087", "Berliner Bank", null);
+        Konto k8321 = new Girokonto(8321, 1234, 0L, kontoinhaber, bank, 0L);
+        Konto k4711 = new Sparkonto(4711, 1234, 0L, kontoinhaber, bank, 3.0);
+        Konto k9000 = new Girokonto(9000, 1234, 0L, kontoinhaber, bank, 0L);
+        Konto k4711Andere = new Girokonto(4711, 1234, 0L, kontoinhaber, andereBank, 0L);
+
+        int stand = kontoinhaber.getAenderungen();
+        kontoinhaber.addKonto(k8321);
+        kontoinhaber.addKonto(k4711);
+        kontoinhaber.addKonto(k9000);
+        kontoinhaber.addKonto(k4711Andere);
+        assertEquals(stand + 4, kontoinhaber.getAenderungen());
+        // Gleiche Nummern bleiben in der Reihenfolge des Hinzufügens
+        assertArrayEquals(new Konto[] {k4711, k4711Andere, k8321, k9000}, kontoinhaber.getKonten().toArray());
+
+        // Eine abgefragte Liste bleibt bei Änderungen unverändert
+        List<Konto> vorher = kontoinhaber.getKonten();
+        stand = kontoinhaber.getAenderungen();
+        kontoinhaber.removeKonto(k4711Andere);
+        kontoinhaber.removeKonto(new Girokonto(8321, 1234, 0L, kontoinhaber, bank, 0L));
+        assertArrayEquals(new Konto[] {k4711, k8321, k9000}, kontoinhaber.getKonten().toArray());
+        assertEquals(stand + 1, kontoinhaber.getAenderungen());
+        assertArrayEquals(new Konto[] {k4711, k4711Andere, k8321, k9000}, vorher.toArray());
+        Konto k9500 = new Girokonto(9500, 1234, 0L, kontoinhaber, bank, 0L);
+        List<Konto> ohneAnhang = kontoinhaber.getKonten();
+        kontoinhaber.addKonto(k9500);
+        assertEquals(3, ohneAnhang.size());
+        assertSame(k9500, kontoinhaber.getKonten().get(3));
+
+        try {
+            kontoinhaber.getKonten().clear();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // erwartet
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.geldautomat.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class KontoverlaufTest {
+
+    @Test
+    public void testUeberlauf() {
+        Kontoverlauf verlauf = new Kontoverlauf(4);
+        for (int i = 1; i <= 10; i++) {
+            verlauf.erfassen(Kontoverlauf.Art.EINZAHLUNG, i * 100, i * 1000, null, 0, i, Kontoverlauf.UNBEKANNT);
+        }
+        assertEquals(10, verlauf.getAnzahl());
+        assertEquals(7, verlauf.aeltesteSequenz());
+
+        Kontoverlauf.Auszug auszug = new Kontoverlauf.Auszug(1);
+        assertEquals(4, verlauf.letzte(10, auszug));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(10 - i, auszug.getSequenz(i));
+            assertEquals((10 - i) * 100, auszug.getBetragCent(i));
+            assertEquals((10 - i) * 1000, auszug.getKontostandCent(i));
+        }
+    }
+
+    @Test
+    public void testVerspaetetErfasst() {
+        Kontoverlauf verlauf = new Kontoverlauf(4);
+        long[] reihenfolge = {2, 1, 4, 3, 6, 5};
+        for (long sequenz : reihenfolge) {
+            verlauf.erfassen(Kontoverlauf.Art.AUSZAHLUNG, -sequenz, sequenz, "MA2424", (int) sequenz, sequenz,
+                    Kontoverlauf.UNBEKANNT);
+        }
+        // Der Puffer hält die vier neuesten Umsätze nach Sequenznummer, nicht nach Erfassung
+        assertEquals(3, verlauf.aeltesteSequenz());
+        Kontoverlauf.Auszug auszug = new Kontoverlauf.Auszug(4);
+        assertEquals(4, verlauf.letzte(4, auszug));
+        for (int i = 0; i < 4; i++) {
+            long sequenz = 6 - i;
+            assertEquals(sequenz, auszug.getSequenz(i));
+            assertEquals(-sequenz, auszug.getBetragCent(i));
+            assertEquals((int) sequenz, auszug.getGegenKontonummer(i));
+        }
+
+        // Ein Umsatz, der älter ist als alle gespeicherten, verdrängt keinen von ihnen
+        verlauf.erfassen(Kontoverlauf.Art.EINZAHLUNG, 1, 1, null, 0, 2, Kontoverlauf.UNBEKANNT);
+        assertEquals(6, verlauf.getAnzahl());
+        assertEquals(3, verlauf.aeltesteSequenz());
+
+        // Gleiche Sequenznummern bleiben in der Reihenfolge der Erfassung
+        verlauf.erfassen(Kontoverlauf.Art.EINZAHLUNG, 7, 7, null, 0, 5, Kontoverlauf.UNBEKANNT);
+        auszug.leeren();
+        verlauf.letzte(4, auszug);
+        assertEquals(6, auszug.getSequenz(0));
+        assertEquals(7, auszug.getBetragCent(1));
+        assertEquals(-5, auszug.getBetragCent(2));
+        assertEquals(4, auszug.getSequenz(3));
+        assertEquals(4, verlauf.aeltesteSequenz());
+    }
+}
@@ -55,5 +55,35 @@ public class SparkontoTest {
         
         assertEquals(103.0, sparkonto.getKontostand(), 0.001);
     }
-}
 
+    @Test
+    public void testVerzoegerteVerzinsung() {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("VR Bank Rhein-Neckar", "MA2424", null);
+        Sparkonto sofort = new Sparkonto(4711, 1234, 123457L, kontoinhaber, bank, 2.75);
+        Sparkonto verzoegert = new Sparkonto(4712, 1234, 123457L, kontoinhaber, bank, 2.75);
+        ZinsKalender kalender = new ZinsKalender();
+        verzoegert.setZinsKalender(kalender);
+
+        // Drei Termine ohne Zugriff, dann eine Einzahlung
+        for (int i = 0; i < 3; i++) {
+            sofort.berechneZins();
+            kalender.zinsterminErreicht();
+        }
+        sofort.einzahlenCent(999);
+        verzoegert.einzahlenCent(999);
+        assertEquals(sofort.getKontostandCent(), verzoegert.getKontostandCent());
+
+        // Eine Auszahlung und eine Änderung des Zinssatzes zwischen zwei Terminen
+        sofort.berechneZins();
+        kalender.zinsterminErreicht();
+        sofort.auszahlenCent(50000);
+        verzoegert.auszahlenCent(50000);
+        sofort.setZins(1.0);
+        verzoegert.setZins(1.0);
+        sofort.berechneZins();
+        kalender.zinsterminErreicht();
+        assertEquals(sofort.getKontostandCent(), verzoegert.getKontostandCent());
+        assertEquals(sofort.getKontostand(), verzoegert.getKontostand(), 0.0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.geldautomat.model;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class UeberweisungssystemTest {
+
+    @Test
+    public void testUeberweisen() {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("VR Bank Rhein-Neckar", "MA2424", null);
+        Sparkonto sender = new Sparkonto(4711, 1234, 10000L, kontoinhaber, bank, 3.0);
+        Girokonto empfaenger = new Girokonto(4712, 1234, 0L, kontoinhaber, bank, 0L);
+        Ueberweisungssystem ueberweisungssystem = new Ueberweisungssystem();
+
+        ueberweisungssystem.ueberweisen(sender, empfaenger, 2500);
+        assertEquals(7500, sender.getKontostandCent());
+        assertEquals(2500, empfaenger.getKontostandCent());
+
+        try {
+            ueberweisungssystem.ueberweisen(sender, empfaenger, 7501);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Kontostand zu niedrig", e.getMessage());
+        }
+        assertEquals(7500, sender.getKontostandCent());
+        assertEquals(2500, empfaenger.getKontostandCent());
+    }
+
+    @Test
+    public void testGleichzeitigeUeberweisungen() throws InterruptedException {
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Bank bank = new Bank("VR Bank Rhein-Neckar", "MA2424", null);
+        Konto[] konten = new Konto[16];
+        for (int i = 0; i < konten.length; i++) {
+            konten[i] = new Sparkonto(i, 1234, 1000L, kontoinhaber, bank, 0.0);
+        }
+        // Wenige Sperren, damit sich verschiedene Konten Sperren teilen
+        Ueberweisungssystem ueberweisungssystem = new Ueberweisungssystem(4);
+
+        Thread[] automaten = new Thread[8];
+        for (int i = 0; i < automaten.length; i++) {
+            Random zufall = new Random(i);
+            automaten[i] = new Thread(() -> {
+                for (int j = 0; j < 20000; j++) {
+                    Konto sender = konten[zufall.nextInt(konten.length)];
+                    Konto empfaenger = konten[zufall.nextInt(konten.length)];
+                    try {
+                        ueberweisungssystem.ueberweisen(sender, empfaenger, zufall.nextInt(200));
+                    } catch (IllegalArgumentException e) {
+                        // Kontostand zu niedrig
+                    }
+                }
+            });
+            automaten[i].start();
+        }
+        for (Thread automat : automaten) {
+            automat.join(60000);
+            assertFalse("Überweisungen blockieren sich", automat.isAlive());
+        }
+
+        long summe = 0;
+        for (Konto konto : konten) {
+            assertTrue(konto.getKontostandCent() >= 0);
+            summe += konto.getKontostandCent();
+        }
+        assertEquals(16000, summe);
+    }
+
+    @Test
+    public void testLeserWartenAufUeberweisung() throws Exception {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Mustermann", "Max", "Bahnhofstraße 1", "68159", "Mannheim");
+        Girokonto sender = new Girokonto(4711, 1234, 10000L, kontoinhaber, bank, 0L);
+        Girokonto empfaenger = new Girokonto(4712, 1234, 0L, kontoinhaber, bank, 0L);
+        bank.addKonto(sender);
+        bank.addKonto(empfaenger);
+        system.addBank(bank);
+        AtomicLong gelesen = new AtomicLong(-1);
+        AtomicLong gemeldet = new AtomicLong();
+        sender.addBeobachter(konto -> gemeldet.incrementAndGet());
+        Thread leser = new Thread(() -> gelesen.set(sender.getKontostandCent()));
+
+        Ueberweisungssystem.Ueberweisung ueberweisung = system.ueberweisen(sender, empfaenger, 2500, () -> {
+            // Zwischen Abbuchung und Gutschrift kann niemand den Kontostand des Senders lesen
+            leser.start();
+            try {
+                leser.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(leser.isAlive());
+            assertEquals(0, gemeldet.get());
+            return 42;
+        });
+        leser.join(10000);
+        assertEquals(7500, gelesen.get());
+        assertEquals(7500, ueberweisung.getKontostandSenderCent());
+        assertEquals(2500, ueberweisung.getKontostandEmpfaengerCent());
+        assertEquals(42, ueberweisung.getSequenz());
+        assertEquals(1, gemeldet.get());
+
+        // Schlägt der Zwischenschritt fehl, bleiben beide Konten unverändert
+        try {
+            system.ueberweisen(sender, empfaenger, 1000, () -> {
+                throw new IOException("Testfehler");
+            });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Testfehler", e.getMessage());
+        }
+        assertEquals(7500, sender.getKontostandCent());
+        assertEquals(2500, empfaenger.getKontostandCent());
+        assertEquals(1, gemeldet.get());
+    }
+}
@@ -0,0 +1,215 @@
+package com.geldautomat.persistenz;
+
+import static org.junit.Assert.*;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Kontoverlauf;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.service.Ergebnis;
+import com.geldautomat.service.TransaktionsService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class JournalTest {
+    private Path datei;
+
+    @Before
+    public void setUp() throws IOException {
+        datei = Files.createTempFile("geldautomat", ".journal");
+        Files.delete(datei);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(datei);
+    }
+
+    private static BankManagementSystem erstellen() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        bank.addKonto(new Girokonto(8321, 1234, 10000L, kontoinhaber, bank, 50000L));
+        bank.addKonto(new Sparkonto(4711, 1234, 10000L, kontoinhaber, bank, 3.0));
+        system.addBank(bank);
+        return system;
+    }
+
+    @Test
+    public void testAbspielen() throws Exception {
+        BankManagementSystem system = erstellen();
+        try (Journal journal = Journal.oeffnen(datei)) {
+            TransaktionsService service = new TransaktionsService(system, journal);
+            Thread[] automaten = new Thread[4];
+            for (int i = 0; i < automaten.length; i++) {
+                automaten[i] = new Thread(() -> {
+                    for (int j = 0; j < 250; j++) {
+                        service.einzahlen(system.getKonto("MA2424", 8321), 100);
+                        service.ueberweisen(system.getKonto("MA2424", 8321), "MA2424", 4711, 30);
+                        service.auszahlen(system.getKonto("MA2424", 4711), 10);
+                    }
+                });
+                automaten[i].start();
+            }
+            for (Thread automat : automaten) {
+                automat.join();
+            }
+            assertEquals(3000, journal.getSequenz());
+        }
+
+        BankManagementSystem wiederhergestellt = erstellen();
+        assertEquals(3000, Journal.abspielen(datei, wiederhergestellt, 0));
+        assertEquals(system.getKonto("MA2424", 8321).getKontostandCent(),
+                wiederhergestellt.getKonto("MA2424", 8321).getKontostandCent());
+        assertEquals(10000 + 1000 * 70, wiederhergestellt.getKonto("MA2424", 8321).getKontostandCent());
+        assertEquals(10000 + 1000 * 20, wiederhergestellt.getKonto("MA2424", 4711).getKontostandCent());
+    }
+
+    @Test
+    public void testUnvollstaendigerEintrag() throws Exception {
+        BankManagementSystem system = erstellen();
+        try (Journal journal = Journal.oeffnen(datei)) {
+            journal.buchung(system.getKonto("MA2424", 8321), 500);
+            journal.buchung(system.getKonto("MA2424", 8321), 700);
+        }
+        // Abbruch mitten im Schreiben des zweiten Eintrags
+        try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.WRITE)) {
+            kanal.truncate(kanal.size() - 3);
+        }
+
+        try (Journal journal = Journal.oeffnen(datei)) {
+            assertEquals(1, journal.getSequenz());
+            journal.buchung(system.getKonto("MA2424", 4711), -200);
+            assertEquals(2, journal.getSequenz());
+        }
+        BankManagementSystem wiederhergestellt = erstellen();
+        assertEquals(2, Journal.abspielen(datei, wiederhergestellt, 0));
+        assertEquals(10500, wiederhergestellt.getKonto("MA2424", 8321).getKontostandCent());
+        assertEquals(9800, wiederhergestellt.getKonto("MA2424", 4711).getKontostandCent());
+
+        // Einträge bis zu einer Sequenznummer werden übersprungen
+        BankManagementSystem teilweise = erstellen();
+        Journal.abspielen(datei, teilweise, 1);
+        assertEquals(10000, teilweise.getKonto("MA2424", 8321).getKontostandCent());
+        assertEquals(9800, teilweise.getKonto("MA2424", 4711).getKontostandCent());
+    }
+
+    @Test
+    public void testUmsaetze() throws Exception {
+        BankManagementSystem system = erstellen();
+        Konto girokonto = system.getKonto("MA2424", 8321);
+        Konto sparkonto = system.getKonto("MA2424", 4711);
+        try (Journal journal = Journal.oeffnen(datei)) {
+            TransaktionsService service = new TransaktionsService(system, journal);
+            for (int i = 1; i <= 30; i++) {
+                assertTrue(service.einzahlen(girokonto, i).istErfolgreich());
+            }
+            assertTrue(service.ueberweisen(girokonto, "MA2424", 4711, 1000).istErfolgreich());
+
+            // Der Verlauf hält nur die letzten Umsätze, den neuesten zuerst
+            Kontoverlauf.Auszug auszug = new Kontoverlauf.Auszug(4);
+            assertEquals(5, service.letzteUmsaetze(girokonto, 5, auszug));
+            assertEquals(Kontoverlauf.Art.UEBERWEISUNG_AUSGANG, auszug.getArt(0));
+            assertEquals(-1000, auszug.getBetragCent(0));
+            assertEquals(girokonto.getKontostandCent(), auszug.getKontostandCent(0));
+            assertEquals("MA2424", auszug.getGegenBlz(0));
+            assertEquals(4711, auszug.getGegenKontonummer(0));
+            assertEquals(30, auszug.getBetragCent(1));
+            assertEquals(27, auszug.getBetragCent(4));
+            assertEquals(31, girokonto.getVerlauf().getAnzahl());
+
+            auszug.leeren();
+            assertEquals(Kontoverlauf.STANDARD_KAPAZITAET, service.letzteUmsaetze(girokonto, 100, auszug));
+            assertEquals(16, auszug.getBetragCent(auszug.size() - 1));
+
+            // Ältere Umsätze kommen aus dem Journal
+            long vorSequenz = auszug.getSequenz(auszug.size() - 1);
+            assertEquals(10, service.aeltereUmsaetze(girokonto, vorSequenz, 10, auszug));
+            assertEquals(15, auszug.getBetragCent(Kontoverlauf.STANDARD_KAPAZITAET));
+            assertEquals(6, auszug.getBetragCent(auszug.size() - 1));
+            assertEquals(Kontoverlauf.UNBEKANNT, auszug.getKontostandCent(auszug.size() - 1));
+            assertEquals(5, service.aeltereUmsaetze(girokonto, auszug.getSequenz(auszug.size() - 1), 10, auszug));
+            assertEquals(1, auszug.getBetragCent(auszug.size() - 1));
+
+            auszug.leeren();
+            assertEquals(1, service.letzteUmsaetze(sparkonto, 10, auszug));
+            assertEquals(Kontoverlauf.Art.UEBERWEISUNG_EINGANG, auszug.getArt(0));
+            assertEquals(8321, auszug.getGegenKontonummer(0));
+            auszug.leeren();
+            assertEquals(1, service.aeltereUmsaetze(sparkonto, 0, 10, auszug));
+            assertEquals(Kontoverlauf.Art.UEBERWEISUNG_EINGANG, auszug.getArt(0));
+            assertEquals(1000, auszug.getBetragCent(0));
+        }
+    }
+
+    @Test
+    public void testAeltereUmsaetzeAbStuetzstelle() throws Exception {
+        BankManagementSystem system = erstellen();
+        Konto girokonto = system.getKonto("MA2424", 8321);
+        Konto sparkonto = system.getKonto("MA2424", 4711);
+        // Jeder Eintrag wird einzeln gespeichert und erhält so seine eigene Stützstelle
+        try (Journal journal = Journal.oeffnen(datei, 1)) {
+            TransaktionsService service = new TransaktionsService(system, journal);
+            for (int i = 1; i <= 40; i++) {
+                assertTrue(service.einzahlen(girokonto, i).istErfolgreich());
+                assertTrue(service.einzahlen(sparkonto, 1000 + i).istErfolgreich());
+            }
+
+            // Der Verlauf ist übergelaufen und hält nur die Umsätze 25 bis 40
+            Kontoverlauf.Auszug auszug = new Kontoverlauf.Auszug(16);
+            assertEquals(Kontoverlauf.STANDARD_KAPAZITAET, service.letzteUmsaetze(girokonto, 100, auszug));
+            assertEquals(25, auszug.getBetragCent(auszug.size() - 1));
+            long vorSequenz = auszug.getSequenz(auszug.size() - 1);
+
+            // Alle älteren Umsätze, dazu werden die Abschnitte bis zum Anfang der Datei rückwärts gelesen
+            Kontoverlauf.Auszug aeltere = new Kontoverlauf.Auszug(24);
+            assertEquals(24, service.aeltereUmsaetze(girokonto, vorSequenz, 100, aeltere));
+            for (int i = 0; i < 24; i++) {
+                assertEquals(24 - i, aeltere.getBetragCent(i));
+                assertEquals(Kontoverlauf.Art.EINZAHLUNG, aeltere.getArt(i));
+            }
+
+            // Ein beschädigter erster Eintrag zeigt, dass die letzten älteren Umsätze nicht ab dem Anfang gelesen werden
+            try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.WRITE)) {
+                kanal.write(ByteBuffer.wrap(new byte[] {0x7F}), 10);
+            }
+            aeltere.leeren();
+            assertEquals(5, service.aeltereUmsaetze(girokonto, vorSequenz, 5, aeltere));
+            assertEquals(24, aeltere.getBetragCent(0));
+            assertEquals(20, aeltere.getBetragCent(4));
+        }
+    }
+
+    @Test
+    public void testSpeicherfehler() throws Exception {
+        BankManagementSystem system = erstellen();
+        Konto girokonto = system.getKonto("MA2424", 8321);
+        Konto sparkonto = system.getKonto("MA2424", 4711);
+        Journal journal = Journal.oeffnen(datei);
+        TransaktionsService service = new TransaktionsService(system, journal);
+        assertTrue(service.ueberweisen(sparkonto, "MA2424", 8321, 5000).istErfolgreich());
+        journal.close();
+
+        // Ohne Journal wird nichts gebucht, die Reservierung des Senders wird zurückgenommen
+        assertEquals(Ergebnis.Status.SPEICHERFEHLER, service.einzahlen(sparkonto, 100).getStatus());
+        assertEquals(Ergebnis.Status.SPEICHERFEHLER, service.auszahlen(sparkonto, 100).getStatus());
+        assertEquals(Ergebnis.Status.SPEICHERFEHLER, service.ueberweisen(girokonto, "MA2424", 4711, 100).getStatus());
+        assertEquals(15000, girokonto.getKontostandCent());
+        assertEquals(5000, sparkonto.getKontostandCent());
+
+        BankManagementSystem wiederhergestellt = erstellen();
+        assertEquals(1, Journal.abspielen(datei, wiederhergestellt, 0));
+        assertEquals(15000, wiederhergestellt.getKonto("MA2424", 8321).getKontostandCent());
+    }
+}
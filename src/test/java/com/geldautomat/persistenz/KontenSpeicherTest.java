@@ -0,0 +1,180 @@
+package com.geldautomat.persistenz;
+
+import static org.junit.Assert.*;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class KontenSpeicherTest {
+    private Path datei;
+    private BankManagementSystem system;
+    private Kontoinhaber max;
+
+    @Before
+    public void setUp() throws IOException {
+        datei = Files.createTempFile("geldautomat", ".konten");
+        system = new BankManagementSystem();
+        Bank vrBank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Bank berlinerBank = new Bank("19087", "Berliner Bank", system);
+        max = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        vrBank.addKonto(new Girokonto(8321, 1234, 10000L, max, vrBank, 50000L));
+        vrBank.addKonto(new Sparkonto(4711, 4321, 20000L, max, vrBank, 3.0));
+        berlinerBank.addKonto(new Sparkonto(8321, 1111, 250075L, max, berlinerBank, 0.025));
+        system.addBank(vrBank);
+        system.addBank(berlinerBank);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(datei);
+    }
+
+    @Test
+    public void testBuchenUndWiederOeffnen() throws IOException {
+        try (KontenSpeicher speicher = KontenSpeicher.erstellen(datei, system)) {
+            assertEquals(3, speicher.getAnzahl());
+            assertNull(speicher.getKonto("MA2424", 9999));
+            assertNull(speicher.getKonto("00000", 8321));
+
+            Girokonto girokonto = (Girokonto) speicher.getKonto("MA2424", 8321);
+            assertTrue(girokonto.checkPassword(1234));
+            assertSame(max, girokonto.getKontoinhaber());
+            assertSame(system.getBankByBLZ("MA2424"), girokonto.getBank());
+            girokonto.einzahlenCent(500);
+            girokonto.auszahlenCent(60000);
+            assertEquals(-49500, girokonto.getKontostandCent());
+            try {
+                girokonto.auszahlenCent(1000);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // erwartet
+            }
+            // Jeder Aufruf liefert dieselbe Ansicht
+            assertSame(girokonto, speicher.getKonto("MA2424", 8321));
+            int[] gemeldet = { 0 };
+            girokonto.addBeobachter(konto -> gemeldet[0]++);
+            girokonto.setUeberziehungsbetragCent(60000);
+            assertEquals(1, gemeldet[0]);
+            girokonto.setUeberziehungsbetragCent(50000);
+
+            Sparkonto sparkonto = (Sparkonto) speicher.getKonto("19087", 8321);
+            assertEquals(0.025, sparkonto.getZins(), 0.0);
+            sparkonto.setPin(2222);
+        }
+
+        try (KontenSpeicher speicher = KontenSpeicher.oeffnen(datei, system)) {
+            assertEquals(-49500, speicher.getKonto("MA2424", 8321).getKontostandCent());
+            assertEquals(50000, ((Girokonto) speicher.getKonto("MA2424", 8321)).getUeberziehungsbetragCent());
+            assertEquals(20000, speicher.getKonto("MA2424", 4711).getKontostandCent());
+            assertTrue(speicher.getKonto("19087", 8321).checkPassword(2222));
+        }
+        // Die Konten im Heap bleiben unverändert
+        assertEquals(10000, system.getKonto("MA2424", 8321).getKontostandCent());
+    }
+
+    @Test
+    public void testGleichzeitigeBuchungen() throws Exception {
+        try (KontenSpeicher speicher = KontenSpeicher.erstellen(datei, system)) {
+            Thread[] automaten = new Thread[4];
+            for (int i = 0; i < automaten.length; i++) {
+                automaten[i] = new Thread(() -> {
+                    Konto konto = speicher.getKonto("MA2424", 4711);
+                    for (int j = 0; j < 10000; j++) {
+                        konto.einzahlenCent(3);
+                        konto.auszahlenCent(1);
+                    }
+                });
+                automaten[i].start();
+            }
+            for (Thread automat : automaten) {
+                automat.join();
+            }
+            assertEquals(20000 + 4 * 10000 * 2, speicher.getKonto("MA2424", 4711).getKontostandCent());
+        }
+    }
+
+    @Test
+    public void testKontonummerUndKunden() throws IOException {
+        // Bei einer anderen Bank gehört dieselbe Kundennummer einem anderen Kunden
+        Bank bank = new Bank("10000", "Andere Bank", system);
+        Kontoinhaber erika = new Kontoinhaber(123456, "Erika", "Muster", "Hauptstraße 2", "10115", "Berlin");
+        bank.addKonto(new Girokonto(1, 1111, 0L, erika, bank, 0L));
+        system.addBank(bank);
+        try (KontenSpeicher speicher = KontenSpeicher.erstellen(datei, system)) {
+            assertSame(erika, speicher.getKonto("10000", 1).getKontoinhaber());
+            assertSame(max, speicher.getKonto("MA2424", 4711).getKontoinhaber());
+
+            Konto konto = speicher.getKonto("MA2424", 4711);
+            konto.setKontonummer(4712);
+            assertEquals(4712, konto.getKontonummer());
+            assertNull(speicher.getKonto("MA2424", 4711));
+            assertSame(konto, speicher.getKonto("MA2424", 4712));
+            assertEquals(10000, speicher.getKonto("MA2424", 8321).getKontostandCent());
+            try {
+                konto.setKontonummer(8321);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // erwartet
+            }
+        }
+        try (KontenSpeicher speicher = KontenSpeicher.oeffnen(datei, system)) {
+            assertSame(erika, speicher.getKonto("10000", 1).getKontoinhaber());
+            assertEquals(20000, speicher.getKonto("MA2424", 4712).getKontostandCent());
+            assertEquals(4712, speicher.getKonto("MA2424", 4712).getKontonummer());
+        }
+    }
+
+    @Test
+    public void testOeffnenOhneBankverwaltung() throws IOException {
+        KontenSpeicher.erstellen(datei, system).close();
+        try (KontenSpeicher speicher = KontenSpeicher.oeffnen(datei)) {
+            Konto girokonto = speicher.getKonto("MA2424", 8321);
+            assertEquals(10000, girokonto.getKontostandCent());
+            assertEquals("VR Bank Rhein-Neckar", girokonto.getBank().getName());
+            Kontoinhaber inhaber = girokonto.getKontoinhaber();
+            assertNotSame(max, inhaber);
+            assertEquals(123456, inhaber.getKundennummer());
+            assertEquals("Max", inhaber.getVorname());
+            assertEquals("Mustermann", inhaber.getName());
+            assertEquals("Bahnhofstraße 1", inhaber.getStrasse());
+            assertEquals("68159", inhaber.getPlz());
+            assertEquals("Mannheim", inhaber.getOrt());
+            // Konten desselben Kunden bei derselben Bank teilen sich den Kontoinhaber
+            assertSame(inhaber, speicher.getKonto("MA2424", 4711).getKontoinhaber());
+            assertNotSame(inhaber, speicher.getKonto("19087", 8321).getKontoinhaber());
+            assertEquals("Berliner Bank", speicher.getKonto("19087", 8321).getBank().getName());
+        }
+        // Fehlen Banken und Kunden im Bankverwaltungssystem, gelten die gespeicherten Daten
+        try (KontenSpeicher speicher = KontenSpeicher.oeffnen(datei, new BankManagementSystem())) {
+            assertEquals("Mannheim", speicher.getKonto("MA2424", 8321).getKontoinhaber().getOrt());
+            assertEquals(250075, speicher.getKonto("19087", 8321).getKontostandCent());
+        }
+    }
+
+    @Test
+    public void testNichtMehrGehalteneAnsichten() throws Exception {
+        try (KontenSpeicher speicher = KontenSpeicher.erstellen(datei, system)) {
+            WeakReference<Konto> ansicht = new WeakReference<>(speicher.getKonto("MA2424", 4711));
+            ansicht.get().einzahlenCent(100);
+            for (int i = 0; i < 100 && ansicht.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            // Der KontenSpeicher hält die Ansicht nicht fest, die Buchung steht im Datensatz
+            assertNull(ansicht.get());
+            assertEquals(20100, speicher.getKonto("MA2424", 4711).getKontostandCent());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.geldautomat.persistenz;
+
+import static org.junit.Assert.*;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.model.ZinsKalender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SnapshotTest {
+    private Path snapshotDatei;
+    private Path journalDatei;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshotDatei = Files.createTempFile("geldautomat", ".snapshot");
+        journalDatei = Files.createTempFile("geldautomat", ".journal");
+        Files.delete(journalDatei);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotDatei);
+        Files.deleteIfExists(journalDatei);
+    }
+
+    private static BankManagementSystem erstellen() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank vrBank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Bank berlinerBank = new Bank("19087", "Berliner Bank", system);
+        Kontoinhaber max = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        Kontoinhaber erika = new Kontoinhaber(654321, "Erika", "Musterfrau", "Hauptstraße 2", "10115", "Berlin");
+        Konto[] konten = {
+            new Girokonto(8321, 1234, 10000L, max, vrBank, 50000L),
+            new Sparkonto(4711, 4321, -1L, max, vrBank, 3.0),
+            new Sparkonto(8321, 1111, 250075L, max, berlinerBank, 0.025)
+        };
+        for (Konto konto : konten) {
+            konto.getKontoinhaber().addKonto(konto);
+            konto.getBank().addKonto(konto);
+        }
+        Girokonto girokonto = new Girokonto(1717, 2222, 0L, erika, berlinerBank, 0L);
+        erika.addKonto(girokonto);
+        berlinerBank.addKonto(girokonto);
+        system.addBank(vrBank);
+        system.addBank(berlinerBank);
+        return system;
+    }
+
+    @Test
+    public void testSchreibenUndLaden() throws IOException {
+        BankManagementSystem system = erstellen();
+        Snapshot.schreiben(snapshotDatei, system, 42, 4711);
+
+        Snapshot snapshot = Snapshot.laden(snapshotDatei);
+        assertEquals(42, snapshot.getJournalSequenz());
+        assertEquals(4711, snapshot.getJournalPosition());
+        BankManagementSystem geladen = snapshot.getBankManagementSystem();
+        assertEquals(2, geladen.getBanks().size());
+        assertEquals("Berliner Bank", geladen.getBankByBLZ("19087").getName());
+
+        Girokonto girokonto = (Girokonto) geladen.getKonto("MA2424", 8321);
+        assertEquals(1234, girokonto.getPin());
+        assertEquals(10000, girokonto.getKontostandCent());
+        assertEquals(50000, girokonto.getUeberziehungsbetragCent());
+        assertEquals(-1, geladen.getKonto("MA2424", 4711).getKontostandCent());
+        Sparkonto sparkonto = (Sparkonto) geladen.getKonto("19087", 8321);
+        assertEquals(0.025, sparkonto.getZins(), 0.0);
+
+        // Ein Kontoinhaber mit Konten bei zwei Banken bleibt ein Objekt
+        Kontoinhaber max = girokonto.getKontoinhaber();
+        assertSame(max, sparkonto.getKontoinhaber());
+        assertEquals(3, max.getKonten().size());
+        assertEquals("Bahnhofstraße 1", max.getStrasse());
+        assertSame(max, geladen.getBankByBLZ("19087").findKundenByKundennummer(123456));
+        assertEquals("Musterfrau", geladen.getKonto("19087", 1717).getKontoinhaber().getName());
+    }
+
+    @Test
+    public void testJournalRestEinspielen() throws IOException {
+        BankManagementSystem system = erstellen();
+        try (Journal journal = Journal.oeffnen(journalDatei)) {
+            journal.buchung(system.getKonto("MA2424", 8321), 100);
+            Snapshot.schreiben(snapshotDatei, system, journal.getSequenz(), journal.getPosition());
+            journal.buchung(system.getKonto("MA2424", 8321), 200);
+            journal.ueberweisung(system.getKonto("MA2424", 8321), system.getKonto("19087", 1717), 50);
+        }
+
+        Snapshot snapshot = Snapshot.laden(snapshotDatei);
+        BankManagementSystem geladen = snapshot.getBankManagementSystem();
+        long sequenz = Journal.abspielen(journalDatei, geladen, snapshot.getJournalSequenz(), snapshot.getJournalPosition());
+        assertEquals(3, sequenz);
+        assertEquals(10150, geladen.getKonto("MA2424", 8321).getKontostandCent());
+        assertEquals(50, geladen.getKonto("19087", 1717).getKontostandCent());
+    }
+
+    @Test
+    public void testZinsKalender() throws IOException {
+        BankManagementSystem system = erstellen();
+        ZinsKalender kalender = new ZinsKalender();
+        kalender.anmelden(system);
+        kalender.zinsterminErreicht();
+        kalender.zinsterminErreicht();
+        Snapshot.schreiben(snapshotDatei, system, 0, 0);
+        // Der Snapshot hat die offenen Zinsen beim Lesen der Kontostände verbucht
+        Sparkonto sparkonto = (Sparkonto) system.getKonto("19087", 8321);
+        long kontostand = sparkonto.getKontostandCent();
+
+        Snapshot snapshot = Snapshot.laden(snapshotDatei);
+        assertEquals(1, snapshot.getZinsKalender().size());
+        ZinsKalender geladenerKalender = snapshot.getZinsKalender().get(0);
+        assertEquals(2, geladenerKalender.getPeriode());
+        Sparkonto geladen = (Sparkonto) snapshot.getBankManagementSystem().getKonto("19087", 8321);
+        assertSame(geladenerKalender, geladen.getZinsKalender());
+        assertSame(geladenerKalender, ((Sparkonto) snapshot.getBankManagementSystem().getKonto("MA2424", 4711)).getZinsKalender());
+        assertEquals(2, geladen.getVerzinstBis());
+        // Keine Periode wird nach dem Laden ein zweites Mal verzinst
+        assertEquals(kontostand, geladen.getKontostandCent());
+
+        kalender.zinsterminErreicht();
+        geladenerKalender.zinsterminErreicht();
+        assertEquals(sparkonto.getKontostandCent(), geladen.getKontostandCent());
+    }
+
+    @Test
+    public void testBeschaedigterSnapshot() throws IOException {
+        Snapshot.schreiben(snapshotDatei, erstellen(), 0, 0);
+        try (FileChannel kanal = FileChannel.open(snapshotDatei, StandardOpenOption.WRITE)) {
+            kanal.write(ByteBuffer.wrap(new byte[] {0x7F}), 40);
+        }
+        try {
+            Snapshot.laden(snapshotDatei);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // erwartet
+        }
+    }
+}
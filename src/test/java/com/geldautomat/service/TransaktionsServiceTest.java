@@ -0,0 +1,98 @@
+package com.geldautomat.service;
+
+import static org.junit.Assert.*;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransaktionsServiceTest {
+    private TransaktionsService service;
+    private Girokonto girokonto;
+    private Sparkonto sparkonto;
+
+    @Before
+    public void setUp() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank bank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        girokonto = new Girokonto(8321, 1234, 10000L, kontoinhaber, bank, 50000L);
+        sparkonto = new Sparkonto(4711, 4321, 10000L, kontoinhaber, bank, 3.0);
+        bank.addKonto(girokonto);
+        bank.addKonto(sparkonto);
+        system.addBank(bank);
+        service = new TransaktionsService(system);
+    }
+
+    @Test
+    public void testAnmelden() {
+        Ergebnis ergebnis = service.anmelden("MA2424", 8321, 1234);
+        assertTrue(ergebnis.istErfolgreich());
+        assertSame(girokonto, ergebnis.getKonto());
+
+        assertEquals(Ergebnis.Status.FALSCHE_PIN, service.anmelden("MA2424", 8321, 4321).getStatus());
+        assertEquals(Ergebnis.Status.KONTO_NICHT_GEFUNDEN, service.anmelden("MA2424", 1717, 1234).getStatus());
+        assertEquals(Ergebnis.Status.BANK_NICHT_GEFUNDEN, service.anmelden("Zock7777", 8321, 1234).getStatus());
+        assertEquals("Bank nicht gefunden.", service.anmelden("Zock7777", 8321, 1234).getMeldung());
+    }
+
+    @Test
+    public void testEinzahlenUndAuszahlen() {
+        assertEquals(15000, service.einzahlen(sparkonto, 5000).getKontostandCent());
+        assertEquals(Ergebnis.Status.UNGUELTIGER_BETRAG, service.einzahlen(sparkonto, 0).getStatus());
+
+        assertEquals(Ergebnis.Status.ERFOLG, service.deckungPruefen(sparkonto, 15000).getStatus());
+        assertEquals(Ergebnis.Status.NICHT_GEDECKT, service.deckungPruefen(sparkonto, 15001).getStatus());
+        assertEquals(Ergebnis.Status.NICHT_GEDECKT, service.auszahlen(sparkonto, 15001).getStatus());
+        assertEquals(0, service.auszahlen(sparkonto, 15000).getKontostandCent());
+
+        assertEquals(Ergebnis.Status.UEBERZIEHUNG, service.deckungPruefen(girokonto, 60000).getStatus());
+        assertEquals(Ergebnis.Status.NICHT_GEDECKT, service.deckungPruefen(girokonto, 60001).getStatus());
+        assertEquals(-50000, service.auszahlen(girokonto, 60000).getKontostandCent());
+        assertEquals(-50000, service.kontostandAbfragen(girokonto).getKontostandCent());
+    }
+
+    @Test
+    public void testUeberweisen() {
+        assertEquals(Ergebnis.Status.EMPFAENGER_NICHT_GEFUNDEN,
+                service.ueberweisungPruefen(girokonto, "MA2424", 1717, 100000).getStatus());
+        assertEquals(Ergebnis.Status.NICHT_GEDECKT,
+                service.ueberweisungPruefen(girokonto, "MA2424", 4711, 100000).getStatus());
+
+        Ergebnis ergebnis = service.ueberweisen(girokonto, "MA2424", 4711, 2500);
+        assertTrue(ergebnis.istErfolgreich());
+        assertEquals(7500, ergebnis.getKontostandCent());
+        assertEquals(12500, sparkonto.getKontostandCent());
+
+        assertEquals(Ergebnis.Status.NICHT_GEDECKT, service.ueberweisen(sparkonto, "MA2424", 8321, 12501).getStatus());
+        assertEquals(12500, sparkonto.getKontostandCent());
+    }
+
+    @Test
+    public void testMesswerte() {
+        service.anmelden("MA2424", 8321, 1234);
+        service.anmelden("MA2424", 8321, 4321);
+        service.anmelden("Zock7777", 8321, 1234);
+        service.einzahlen(girokonto, 5000);
+        service.auszahlen(girokonto, 10000);
+        service.auszahlen(girokonto, 10000);
+        service.auszahlen(sparkonto, 10001);
+
+        Messwerte messwerte = service.getMesswerte();
+        assertEquals(3, messwerte.getLatenzen(Messwerte.Vorgang.ANMELDEN).getAnzahl());
+        assertEquals(1, messwerte.getAnzahl(Messwerte.Vorgang.ANMELDEN, Ergebnis.Status.FALSCHE_PIN));
+        assertEquals(1, messwerte.getAnzahl(Messwerte.Vorgang.ANMELDEN, Ergebnis.Status.BANK_NICHT_GEFUNDEN));
+        assertEquals(1, messwerte.getAnzahl(Messwerte.Vorgang.EINZAHLEN, Ergebnis.Status.ERFOLG));
+        assertEquals(1, messwerte.getAnzahl(Messwerte.Vorgang.AUSZAHLEN, Ergebnis.Status.ERFOLG));
+        assertEquals(1, messwerte.getAnzahl(Messwerte.Vorgang.AUSZAHLEN_UEBERZIEHUNG, Ergebnis.Status.ERFOLG));
+        assertEquals(1, messwerte.getAnzahl(Messwerte.Vorgang.AUSZAHLEN, Ergebnis.Status.NICHT_GEDECKT));
+        assertTrue(messwerte.schnappschuss().contains("FALSCHE_PIN"));
+
+        messwerte.zuruecksetzen();
+        assertEquals(0, messwerte.getLatenzen(Messwerte.Vorgang.ANMELDEN).getAnzahl());
+    }
+}
@@ -0,0 +1,87 @@
+package com.geldautomat.service;
+
+import static org.junit.Assert.*;
+
+import com.geldautomat.model.Bank;
+import com.geldautomat.model.BankManagementSystem;
+import com.geldautomat.model.Girokonto;
+import com.geldautomat.model.Konto;
+import com.geldautomat.model.Kontoinhaber;
+import com.geldautomat.model.Sparkonto;
+import com.geldautomat.persistenz.Journal;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class ZinslaufTest {
+
+    private static BankManagementSystem erstellen() {
+        BankManagementSystem system = new BankManagementSystem();
+        Bank vrBank = new Bank("MA2424", "VR Bank Rhein-Neckar", system);
+        Bank berlinerBank = new Bank("19087", "Berliner Bank", system);
+        Kontoinhaber kontoinhaber = new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstraße 1", "68159", "Mannheim");
+        // Mehr Konten als ein Abschnitt, damit der Zinslauf teilt
+        for (int i = 0; i < 3 * Zinslauf.ABSCHNITT; i++) {
+            if (i % 3 == 0) {
+                vrBank.addKonto(new Girokonto(i, 1234, 10000L + i, kontoinhaber, vrBank, 0L));
+            } else {
+                vrBank.addKonto(new Sparkonto(i, 1234, 10000L + i, kontoinhaber, vrBank, 1.5));
+            }
+        }
+        berlinerBank.addKonto(new Sparkonto(1, 1234, 250075L, kontoinhaber, berlinerBank, 2.0));
+        system.addBank(vrBank);
+        system.addBank(berlinerBank);
+        return system;
+    }
+
+    @Test
+    public void testZinsenGutschreiben() throws Exception {
+        BankManagementSystem erwartet = erstellen();
+        long erwarteteZinsen = 0;
+        for (Bank bank : erwartet.getBanks()) {
+            for (Konto konto : bank.getKonten()) {
+                if (konto instanceof Sparkonto) {
+                    erwarteteZinsen += ((Sparkonto) konto).berechneZins();
+                }
+            }
+        }
+
+        BankManagementSystem system = erstellen();
+        Path datei = Files.createTempFile("geldautomat", ".journal");
+        Files.delete(datei);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Zinslauf.Bericht bericht;
+            try (Journal journal = Journal.oeffnen(datei)) {
+                bericht = new Zinslauf(system, journal, 1, pool).ausfuehren();
+            }
+            assertEquals(2, bericht.getAnzahlBanken());
+            assertEquals("MA2424", bericht.getBlz(0));
+            assertEquals(2 * Zinslauf.ABSCHNITT, bericht.getAnzahlKonten(0));
+            assertEquals(1, bericht.getAnzahlKonten(1));
+            assertEquals(5002, bericht.getZinsenCent(1));
+            assertEquals(erwarteteZinsen, bericht.getZinsenCent());
+
+            // Ein wiederholter Lauf mit derselben Nummer schreibt keinem Konto ein zweites Mal Zinsen gut
+            Zinslauf.Bericht wiederholt = new Zinslauf(system, null, 1, pool).ausfuehren();
+            assertEquals(0, wiederholt.getAnzahlKonten());
+            assertEquals(0, wiederholt.getZinsenCent());
+
+            BankManagementSystem wiederhergestellt = erstellen();
+            Journal.abspielen(datei, wiederhergestellt, 0);
+            // Auch ein doppelt eingespieltes Journal schreibt die Zinsen eines Laufs nur einmal gut
+            Journal.abspielen(datei, wiederhergestellt, 0);
+            assertEquals(1, ((Sparkonto) wiederhergestellt.getKonto("19087", 1)).getZinslauf());
+            for (int i = 0; i < 3 * Zinslauf.ABSCHNITT; i++) {
+                long kontostand = erwartet.getKonto("MA2424", i).getKontostandCent();
+                assertEquals(kontostand, system.getKonto("MA2424", i).getKontostandCent());
+                assertEquals(kontostand, wiederhergestellt.getKonto("MA2424", i).getKontostandCent());
+            }
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(datei);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.geldautomat.util;
+
+import com.geldautomat.model.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class CSVExporterTest {
+
+    private static void assertGleich(BankManagementSystem erwartet, BankManagementSystem tatsaechlich) {
+        Assert.assertEquals(erwartet.getBanks().size(), tatsaechlich.getBanks().size());
+        for (int b = 0; b < erwartet.getBanks().size(); b++) {
+            Bank bank = erwartet.getBanks().get(b);
+            Bank kopie = tatsaechlich.getBanks().get(b);
+            Assert.assertEquals(bank.getBlz(), kopie.getBlz());
+            Assert.assertEquals(bank.getName(), kopie.getName());
+            Assert.assertEquals(bank.getKonten().size(), kopie.getKonten().size());
+            for (int k = 0; k < bank.getKonten().size(); k++) {
+                Konto konto = bank.getKonten().get(k);
+                Konto kontoKopie = kopie.getKonten().get(k);
+                Assert.assertEquals(konto.getClass(), kontoKopie.getClass());
+                Assert.assertEquals(konto.getKontonummer(), kontoKopie.getKontonummer());
+                Assert.assertEquals(konto.getPin(), kontoKopie.getPin());
+                Assert.assertEquals(konto.getKontostandCent(), kontoKopie.getKontostandCent());
+                if (konto instanceof Girokonto) {
+                    Assert.assertEquals(((Girokonto) konto).getUeberziehungsbetragCent(),
+                            ((Girokonto) kontoKopie).getUeberziehungsbetragCent());
+                } else {
+                    Assert.assertEquals(((Sparkonto) konto).getZins(), ((Sparkonto) kontoKopie).getZins(), 0.0);
+                }
+                Kontoinhaber inhaber = konto.getKontoinhaber();
+                Kontoinhaber inhaberKopie = kontoKopie.getKontoinhaber();
+                Assert.assertEquals(inhaber.getKundennummer(), inhaberKopie.getKundennummer());
+                Assert.assertEquals(inhaber.getName(), inhaberKopie.getName());
+                Assert.assertEquals(inhaber.getVorname(), inhaberKopie.getVorname());
+                // Zeichen wie ß kann nicht jeder Standardzeichensatz darstellen
+                if (Charset.defaultCharset().newEncoder().canEncode(inhaber.getStrasse())) {
+                    Assert.assertEquals(inhaber.getStrasse(), inhaberKopie.getStrasse());
+                }
+                Assert.assertEquals(inhaber.getPlz(), inhaberKopie.getPlz());
+                Assert.assertEquals(inhaber.getOrt(), inhaberKopie.getOrt());
+            }
+        }
+    }
+
+    @Test
+    public void testSaveToCSV() throws IOException {
+        BankManagementSystem original = CSVImporter.loadFromCSV("src/test/resources/BankCSV.csv");
+        File datei = File.createTempFile("export", ".csv");
+        try {
+            CSVExporter.saveToCSV(original, datei.getPath());
+            assertGleich(original, CSVImporter.loadFromCSV(datei.getPath()));
+            assertGleich(original, CSVImporter.loadFromCSVParallel(datei.getPath()));
+        } finally {
+            datei.delete();
+        }
+    }
+
+    @Test
+    public void testExportierenNurGeaenderteKonten() throws IOException {
+        BankManagementSystem system = CSVImporter.loadFromCSV("src/test/resources/BankCSV.csv");
+        File datei = File.createTempFile("export", ".csv");
+        try {
+            CSVExporter exporter = new CSVExporter(system, datei.getPath());
+            int anzahl = exporter.exportieren();
+            Assert.assertTrue(anzahl > 2);
+            Assert.assertEquals(0, exporter.exportieren());
+
+            Konto konto = system.getBanks().get(0).getKonten().get(0);
+            konto.einzahlenCent(123_456_789_00L);
+            Konto anderesKonto = system.getBanks().get(1).getKonten().get(0);
+            anderesKonto.setKontostandCent(-7);
+            long groesse = datei.length();
+            List<String> vorher = Files.readAllLines(datei.toPath(), Charset.defaultCharset());
+
+            Assert.assertEquals(2, exporter.exportieren());
+            Assert.assertEquals(groesse, datei.length());
+            List<String> nachher = Files.readAllLines(datei.toPath(), Charset.defaultCharset());
+            int geaendert = 0;
+            for (int i = 0; i < vorher.size(); i++) {
+                if (!vorher.get(i).equals(nachher.get(i))) {
+                    geaendert++;
+                }
+            }
+            Assert.assertEquals(2, geaendert);
+            assertGleich(system, CSVImporter.loadFromCSV(datei.getPath()));
+            Assert.assertFalse(new File(datei.getPath() + ".tmp").exists());
+            Assert.assertFalse(new File(datei.getPath() + ".patch").exists());
+
+            // Eine Änderung von außen mit gleicher Größe wird an der Änderungszeit erkannt
+            Files.write(datei.toPath(), vorher, Charset.defaultCharset());
+            Assert.assertEquals(groesse, datei.length());
+            Files.setLastModifiedTime(datei.toPath(), FileTime.fromMillis(0));
+            Assert.assertEquals(anzahl, exporter.exportieren());
+            assertGleich(system, CSVImporter.loadFromCSV(datei.getPath()));
+
+            // Ein neues Konto ändert den Aufbau der Datei, sie wird vollständig geschrieben
+            Bank bank = system.getBanks().get(0);
+            bank.addKonto(new Girokonto(9999, 1111, 500L, konto.getKontoinhaber(), bank, 0L));
+            Assert.assertEquals(anzahl + 1, exporter.exportieren());
+            assertGleich(system, CSVImporter.loadFromCSV(datei.getPath()));
+        } finally {
+            datei.delete();
+        }
+    }
+
+    @Test
+    public void testUnterbrochenesUeberschreiben() throws IOException {
+        BankManagementSystem system = CSVImporter.loadFromCSV("src/test/resources/BankCSV.csv");
+        File datei = File.createTempFile("export", ".csv");
+        Path patchDatei = Paths.get(datei.getPath() + ".patch");
+        try {
+            CSVExporter exporter = new CSVExporter(system, datei.getPath());
+            exporter.exportieren();
+            byte[] vorher = Files.readAllBytes(datei.toPath());
+            Konto konto = system.getBanks().get(0).getKonten().get(0);
+            konto.einzahlenCent(4711);
+            Assert.assertEquals(1, exporter.exportieren());
+
+            // Absturz nach dem Speichern des Patches, bevor die Datei geändert wurde
+            byte[] nachher = Files.readAllBytes(datei.toPath());
+            int position = 0;
+            while (vorher[position] == nachher[position]) {
+                position++;
+            }
+            // Der Betrag steht rechtsbündig vor dem Semikolon, der Patch enthält ihn in voller Breite
+            while (nachher[position - 1] != ';') {
+                position--;
+            }
+            int ende = position;
+            while (nachher[ende] != ';') {
+                ende++;
+            }
+            ByteBuffer patch = ByteBuffer.allocate(20 + 8 + ende - position);
+            patch.putInt(CSVExporter.PATCH_KENNUNG).putLong(vorher.length).putInt(1);
+            patch.putLong(position).put(nachher, position, ende - position);
+            CRC32 pruefsumme = new CRC32();
+            pruefsumme.update(patch.array(), 0, patch.position());
+            patch.putInt((int) pruefsumme.getValue());
+            Files.write(datei.toPath(), vorher);
+            Files.write(patchDatei, patch.array());
+
+            // Der Import wendet den Patch an, bevor er die Datei liest
+            assertGleich(system, CSVImporter.loadFromCSV(datei.getPath()));
+            Assert.assertFalse(Files.exists(patchDatei));
+            Assert.assertArrayEquals(nachher, Files.readAllBytes(datei.toPath()));
+
+            // Ein unvollständiger Patch wurde vor jeder Änderung der Datei geschrieben und wird verworfen
+            Files.write(datei.toPath(), vorher);
+            Files.write(patchDatei, Arrays.copyOf(patch.array(), patch.capacity() - 1));
+            Assert.assertFalse(CSVExporter.wiederherstellen(datei.getPath()));
+            Assert.assertFalse(Files.exists(patchDatei));
+            Assert.assertArrayEquals(vorher, Files.readAllBytes(datei.toPath()));
+        } finally {
+            datei.delete();
+            Files.deleteIfExists(patchDatei);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testSemikolonImFeld() throws IOException {
+        BankManagementSystem system = CSVImporter.loadFromCSV("src/test/resources/BankCSV.csv");
+        system.getBanks().get(0).setName("VR Bank; Rhein-Neckar");
+        File datei = File.createTempFile("export", ".csv");
+        try {
+            CSVExporter.saveToCSV(system, datei.getPath());
+        } finally {
+            datei.delete();
+            new File(datei.getPath() + ".tmp").delete();
+        }
+    }
+}
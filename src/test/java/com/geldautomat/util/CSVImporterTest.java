@@ -5,6 +5,9 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class CSVImporterTest {
     @Test
@@ -112,4 +115,94 @@ public class CSVImporterTest {
         Assert.assertEquals("Zocker Bank", girokonto2.getBank().getName());
         Assert.assertEquals(50000.5, girokonto2.getUeberziehungsbetrag(), 0.001);
     }
+
+    @Test
+    public void testLoadFromCSVParallel() throws IOException {
+        String filepath = "src/test/resources/BankCSV.csv";
+        BankManagementSystem sequentiell = CSVImporter.loadFromCSV(filepath);
+        BankManagementSystem parallel = CSVImporter.loadFromCSVParallel(filepath);
+
+        Assert.assertEquals(sequentiell.getBanks().size(), parallel.getBanks().size());
+        for (int i = 0; i < sequentiell.getBanks().size(); i++) {
+            Bank erwartet = sequentiell.getBanks().get(i);
+            Bank bank = parallel.getBanks().get(i);
+            Assert.assertEquals(erwartet.getBlz(), bank.getBlz());
+            Assert.assertEquals(erwartet.getName(), bank.getName());
+            Assert.assertEquals(erwartet.getKonten().size(), bank.getKonten().size());
+            for (int j = 0; j < erwartet.getKonten().size(); j++) {
+                Konto erwartetesKonto = erwartet.getKonten().get(j);
+                Konto konto = bank.getKonten().get(j);
+                Assert.assertEquals(erwartetesKonto.getClass(), konto.getClass());
+                Assert.assertEquals(erwartetesKonto.getKontonummer(), konto.getKontonummer());
+                Assert.assertEquals(erwartetesKonto.getKontostand(), konto.getKontostand(), 0.0);
+                Assert.assertEquals(erwartetesKonto.getKontoinhaber().getStrasse(), konto.getKontoinhaber().getStrasse());
+            }
+        }
+    }
+
+    @Test
+    public void testLoadFromCSVParallelFehler() {
+        String filepath = "src/test/resources/Manuelle Tests/Doppelte-KontonummerCSV.csv";
+        String erwartet = null;
+        try {
+            CSVImporter.loadFromCSV(filepath);
+            Assert.fail("Expected IOException");
+        } catch (IOException e) {
+            erwartet = e.getMessage();
+        }
+        try {
+            CSVImporter.loadFromCSVParallel(filepath);
+            Assert.fail("Expected IOException");
+        } catch (IOException e) {
+            Assert.assertEquals(erwartet, e.getMessage());
+        }
+    }
+
+    private static String fehlerhafteCSV(boolean doppelteKontonummer) {
+        StringBuilder csv = new StringBuilder("Bank;BLZ;Kontonummer;PIN;Kontostand;Kontoart;Zins %;"
+                + "Ueberziehungsbetrag;Kundennummer;Name;Vorname;Kunde Strasse;Kunde PLZ;Kunde Ort\n");
+        for (int zeile = 2; zeile <= 200; zeile++) {
+            int kontonummer = doppelteKontonummer && zeile == 190 ? 2 : zeile;
+            String pin = zeile == 195 ? "12x4" : "1234";
+            csv.append("VR Bank Rhein-Neckar;MA2424;").append(kontonummer).append(';').append(pin)
+                    .append(";500,14;Girokonto;;1.000;123456;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n");
+        }
+        return csv.toString();
+    }
+
+    @Test
+    public void testLoadFromCSVParallelFehlerInSpaeteremAbschnitt() throws IOException {
+        // Zeile 190 wiederholt die Kontonummer aus Zeile 2, Zeile 195 hat eine ungültige PIN
+        Path datei = Files.createTempFile("geldautomat", ".csv");
+        try {
+            Files.write(datei, fehlerhafteCSV(true).getBytes(StandardCharsets.US_ASCII));
+            String erwartet = null;
+            try {
+                CSVImporter.loadFromCSV(datei.toString());
+                Assert.fail("Expected IOException");
+            } catch (IOException e) {
+                erwartet = e.getMessage();
+            }
+            Assert.assertTrue(erwartet, erwartet.contains("190"));
+
+            // Abschnitte von 64 Bytes, damit die Zeile in einem späteren Abschnitt liegt
+            try {
+                new ParallelerCSVImport(datei.toString(), 64).laden();
+                Assert.fail("Expected IOException");
+            } catch (IOException e) {
+                Assert.assertEquals(erwartet, e.getMessage());
+            }
+
+            // Ohne die doppelte Kontonummer meldet der Parser die ungültige PIN mit ihrer Zeile
+            Files.write(datei, fehlerhafteCSV(false).getBytes(StandardCharsets.US_ASCII));
+            try {
+                new ParallelerCSVImport(datei.toString(), 64).laden();
+                Assert.fail("Expected IOException");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Fehler beim Parsen der Daten in Zeile 195 "));
+            }
+        } finally {
+            Files.deleteIfExists(datei);
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package com.geldautomat.util;
+
+import com.geldautomat.model.*;
+import com.geldautomat.persistenz.Journal;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CSVNachladerTest {
+    private static final String KOPF = "Bank;BLZ;Kontonummer;PIN;Kontostand;Kontoart;Zins %;Ueberziehungsbetrag;Kundennummer;Name;Vorname;Kunde Strasse;Kunde PLZ;Kunde Ort\n";
+
+    private static void schreiben(File datei, String inhalt) throws IOException {
+        Files.write(datei.toPath(), (KOPF + inhalt).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testNachladen() throws IOException {
+        File datei = File.createTempFile("nachladen", ".csv");
+        try {
+            schreiben(datei,
+                    "VR Bank;MA2424;4711;1234;50,14;Sparkonto;3%;;123456;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n"
+                    + "VR Bank;MA2424;8321;1234;500,14;Girokonto;;1.000;123456;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n"
+                    + "VR Bank;MA2424;9000;1111;10;Girokonto;;0;4242;Muster;Erika;Hauptstrasse 2;68159;Mannheim\n"
+                    + "Berliner Bank;19087;1717;1234;500,14;Sparkonto;1,003;;717171;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n"
+                    + "Zocker Bank;Zock7777;4444;7777;-8000,5;Girokonto;;50000,5;31124;Hogo;Gruber;Berlinerstrasse 33;7899;Berlin\n");
+            BankManagementSystem system = CSVImporter.loadFromCSV(datei.getPath());
+            Bank bank = system.getBankByBLZ("MA2424");
+            Konto girokonto = system.getKonto("MA2424", 8321);
+            Konto sparkonto = system.getKonto("MA2424", 4711);
+            Konto wechsel = system.getKonto("MA2424", 9000);
+            girokonto.einzahlenCent(100);
+
+            CSVNachlader nachlader = new CSVNachlader(system, datei.getPath());
+            CSVNachlader.Aenderungen aenderungen = nachlader.nachladen();
+            Assert.assertEquals(0, aenderungen.getNeu() + aenderungen.getEntfernt() + aenderungen.getGeaendert());
+
+            schreiben(datei,
+                    // Neue Adresse und neuer Zinssatz
+                    "VR Bank;MA2424;4711;1234;50,14;Sparkonto;2%;;123456;Mustermann;Max;Ringstrasse 5;68161;Mannheim\n"
+                    // Neuer Überziehungsbetrag, der Kontostand aus der Datei wird nicht übernommen
+                    + "VR Bank;MA2424;8321;1234;0;Girokonto;;2.000;123456;Mustermann;Max;Ringstrasse 5;68161;Mannheim\n"
+                    // Das Konto wechselt zu einem neuen Kunden
+                    + "VR Bank;MA2424;9000;1111;10;Girokonto;;0;5555;Neu;Nina;Weg 1;68159;Mannheim\n"
+                    // Neues Konto
+                    + "VR Bank;MA2424;9001;2222;75;Girokonto;;100;5555;Neu;Nina;Weg 1;68159;Mannheim\n"
+                    // Die Kontoart ändert sich, die Zeile wird übersprungen
+                    + "Berliner Bank;19087;1717;1234;500,14;Girokonto;;0;717171;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n"
+                    // Die Zocker Bank entfällt, eine neue Bank kommt hinzu
+                    + "Neue Bank;N1;1;1;5;Sparkonto;1%;;1;A;B;C;D;E\n");
+            aenderungen = nachlader.nachladen();
+
+            Assert.assertEquals(2, aenderungen.getNeu());
+            Assert.assertEquals(1, aenderungen.getEntfernt());
+            Assert.assertEquals(3, aenderungen.getGeaendert());
+            Assert.assertEquals(1, aenderungen.getUebersprungen());
+
+            // Bestehende Konten bleiben dieselben Objekte mit ihrem Kontostand
+            Assert.assertSame(girokonto, system.getKonto("MA2424", 8321));
+            Assert.assertEquals(50114, girokonto.getKontostandCent());
+            Assert.assertEquals(200000, ((Girokonto) girokonto).getUeberziehungsbetragCent());
+            Assert.assertSame(sparkonto, system.getKonto("MA2424", 4711));
+            Assert.assertEquals(0.02, ((Sparkonto) sparkonto).getZins(), 1e-12);
+            Assert.assertEquals("Ringstrasse 5", sparkonto.getKontoinhaber().getStrasse());
+
+            Assert.assertSame(wechsel, system.getKonto("MA2424", 9000));
+            Kontoinhaber nina = bank.findKundenByKundennummer(5555);
+            Assert.assertSame(nina, wechsel.getKontoinhaber());
+            Assert.assertSame(nina, system.getKonto("MA2424", 9001).getKontoinhaber());
+            Assert.assertEquals(2, nina.getKonten().size());
+            Assert.assertNull(bank.findKundenByKundennummer(4242));
+            Assert.assertEquals(7500, system.getKonto("MA2424", 9001).getKontostandCent());
+
+            Assert.assertTrue(system.getKonto("19087", 1717) instanceof Sparkonto);
+            Assert.assertNull(system.getBankByBLZ("Zock7777"));
+            Assert.assertNull(system.getKonto("Zock7777", 4444));
+            Assert.assertEquals(500, system.getKonto("N1", 1).getKontostandCent());
+            Assert.assertEquals(1, system.getKonto("N1", 1).getKontoinhaber().getKonten().size());
+            Assert.assertEquals(3, system.getBanks().size());
+
+            // Eine fehlerhafte Datei ändert nichts
+            schreiben(datei, "VR Bank;MA2424;4711;1234;x;Sparkonto;3%;;123456;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n");
+            try {
+                nachlader.nachladen();
+                Assert.fail("Erwartete IOException wurde nicht geworfen");
+            } catch (IOException ex) {
+                Assert.assertSame(girokonto, system.getKonto("MA2424", 8321));
+            }
+        } finally {
+            datei.delete();
+        }
+    }
+
+    @Test
+    public void testErgaenzenVorEinspielen() throws IOException {
+        File datei = File.createTempFile("nachladen", ".csv");
+        Path journalDatei = Files.createTempFile("nachladen", ".journal");
+        Files.delete(journalDatei);
+        try {
+            String max = "VR Bank;MA2424;8321;1234;500,14;Girokonto;;1.000;123456;Mustermann;Max;Bahnhofstrasse 1;68159;Mannheim\n";
+            String erika = "VR Bank;MA2424;9000;1111;10;Girokonto;;0;4242;Muster;Erika;Hauptstrasse 2;68159;Mannheim\n";
+            String nina = "VR Bank;MA2424;9001;2222;75;Girokonto;;100;5555;Neu;Nina;Weg 1;68159;Mannheim\n";
+            // Im laufenden Betrieb kommt ein Konto hinzu, danach wird auf beide Konten gebucht
+            schreiben(datei, max + erika);
+            BankManagementSystem laufend = CSVImporter.loadFromCSV(datei.getPath());
+            schreiben(datei, max + erika + nina);
+            new CSVNachlader(laufend, datei.getPath()).nachladen();
+            try (Journal journal = Journal.oeffnen(journalDatei)) {
+                journal.buchung(laufend.getKonto("MA2424", 9001), 25);
+                journal.buchung(laufend.getKonto("MA2424", 9000), 5);
+            }
+            // Danach wird das Konto 9000 aus der Datei entfernt
+            schreiben(datei, max + nina);
+
+            // Der nächste Start geht vom Stand vor dem Nachladen aus
+            BankManagementSystem system = new BankManagementSystem();
+            Bank bank = new Bank("MA2424", "VR Bank", system);
+            bank.addKonto(new Girokonto(8321, 1234, 50014L,
+                    new Kontoinhaber(123456, "Max", "Mustermann", "Bahnhofstrasse 1", "68159", "Mannheim"), bank, 100000L));
+            bank.addKonto(new Girokonto(9000, 1111, 1000L,
+                    new Kontoinhaber(4242, "Erika", "Muster", "Hauptstrasse 2", "68159", "Mannheim"), bank, 0L));
+            system.addBank(bank);
+
+            CSVNachlader nachlader = new CSVNachlader(system, datei.getPath());
+            CSVNachlader.Aenderungen aenderungen = nachlader.ergaenzen();
+            Assert.assertEquals(1, aenderungen.getNeu());
+            Assert.assertEquals(0, aenderungen.getEntfernt());
+            Assert.assertNotNull(system.getKonto("MA2424", 9000));
+            Assert.assertEquals(2, Journal.abspielen(journalDatei, system, 0));
+            Assert.assertEquals(7525, system.getKonto("MA2424", 9001).getKontostandCent());
+            Assert.assertEquals(1005, system.getKonto("MA2424", 9000).getKontostandCent());
+
+            aenderungen = nachlader.nachladen();
+            Assert.assertEquals(1, aenderungen.getEntfernt());
+            Assert.assertNull(system.getKonto("MA2424", 9000));
+        } finally {
+            datei.delete();
+            Files.deleteIfExists(journalDatei);
+        }
+    }
+}
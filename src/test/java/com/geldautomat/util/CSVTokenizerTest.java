@@ -0,0 +1,96 @@
+package com.geldautomat.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class CSVTokenizerTest {
+
+    @Test
+    public void testFelderUndZeilenenden() throws IOException {
+        CSVTokenizer zeile = new CSVTokenizer(new StringReader("a;b;;c\r\nd;;\r\n\ne;f"));
+
+        assertTrue(zeile.naechsteZeile());
+        assertEquals(4, zeile.getAnzahlFelder());
+        assertEquals("a", zeile.text(0));
+        assertEquals("", zeile.text(2));
+        assertEquals("c", zeile.text(3));
+
+        assertTrue(zeile.naechsteZeile());
+        assertEquals(1, zeile.getAnzahlFelder());
+        assertEquals("d", zeile.text(0));
+
+        assertTrue(zeile.naechsteZeile());
+        assertEquals(1, zeile.getAnzahlFelder());
+
+        assertTrue(zeile.naechsteZeile());
+        assertEquals("f", zeile.text(1));
+        assertFalse(zeile.naechsteZeile());
+    }
+
+    @Test
+    public void testDeutscheZahlen() throws IOException {
+        CSVTokenizer zeile = new CSVTokenizer(new StringReader("1.234,56 €;-8.000,5;2,5 %;4711;Girokonto;1e3"));
+        assertTrue(zeile.naechsteZeile());
+
+        assertEquals(123456, zeile.betrag(0));
+        assertEquals(-800050, zeile.betrag(1));
+        assertEquals(2.5, zeile.prozent(2), 0.0);
+        assertEquals(4711, zeile.ganzzahl(3));
+        assertTrue(zeile.gleichIgnoreCase(4, "GIROKONTO"));
+        assertFalse(zeile.gleichIgnoreCase(4, "Sparkonto"));
+        // Sonderformate werden wie bisher von Double.parseDouble verarbeitet
+        assertEquals(100000, zeile.betrag(5));
+    }
+
+    @Test
+    public void testParseFehler() throws IOException {
+        CSVTokenizer zeile = new CSVTokenizer(new StringReader("ParseFehler;12 ,5;2147483648"));
+        assertTrue(zeile.naechsteZeile());
+
+        try {
+            zeile.ganzzahl(0);
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException e) {
+            assertEquals("For input string: \"ParseFehler\"", e.getMessage());
+        }
+        try {
+            zeile.betrag(1);
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException e) {
+            // erwartet
+        }
+        try {
+            zeile.ganzzahl(2);
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException e) {
+            // erwartet
+        }
+    }
+
+    @Test
+    public void testLangeZeileUeberPuffergrenze() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            csv.append(i).append(';').append(i % 7).append(",5\r\n");
+        }
+        StringBuilder langesFeld = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            langesFeld.append('x');
+        }
+        csv.append(langesFeld).append(";1");
+        CSVTokenizer zeile = new CSVTokenizer(new StringReader(csv.toString()));
+
+        for (int i = 0; i < 20000; i++) {
+            assertTrue(zeile.naechsteZeile());
+            assertEquals(i, zeile.ganzzahl(0));
+            assertEquals(i % 7 * 100 + 50, zeile.betrag(1));
+        }
+        assertTrue(zeile.naechsteZeile());
+        assertEquals(langesFeld.toString(), zeile.text(0));
+        assertEquals(1, zeile.ganzzahl(1));
+        assertFalse(zeile.naechsteZeile());
+    }
+}
@@ -0,0 +1,35 @@
+package com.geldautomat.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HistogrammTest {
+
+    @Test
+    public void testPerzentil() {
+        Histogramm histogramm = new Histogramm();
+        assertEquals(0, histogramm.perzentil(0.5));
+        for (int i = 1; i <= 100_000; i++) {
+            histogramm.erfassen(i);
+        }
+        assertEquals(100_000, histogramm.getAnzahl());
+        assertEquals(100_000, histogramm.getMaximum());
+        assertEquals(50_000.5, histogramm.getMittelwert(), 0.001);
+        assertEquals(50_000, histogramm.perzentil(0.5), 50_000 * 0.04);
+        assertEquals(99_000, histogramm.perzentil(0.99), 99_000 * 0.04);
+        assertEquals(100_000, histogramm.perzentil(1.0));
+        assertEquals(1, histogramm.perzentil(0.0));
+    }
+
+    @Test
+    public void testKlassen() {
+        // Jeder Wert liegt in seiner Klasse, die Klassen schließen lückenlos aneinander an
+        long[] werte = {0, 1, 63, 64, 65, 127, 128, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long wert : werte) {
+            int klasse = Histogramm.klasse(wert);
+            assertTrue(Histogramm.obergrenze(klasse) >= wert);
+            assertTrue(klasse == 0 || Histogramm.obergrenze(klasse - 1) < wert);
+        }
+    }
+}